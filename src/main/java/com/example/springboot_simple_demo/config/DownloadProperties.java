@@ -0,0 +1,58 @@
+package com.example.springboot_simple_demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/*
+  /downloads 本地文件下载配置 (前缀 downloads)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "downloads")
+public class DownloadProperties {
+
+    /**
+     * 映射到 /downloads/** 的本地根目录，默认为工作目录下专用的 downloads 目录，不要指向 / 等系统目录
+     */
+    private String root = "downloads";
+
+    /**
+     * 客户端接受gzip且存在同名 .gz 文件(不比原文件旧)时直接返回 .gz 文件
+     */
+    private boolean gzipVariants = true;
+
+    /**
+     * 文件元数据缓存的最大条目数
+     */
+    private int metadataCacheSize = 10000;
+
+    /**
+     * 文件元数据缓存的有效期，过期后重新读取文件属性
+     */
+    private Duration metadataTtl = Duration.ofSeconds(2);
+
+    /**
+     * 目录打包下载(ZIP流)
+     */
+    private Zip zip = new Zip();
+
+    @Data
+    public static class Zip {
+        // 压缩线程数，所有打包请求共用
+        private int threads = Runtime.getRuntime().availableProcessors();
+        // 每个请求同时在压缩中的最大条目数
+        private int window = 16;
+        // 在内存中并行压缩的最大文件大小，更大的文件轮到时边读边压缩；单个请求的内存占用约为 window * 该值
+        private DataSize maxBufferedSize = DataSize.ofMegabytes(1);
+        // 压缩级别 0-9
+        private int level = 6;
+        // 每次打包的最大条目数(文件和目录)，超出时拒绝请求
+        private int maxEntries = 10000;
+        // 每次打包的文件总大小上限，超出时拒绝请求
+        private DataSize maxSize = DataSize.ofGigabytes(4);
+    }
+}
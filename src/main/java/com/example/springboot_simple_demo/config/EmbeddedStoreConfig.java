@@ -0,0 +1,20 @@
+package com.example.springboot_simple_demo.config;
+
+import com.example.springboot_simple_demo.utils.redis.EmbeddedTtlStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+  进程内存储配置，redis-util.backend=embedded 或 redis-util.embedded.failover=true 时生效
+ */
+@Configuration
+@ConditionalOnExpression("'${redis-util.backend:redis}'.equalsIgnoreCase('embedded') or ${redis-util.embedded.failover:false}")
+public class EmbeddedStoreConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public EmbeddedTtlStore embeddedTtlStore(RedisUtilProperties properties) {
+        RedisUtilProperties.Embedded embedded = properties.getEmbedded();
+        return new EmbeddedTtlStore(embedded.getMaxKeys(), embedded.getTick().toMillis());
+    }
+}
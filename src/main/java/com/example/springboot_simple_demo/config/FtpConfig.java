@@ -0,0 +1,76 @@
+package com.example.springboot_simple_demo.config;
+
+import com.example.springboot_simple_demo.entity.FtpServiceInfo;
+import com.example.springboot_simple_demo.entity.TransferJob;
+import com.example.springboot_simple_demo.utils.ftp.BandwidthLimiter;
+import com.example.springboot_simple_demo.utils.ftp.FtpClientFactory;
+import com.example.springboot_simple_demo.utils.ftp.FtpClientPool;
+import com.example.springboot_simple_demo.utils.ftp.FtpDiskCache;
+import com.example.springboot_simple_demo.utils.ftp.FtpMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class FtpConfig {
+    // FTP会话池，FtpTransferService的传输都从池中借用会话，各阶段的指标注册到Spring Boot的MeterRegistry
+    @Bean(destroyMethod = "close")
+    public FtpClientPool ftpClientPool(FtpProperties properties, MeterRegistry meterRegistry) {
+        FtpProperties.Pool pool = properties.getPool();
+        GenericKeyedObjectPoolConfig<FTPClient> config = new GenericKeyedObjectPoolConfig<>();
+        config.setMaxTotalPerKey(pool.getMaxPerHost());
+        config.setMaxIdlePerKey(pool.getMaxIdlePerHost());
+        config.setMaxTotal(pool.getMaxTotal());
+        config.setMaxWaitMillis(pool.getMaxWait().toMillis());
+        config.setBlockWhenExhausted(true);
+        // 借出时校验(只有空闲较久的会话才真正发送NOOP)，空闲时定期校验并关闭过期会话
+        config.setTestOnBorrow(true);
+        config.setTestWhileIdle(true);
+        config.setTimeBetweenEvictionRunsMillis(pool.getEvictionInterval().toMillis());
+        config.setMinEvictableIdleTimeMillis(pool.getMaxIdleTime().toMillis());
+        config.setJmxEnabled(false);
+
+        FtpClientFactory factory = new FtpClientFactory((int) properties.getConnectTimeout().toMillis(),
+                (int) properties.getSoTimeout().toMillis(), pool.getValidateAfterIdle().toMillis(), FtpMetrics.of(meterRegistry));
+        return new FtpClientPool(factory, config);
+    }
+
+    // FTP传输的带宽限制，运行时可通过 /ftp/bandwidth 调整
+    @Bean
+    public BandwidthLimiter bandwidthLimiter(FtpProperties properties) {
+        FtpProperties.Bandwidth bandwidth = properties.getBandwidth();
+        Map<String, Long> hostRates = new HashMap<>();
+        bandwidth.getHosts().forEach((host, rate) -> hostRates.put(host, rate.toBytes()));
+        Map<TransferJob.Lane, Integer> weights = new EnumMap<>(TransferJob.Lane.class);
+        weights.put(TransferJob.Lane.INTERACTIVE, bandwidth.getInteractiveWeight());
+        weights.put(TransferJob.Lane.BULK, bandwidth.getBulkWeight());
+        return new BandwidthLimiter(bandwidth.getGlobalRate().toBytes(), bandwidth.getHostRate().toBytes(), hostRates, weights);
+    }
+
+    // FTP文件的本地磁盘缓存
+    @Bean
+    public FtpDiskCache ftpDiskCache(FtpClientPool ftpClientPool, FtpProperties properties,
+                                     BandwidthLimiter bandwidthLimiter) throws IOException {
+        FtpProperties.Cache cache = properties.getCache();
+        return new FtpDiskCache(ftpClientPool, new File(cache.getDir()), cache.getMaxSize().toBytes(),
+                cache.getRevalidateAfter().toMillis(), bandwidthLimiter);
+    }
+
+    // application.yml 中 ftpServiceInfo 配置的默认FTP服务器
+    @Bean
+    public FtpServiceInfo ftpServiceInfo(@Value("${ftpServiceInfo.hostIp:127.0.0.1}") String host,
+                                         @Value("${ftpServiceInfo.port:21}") Integer port,
+                                         @Value("${ftpServiceInfo.username:anonymous}") String username,
+                                         @Value("${ftpServiceInfo.password:}") String password) {
+        return new FtpServiceInfo(host, port, username, password);
+    }
+}
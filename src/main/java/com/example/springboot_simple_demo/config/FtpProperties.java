@@ -0,0 +1,167 @@
+package com.example.springboot_simple_demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+  FTP传输配置 (前缀 ftp)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ftp")
+public class FtpProperties {
+
+    /**
+     * 连接超时
+     */
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /**
+     * 控制连接和数据连接的读超时
+     */
+    private Duration soTimeout = Duration.ofSeconds(60);
+
+    /**
+     * 会话池
+     */
+    private Pool pool = new Pool();
+
+    /**
+     * 目录上传
+     */
+    private Upload upload = new Upload();
+
+    /**
+     * 分段下载
+     */
+    private Download download = new Download();
+
+    /**
+     * 断点续传
+     */
+    private Resume resume = new Resume();
+
+    /**
+     * 目录增量同步
+     */
+    private Sync sync = new Sync();
+
+    /**
+     * 下载文件的本地磁盘缓存
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * 后台传输任务
+     */
+    private Jobs jobs = new Jobs();
+
+    /**
+     * 带宽限制
+     */
+    private Bandwidth bandwidth = new Bandwidth();
+
+    @Data
+    public static class Pool {
+        // 每个FTP服务器(主机+端口+用户)的最大会话数，不应超过服务器允许的单用户连接数
+        private int maxPerHost = 8;
+        // 每个FTP服务器的最大空闲会话数
+        private int maxIdlePerHost = 4;
+        // 所有FTP服务器的最大会话数
+        private int maxTotal = 64;
+        // 会话耗尽时的最长等待时间
+        private Duration maxWait = Duration.ofSeconds(30);
+        // 空闲超过该时间的会话借出前先发送NOOP校验，刚归还的会话直接复用
+        private Duration validateAfterIdle = Duration.ofSeconds(10);
+        // 空闲超过该时间的会话被关闭，应小于服务器的空闲超时(vsftpd默认300秒)
+        private Duration maxIdleTime = Duration.ofSeconds(120);
+        // 空闲会话检查间隔
+        private Duration evictionInterval = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Upload {
+        // 并行上传的会话数，实际不超过pool.max-per-host
+        private int concurrency = 4;
+        // 每个文件的最大尝试次数
+        private int maxAttempts = 3;
+    }
+
+    @Data
+    public static class Download {
+        // 大文件分段下载的最大段数(并行数据连接数)，实际不超过pool.max-per-host
+        private int segments = 4;
+        // 每段的最小大小，小于两段的文件不分段
+        private DataSize minSegmentSize = DataSize.ofMegabytes(16);
+        // 每段的最大尝试次数
+        private int maxAttempts = 3;
+    }
+
+    @Data
+    public static class Resume {
+        // 上传进度文件目录
+        private String stateDir = System.getProperty("java.io.tmpdir") + "/ftp-resume";
+        // 单个文件上传或下载的最大尝试次数，每次从断点继续
+        private int maxAttempts = 5;
+    }
+
+    @Data
+    public static class Sync {
+        // 同步清单目录，每对 本地目录+FTP目录 一个清单文件
+        private String manifestDir = System.getProperty("java.io.tmpdir") + "/ftp-sync";
+        // 是否删除本地已不存在的FTP文件和目录
+        private boolean delete = false;
+        // 是否跳过修改时间与清单一致的FTP目录，不再列出其内容，见FtpDirectorySync
+        private boolean skipUnchangedDirectories = false;
+    }
+
+    @Data
+    public static class Cache {
+        // 是否通过缓存下载文件
+        private boolean enabled = true;
+        // 缓存目录，启动时清空
+        private String dir = System.getProperty("java.io.tmpdir") + "/ftp-cache";
+        // 缓存文件总大小上限，超出时淘汰最久未使用的文件；更大的单个文件不缓存
+        private DataSize maxSize = DataSize.ofGigabytes(1);
+        // 该时间内直接使用缓存，之后先探测远程文件的大小和修改时间，未变化时不重新下载
+        private Duration revalidateAfter = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Jobs {
+        // 交互式任务的工作线程数
+        private int interactiveWorkers = 4;
+        // 批量任务的工作线程数
+        private int bulkWorkers = 2;
+        // 每个FTP服务器同时执行的最大任务数，不应超过pool.max-per-host
+        private int maxPerHost = 4;
+        // 每个FTP服务器同时执行的最大批量任务数，其余留给交互式任务
+        private int bulkMaxPerHost = 2;
+        // 等待中的最大任务数，超出时拒绝提交
+        private int queueCapacity = 1000;
+        // 保留的任务数，超出时移除最早结束的任务
+        private int retainedJobs = 200;
+        // 未指定队列时，不超过该大小的文件进入交互式队列
+        private DataSize interactiveMaxSize = DataSize.ofMegabytes(16);
+    }
+
+    @Data
+    public static class Bandwidth {
+        // 所有FTP传输的总速率(每秒)，0表示不限制
+        private DataSize globalRate = DataSize.ofBytes(0);
+        // 每个FTP主机的默认速率(每秒)，0表示不限制
+        private DataSize hostRate = DataSize.ofBytes(0);
+        // 单独设置速率的FTP主机，键为主机地址
+        private Map<String, DataSize> hosts = new HashMap<>();
+        // 带宽紧张时交互式传输的权重
+        private int interactiveWeight = 4;
+        // 带宽紧张时批量传输(目录上传、同步、分段下载、批量任务)的权重
+        private int bulkWeight = 1;
+    }
+}
@@ -1,27 +1,170 @@
 package com.example.springboot_simple_demo.config;
 
+import com.example.springboot_simple_demo.utils.redis.LettuceConnections;
+import com.example.springboot_simple_demo.utils.redis.RedisRouter;
+import com.example.springboot_simple_demo.utils.redis.ReplicaRedisRouter;
+import com.example.springboot_simple_demo.utils.redis.ShardedRedisRouter;
+import com.example.springboot_simple_demo.utils.redis.SingleRedisRouter;
+import com.example.springboot_simple_demo.utils.redis.StripedRedisRouter;
+import com.example.springboot_simple_demo.utils.redis.codec.RedisValueCodecs;
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.DefaultClientResources;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.RedisStaticMasterReplicaConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
-import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
+@Slf4j
 public class LettuceRedisConfig {
+    // 所有Lettuce连接工厂(主连接、条带、分片、主从)共用的事件循环和定时器线程
+    @Bean(destroyMethod = "shutdown")
+    public ClientResources lettuceClientResources() {
+        return DefaultClientResources.create();
+    }
+
+    // 按redis-util.connection.mode创建的连接工厂，替代Spring Boot默认的单个共享连接
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory(RedisProperties redisProperties,
+                                                           RedisUtilProperties properties,
+                                                           ClientResources lettuceClientResources) {
+        LettuceConnections.checkStandalone(redisProperties);
+        return LettuceConnections.create(LettuceConnections.standaloneConfiguration(redisProperties), redisProperties,
+                properties, lettuceClientResources);
+    }
+
     // 自定义的redisTemplate
     @Bean(name = "redisTemplate")
-    public RedisTemplate<String, Serializable> redisTemplate(LettuceConnectionFactory connectionFactory) {
-        // 创建一个RedisTemplate对象，为了方便返回key为string，value为Serializable
-        RedisTemplate<String, Serializable> redisTemplate = new RedisTemplate<>();
-        redisTemplate.setConnectionFactory(connectionFactory);
-        // key采用string的序列化方式
-        redisTemplate.setKeySerializer(new StringRedisSerializer());
-        // value采用jackson的序列化方式
-        redisTemplate.setValueSerializer(new GenericJackson2JsonRedisSerializer());
-
-        return redisTemplate;
+    public RedisTemplate<String, String> redisTemplate(LettuceConnectionFactory connectionFactory,
+                                                       RedisSerializer<Object> redisValueCodec) {
+        // 创建一个RedisTemplate对象，key和value均为string，与RedisUtil一致
+        return LettuceConnections.template(connectionFactory, redisValueCodec);
+    }
+
+    // RedisUtil按键选择RedisTemplate
+    @Bean
+    public RedisRouter redisRouter(RedisTemplate<String, String> redisTemplate,
+                                   RedisProperties redisProperties,
+                                   RedisUtilProperties properties,
+                                   RedisSerializer<Object> redisValueCodec,
+                                   ClientResources lettuceClientResources) {
+        RedisUtilProperties.Connection connection = properties.getConnection();
+        RedisRouter router = primaryRouter(redisTemplate, redisProperties, properties, redisValueCodec, lettuceClientResources);
+        if (connection.getReplicas().isEmpty() || connection.getReadFrom() == RedisUtilProperties.Connection.ReadPolicy.MASTER) {
+            return router;
+        }
+        if (connection.getMode() == RedisUtilProperties.Connection.Mode.SHARDED) {
+            log.warn("redis-util.connection.replicas is not supported in sharded mode, reading from masters");
+            return router;
+        }
+
+        // 只读命令走主从连接，由Lettuce按ReadFrom策略选择节点
+        LettuceClientConfiguration clientConfiguration = LettuceConnections.clientConfiguration(redisProperties, properties,
+                        lettuceClientResources)
+                .readFrom(readFrom(connection.getReadFrom()))
+                .build();
+        LettuceConnectionFactory replicaFactory = LettuceConnections.create(
+                masterReplicaConfiguration(redisProperties, connection.getReplicas()), clientConfiguration, properties);
+        replicaFactory.afterPropertiesSet();
+        return new ReplicaRedisRouter(router, LettuceConnections.template(replicaFactory, redisValueCodec), replicaFactory,
+                connection.getReadYourWritesWindow().toMillis());
+    }
+
+    // 写命令使用的router：单连接、条带化连接或分片
+    private RedisRouter primaryRouter(RedisTemplate<String, String> redisTemplate,
+                                      RedisProperties redisProperties,
+                                      RedisUtilProperties properties,
+                                      RedisSerializer<Object> redisValueCodec,
+                                      ClientResources clientResources) {
+        RedisUtilProperties.Connection connection = properties.getConnection();
+        if (connection.getMode() == RedisUtilProperties.Connection.Mode.SHARDED) {
+            // 每个分片节点各自一个连接工厂，由router创建和关闭
+            ShardedRedisRouter router = new ShardedRedisRouter(connection.getVirtualNodes(), node -> {
+                LettuceConnectionFactory factory = LettuceConnections.create(
+                        LettuceConnections.standaloneConfiguration(redisProperties, node), redisProperties, properties,
+                        clientResources);
+                factory.afterPropertiesSet();
+                return LettuceConnections.template(factory, redisValueCodec);
+            });
+            connection.getShards().forEach(router::addShard);
+            return router;
+        }
+        if (connection.getMode() != RedisUtilProperties.Connection.Mode.STRIPED || connection.getStripes() <= 1) {
+            return new SingleRedisRouter(redisTemplate);
+        }
+
+        // 第一条连接即redisTemplate，其余连接由router创建和关闭
+        List<RedisTemplate<String, String>> stripes = new ArrayList<>();
+        List<LettuceConnectionFactory> factories = new ArrayList<>();
+        stripes.add(redisTemplate);
+        for (int i = 1; i < connection.getStripes(); i++) {
+            LettuceConnectionFactory factory = LettuceConnections.create(
+                    LettuceConnections.standaloneConfiguration(redisProperties), redisProperties, properties, clientResources);
+            factory.afterPropertiesSet();
+            factories.add(factory);
+            stripes.add(LettuceConnections.template(factory, redisValueCodec));
+        }
+        return new StripedRedisRouter(stripes, factories);
+    }
+
+    // 响应式的redisTemplate，编码与redisTemplate一致
+    @Bean(name = "reactiveRedisTemplate")
+    @SuppressWarnings("unchecked")
+    public ReactiveRedisTemplate<String, String> reactiveRedisTemplate(ReactiveRedisConnectionFactory connectionFactory,
+                                                                       RedisSerializer<Object> redisValueCodec) {
+        RedisSerializer<String> valueSerializer = (RedisSerializer<String>) (RedisSerializer<?>) redisValueCodec;
+        RedisSerializationContext<String, String> serializationContext = RedisSerializationContext
+                .<String, String>newSerializationContext(new StringRedisSerializer())
+                .value(valueSerializer)
+                .build();
+        return new ReactiveRedisTemplate<>(connectionFactory, serializationContext);
+    }
+
+    // Redis值的编码
+    @Bean
+    public RedisSerializer<Object> redisValueCodec(RedisUtilProperties properties) {
+        RedisUtilProperties.Codec codec = properties.getCodec();
+        return RedisValueCodecs.create(codec.getType(), codec.getCompressionThreshold(), codec.isLegacyJsonRead());
+    }
+
+    // 主从服务端配置，主节点为spring.redis.host/port(或spring.redis.url)，从节点为replicas
+    static RedisStaticMasterReplicaConfiguration masterReplicaConfiguration(RedisProperties redisProperties,
+                                                                            List<String> replicas) {
+        RedisStandaloneConfiguration master = LettuceConnections.standaloneConfiguration(redisProperties);
+        RedisStaticMasterReplicaConfiguration configuration =
+                new RedisStaticMasterReplicaConfiguration(master.getHostName(), master.getPort());
+        for (String replica : replicas) {
+            RedisStandaloneConfiguration node = LettuceConnections.standaloneConfiguration(redisProperties, replica);
+            configuration.node(node.getHostName(), node.getPort());
+        }
+        configuration.setDatabase(master.getDatabase());
+        configuration.setUsername(master.getUsername());
+        configuration.setPassword(master.getPassword());
+        return configuration;
+    }
+
+    private static ReadFrom readFrom(RedisUtilProperties.Connection.ReadPolicy policy) {
+        switch (policy) {
+            case REPLICA_PREFERRED:
+                return ReadFrom.REPLICA_PREFERRED;
+            case NEAREST:
+                return ReadFrom.NEAREST;
+            default:
+                return ReadFrom.MASTER;
+        }
     }
 }
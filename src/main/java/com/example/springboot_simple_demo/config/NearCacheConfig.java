@@ -0,0 +1,225 @@
+package com.example.springboot_simple_demo.config;
+
+import com.example.springboot_simple_demo.utils.redis.NearCache;
+import com.example.springboot_simple_demo.utils.redis.RedisRouter;
+import com.example.springboot_simple_demo.utils.redis.ShardedRedisRouter;
+import io.lettuce.core.event.Event;
+import io.lettuce.core.event.connection.ConnectionActivatedEvent;
+import io.lettuce.core.event.connection.ConnectionDeactivatedEvent;
+import io.lettuce.core.resource.ClientResources;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/*
+  本地近端缓存配置，redis-util.near-cache.enabled=true时生效
+  通过订阅各数据节点的Redis键空间通知(__keyspace@db__:*)使本地缓存失效
+  订阅断开期间的失效通知会丢失：Lettuce连接断开、重连后(自动重新订阅)以及订阅失败时清空本地缓存
+  Lettuce连接事件不区分订阅连接和命令连接，其他连接断开重连同样会清空，只损失命中率
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "redis-util.near-cache", name = "enabled", havingValue = "true")
+@Slf4j
+public class NearCacheConfig {
+    // 键空间通知需要的事件类型: K键空间 g通用命令 $字符串命令 x过期 e淘汰
+    private static final String KEYSPACE_EVENTS = "Kg$xe";
+
+    @Bean
+    public NearCache nearCache(RedisUtilProperties properties) {
+        RedisUtilProperties.NearCache nearCache = properties.getNearCache();
+        return new NearCache(nearCache.getMaxSize(), nearCache.getMaxTtl().toMillis());
+    }
+
+    // 近端缓存命中、未命中次数与大小，通过/actuator/metrics查看
+    @Bean
+    public MeterBinder nearCacheMetrics(NearCache nearCache) {
+        return registry -> {
+            FunctionCounter.builder("redis.util.near.cache.hits", nearCache, NearCache::hitCount)
+                    .description("近端缓存命中次数").register(registry);
+            FunctionCounter.builder("redis.util.near.cache.misses", nearCache, NearCache::missCount)
+                    .description("近端缓存未命中次数").register(registry);
+            Gauge.builder("redis.util.near.cache.size", nearCache, NearCache::size)
+                    .description("近端缓存的键数量").register(registry);
+        };
+    }
+
+    // 每个数据节点各订阅一次键空间通知 (分片模式下有多个节点，运行时增删的节点随之订阅和退订)
+    @Bean
+    public NearCacheListeners nearCacheListeners(RedisRouter redisRouter,
+                                                 RedisProperties redisProperties,
+                                                 RedisUtilProperties properties,
+                                                 NearCache nearCache,
+                                                 ClientResources lettuceClientResources) {
+        NearCacheListeners listeners = new NearCacheListeners(
+                connectionFactory -> listenerContainer(connectionFactory, redisProperties, properties, nearCache),
+                lettuceClientResources.eventBus().get(), nearCache);
+        if (redisRouter instanceof ShardedRedisRouter) {
+            ((ShardedRedisRouter) redisRouter).addShardListener(listeners);
+        } else {
+            redisRouter.nodes().forEach(listeners::shardAdded);
+        }
+        return listeners;
+    }
+
+    private RedisMessageListenerContainer listenerContainer(RedisConnectionFactory connectionFactory,
+                                                            RedisProperties redisProperties,
+                                                            RedisUtilProperties properties,
+                                                            NearCache nearCache) {
+        if (properties.getNearCache().isConfigureNotifications()) {
+            enableKeyspaceEvents(connectionFactory);
+        }
+
+        String prefix = "__keyspace@" + redisProperties.getDatabase() + "__:";
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            // 订阅失败后容器会定期重试，期间收不到失效通知
+            @Override
+            protected void handleSubscriptionException(Throwable exception) {
+                nearCache.clear();
+                super.handleSubscriptionException(exception);
+            }
+        };
+        container.setConnectionFactory(connectionFactory);
+        // 任何事件(写入、删除、过期、淘汰)都使本地缓存中的该键失效
+        container.addMessageListener((message, pattern) -> {
+            String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+            nearCache.invalidate(channel.substring(prefix.length()));
+        }, new PatternTopic(prefix + "*"));
+        container.afterPropertiesSet();
+        return container;
+    }
+
+    /**
+     * 在已有配置基础上补充键空间通知需要的事件类型
+     */
+    private void enableKeyspaceEvents(RedisConnectionFactory connectionFactory) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Properties config = connection.getConfig("notify-keyspace-events");
+            String events = config == null ? "" : config.getProperty("notify-keyspace-events", "");
+            StringBuilder merged = new StringBuilder(events);
+            for (char event : KEYSPACE_EVENTS.toCharArray()) {
+                if (events.indexOf(event) < 0 && !(event != 'K' && events.indexOf('A') >= 0)) {
+                    merged.append(event);
+                }
+            }
+            if (!merged.toString().equals(events)) {
+                connection.setConfig("notify-keyspace-events", merged.toString());
+            }
+            log.info("notify-keyspace-events: {}", merged);
+        } catch (Exception exception) {
+            log.error("enable keyspace events failed: {}", exception.getMessage());
+        }
+    }
+
+    /**
+     * 管理键空间通知订阅的启停，分片节点增删时订阅或退订该节点
+     * 运行期间监听Lettuce连接事件，连接断开时以及断开后重新连上时清空近端缓存
+     */
+    public static class NearCacheListeners implements SmartLifecycle, DisposableBean, ShardedRedisRouter.ShardListener {
+        private final Function<RedisConnectionFactory, RedisMessageListenerContainer> containerFactory;
+        private final Flux<Event> connectionEvents;
+        private final NearCache nearCache;
+        // 节点 -> 订阅
+        private final Map<RedisTemplate<String, String>, RedisMessageListenerContainer> containers = new IdentityHashMap<>();
+        // 有连接断开后尚未重连，重连时再清空一次：断开期间其他连接读到的值可能错过了失效通知
+        private final AtomicBoolean reconnecting = new AtomicBoolean();
+        private Disposable connectionSubscription;
+        private boolean running;
+
+        /**
+         * @param containerFactory 为数据节点创建键空间通知订阅
+         * @param connectionEvents Lettuce连接事件
+         * @param nearCache        近端缓存
+         */
+        public NearCacheListeners(Function<RedisConnectionFactory, RedisMessageListenerContainer> containerFactory,
+                                  Flux<Event> connectionEvents, NearCache nearCache) {
+            this.containerFactory = containerFactory;
+            this.connectionEvents = connectionEvents;
+            this.nearCache = nearCache;
+        }
+
+        @Override
+        public synchronized void shardAdded(RedisTemplate<String, String> template) {
+            RedisMessageListenerContainer container = containerFactory.apply(template.getRequiredConnectionFactory());
+            containers.put(template, container);
+            if (running) {
+                container.start();
+            }
+        }
+
+        @Override
+        public synchronized void shardRemoved(RedisTemplate<String, String> template) {
+            RedisMessageListenerContainer container = containers.remove(template);
+            if (container != null) {
+                destroy(container);
+            }
+        }
+
+        @Override
+        public synchronized void start() {
+            running = true;
+            connectionSubscription = connectionEvents.subscribe(this::connectionEvent);
+            containers.values().forEach(RedisMessageListenerContainer::start);
+        }
+
+        @Override
+        public synchronized void stop() {
+            running = false;
+            if (connectionSubscription != null) {
+                connectionSubscription.dispose();
+                connectionSubscription = null;
+            }
+            containers.values().forEach(RedisMessageListenerContainer::stop);
+        }
+
+        private void connectionEvent(Event event) {
+            if (event instanceof ConnectionDeactivatedEvent) {
+                reconnecting.set(true);
+                nearCache.clear();
+                log.info("redis connection {} lost, near cache cleared", ((ConnectionDeactivatedEvent) event).remoteAddress());
+            } else if (event instanceof ConnectionActivatedEvent && reconnecting.getAndSet(false)) {
+                nearCache.clear();
+                log.info("redis connection {} restored, near cache cleared", ((ConnectionActivatedEvent) event).remoteAddress());
+            }
+        }
+
+        @Override
+        public synchronized boolean isRunning() {
+            return running;
+        }
+
+        @Override
+        public synchronized void destroy() {
+            containers.values().forEach(NearCacheListeners::destroy);
+            containers.clear();
+        }
+
+        private static void destroy(RedisMessageListenerContainer container) {
+            try {
+                container.destroy();
+            } catch (Exception exception) {
+                log.warn("destroy keyspace listener failed: {}", exception.getMessage());
+            }
+        }
+    }
+}
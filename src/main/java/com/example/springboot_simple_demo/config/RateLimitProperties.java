@@ -0,0 +1,77 @@
+package com.example.springboot_simple_demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Positive;
+
+/*
+  生成验证码接口的限流配置 (前缀 rate-limit)
+  启动时校验，令牌补充速率为0会在令牌桶脚本和本地预过滤中除以0
+ */
+@Data
+@Validated
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * 是否启用限流
+     */
+    private boolean enabled = true;
+
+    /**
+     * 令牌桶键前缀
+     */
+    private String keyPrefix = "rate:";
+
+    /**
+     * 是否按X-Forwarded-For的第一个地址识别客户端，仅在可信的反向代理之后开启
+     */
+    private boolean trustForwardedFor = false;
+
+    /**
+     * 每个客户端的限流，在Redis中执行，所有实例共享
+     */
+    @Valid
+    private Bucket client = new Bucket(20, 1);
+
+    /**
+     * 每个序号的限流，在Redis中执行，所有实例共享
+     */
+    @Valid
+    private Bucket redisId = new Bucket(3, 0.2);
+
+    /**
+     * 每个客户端的本地预过滤，只在本实例内计数，应明显宽于client，只拦截明显的洪泛
+     */
+    @Valid
+    private Bucket local = new Bucket(60, 5);
+
+    /**
+     * 本地预过滤最多跟踪的客户端数量
+     */
+    @Positive
+    private int maxLocalClients = 100000;
+
+    @Data
+    public static class Bucket {
+        // 桶容量，即允许的突发请求数
+        @Positive
+        private int capacity;
+        // 每秒补充的令牌数
+        @Positive
+        private double ratePerSecond;
+
+        public Bucket() {
+        }
+
+        public Bucket(int capacity, double ratePerSecond) {
+            this.capacity = capacity;
+            this.ratePerSecond = ratePerSecond;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.springboot_simple_demo.config;
+
+import com.example.springboot_simple_demo.utils.redis.HotKeyTracker;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+  RedisUtil的热点键统计配置，redis-util.hot-keys.enabled=false时关闭
+  各操作的耗时与异常指标由RedisUtil直接注册到MeterRegistry，通过/actuator/metrics查看
+ */
+@Configuration
+public class RedisMetricsConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "redis-util.hot-keys", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public HotKeyTracker hotKeyTracker(RedisUtilProperties properties) {
+        RedisUtilProperties.HotKeys hotKeys = properties.getHotKeys();
+        return new HotKeyTracker(hotKeys.getCapacity(), hotKeys.getSampleRate(), hotKeys.getWindow().toMillis());
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.springboot_simple_demo.config;
+
+import com.example.springboot_simple_demo.utils.redis.codec.RedisValueCodecs;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+  RedisUtil扩展功能配置 (前缀 redis-util)
+ */
+@Data
+@Validated
+@Component
+@ConfigurationProperties(prefix = "redis-util")
+public class RedisUtilProperties {
+
+    /**
+     * 存储后端
+     */
+    private Backend backend = Backend.REDIS;
+
+    /**
+     * 进程内存储
+     */
+    private Embedded embedded = new Embedded();
+
+    /**
+     * 本地近端缓存
+     */
+    private NearCache nearCache = new NearCache();
+
+    /**
+     * 批量操作
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * 值的编码
+     */
+    private Codec codec = new Codec();
+
+    /**
+     * 连接策略
+     */
+    private Connection connection = new Connection();
+
+    /**
+     * 热点键统计
+     */
+    @Valid
+    private HotKeys hotKeys = new HotKeys();
+
+    /**
+     * 按匹配模式批量删除、设置生存时间的后台任务
+     */
+    private Bulk bulk = new Bulk();
+
+    public enum Backend {
+        // 读写Redis
+        REDIS,
+        // 读写进程内存储，适用于单节点部署
+        EMBEDDED
+    }
+
+    @Data
+    public static class Embedded {
+        // redis后端下，Redis连接失败或超时时是否降级到进程内存储
+        private boolean failover = false;
+        // 最大键数量，达到上限时淘汰最早过期的键
+        private int maxKeys = 2_000_000;
+        // 时间轮刻度，即过期的时间精度
+        private Duration tick = Duration.ofMillis(100);
+    }
+
+    @Data
+    public static class NearCache {
+        // 是否启用本地近端缓存
+        private boolean enabled = false;
+        // 最多缓存的键数量
+        private int maxSize = 10000;
+        // 本地缓存的最长生存时间，实际生存时间取其与Redis剩余生存时间中的较小者
+        private Duration maxTtl = Duration.ofSeconds(5);
+        // 启动时通过CONFIG SET开启Redis键空间通知 (服务端已配置notify-keyspace-events时可关闭)
+        private boolean configureNotifications = true;
+    }
+
+    @Data
+    public static class Batch {
+        // 每次管道提交的命令数，超过后分多次往返
+        private int size = 500;
+        // 管道中每积累多少条命令写出一次，小于等于1表示每条命令立即写出
+        private int flushSize = 100;
+        // 批量接口(/redis/batch*)单次请求最多的键数量，超过时返回400
+        private int maxKeys = 10000;
+    }
+
+    @Data
+    public static class Codec {
+        // 基础编码: string 原始UTF-8字符串, compact 紧凑二进制, json 带类型信息的JSON
+        private RedisValueCodecs.Type type = RedisValueCodecs.Type.STRING;
+        // 编码结果达到该字节数时压缩，小于等于0表示不压缩
+        private int compressionThreshold = 1024;
+        // 是否兼容读取原有GenericJackson2JsonRedisSerializer写入的值
+        private boolean legacyJsonRead = true;
+    }
+
+    @Data
+    public static class Connection {
+        // 连接策略
+        private Mode mode = Mode.SHARED;
+        // striped模式的连接数
+        private int stripes = 4;
+        // sharded模式的节点地址列表 host:port，密码和数据库与spring.redis相同
+        private List<String> shards = new ArrayList<>();
+        // 允许通过运维接口在运行时添加的节点地址 host:port，shards中的节点总是允许
+        private List<String> allowedShards = new ArrayList<>();
+        // sharded模式下每个节点的虚拟节点数
+        private int virtualNodes = 160;
+        // 连接池，pooled模式下所有命令使用，其他模式下只供阻塞命令和事务使用
+        private Pool pool = new Pool();
+        // 从节点地址列表 host:port，主节点为spring.redis.host/port，sharded模式下不支持
+        private List<String> replicas = new ArrayList<>();
+        // 只读命令(get、exists等)的节点选择策略
+        private ReadPolicy readFrom = ReadPolicy.MASTER;
+        // 读己之写窗口，本实例写过的键在窗口期内仍从主节点读，应大于主从复制延迟
+        private Duration readYourWritesWindow = Duration.ofSeconds(2);
+
+        public enum Mode {
+            // 所有命令复用同一个多路复用连接
+            SHARED,
+            // 每个命令从连接池借用独占连接
+            POOLED,
+            // 按键哈希分布到多个多路复用连接
+            STRIPED,
+            // 按一致性哈希分布到多个独立的Redis节点
+            SHARDED
+        }
+
+        public enum ReadPolicy {
+            // 只读主节点
+            MASTER,
+            // 优先读从节点，没有可用从节点时读主节点
+            REPLICA_PREFERRED,
+            // 读延迟最低的节点
+            NEAREST
+        }
+    }
+
+    @Data
+    public static class HotKeys {
+        // 是否统计热点键
+        private boolean enabled = true;
+        // 计数器数量，能可靠识别出现频率高于1/capacity的键
+        @Min(1)
+        private int capacity = 1000;
+        // 采样率，大于0且不超过1，访问量很大时可调低以减少开销
+        @DecimalMin(value = "0", inclusive = false)
+        @DecimalMax("1")
+        private double sampleRate = 1.0;
+        // 统计窗口，窗口结束后重新计数
+        private Duration window = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Bulk {
+        // 每秒最多处理的键数量，小于等于0表示不限速
+        private long rate = 5000;
+        // 保留的任务记录数量
+        private int retainedJobs = 100;
+    }
+
+    @Data
+    public static class Pool {
+        // 最大连接数
+        private int maxTotal = 16;
+        // 最大空闲连接数
+        private int maxIdle = 8;
+        // 最小空闲连接数
+        private int minIdle = 0;
+        // 连接耗尽时的最长等待时间
+        private Duration maxWait = Duration.ofSeconds(1);
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.springboot_simple_demo.config;
 
+import com.example.springboot_simple_demo.utils.download.FileMetadataCache;
+import com.example.springboot_simple_demo.utils.zip.ParallelZipStreamer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
@@ -20,14 +22,17 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedMethods("*");
     }
 
-    // 本地路径 要带上末尾的 "/"
-    private static final String locationPath = "/**/";
-    // 映射路径 例http://Ip:Port/downloads/***.***
-    private static final String webPath = "/downloads/**";
+    // /downloads 下载文件的元数据缓存，见DownloadController
+    @Bean
+    public FileMetadataCache fileMetadataCache(DownloadProperties properties) {
+        return new FileMetadataCache(properties.getMetadataCacheSize(), properties.getMetadataTtl().toMillis(),
+                properties.isGzipVariants());
+    }
 
-    // 将本地文件映射到Url 可以直接下载
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        registry.addResourceHandler(webPath).addResourceLocations("file:" + locationPath);
+    // 目录打包下载的ZIP流，压缩线程池由所有请求共用
+    @Bean(destroyMethod = "shutdown")
+    public ParallelZipStreamer parallelZipStreamer(DownloadProperties properties) {
+        DownloadProperties.Zip zip = properties.getZip();
+        return new ParallelZipStreamer(zip.getThreads(), zip.getWindow(), zip.getMaxBufferedSize().toBytes(), zip.getLevel());
     }
 }
@@ -0,0 +1,105 @@
+package com.example.springboot_simple_demo.controller;
+
+import com.example.springboot_simple_demo.config.DownloadProperties;
+import com.example.springboot_simple_demo.utils.download.FileDownloadSender;
+import com.example.springboot_simple_demo.utils.download.FileMetadata;
+import com.example.springboot_simple_demo.utils.download.FileMetadataCache;
+import com.example.springboot_simple_demo.utils.zip.ParallelZipStreamer;
+import com.example.springboot_simple_demo.utils.zip.ZipSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/*
+  本地文件下载 例http://Ip:Port/downloads/***.***
+ */
+@RestController
+public class DownloadController {
+    private static final String PREFIX = "/downloads/";
+    private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
+    @Resource
+    private DownloadProperties downloadProperties;
+
+    @Resource
+    private FileMetadataCache fileMetadataCache;
+
+    @Resource
+    private ParallelZipStreamer parallelZipStreamer;
+
+    /**
+     * 下载downloads.root下的文件，支持Range(含多个范围)、条件请求和 .gz 预压缩版本
+     * @param request 请求
+     * @param response 响应
+     * @throws IOException 读取文件或写响应失败
+     */
+    @GetMapping(PREFIX + "**")
+    public void download(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path path = resolve(request);
+        FileMetadata file = path != null ? fileMetadataCache.get(path) : null;
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        FileDownloadSender.send(request, response, file);
+    }
+
+    /**
+     * 把目录打包为ZIP下载 例http://Ip:Port/downloads/dir?zip
+     * 边压缩边输出，不生成临时文件；长度未知，响应使用分块传输
+     * @param request 请求
+     * @param response 响应
+     * @throws IOException 读取文件或写响应失败，此时ZIP不完整
+     */
+    @GetMapping(value = PREFIX + "**", params = "zip")
+    public void downloadZip(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path path = resolve(request);
+        if (path == null || !Files.isDirectory(path)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        DownloadProperties.Zip zip = downloadProperties.getZip();
+        List<ZipSource> sources = ZipSource.walk(path, zip.getMaxEntries(), zip.getMaxSize().toBytes());
+        if (sources == null) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                    "directory exceeds " + zip.getMaxEntries() + " entries or " + zip.getMaxSize());
+            return;
+        }
+        String name = path.getFileName() != null ? path.getFileName().toString() : "downloads";
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename*=UTF-8''"
+                + URLEncoder.encode(name + ".zip", StandardCharsets.UTF_8).replace("+", "%20"));
+        parallelZipStreamer.write(sources, response.getOutputStream());
+    }
+
+    /**
+     * 请求路径对应的本地真实路径，不允许通过 .. 或指向外部的符号链接访问根目录之外的文件
+     * 路径不存在或无法访问时返回null
+     */
+    private Path resolve(HttpServletRequest request) {
+        String relative = URL_PATH_HELPER.getPathWithinApplication(request).substring(PREFIX.length());
+        Path root = Paths.get(downloadProperties.getRoot()).toAbsolutePath().normalize();
+        Path path = root.resolve(relative).normalize();
+        if (!path.startsWith(root)) {
+            return null;
+        }
+        try {
+            Path realPath = path.toRealPath();
+            return realPath.startsWith(root.toRealPath()) ? realPath : null;
+        } catch (IOException exception) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.springboot_simple_demo.controller;
+
+import com.example.springboot_simple_demo.entity.TransferJob;
+import com.example.springboot_simple_demo.result.R;
+import com.example.springboot_simple_demo.utils.ftp.BandwidthLimiter;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.*;
+
+import javax.annotation.Resource;
+
+/*
+  FTP带宽限制接口，调整立即对进行中的传输生效
+ */
+@RestController
+@RequestMapping("/ftp/bandwidth")
+public class FtpBandwidthController {
+    @Resource
+    private BandwidthLimiter bandwidthLimiter;
+
+    /**
+     * 查看当前的速率和权重
+     * @return Result
+     */
+    @GetMapping
+    public R bandwidth() {
+        return R.ok().data("bandwidth", bandwidthLimiter.snapshot());
+    }
+
+    /**
+     * 调整速率和权重，未传的参数保持不变；速率为每秒字节数，可带单位如 10MB，0表示不限制
+     * @param globalRate 全局速率
+     * @param hostRate 每个主机的默认速率
+     * @param host 单独设置速率的主机
+     * @param rate host的速率，为空时恢复为默认速率
+     * @param interactiveWeight 交互式传输的权重
+     * @param bulkWeight 批量传输的权重
+     * @return Result
+     */
+    @PutMapping
+    public R update(@RequestParam(required = false) String globalRate,
+                    @RequestParam(required = false) String hostRate,
+                    @RequestParam(required = false) String host,
+                    @RequestParam(required = false) String rate,
+                    @RequestParam(required = false) Integer interactiveWeight,
+                    @RequestParam(required = false) Integer bulkWeight) {
+        try {
+            if (globalRate != null) {
+                bandwidthLimiter.setGlobalRate(DataSize.parse(globalRate).toBytes());
+            }
+            if (hostRate != null) {
+                bandwidthLimiter.setDefaultHostRate(DataSize.parse(hostRate).toBytes());
+            }
+            if (host != null) {
+                bandwidthLimiter.setHostRate(host, rate == null ? -1 : DataSize.parse(rate).toBytes());
+            }
+        } catch (IllegalArgumentException exception) {
+            return R.error().message("invalid rate: " + exception.getMessage());
+        }
+        if (interactiveWeight != null) {
+            bandwidthLimiter.setWeight(TransferJob.Lane.INTERACTIVE, interactiveWeight);
+        }
+        if (bulkWeight != null) {
+            bandwidthLimiter.setWeight(TransferJob.Lane.BULK, bulkWeight);
+        }
+        return bandwidth();
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.springboot_simple_demo.controller;
+
+import com.example.springboot_simple_demo.config.DownloadProperties;
+import com.example.springboot_simple_demo.entity.FtpFileInfo;
+import com.example.springboot_simple_demo.entity.FtpServiceInfo;
+import com.example.springboot_simple_demo.service.FtpTransferService;
+import com.example.springboot_simple_demo.utils.ftp.FtpDirectoryUploader;
+import com.example.springboot_simple_demo.utils.zip.ParallelZipStreamer;
+import com.example.springboot_simple_demo.utils.zip.ZipSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+  FTP文件的HTTP下载：FTP数据连接直接转发到HTTP响应，不落本地文件，内存占用只有一个缓冲区
+  HTTP Range请求映射为FTP REST偏移量，FTP会话只在转发期间占用
+ */
+@Slf4j
+@RestController
+@RequestMapping("/ftp")
+public class FtpController {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Resource
+    private FtpTransferService ftpTransferService;
+
+    // application.yml 中 ftpServiceInfo 配置的FTP服务器
+    @Resource
+    private FtpServiceInfo ftpServiceInfo;
+
+    // 目录打包下载的ZIP流
+    @Resource
+    private ParallelZipStreamer parallelZipStreamer;
+
+    // 打包下载的条目数和大小限制
+    @Resource
+    private DownloadProperties downloadProperties;
+
+    @Value("${ftpServiceInfo.ftpBasePath:/}")
+    private String ftpBasePath;
+
+    /**
+     * 下载FTP文件，支持单个Range范围和HEAD请求
+     * @param path 相对ftpBasePath的文件路径
+     * @param request 请求
+     * @param response 响应
+     * @throws IOException 写响应失败
+     */
+    @GetMapping("/files")
+    public void download(@RequestParam String path, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (Arrays.asList(path.split("[/\\\\]")).contains("..")) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        String ftpFilePath = FtpDirectoryUploader.join(ftpBasePath, path);
+        FtpFileInfo info;
+        try {
+            info = ftpTransferService.stat(ftpServiceInfo, ftpFilePath);
+        } catch (IOException exception) {
+            log.error("stat " + ftpFilePath + " failed " + exception.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_GATEWAY);
+            return;
+        }
+        if (info == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long size = info.getSize();
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(info.getLastModified()) + "\"";
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        if (info.getLastModified() >= 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, info.getLastModified());
+        }
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long length = size;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request, etag, info.getLastModified())) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(range);
+                // 多个范围时返回整个文件，RFC 7233允许忽略Range
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(size);
+                    if (start >= size) {
+                        throw new IllegalArgumentException("range starts beyond end of file");
+                    }
+                    length = ranges.get(0).getRangeEnd(size) - start + 1;
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + length - 1) + "/" + size);
+                }
+            } catch (IllegalArgumentException exception) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+
+        String fileName = path.substring(path.lastIndexOf('/') + 1);
+        response.setContentType(MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename*=UTF-8''"
+                + URLEncoder.encode(fileName, StandardCharsets.UTF_8).replace("+", "%20"));
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        InputStream input;
+        try {
+            input = ftpTransferService.openStream(ftpServiceInfo, ftpFilePath, start, length);
+        } catch (IOException exception) {
+            log.error("open " + ftpFilePath + " failed " + exception.getMessage());
+            response.reset();
+            response.sendError(HttpServletResponse.SC_BAD_GATEWAY);
+            return;
+        }
+        // 关闭流即归还FTP会话；客户端中途断开时会话不复用
+        try (InputStream ftpInput = input) {
+            OutputStream output = response.getOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = ftpInput.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            output.flush();
+        }
+    }
+
+    /**
+     * 把FTP目录打包为ZIP下载，边从FTP读取边压缩边输出，不落本地文件
+     * @param path 相对ftpBasePath的目录路径
+     * @param response 响应
+     * @throws IOException 读取FTP文件或写响应失败，此时ZIP不完整
+     */
+    @GetMapping("/archive")
+    public void archive(@RequestParam(defaultValue = "") String path, HttpServletResponse response) throws IOException {
+        if (Arrays.asList(path.split("[/\\\\]")).contains("..")) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        String ftpDirPath = FtpDirectoryUploader.join(ftpBasePath, path);
+        List<ZipSource> sources;
+        try {
+            sources = ftpTransferService.zipSources(ftpServiceInfo, ftpDirPath);
+        } catch (IOException exception) {
+            log.error("list " + ftpDirPath + " failed " + exception.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_GATEWAY);
+            return;
+        }
+        if (sources == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        DownloadProperties.Zip zip = downloadProperties.getZip();
+        if (!ZipSource.withinLimits(sources, zip.getMaxEntries(), zip.getMaxSize().toBytes())) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                    "directory exceeds " + zip.getMaxEntries() + " entries or " + zip.getMaxSize());
+            return;
+        }
+
+        String trimmed = path.replaceAll("/+$", "");
+        String name = trimmed.isEmpty() ? "ftp" : trimmed.substring(trimmed.lastIndexOf('/') + 1);
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename*=UTF-8''"
+                + URLEncoder.encode(name + ".zip", StandardCharsets.UTF_8).replace("+", "%20"));
+        parallelZipStreamer.write(sources, response.getOutputStream());
+    }
+
+    /**
+     * 没有If-Range或If-Range与当前文件一致时才按Range返回部分内容
+     */
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return lastModified >= 0 && date / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.springboot_simple_demo.controller;
+
+import com.example.springboot_simple_demo.entity.FtpServiceInfo;
+import com.example.springboot_simple_demo.entity.TransferJob;
+import com.example.springboot_simple_demo.result.R;
+import com.example.springboot_simple_demo.service.TransferJobService;
+import com.example.springboot_simple_demo.utils.ftp.FtpDirectoryUploader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.*;
+
+import javax.annotation.Resource;
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+
+/*
+  FTP后台传输任务接口
+ */
+@RestController
+@RequestMapping("/ftp/jobs")
+public class FtpJobController {
+    @Resource
+    private TransferJobService transferJobService;
+
+    // application.yml 中 ftpServiceInfo 配置的FTP服务器
+    @Resource
+    private FtpServiceInfo ftpServiceInfo;
+
+    @Value("${ftpServiceInfo.localBasePath:.}")
+    private String localBasePath;
+
+    @Value("${ftpServiceInfo.ftpBasePath:/}")
+    private String ftpBasePath;
+
+    /**
+     * 提交上传或下载任务，立即返回任务编号
+     * @param direction 方向 upload 或 download
+     * @param path 相对ftpBasePath的FTP文件路径
+     * @param localPath 相对localBasePath的本地文件路径
+     * @param lane 队列 interactive 或 bulk，不指定时按文件大小选择
+     * @param size 文件大小（字节），不指定队列时用于选择队列；下载时两者都不指定则按批量任务处理
+     * @param priority 优先级，同一队列中数值大的先执行
+     * @return Result
+     */
+    @PostMapping
+    public R submit(@RequestParam String direction,
+                    @RequestParam String path,
+                    @RequestParam String localPath,
+                    @RequestParam(required = false) String lane,
+                    @RequestParam(defaultValue = "-1") long size,
+                    @RequestParam(defaultValue = "0") int priority) {
+        if (escapes(path) || escapes(localPath)) {
+            return R.error().message("path must not contain ..");
+        }
+        TransferJob.Direction jobDirection;
+        TransferJob.Lane jobLane;
+        try {
+            jobDirection = TransferJob.Direction.valueOf(direction.toUpperCase());
+            jobLane = lane == null ? null : TransferJob.Lane.valueOf(lane.toUpperCase());
+        } catch (IllegalArgumentException exception) {
+            return R.error().message("unknown direction or lane: " + direction + " " + lane);
+        }
+        try {
+            TransferJob job = transferJobService.submit(ftpServiceInfo, jobDirection,
+                    localBasePath + File.separator + localPath, FtpDirectoryUploader.join(ftpBasePath, path), jobLane, size, priority);
+            return R.ok().data("job", job);
+        } catch (RejectedExecutionException exception) {
+            return R.error().message(exception.getMessage());
+        }
+    }
+
+    /**
+     * 查看最近的传输任务
+     * @return Result
+     */
+    @GetMapping
+    public R jobs() {
+        return R.ok().data("jobs", transferJobService.jobs());
+    }
+
+    /**
+     * 查看传输任务进度：已传输字节数、速率和剩余时间
+     * @param id 任务编号
+     * @return Result
+     */
+    @GetMapping("/{id}")
+    public R job(@PathVariable String id) {
+        TransferJob job = transferJobService.job(id);
+        if (job == null) {
+            return R.error().message("job not found");
+        }
+        return R.ok().data("job", job);
+    }
+
+    /**
+     * 取消传输任务，已传输的部分保留，重新提交时从断点继续
+     * @param id 任务编号
+     * @return Result
+     */
+    @DeleteMapping("/{id}")
+    public R cancel(@PathVariable String id) {
+        if (!transferJobService.cancel(id)) {
+            return R.error().message("job not found or already finished");
+        }
+        return job(id);
+    }
+
+    private static boolean escapes(String path) {
+        return Arrays.asList(path.split("[/\\\\]")).contains("..");
+    }
+}
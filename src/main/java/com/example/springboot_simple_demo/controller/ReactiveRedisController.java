@@ -0,0 +1,72 @@
+package com.example.springboot_simple_demo.controller;
+
+import com.example.springboot_simple_demo.result.R;
+import com.example.springboot_simple_demo.result.ResultCodeEnum;
+import com.example.springboot_simple_demo.service.RateLimitService;
+import com.example.springboot_simple_demo.utils.ReactiveRedisUtil;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+  /redis接口的非阻塞版本，redis-util.reactive.enabled=true时生效
+  返回Mono时由Servlet异步处理，等待Redis期间立即释放Tomcat工作线程，返回结果与RedisController相同
+ */
+@RestController
+@RequestMapping("/redis/reactive")
+@ConditionalOnProperty(prefix = "redis-util.reactive", name = "enabled", havingValue = "true")
+public class ReactiveRedisController {
+    @Resource
+    private ReactiveRedisUtil reactiveRedisUtil;
+
+    @Resource
+    private RateLimitService rateLimitService;
+
+    /**
+     * 生成Redis数据
+     * 与RedisController相同地按客户端和序号限流，超限时返回TOO_MANY_REQUESTS及需要等待的毫秒数
+     * @param redisId 序号
+     * @param request 请求
+     * @return Result
+     */
+    @GetMapping("/generateRedis")
+    public Mono<R> generateCaptcha(@RequestParam String redisId, HttpServletRequest request) {
+        String clientId = rateLimitService.clientId(request.getRemoteAddr(), request.getHeader("X-Forwarded-For"));
+        return rateLimitService.acquireGenerateReactive(clientId, redisId)
+                .flatMap(retryAfter -> retryAfter > 0
+                        ? Mono.just(R.setResult(ResultCodeEnum.TOO_MANY_REQUESTS).data("retryAfterMillis", retryAfter))
+                        : reactiveRedisUtil.getOrCreate(redisId,
+                                String.format("%06d", ThreadLocalRandom.current().nextInt(1000000)), 60, TimeUnit.SECONDS)
+                        .map(redisValue -> R.ok().data("redisValue", redisValue)));
+    }
+
+    /**
+     * 获取Redis数据
+     * @param redisId 序号
+     * @return Result
+     */
+    @GetMapping("/getRedis")
+    public Mono<R> getRedis(@RequestParam String redisId) {
+        return reactiveRedisUtil.get(redisId)
+                .map(redisValue -> R.ok().data("redisValue", redisValue))
+                .defaultIfEmpty(R.ok().data("redisValue", "验证码已失效"));
+    }
+
+    /**
+     * 校验Redis数据
+     * @param redisId 序号
+     * @param redisValue Redis值
+     * @return Result
+     */
+    @PostMapping("/checkRedis")
+    public Mono<R> checkRedis(@RequestParam String redisId,
+                              @RequestParam String redisValue) {
+        return reactiveRedisUtil.verify(redisId, redisValue, RedisController.MAX_ATTEMPTS)
+                .map(RedisController::verifyResult);
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.springboot_simple_demo.controller;
+
+import com.example.springboot_simple_demo.config.RedisUtilProperties;
+import com.example.springboot_simple_demo.entity.KeyspaceJob;
+import com.example.springboot_simple_demo.result.R;
+import com.example.springboot_simple_demo.service.KeyspaceService;
+import com.example.springboot_simple_demo.utils.redis.HotKeyTracker;
+import com.example.springboot_simple_demo.utils.redis.RedisRouter;
+import com.example.springboot_simple_demo.utils.redis.ShardedRedisRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.annotation.Resource;
+
+/*
+  Redis运维接口
+ */
+@RestController
+@RequestMapping("/redis/admin")
+public class RedisAdminController {
+    @Resource
+    private RedisRouter redisRouter;
+
+    // 热点键统计，未启用时为null
+    @Autowired(required = false)
+    private HotKeyTracker hotKeyTracker;
+
+    @Resource
+    private KeyspaceService keyspaceService;
+
+    @Resource
+    private RedisUtilProperties properties;
+
+    /**
+     * 查看分片节点
+     * @return Result
+     */
+    @GetMapping("/shards")
+    public R shards() {
+        if (!(redisRouter instanceof ShardedRedisRouter)) {
+            return R.error().message("not in sharded mode");
+        }
+        return R.ok().data("shards", ((ShardedRedisRouter) redisRouter).shardNames());
+    }
+
+    /**
+     * 添加分片节点，只接受redis-util.connection.shards和allowed-shards中的地址
+     * @param node 节点地址 host:port
+     * @return Result，地址格式错误时为400，不在允许列表中时为403
+     */
+    @PostMapping("/shards")
+    public ResponseEntity<R> addShard(@RequestParam String node) {
+        if (!(redisRouter instanceof ShardedRedisRouter)) {
+            return ResponseEntity.ok(R.error().message("not in sharded mode"));
+        }
+        if (!isValidNode(node)) {
+            return ResponseEntity.badRequest().body(R.error().message("node must be host:port"));
+        }
+        RedisUtilProperties.Connection connection = properties.getConnection();
+        if (!connection.getShards().contains(node) && !connection.getAllowedShards().contains(node)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(R.error().message("node not allowed: " + node));
+        }
+        ((ShardedRedisRouter) redisRouter).addShard(node);
+        return ResponseEntity.ok(shards());
+    }
+
+    /**
+     * 移除分片节点
+     * @param node 节点地址 host:port
+     * @return Result，地址格式错误时为400
+     */
+    @DeleteMapping("/shards")
+    public ResponseEntity<R> removeShard(@RequestParam String node) {
+        if (!(redisRouter instanceof ShardedRedisRouter)) {
+            return ResponseEntity.ok(R.error().message("not in sharded mode"));
+        }
+        if (!isValidNode(node)) {
+            return ResponseEntity.badRequest().body(R.error().message("node must be host:port"));
+        }
+        ((ShardedRedisRouter) redisRouter).removeShard(node);
+        return ResponseEntity.ok(shards());
+    }
+
+    /**
+     * 查看当前统计窗口内访问最多的键
+     * @param limit 返回的键数量
+     * @return Result
+     */
+    @GetMapping("/hotKeys")
+    public R hotKeys(@RequestParam(defaultValue = "20") int limit) {
+        if (hotKeyTracker == null) {
+            return R.error().message("hot key tracking disabled");
+        }
+        return R.ok().data("windowStart", hotKeyTracker.windowStart())
+                .data("total", hotKeyTracker.total())
+                .data("keys", hotKeyTracker.top(limit));
+    }
+
+    /**
+     * 清空热点键统计，开始新的统计窗口
+     * @return Result
+     */
+    @DeleteMapping("/hotKeys")
+    public R resetHotKeys() {
+        if (hotKeyTracker == null) {
+            return R.error().message("hot key tracking disabled");
+        }
+        hotKeyTracker.reset();
+        return R.ok();
+    }
+
+    /**
+     * 导出匹配的键，SCAN遍历，每行一个JSON对象，边遍历边返回
+     * @param match 键的匹配模式，如 captcha:*
+     * @param withTtl 是否带上剩余生存时间(毫秒)
+     * @return 分块传输的JSON Lines
+     */
+    @GetMapping("/keys")
+    public ResponseEntity<StreamingResponseBody> keys(@RequestParam String match,
+                                                      @RequestParam(defaultValue = "false") boolean withTtl) {
+        StreamingResponseBody body = out -> keyspaceService.export(match, withTtl, out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    /**
+     * 提交批量删除(UNLINK)或设置生存时间(PEXPIRE)的后台任务，按redis-util.bulk.rate限速
+     * @param match 键的匹配模式，如 captcha:*
+     * @param action 操作 delete 或 expire
+     * @param ttl expire操作的生存时间（秒）
+     * @return Result
+     */
+    @PostMapping("/keys/jobs")
+    public R submitJob(@RequestParam String match,
+                       @RequestParam String action,
+                       @RequestParam(defaultValue = "0") long ttl) {
+        if (!StringUtils.hasText(match)) {
+            return R.error().message("match is required");
+        }
+        KeyspaceJob.Action jobAction;
+        try {
+            jobAction = KeyspaceJob.Action.valueOf(action.toUpperCase());
+        } catch (IllegalArgumentException exception) {
+            return R.error().message("unknown action: " + action);
+        }
+        if (jobAction == KeyspaceJob.Action.EXPIRE && ttl <= 0) {
+            return R.error().message("ttl must be positive");
+        }
+        return R.ok().data("job", keyspaceService.submit(match, jobAction, ttl));
+    }
+
+    /**
+     * 查看最近的批量任务
+     * @return Result
+     */
+    @GetMapping("/keys/jobs")
+    public R jobs() {
+        return R.ok().data("jobs", keyspaceService.jobs());
+    }
+
+    /**
+     * 查看批量任务进度
+     * @param id 任务编号
+     * @return Result
+     */
+    @GetMapping("/keys/jobs/{id}")
+    public R job(@PathVariable String id) {
+        KeyspaceJob job = keyspaceService.job(id);
+        if (job == null) {
+            return R.error().message("job not found");
+        }
+        return R.ok().data("job", job);
+    }
+
+    /**
+     * 取消批量任务，已处理的键不会恢复
+     * @param id 任务编号
+     * @return Result
+     */
+    @DeleteMapping("/keys/jobs/{id}")
+    public R cancelJob(@PathVariable String id) {
+        if (!keyspaceService.cancel(id)) {
+            return R.error().message("job not found or already finished");
+        }
+        return job(id);
+    }
+
+    /**
+     * 节点地址是否为 host:port，端口在1-65535之间
+     */
+    static boolean isValidNode(String node) {
+        int colon = node.lastIndexOf(':');
+        if (colon <= 0) {
+            return false;
+        }
+        String host = node.substring(0, colon);
+        String port = node.substring(colon + 1);
+        if (host.chars().anyMatch(ch -> Character.isWhitespace(ch) || ch == '/' || ch == '@')) {
+            return false;
+        }
+        if (port.isEmpty() || port.length() > 5 || !port.chars().allMatch(ch -> ch >= '0' && ch <= '9')) {
+            return false;
+        }
+        int value = Integer.parseInt(port);
+        return value > 0 && value <= 65535;
+    }
+}
@@ -1,10 +1,20 @@
 package com.example.springboot_simple_demo.controller;
 
+import com.example.springboot_simple_demo.config.RedisUtilProperties;
+import com.example.springboot_simple_demo.entity.RedisEntry;
 import com.example.springboot_simple_demo.result.R;
+import com.example.springboot_simple_demo.result.ResultCodeEnum;
+import com.example.springboot_simple_demo.service.RateLimitService;
 import com.example.springboot_simple_demo.utils.RedisUtil;
+import com.example.springboot_simple_demo.utils.redis.NearCache;
+import com.example.springboot_simple_demo.utils.redis.VerifyResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
@@ -12,27 +22,41 @@ import java.util.concurrent.TimeUnit;
 @RestController
 @RequestMapping("/redis")
 public class RedisController {
+    // 同一序号允许的最大校验失败次数
+    static final int MAX_ATTEMPTS = 5;
+
     @Resource
     private RedisUtil redisUtil;
 
+    @Resource
+    private RateLimitService rateLimitService;
+
+    @Resource
+    private RedisUtilProperties properties;
+
+    // 本地近端缓存，未启用时为null
+    @Autowired(required = false)
+    private NearCache nearCache;
+
     /**
      * 生成Redis数据
+     * 按客户端和序号限流，超限时返回TOO_MANY_REQUESTS及需要等待的毫秒数
      * @param redisId 序号
+     * @param request 请求
      * @return Result
      */
     @GetMapping("/generateRedis")
-    public R generateCaptcha(@RequestParam String redisId) {
-        String redisValue = "";
-        // 判断Redis的键是否存在
-        if (redisUtil.exists(redisId)) {
-            // 存在则返回该值
-            redisValue = redisUtil.get(redisId);
-        } else {
-            // 不存在则重新生成 (根据业务需求自定义Redis值)
-            redisValue = String.format("%06d", ThreadLocalRandom.current().nextInt(1000000));
-            redisUtil.set(redisId, redisValue, 60, TimeUnit.SECONDS);
+    public R generateCaptcha(@RequestParam String redisId, HttpServletRequest request) {
+        String clientId = rateLimitService.clientId(request.getRemoteAddr(), request.getHeader("X-Forwarded-For"));
+        long retryAfter = rateLimitService.acquireGenerate(clientId, redisId);
+        if (retryAfter > 0) {
+            return R.setResult(ResultCodeEnum.TOO_MANY_REQUESTS).data("retryAfterMillis", retryAfter);
         }
 
+        // 不存在则生成新值 (根据业务需求自定义Redis值)，存在则返回已有值，一次往返原子完成
+        String redisValue = redisUtil.getOrCreate(redisId,
+                String.format("%06d", ThreadLocalRandom.current().nextInt(1000000)), 60, TimeUnit.SECONDS);
+
         return R.ok().data("redisValue", redisValue);
     }
 
@@ -55,6 +79,7 @@ public class RedisController {
 
     /**
      * 校验Redis数据
+     * 校验成功后该值即被消费，失败次数达到上限后同样失效
      * @param redisId 序号
      * @param redisValue Redis值
      * @return Result
@@ -63,10 +88,97 @@ public class RedisController {
     public R checkRedis(@RequestParam String redisId,
                           @RequestParam String redisValue) {
 
-        if (redisUtil.get(redisId).equals(redisValue)) {
-            return R.ok().message("success");
-        } else {
-            return R.error().message("failed");
+        return verifyResult(redisUtil.verify(redisId, redisValue, MAX_ATTEMPTS));
+    }
+
+    /**
+     * 批量获取Redis数据
+     * @param redisIds 序号列表，最多redis-util.batch.max-keys个
+     * @return Result，超出数量上限时为400
+     */
+    @PostMapping("/batchGet")
+    public ResponseEntity<R> batchGet(@RequestBody List<String> redisIds) {
+        if (redisIds.size() > properties.getBatch().getMaxKeys()) {
+            return tooManyKeys();
+        }
+        return ResponseEntity.ok(R.ok().data("redisValues", redisUtil.multiGet(redisIds)));
+    }
+
+    /**
+     * 批量设置Redis数据，每条数据可单独指定生存时间
+     * @param entries 键值列表，最多redis-util.batch.max-keys条
+     * @return Result，超出数量上限时为400
+     */
+    @PostMapping("/batchSet")
+    public ResponseEntity<R> batchSet(@RequestBody List<RedisEntry> entries) {
+        if (entries.size() > properties.getBatch().getMaxKeys()) {
+            return tooManyKeys();
+        }
+        redisUtil.multiSet(entries);
+        return ResponseEntity.ok(R.ok().data("count", entries.size()));
+    }
+
+    /**
+     * 批量删除Redis数据
+     * @param redisIds 序号列表，最多redis-util.batch.max-keys个
+     * @return Result，超出数量上限时为400
+     */
+    @PostMapping("/batchDelete")
+    public ResponseEntity<R> batchDelete(@RequestBody List<String> redisIds) {
+        if (redisIds.size() > properties.getBatch().getMaxKeys()) {
+            return tooManyKeys();
+        }
+        return ResponseEntity.ok(R.ok().data("deleted", redisUtil.multiDelete(redisIds)));
+    }
+
+    /**
+     * 批量判断Redis数据是否存在
+     * @param redisIds 序号列表，最多redis-util.batch.max-keys个
+     * @return Result，超出数量上限时为400
+     */
+    @PostMapping("/batchExists")
+    public ResponseEntity<R> batchExists(@RequestBody List<String> redisIds) {
+        if (redisIds.size() > properties.getBatch().getMaxKeys()) {
+            return tooManyKeys();
+        }
+        return ResponseEntity.ok(R.ok().data("exists", redisUtil.multiExists(redisIds)));
+    }
+
+    /**
+     * 本地近端缓存命中统计
+     * @return Result
+     */
+    @GetMapping("/nearCacheStats")
+    public R nearCacheStats() {
+        if (nearCache == null) {
+            return R.ok().data("enabled", false);
+        }
+        return R.ok().data("enabled", true)
+                .data("hits", nearCache.hitCount())
+                .data("misses", nearCache.missCount())
+                .data("size", nearCache.size());
+    }
+
+    private ResponseEntity<R> tooManyKeys() {
+        return ResponseEntity.badRequest().body(R.error()
+                .message("at most " + properties.getBatch().getMaxKeys() + " keys per request"));
+    }
+
+    /**
+     * 校验结果转换为返回结果
+     * @param result 校验结果
+     * @return Result
+     */
+    static R verifyResult(VerifyResult result) {
+        switch (result) {
+            case SUCCESS:
+                return R.ok().message("success");
+            case MISMATCH:
+                return R.setResult(ResultCodeEnum.CAPTCHA_MISMATCH);
+            case LOCKED:
+                return R.setResult(ResultCodeEnum.CAPTCHA_LOCKED);
+            default:
+                return R.setResult(ResultCodeEnum.CAPTCHA_EXPIRED);
         }
     }
 }
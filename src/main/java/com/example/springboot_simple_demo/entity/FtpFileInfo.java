@@ -0,0 +1,16 @@
+package com.example.springboot_simple_demo.entity;
+
+import lombok.Data;
+
+/*
+  FTP文件的属性
+ */
+@Data
+public class FtpFileInfo {
+    // FTP文件路径
+    private String path;
+    // 文件大小
+    private long size;
+    // 修改时间（毫秒时间戳），服务器不支持时为-1
+    private long lastModified = -1;
+}
@@ -0,0 +1,68 @@
+package com.example.springboot_simple_demo.entity;
+
+import lombok.Data;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/*
+  按匹配模式批量删除或设置生存时间的后台任务
+ */
+@Data
+public class KeyspaceJob {
+    private static final AtomicReferenceFieldUpdater<KeyspaceJob, Status> STATUS =
+            AtomicReferenceFieldUpdater.newUpdater(KeyspaceJob.class, Status.class, "status");
+
+    // 任务编号
+    private String id;
+    // 键的匹配模式
+    private String match;
+    // 操作
+    private Action action;
+    // expire操作的生存时间（秒）
+    private long ttlSeconds;
+    // 状态
+    private volatile Status status = Status.QUEUED;
+    // 已遍历的键数量
+    private volatile long scanned;
+    // 已删除或已设置生存时间的键数量
+    private volatile long affected;
+    // 创建时间（毫秒时间戳）
+    private long createdAt;
+    // 结束时间（毫秒时间戳）
+    private volatile long finishedAt;
+    // 失败原因
+    private volatile String error;
+
+    public enum Action {
+        // UNLINK
+        DELETE,
+        // PEXPIRE
+        EXPIRE
+    }
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED,
+        CANCELLED
+    }
+
+    /**
+     * 状态为expect时原子地改为update，任务结束与取消并发时只有一方成功
+     * @param expect 期望的当前状态
+     * @param update 新状态
+     * @return 是否修改成功
+     */
+    public boolean compareAndSetStatus(Status expect, Status update) {
+        return STATUS.compareAndSet(this, expect, update);
+    }
+
+    /**
+     * 是否已结束
+     * @return 是否已结束
+     */
+    public boolean isFinished() {
+        return status == Status.DONE || status == Status.FAILED || status == Status.CANCELLED;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.springboot_simple_demo.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RedisEntry {
+    // 键
+    private String key;
+    // 值
+    private String value;
+    // 生存时间（秒），小于等于0表示永久
+    private long timeout;
+}
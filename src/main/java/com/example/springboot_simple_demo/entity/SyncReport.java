@@ -0,0 +1,47 @@
+package com.example.springboot_simple_demo.entity;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+  目录增量同步的结果
+ */
+@Data
+public class SyncReport {
+    // 本地目录
+    private String localPath;
+    // FTP目录
+    private String remotePath;
+    // 本地文件数
+    private int localFiles;
+    // FTP文件数
+    private int remoteFiles;
+    // 列出的FTP目录数
+    private int listedDirectories;
+    // 修改时间与清单一致而未列出的FTP目录数
+    private int skippedDirectories;
+    // 未变化而跳过的文件数
+    private int unchanged;
+    // 上传的字节数
+    private long uploadedBytes;
+    // 耗时（毫秒）
+    private long elapsedMillis;
+    // 上传成功的文件(相对路径)
+    private List<String> uploaded = new ArrayList<>();
+    // 上传失败的文件(相对路径)及失败原因
+    private Map<String, String> failed = new LinkedHashMap<>();
+    // 删除的FTP文件和目录(相对路径)
+    private List<String> deleted = new ArrayList<>();
+
+    /**
+     * 是否全部同步成功
+     * @return 是否全部同步成功
+     */
+    public boolean isSuccess() {
+        return failed.isEmpty();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.springboot_simple_demo.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/*
+  FTP后台传输任务
+ */
+@Data
+public class TransferJob {
+    private static final AtomicReferenceFieldUpdater<TransferJob, Status> STATUS =
+            AtomicReferenceFieldUpdater.newUpdater(TransferJob.class, Status.class, "status");
+
+    // 任务编号
+    private String id;
+    // 方向
+    private Direction direction;
+    // 队列，交互式与批量任务使用各自的工作线程
+    private Lane lane;
+    // 优先级，同一队列中数值大的先执行，相同时按提交顺序
+    private int priority;
+    // FTP服务器 主机:端口，调度器按其限制并发
+    private String host;
+    // 本地文件路径
+    private String localPath;
+    // FTP文件路径
+    private String remotePath;
+    // 状态
+    private volatile Status status = Status.QUEUED;
+    // 文件总大小，开始传输前为-1
+    private volatile long totalBytes = -1;
+    // 已完成的字节数(含续传前已有的部分)
+    private volatile long transferredBytes;
+    // 本次开始传输时已完成的字节数，用于计算速率
+    private volatile long startBytes = -1;
+    // 创建时间（毫秒时间戳）
+    private long createdAt;
+    // 开始时间（毫秒时间戳）
+    private volatile long startedAt;
+    // 结束时间（毫秒时间戳）
+    private volatile long finishedAt;
+    // 失败原因
+    private volatile String error;
+    // 提交序号，优先级相同时先提交的先执行
+    @JsonIgnore
+    private long sequence;
+
+    public enum Direction {
+        UPLOAD,
+        DOWNLOAD
+    }
+
+    public enum Lane {
+        // 交互式的小文件传输
+        INTERACTIVE,
+        // 批量的大文件传输
+        BULK
+    }
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED,
+        CANCELLED
+    }
+
+    /**
+     * 状态为expect时原子地改为update，工作线程开始执行与取消并发时只有一方成功
+     * @param expect 期望的当前状态
+     * @param update 新状态
+     * @return 是否修改成功
+     */
+    public boolean compareAndSetStatus(Status expect, Status update) {
+        return STATUS.compareAndSet(this, expect, update);
+    }
+
+    /**
+     * 是否已结束
+     * @return 是否已结束
+     */
+    public boolean isFinished() {
+        return status == Status.DONE || status == Status.FAILED || status == Status.CANCELLED;
+    }
+
+    /**
+     * 本次传输的平均速率
+     * @return 字节/秒，未开始时为0
+     */
+    public long getBytesPerSecond() {
+        long start = startBytes;
+        if (start < 0 || startedAt <= 0) {
+            return 0;
+        }
+        long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+        return (transferredBytes - start) * 1000 / Math.max(1, end - startedAt);
+    }
+
+    /**
+     * 按当前速率估计的剩余时间
+     * @return 剩余秒数，无法估计时为-1
+     */
+    public long getEtaSeconds() {
+        if (isFinished()) {
+            return 0;
+        }
+        long rate = getBytesPerSecond();
+        if (totalBytes < 0 || rate <= 0) {
+            return -1;
+        }
+        return (totalBytes - transferredBytes + rate - 1) / rate;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.springboot_simple_demo.entity;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+  目录上传的结果
+ */
+@Data
+public class UploadReport {
+    // 本地目录
+    private String localPath;
+    // FTP目录
+    private String remotePath;
+    // 文件总数
+    private int totalFiles;
+    // 文件总字节数
+    private long totalBytes;
+    // 已上传的字节数
+    private long uploadedBytes;
+    // 创建的FTP目录数
+    private int directories;
+    // 使用的会话数
+    private int sessions;
+    // 重试次数
+    private int retries;
+    // 耗时（毫秒）
+    private long elapsedMillis;
+    // 上传成功的文件(相对路径)
+    private List<String> succeeded = Collections.synchronizedList(new ArrayList<>());
+    // 上传失败的文件(相对路径)及失败原因
+    private Map<String, String> failed = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * 是否全部上传成功
+     * @return 是否全部上传成功
+     */
+    public boolean isSuccess() {
+        return failed.isEmpty() && succeeded.size() == totalFiles;
+    }
+}
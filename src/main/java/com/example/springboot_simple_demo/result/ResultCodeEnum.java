@@ -16,7 +16,11 @@ public enum ResultCodeEnum {
     SignatureVerificationException(false, 20001, "签名认证错误"),
     JWTDecodeException(false, 20001, "JWT解析错误"),
     UnknownAccountException(false, 20001, "账号不存在"),
-    IncorrectCredentialsException(false, 20001, "密码错误");
+    IncorrectCredentialsException(false, 20001, "密码错误"),
+    CAPTCHA_MISMATCH(false, 20002, "验证码错误"),
+    CAPTCHA_EXPIRED(false, 20003, "验证码已失效"),
+    CAPTCHA_LOCKED(false, 20004, "验证码错误次数过多，请重新获取"),
+    TOO_MANY_REQUESTS(false, 20005, "请求过于频繁，请稍后再试");
 
     private Boolean success;
 
@@ -1,6 +1,14 @@
 package com.example.springboot_simple_demo.service;
 
+import com.example.springboot_simple_demo.entity.FtpFileInfo;
 import com.example.springboot_simple_demo.entity.FtpServiceInfo;
+import com.example.springboot_simple_demo.entity.SyncReport;
+import com.example.springboot_simple_demo.entity.UploadReport;
+import com.example.springboot_simple_demo.utils.zip.ZipSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 public interface FtpTransferService {
     /**
@@ -26,4 +34,69 @@ public interface FtpTransferService {
     void downloadFile(FtpServiceInfo ftpServiceInfo,
                     String localBasePath, String localFilePath,
                     String ftpBasePath, String ftpFilePath);
+
+    /**
+     * 递归上传文件夹，多个会话并行上传
+     * @param ftpServiceInfo FTP服务器信息
+     * @param localBasePath 本地文件根路径
+     * @param localDirPath 本地文件夹路径
+     * @param ftpBasePath FTP文件根路径
+     * @param ftpDirPath FTP文件夹路径
+     * @return 上传结果，本地文件夹不存在或创建FTP目录失败时返回null
+     */
+    UploadReport uploadDirectory(FtpServiceInfo ftpServiceInfo,
+                                 String localBasePath, String localDirPath,
+                                 String ftpBasePath, String ftpDirPath);
+
+    /**
+     * 分段下载大文件，多个会话并行下载各段，中断后再次调用时继续下载
+     * @param ftpServiceInfo FTP服务器信息
+     * @param localBasePath 本地文件根路径
+     * @param localFilePath 本地文件路径
+     * @param ftpBasePath FTP文件根路径
+     * @param ftpFilePath FTP文件路径
+     * @return 是否下载完成
+     */
+    boolean downloadFileSegmented(FtpServiceInfo ftpServiceInfo,
+                                  String localBasePath, String localFilePath,
+                                  String ftpBasePath, String ftpFilePath);
+
+    /**
+     * 增量同步文件夹，只上传新增或变化的文件
+     * @param ftpServiceInfo FTP服务器信息
+     * @param localBasePath 本地文件根路径
+     * @param ftpBasePath FTP文件根路径
+     * @param delete 是否删除本地已不存在的FTP文件和目录，为null时使用ftp.sync.delete配置
+     * @return 同步结果，本地文件夹不存在或同步失败时返回null
+     */
+    SyncReport sync(FtpServiceInfo ftpServiceInfo, String localBasePath, String ftpBasePath, Boolean delete);
+
+    /**
+     * 查询FTP文件的大小和修改时间
+     * @param ftpServiceInfo FTP服务器信息
+     * @param ftpFilePath FTP文件路径
+     * @return 文件属性，文件不存在时返回null
+     * @throws IOException 连接FTP服务器失败
+     */
+    FtpFileInfo stat(FtpServiceInfo ftpServiceInfo, String ftpFilePath) throws IOException;
+
+    /**
+     * 打开FTP文件的数据流，不落本地文件；流存活期间占用一个会话，用完必须关闭
+     * @param ftpServiceInfo FTP服务器信息
+     * @param ftpFilePath FTP文件路径
+     * @param offset 开始位置
+     * @param length 读取的字节数，小于0表示读到文件末尾
+     * @return 数据流
+     * @throws IOException 连接FTP服务器或发起下载失败
+     */
+    InputStream openStream(FtpServiceInfo ftpServiceInfo, String ftpFilePath, long offset, long length) throws IOException;
+
+    /**
+     * 列出FTP目录下的所有文件和目录，用于打包下载
+     * @param ftpServiceInfo FTP服务器信息
+     * @param ftpDirPath FTP目录路径
+     * @return ZIP条目来源，FTP目录不存在时返回null
+     * @throws IOException 连接FTP服务器或列目录失败
+     */
+    List<ZipSource> zipSources(FtpServiceInfo ftpServiceInfo, String ftpDirPath) throws IOException;
 }
@@ -0,0 +1,47 @@
+package com.example.springboot_simple_demo.service;
+
+import com.example.springboot_simple_demo.entity.KeyspaceJob;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+public interface KeyspaceService {
+    /**
+     * 用SCAN遍历匹配的键，每个键一行JSON写出，边遍历边写，内存占用与键数量无关
+     * @param match 键的匹配模式
+     * @param withTtl 是否带上剩余生存时间(毫秒)
+     * @param out 输出流
+     * @throws IOException 写出失败(如客户端断开)
+     */
+    void export(String match, boolean withTtl, OutputStream out) throws IOException;
+
+    /**
+     * 提交批量删除或设置生存时间的后台任务，任务按提交顺序逐个执行
+     * @param match 键的匹配模式
+     * @param action 操作
+     * @param ttlSeconds expire操作的生存时间（秒）
+     * @return 任务
+     */
+    KeyspaceJob submit(String match, KeyspaceJob.Action action, long ttlSeconds);
+
+    /**
+     * 查询任务
+     * @param id 任务编号
+     * @return 任务，不存在时返回null
+     */
+    KeyspaceJob job(String id);
+
+    /**
+     * 最近的任务
+     * @return 任务列表，按提交顺序
+     */
+    List<KeyspaceJob> jobs();
+
+    /**
+     * 取消未结束的任务，已处理的键不会恢复
+     * @param id 任务编号
+     * @return 是否取消
+     */
+    boolean cancel(String id);
+}
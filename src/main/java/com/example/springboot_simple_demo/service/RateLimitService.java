@@ -0,0 +1,29 @@
+package com.example.springboot_simple_demo.service;
+
+import reactor.core.publisher.Mono;
+
+public interface RateLimitService {
+    /**
+     * 生成验证码前的限流，先经过本地预过滤，再在Redis中按客户端和序号两个令牌桶原子地取令牌
+     * @param clientId 客户端标识
+     * @param redisId 序号
+     * @return 0 允许，大于0 需要等待的毫秒数
+     */
+    long acquireGenerate(String clientId, String redisId);
+
+    /**
+     * acquireGenerate的非阻塞版本，供/redis/reactive接口使用，与acquireGenerate共用同一组令牌桶
+     * @param clientId 客户端标识
+     * @param redisId 序号
+     * @return 0 允许，大于0 需要等待的毫秒数
+     */
+    Mono<Long> acquireGenerateReactive(String clientId, String redisId);
+
+    /**
+     * 识别请求的客户端
+     * @param remoteAddr 连接的远端地址
+     * @param forwardedFor X-Forwarded-For请求头，可为null
+     * @return 客户端标识
+     */
+    String clientId(String remoteAddr, String forwardedFor);
+}
@@ -0,0 +1,43 @@
+package com.example.springboot_simple_demo.service;
+
+import com.example.springboot_simple_demo.entity.FtpServiceInfo;
+import com.example.springboot_simple_demo.entity.TransferJob;
+
+import java.util.List;
+
+public interface TransferJobService {
+    /**
+     * 提交后台传输任务，中断后重新提交同一文件时从断点继续
+     * @param ftpServiceInfo FTP服务器信息
+     * @param direction 方向
+     * @param localPath 本地文件路径
+     * @param remotePath FTP文件路径
+     * @param lane 队列，为null时按文件大小选择
+     * @param size 文件大小（字节），小于0表示未知；lane为null时用于选择队列
+     * @param priority 优先级，同一队列中数值大的先执行
+     * @return 任务
+     * @throws java.util.concurrent.RejectedExecutionException 队列已满
+     */
+    TransferJob submit(FtpServiceInfo ftpServiceInfo, TransferJob.Direction direction, String localPath, String remotePath,
+                       TransferJob.Lane lane, long size, int priority);
+
+    /**
+     * 查询任务
+     * @param id 任务编号
+     * @return 任务，不存在时返回null
+     */
+    TransferJob job(String id);
+
+    /**
+     * 最近的任务
+     * @return 任务列表，按提交顺序
+     */
+    List<TransferJob> jobs();
+
+    /**
+     * 取消未结束的任务，执行中的任务在下一个缓冲区传输前中止，断点保留
+     * @param id 任务编号
+     * @return 是否取消
+     */
+    boolean cancel(String id);
+}
@@ -1,19 +1,53 @@
 package com.example.springboot_simple_demo.service.impl;
 
+import com.example.springboot_simple_demo.config.FtpProperties;
+import com.example.springboot_simple_demo.entity.FtpFileInfo;
 import com.example.springboot_simple_demo.entity.FtpServiceInfo;
+import com.example.springboot_simple_demo.entity.SyncReport;
+import com.example.springboot_simple_demo.entity.TransferJob;
+import com.example.springboot_simple_demo.entity.UploadReport;
 import com.example.springboot_simple_demo.service.FtpTransferService;
-import com.example.springboot_simple_demo.utils.FtpUtil;
+import com.example.springboot_simple_demo.utils.ftp.BandwidthLimiter;
+import com.example.springboot_simple_demo.utils.ftp.FtpClientPool;
+import com.example.springboot_simple_demo.utils.ftp.FtpDirectorySync;
+import com.example.springboot_simple_demo.utils.ftp.FtpDirectoryUploader;
+import com.example.springboot_simple_demo.utils.ftp.FtpDiskCache;
+import com.example.springboot_simple_demo.utils.ftp.FtpFiles;
+import com.example.springboot_simple_demo.utils.ftp.FtpResumableTransfer;
+import com.example.springboot_simple_demo.utils.ftp.FtpRetrieveStream;
+import com.example.springboot_simple_demo.utils.ftp.FtpSegmentedDownloader;
+import com.example.springboot_simple_demo.utils.ftp.FtpServer;
+import com.example.springboot_simple_demo.utils.ftp.FtpZipSources;
+import com.example.springboot_simple_demo.utils.zip.ZipSource;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FileUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 
+import javax.annotation.Resource;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
 
 @Service
 @Slf4j
 public class FtpTransferServiceImpl implements FtpTransferService {
+    // FTP会话池，同一服务器的传输复用已登录的会话
+    @Resource
+    private FtpClientPool ftpClientPool;
+    @Resource
+    private FtpProperties ftpProperties;
+    // 下载文件的本地磁盘缓存
+    @Resource
+    private FtpDiskCache ftpDiskCache;
+    // FTP传输的带宽限制
+    @Resource
+    private BandwidthLimiter bandwidthLimiter;
+
     @Override
     public void uploadFile(FtpServiceInfo ftpServiceInfo, String localBasePath, String localFilePath, String ftpBasePath, String ftpFilePath) {
         // 检查需要上传的文件是否存在
@@ -27,17 +61,10 @@ public class FtpTransferServiceImpl implements FtpTransferService {
         log.info("start uploadFile: " + fileName);
 
         try {
-            // 初始化Ftp服务器
-            FtpUtil ftpUtil = new FtpUtil(ftpServiceInfo.hostIp, ftpServiceInfo.port, ftpServiceInfo.username, ftpServiceInfo.password);
-
-            FileInputStream fileInputStream = new FileInputStream(file);
-            if (ftpUtil.uploadFile(ftpBasePath, ftpFilePath, fileName, fileInputStream)) {
-                log.info("uploadFile: " + fileName + " success");
-            } else {
-                log.error("uploadFile: " + fileName + " failed");
-            }
-
-            log.info("finish uploadFile");
+            // 中断后再次上传同一文件时从FTP服务器上已有的部分继续
+            String remotePath = FtpDirectoryUploader.join(FtpDirectoryUploader.join(ftpBasePath, ftpFilePath), fileName);
+            long sent = resumableTransfer().upload(FtpServer.of(ftpServiceInfo), file, remotePath);
+            log.info("uploadFile: " + fileName + " success, sent " + sent + " bytes");
         } catch (Exception exception) {
             log.error("uploadFile: " + fileName + " failed " + exception.getMessage());
         }
@@ -48,17 +75,122 @@ public class FtpTransferServiceImpl implements FtpTransferService {
         log.info("start downloadFile: " + ftpFilePath);
 
         try {
-            // 初始化Ftp服务器
-            FtpUtil ftpUtil = new FtpUtil(ftpServiceInfo.hostIp, ftpServiceInfo.port, ftpServiceInfo.username, ftpServiceInfo.password);
-
-            InputStream inputStream = null;
-            inputStream = ftpUtil.downloadFile(ftpBasePath, ftpFilePath);
-
             File targetFile = new File(localBasePath + File.separator + localFilePath);
-            FileUtils.copyInputStreamToFile(inputStream, targetFile);
+            FtpServer server = FtpServer.of(ftpServiceInfo);
+            String remotePath = FtpDirectoryUploader.join(ftpBasePath, ftpFilePath);
+            if (ftpProperties.getCache().isEnabled()) {
+                // 远程文件未变化时从本地缓存复制，不再从FTP服务器下载
+                try (InputStream input = ftpDiskCache.open(server, remotePath)) {
+                    Files.createDirectories(targetFile.getAbsoluteFile().getParentFile().toPath());
+                    Files.copy(input, targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else {
+                // 在同一会话内完成数据传输后再归还会话，中断后再次下载时从本地已有的部分继续
+                resumableTransfer().download(server, remotePath, targetFile);
+            }
             log.info("finish downloadFile");
         } catch (Exception exception) {
             log.error("downloadFile: " + ftpFilePath + " failed " + exception.getMessage());
         }
     }
+
+    @Override
+    public UploadReport uploadDirectory(FtpServiceInfo ftpServiceInfo, String localBasePath, String localDirPath, String ftpBasePath, String ftpDirPath) {
+        File folder = new File(localBasePath + File.separator + localDirPath);
+        if (!folder.isDirectory()) {
+            log.error("uploadDirectory " + folder + " not exit");
+            return null;
+        }
+
+        log.info("start uploadDirectory: " + folder);
+        try {
+            UploadReport report = directoryUploader().upload(FtpServer.of(ftpServiceInfo), folder, FtpDirectoryUploader.join(ftpBasePath, ftpDirPath));
+            if (!report.isSuccess()) {
+                log.error("uploadDirectory: " + folder + " failed files " + report.getFailed());
+            }
+            return report;
+        } catch (IOException exception) {
+            log.error("uploadDirectory: " + folder + " failed " + exception.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public boolean downloadFileSegmented(FtpServiceInfo ftpServiceInfo, String localBasePath, String localFilePath, String ftpBasePath, String ftpFilePath) {
+        log.info("start downloadFileSegmented: " + ftpFilePath);
+        FtpProperties.Download download = ftpProperties.getDownload();
+        int segments = Math.min(download.getSegments(), ftpProperties.getPool().getMaxPerHost());
+        FtpSegmentedDownloader downloader = new FtpSegmentedDownloader(ftpClientPool, segments,
+                download.getMinSegmentSize().toBytes(), download.getMaxAttempts(), bandwidthLimiter);
+        try {
+            downloader.download(FtpServer.of(ftpServiceInfo), FtpDirectoryUploader.join(ftpBasePath, ftpFilePath),
+                    new File(localBasePath + File.separator + localFilePath));
+            log.info("finish downloadFileSegmented");
+            return true;
+        } catch (IOException exception) {
+            log.error("downloadFileSegmented: " + ftpFilePath + " failed " + exception.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public SyncReport sync(FtpServiceInfo ftpServiceInfo, String localBasePath, String ftpBasePath, Boolean delete) {
+        File folder = new File(localBasePath);
+        if (!folder.isDirectory()) {
+            log.error("sync " + folder + " not exit");
+            return null;
+        }
+
+        log.info("start sync: " + folder + " -> " + ftpBasePath);
+        FtpServer server = FtpServer.of(ftpServiceInfo);
+        FtpProperties.Sync sync = ftpProperties.getSync();
+        // 每对 本地目录+FTP目录 一个清单
+        String id = DigestUtils.md5DigestAsHex((server + ftpBasePath + "\n" + folder.getAbsolutePath()).getBytes(StandardCharsets.UTF_8));
+        Path manifestPath = new File(sync.getManifestDir(), id + ".manifest").toPath();
+        try {
+            SyncReport report = new FtpDirectorySync(ftpClientPool, directoryUploader(), sync.isSkipUnchangedDirectories())
+                    .sync(server, folder, ftpBasePath, manifestPath, delete != null ? delete : sync.isDelete());
+            if (!report.isSuccess()) {
+                log.error("sync: " + folder + " failed files " + report.getFailed());
+            }
+            return report;
+        } catch (IOException exception) {
+            log.error("sync: " + folder + " failed " + exception.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public FtpFileInfo stat(FtpServiceInfo ftpServiceInfo, String ftpFilePath) throws IOException {
+        return ftpClientPool.execute(FtpServer.of(ftpServiceInfo), ftpClient -> FtpFiles.stat(ftpClient, ftpFilePath));
+    }
+
+    @Override
+    public InputStream openStream(FtpServiceInfo ftpServiceInfo, String ftpFilePath, long offset, long length) throws IOException {
+        InputStream input = FtpRetrieveStream.open(ftpClientPool, FtpServer.of(ftpServiceInfo), ftpFilePath, offset, length);
+        return BandwidthLimiter.throttle(bandwidthLimiter, input, ftpServiceInfo.getHostIp(), TransferJob.Lane.INTERACTIVE);
+    }
+
+    @Override
+    public List<ZipSource> zipSources(FtpServiceInfo ftpServiceInfo, String ftpDirPath) throws IOException {
+        return FtpZipSources.list(ftpClientPool, FtpServer.of(ftpServiceInfo), ftpDirPath);
+    }
+
+    /**
+     * 并行上传器，并行会话数不超过会话池对单个服务器的上限，否则多出的线程只是在等待会话
+     */
+    private FtpDirectoryUploader directoryUploader() {
+        FtpProperties.Upload upload = ftpProperties.getUpload();
+        int concurrency = Math.min(upload.getConcurrency(), ftpProperties.getPool().getMaxPerHost());
+        return new FtpDirectoryUploader(ftpClientPool, concurrency, upload.getMaxAttempts(), bandwidthLimiter);
+    }
+
+    /**
+     * 可断点续传的单文件传输
+     */
+    private FtpResumableTransfer resumableTransfer() {
+        FtpProperties.Resume resume = ftpProperties.getResume();
+        return new FtpResumableTransfer(ftpClientPool, new File(resume.getStateDir()), resume.getMaxAttempts(),
+                bandwidthLimiter, TransferJob.Lane.INTERACTIVE);
+    }
 }
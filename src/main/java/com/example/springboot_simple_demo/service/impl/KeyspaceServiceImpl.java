@@ -0,0 +1,203 @@
+package com.example.springboot_simple_demo.service.impl;
+
+import com.example.springboot_simple_demo.config.RedisUtilProperties;
+import com.example.springboot_simple_demo.entity.KeyspaceJob;
+import com.example.springboot_simple_demo.service.KeyspaceService;
+import com.example.springboot_simple_demo.utils.RedisUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Slf4j
+public class KeyspaceServiceImpl implements KeyspaceService {
+    @Resource
+    private RedisUtil redisUtil;
+
+    @Resource
+    private RedisUtilProperties properties;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    // 批量任务逐个执行，同一时间只有一个任务在遍历Redis
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("redis-bulk-"));
+
+    // 最近的任务，超过保留数量时移除最早结束的任务
+    private final Map<String, KeyspaceJob> jobs = new LinkedHashMap<>();
+
+    @Override
+    public void export(String match, boolean withTtl, OutputStream out) throws IOException {
+        byte[] newLine = "\n".getBytes(StandardCharsets.UTF_8);
+        try {
+            redisUtil.scan(match, batch -> {
+                Map<String, Long> ttls = withTtl ? redisUtil.multiTtl(batch) : null;
+                try {
+                    for (String key : batch) {
+                        Map<String, Object> line = new LinkedHashMap<>();
+                        line.put("key", key);
+                        if (ttls != null) {
+                            line.put("ttl", ttls.get(key));
+                        }
+                        out.write(objectMapper.writeValueAsBytes(line));
+                        out.write(newLine);
+                    }
+                    // 每批写出一次，客户端可以边收边处理
+                    out.flush();
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    @Override
+    public KeyspaceJob submit(String match, KeyspaceJob.Action action, long ttlSeconds) {
+        KeyspaceJob job = new KeyspaceJob();
+        job.setId(UUID.randomUUID().toString().replace("-", ""));
+        job.setMatch(match);
+        job.setAction(action);
+        job.setTtlSeconds(ttlSeconds);
+        job.setCreatedAt(System.currentTimeMillis());
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+            evictFinishedJobs();
+        }
+        jobExecutor.execute(() -> run(job));
+        log.info("keyspace job {} submitted: {} {}", job.getId(), action, match);
+        return job;
+    }
+
+    @Override
+    public KeyspaceJob job(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    @Override
+    public List<KeyspaceJob> jobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    @Override
+    public boolean cancel(String id) {
+        KeyspaceJob job = job(id);
+        return job != null && requestCancel(job);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (jobs) {
+            jobs.values().forEach(this::requestCancel);
+        }
+        jobExecutor.shutdown();
+    }
+
+    /**
+     * 把未结束的任务置为取消，与工作线程开始执行、结束互斥
+     *
+     * @return 是否由本次调用取消
+     */
+    private boolean requestCancel(KeyspaceJob job) {
+        while (true) {
+            KeyspaceJob.Status status = job.getStatus();
+            if (status != KeyspaceJob.Status.QUEUED && status != KeyspaceJob.Status.RUNNING) {
+                return false;
+            }
+            if (job.compareAndSetStatus(status, KeyspaceJob.Status.CANCELLED)) {
+                return true;
+            }
+        }
+    }
+
+    private void run(KeyspaceJob job) {
+        if (!job.compareAndSetStatus(KeyspaceJob.Status.QUEUED, KeyspaceJob.Status.RUNNING)) {
+            job.setFinishedAt(System.currentTimeMillis());
+            return;
+        }
+        long rate = properties.getBulk().getRate();
+        long started = System.nanoTime();
+        try {
+            // 遍历中途Redis不可用时任务失败，不降级到进程内存储继续遍历
+            redisUtil.withoutFailover(() -> redisUtil.scan(job.getMatch(), batch -> {
+                if (job.getStatus() == KeyspaceJob.Status.CANCELLED) {
+                    throw new JobCancelledException();
+                }
+                long affected = job.getAction() == KeyspaceJob.Action.DELETE
+                        ? redisUtil.multiUnlink(batch)
+                        : redisUtil.multiExpire(batch, TimeUnit.SECONDS.toMillis(job.getTtlSeconds()));
+                job.setAffected(job.getAffected() + affected);
+                job.setScanned(job.getScanned() + batch.size());
+                pace(job.getScanned(), rate, started);
+            }));
+            job.compareAndSetStatus(KeyspaceJob.Status.RUNNING, KeyspaceJob.Status.DONE);
+        } catch (JobCancelledException exception) {
+            // 被中断时状态仍是RUNNING
+            job.compareAndSetStatus(KeyspaceJob.Status.RUNNING, KeyspaceJob.Status.CANCELLED);
+            log.info("keyspace job {} cancelled", job.getId());
+        } catch (RuntimeException exception) {
+            log.error("keyspace job {} failed: {}", job.getId(), exception.getMessage());
+            job.setError(exception.getMessage());
+            job.compareAndSetStatus(KeyspaceJob.Status.RUNNING, KeyspaceJob.Status.FAILED);
+        }
+        job.setFinishedAt(System.currentTimeMillis());
+        log.info("keyspace job {} finished: {}, scanned {}, affected {}", job.getId(), job.getStatus(),
+                job.getScanned(), job.getAffected());
+    }
+
+    /**
+     * 按每秒处理的键数量上限限速，超前时休眠
+     */
+    private void pace(long processed, long rate, long started) {
+        if (rate <= 0) {
+            return;
+        }
+        long aheadNanos = processed * TimeUnit.SECONDS.toNanos(1) / rate - (System.nanoTime() - started);
+        if (aheadNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(aheadNanos);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new JobCancelledException();
+            }
+        }
+    }
+
+    private void evictFinishedJobs() {
+        int retained = properties.getBulk().getRetainedJobs();
+        Iterator<KeyspaceJob> iterator = jobs.values().iterator();
+        while (jobs.size() > retained && iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static class JobCancelledException extends RuntimeException {
+        JobCancelledException() {
+            super(null, null, false, false);
+        }
+    }
+}
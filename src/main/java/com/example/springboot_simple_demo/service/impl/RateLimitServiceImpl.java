@@ -0,0 +1,108 @@
+package com.example.springboot_simple_demo.service.impl;
+
+import com.example.springboot_simple_demo.config.RateLimitProperties;
+import com.example.springboot_simple_demo.service.RateLimitService;
+import com.example.springboot_simple_demo.utils.ReactiveRedisUtil;
+import com.example.springboot_simple_demo.utils.RedisUtil;
+import com.example.springboot_simple_demo.utils.redis.LocalTokenBuckets;
+import com.example.springboot_simple_demo.utils.redis.TokenBucket;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@Service
+@Slf4j
+public class RateLimitServiceImpl implements RateLimitService {
+    @Resource
+    private RateLimitProperties properties;
+
+    @Resource
+    private RedisUtil redisUtil;
+
+    @Resource
+    private ReactiveRedisUtil reactiveRedisUtil;
+
+    // 本地预过滤，不访问Redis
+    private LocalTokenBuckets localBuckets;
+
+    @PostConstruct
+    public void init() {
+        localBuckets = new LocalTokenBuckets(properties.getMaxLocalClients());
+    }
+
+    @Override
+    public long acquireGenerate(String clientId, String redisId) {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+
+        long wait = acquireLocal(clientId);
+        if (wait > 0) {
+            return wait;
+        }
+
+        wait = redisUtil.acquire(redisBuckets(clientId, redisId));
+        if (wait > 0) {
+            log.debug("generate rejected, client: {}, redisId: {}", clientId, redisId);
+        }
+        return wait;
+    }
+
+    @Override
+    public Mono<Long> acquireGenerateReactive(String clientId, String redisId) {
+        if (!properties.isEnabled()) {
+            return Mono.just(0L);
+        }
+
+        long wait = acquireLocal(clientId);
+        if (wait > 0) {
+            return Mono.just(wait);
+        }
+
+        return reactiveRedisUtil.acquire(redisBuckets(clientId, redisId))
+                .doOnNext(redisWait -> {
+                    if (redisWait > 0) {
+                        log.debug("generate rejected, client: {}, redisId: {}", clientId, redisId);
+                    }
+                });
+    }
+
+    /**
+     * 本地预过滤，不访问Redis
+     */
+    private long acquireLocal(String clientId) {
+        RateLimitProperties.Bucket local = properties.getLocal();
+        long wait = localBuckets.acquire(Collections.singletonList(
+                new TokenBucket(clientId, local.getCapacity(), local.getRatePerSecond())));
+        if (wait > 0) {
+            log.debug("generate rejected by local pre-filter, client: {}", clientId);
+        }
+        return wait;
+    }
+
+    /**
+     * Redis中按客户端和序号的两个令牌桶
+     */
+    private List<TokenBucket> redisBuckets(String clientId, String redisId) {
+        RateLimitProperties.Bucket client = properties.getClient();
+        RateLimitProperties.Bucket id = properties.getRedisId();
+        return Arrays.asList(
+                new TokenBucket(properties.getKeyPrefix() + "client:" + clientId, client.getCapacity(), client.getRatePerSecond()),
+                new TokenBucket(properties.getKeyPrefix() + "id:" + redisId, id.getCapacity(), id.getRatePerSecond()));
+    }
+
+    @Override
+    public String clientId(String remoteAddr, String forwardedFor) {
+        if (properties.isTrustForwardedFor() && forwardedFor != null && !forwardedFor.isEmpty()) {
+            int comma = forwardedFor.indexOf(',');
+            return (comma < 0 ? forwardedFor : forwardedFor.substring(0, comma)).trim();
+        }
+        return remoteAddr;
+    }
+}
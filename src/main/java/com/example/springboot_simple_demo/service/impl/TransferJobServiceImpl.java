@@ -0,0 +1,212 @@
+package com.example.springboot_simple_demo.service.impl;
+
+import com.example.springboot_simple_demo.config.FtpProperties;
+import com.example.springboot_simple_demo.entity.FtpServiceInfo;
+import com.example.springboot_simple_demo.entity.TransferJob;
+import com.example.springboot_simple_demo.service.TransferJobService;
+import com.example.springboot_simple_demo.utils.ftp.BandwidthLimiter;
+import com.example.springboot_simple_demo.utils.ftp.FtpClientPool;
+import com.example.springboot_simple_demo.utils.ftp.FtpResumableTransfer;
+import com.example.springboot_simple_demo.utils.ftp.FtpServer;
+import com.example.springboot_simple_demo.utils.ftp.FtpTransferCancelledException;
+import com.example.springboot_simple_demo.utils.ftp.FtpTransferListener;
+import com.example.springboot_simple_demo.utils.ftp.FtpTransferScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@Slf4j
+public class TransferJobServiceImpl implements TransferJobService {
+    @Resource
+    private FtpClientPool ftpClientPool;
+
+    @Resource
+    private FtpProperties ftpProperties;
+
+    @Resource
+    private BandwidthLimiter bandwidthLimiter;
+
+    private FtpTransferScheduler scheduler;
+
+    // 最近的任务，超过保留数量时移除最早结束的任务
+    private final Map<String, TransferJob> jobs = new LinkedHashMap<>();
+    // 未结束任务的FTP服务器(含密码，不放在任务中返回)
+    private final Map<String, FtpServer> servers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        FtpProperties.Jobs config = ftpProperties.getJobs();
+        scheduler = new FtpTransferScheduler(config.getInteractiveWorkers(), config.getBulkWorkers(), config.getMaxPerHost(),
+                config.getBulkMaxPerHost(), config.getQueueCapacity(), this::run);
+    }
+
+    @Override
+    public TransferJob submit(FtpServiceInfo ftpServiceInfo, TransferJob.Direction direction, String localPath, String remotePath,
+                              TransferJob.Lane lane, long size, int priority) {
+        FtpServer server = FtpServer.of(ftpServiceInfo);
+        TransferJob job = new TransferJob();
+        job.setId(UUID.randomUUID().toString().replace("-", ""));
+        job.setDirection(direction);
+        // 调度器按host:port限制并发，同一服务器的不同账号共用上限
+        job.setHost(server.getHost() + ":" + server.getPort());
+        job.setLocalPath(localPath);
+        job.setRemotePath(remotePath);
+        job.setPriority(priority);
+        job.setLane(lane != null ? lane : classify(direction, localPath, size));
+        job.setCreatedAt(System.currentTimeMillis());
+
+        servers.put(job.getId(), server);
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+            evictFinishedJobs();
+        }
+        try {
+            scheduler.submit(job);
+        } catch (RuntimeException exception) {
+            // 队列已满
+            synchronized (jobs) {
+                jobs.remove(job.getId());
+            }
+            servers.remove(job.getId());
+            throw exception;
+        }
+        log.info("transfer job {} submitted: {} {} {} <-> {}{}", job.getId(), job.getLane(), direction, localPath,
+                server, remotePath);
+        return job;
+    }
+
+    @Override
+    public TransferJob job(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    @Override
+    public List<TransferJob> jobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    @Override
+    public boolean cancel(String id) {
+        TransferJob job = job(id);
+        if (job == null || !requestCancel(job)) {
+            return false;
+        }
+        if (scheduler.remove(job)) {
+            // 还在排队，直接结束
+            job.setFinishedAt(System.currentTimeMillis());
+            servers.remove(id);
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (jobs) {
+            jobs.values().forEach(this::requestCancel);
+        }
+        scheduler.shutdown();
+    }
+
+    /**
+     * 把未结束的任务置为取消，与工作线程开始执行(QUEUED -> RUNNING)互斥
+     *
+     * @return 是否由本次调用取消
+     */
+    private boolean requestCancel(TransferJob job) {
+        while (true) {
+            TransferJob.Status status = job.getStatus();
+            if (status != TransferJob.Status.QUEUED && status != TransferJob.Status.RUNNING) {
+                return false;
+            }
+            if (job.compareAndSetStatus(status, TransferJob.Status.CANCELLED)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 在调度器的工作线程中执行任务
+     */
+    private void run(TransferJob job) {
+        FtpServer server = servers.remove(job.getId());
+        if (server == null || !job.compareAndSetStatus(TransferJob.Status.QUEUED, TransferJob.Status.RUNNING)) {
+            // 已被取消
+            job.setFinishedAt(System.currentTimeMillis());
+            return;
+        }
+        job.setStartedAt(System.currentTimeMillis());
+        // 每个缓冲区更新一次进度，任务被取消时抛出IOException中止传输，commons-net随之关闭数据连接
+        FtpTransferListener listener = (position, size) -> {
+            if (job.getStatus() == TransferJob.Status.CANCELLED) {
+                throw new FtpTransferCancelledException("transfer job " + job.getId() + " cancelled");
+            }
+            if (job.getStartBytes() < 0) {
+                job.setStartBytes(position);
+            }
+            job.setTotalBytes(size);
+            job.setTransferredBytes(position);
+        };
+        FtpProperties.Resume resume = ftpProperties.getResume();
+        FtpResumableTransfer transfer = new FtpResumableTransfer(ftpClientPool, new File(resume.getStateDir()), resume.getMaxAttempts(),
+                bandwidthLimiter, job.getLane());
+        try {
+            File localFile = new File(job.getLocalPath());
+            if (job.getDirection() == TransferJob.Direction.UPLOAD) {
+                transfer.upload(server, localFile, job.getRemotePath(), listener);
+            } else {
+                transfer.download(server, job.getRemotePath(), localFile, listener);
+            }
+            // 传输期间已被取消的任务保持取消状态
+            job.compareAndSetStatus(TransferJob.Status.RUNNING, TransferJob.Status.DONE);
+        } catch (FtpTransferCancelledException exception) {
+            log.info("transfer job {} cancelled at {}/{}", job.getId(), job.getTransferredBytes(), job.getTotalBytes());
+        } catch (IOException | RuntimeException exception) {
+            log.error("transfer job {} failed: {}", job.getId(), exception.getMessage());
+            job.setError(exception.getMessage());
+            job.compareAndSetStatus(TransferJob.Status.RUNNING, TransferJob.Status.FAILED);
+        }
+        job.setFinishedAt(System.currentTimeMillis());
+        log.info("transfer job {} finished: {}, {} bytes, {} bytes/s", job.getId(), job.getStatus(),
+                job.getTransferredBytes(), job.getBytesPerSecond());
+    }
+
+    /**
+     * 按文件大小选择队列，大小未知时按批量任务处理
+     * 在提交请求的线程中执行，不访问FTP服务器：下载的大小只能由请求给出
+     */
+    private TransferJob.Lane classify(TransferJob.Direction direction, String localPath, long size) {
+        long limit = ftpProperties.getJobs().getInteractiveMaxSize().toBytes();
+        if (size < 0 && direction == TransferJob.Direction.UPLOAD) {
+            File file = new File(localPath);
+            size = file.isFile() ? file.length() : -1;
+        }
+        return size >= 0 && size <= limit ? TransferJob.Lane.INTERACTIVE : TransferJob.Lane.BULK;
+    }
+
+    private void evictFinishedJobs() {
+        int retained = ftpProperties.getJobs().getRetainedJobs();
+        Iterator<TransferJob> iterator = jobs.values().iterator();
+        while (jobs.size() > retained && iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -1,10 +1,23 @@
 package com.example.springboot_simple_demo.utils;
 
+import com.example.springboot_simple_demo.entity.TransferJob;
+import com.example.springboot_simple_demo.entity.UploadReport;
+import com.example.springboot_simple_demo.utils.ftp.BandwidthLimiter;
+import com.example.springboot_simple_demo.utils.ftp.FtpClientFactory;
+import com.example.springboot_simple_demo.utils.ftp.FtpClientPool;
+import com.example.springboot_simple_demo.utils.ftp.FtpDirectoryUploader;
+import com.example.springboot_simple_demo.utils.ftp.FtpMetrics;
+import com.example.springboot_simple_demo.utils.ftp.FtpResumableTransfer;
+import com.example.springboot_simple_demo.utils.ftp.FtpRetrieveStream;
+import com.example.springboot_simple_demo.utils.ftp.FtpSegmentedDownloader;
+import com.example.springboot_simple_demo.utils.ftp.FtpServer;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPFile;
 import org.apache.commons.net.ftp.FTPReply;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
@@ -20,7 +33,16 @@ public class FtpUtil {
     private Integer ftpPort = 21;
     private String ftpUsername = "";
     private String ftpPassword = "";
-    private final FTPClient ftpClient;
+    private FTPClient ftpClient;
+    // 会话池，为null时每次操作新建连接并在结束后断开
+    private final FtpClientPool ftpClientPool;
+    private final FtpServer ftpServer;
+    // 当前会话是否可以归还复用，发生异常或有未完成的数据传输时置为false
+    private boolean reusable;
+    // 带宽限制，为null时不限制
+    private BandwidthLimiter bandwidthLimiter;
+    // 各阶段耗时、失败次数和传输速率指标
+    private FtpMetrics ftpMetrics = FtpMetrics.global();
 
     /**
      * Description: 配置FTP服务器参数
@@ -36,6 +58,48 @@ public class FtpUtil {
         ftpUsername = username;
         ftpPassword = password;
         ftpClient = new FTPClient();
+        ftpClientPool = null;
+        ftpServer = new FtpServer(host, port, username, password);
+    }
+
+    /**
+     * Description: 配置FTP服务器参数，从会话池借用会话，操作结束后归还而不是断开
+     *
+     * @param ftpClientPool 会话池
+     * @param host          FTP服务器hostname
+     * @param port          FTP服务器端口
+     * @param username      FTP登录账号
+     * @param password      FTP登录密码
+     */
+    public FtpUtil(FtpClientPool ftpClientPool, String host, Integer port, String username, String password) {
+        ftpHost = host;
+        ftpPort = port;
+        ftpUsername = username;
+        ftpPassword = password;
+        this.ftpClientPool = ftpClientPool;
+        ftpServer = new FtpServer(host, port, username, password);
+    }
+
+    /**
+     * 设置带宽限制，上传下载单个文件按交互式传输、上传文件夹和分段下载按批量传输分配带宽
+     *
+     * @param bandwidthLimiter 带宽限制，为null时不限制
+     * @return this
+     */
+    public FtpUtil setBandwidthLimiter(BandwidthLimiter bandwidthLimiter) {
+        this.bandwidthLimiter = bandwidthLimiter;
+        return this;
+    }
+
+    /**
+     * 设置指标注册的MeterRegistry，默认为Metrics.globalRegistry
+     *
+     * @param meterRegistry MeterRegistry
+     * @return this
+     */
+    public FtpUtil setMeterRegistry(MeterRegistry meterRegistry) {
+        this.ftpMetrics = FtpMetrics.of(meterRegistry);
+        return this;
     }
 
     /**
@@ -44,17 +108,32 @@ public class FtpUtil {
      * @return 是否初始化成功
      */
     private boolean initFtpClient() {
+        if (ftpClientPool != null) {
+            try {
+                // 借出耗时由会话池记录
+                ftpClient = ftpClientPool.borrow(ftpServer);
+                reusable = true;
+                return true;
+            } catch (IOException exception) {
+                log.error("init Ftp failed: {}", exception.getMessage());
+                return false;
+            }
+        }
+
         boolean isInitFtpClient = false;
         try {
             // 连接FTP服务器
             //设置连接超时时间为10秒
             ftpClient.setConnectTimeout(5000);
             // 如果采用默认端口，可以使用ftp.connect(host)的方式直接连接FTP服务器
-            ftpClient.connect(ftpHost, ftpPort);
+            ftpMetrics.time(ftpHost, "connect", () -> {
+                ftpClient.connect(ftpHost, ftpPort);
+                return true;
+            });
             // log.info("Ftp连接成功");
 
             // 登录FTP服务器
-            if (!ftpClient.login(ftpUsername, ftpPassword)) {
+            if (!ftpMetrics.time(ftpHost, "login", () -> ftpClient.login(ftpUsername, ftpPassword))) {
                 log.error("Ftp login failed: " + "username: " + ftpUsername + "," + "password: " + ftpPassword);
                 ftpClient.disconnect();
                 return false;
@@ -81,6 +160,23 @@ public class FtpUtil {
      * 断开FTP连接
      */
     private void disConnectFtpClient() {
+        disConnectFtpClient(ftpClient, reusable);
+        if (ftpClientPool != null) {
+            ftpClient = null;
+        }
+    }
+
+    /**
+     * 归还或断开指定的会话
+     *
+     * @param ftpClient 会话
+     * @param reusable  会话是否可以归还复用
+     */
+    private void disConnectFtpClient(FTPClient ftpClient, boolean reusable) {
+        if (ftpClientPool != null) {
+            ftpClientPool.release(ftpServer, ftpClient, reusable);
+            return;
+        }
         if (ftpClient.isConnected()) {
             try {
                 ftpClient.logout();
@@ -98,13 +194,27 @@ public class FtpUtil {
     }
 
     /**
-     * 切换Ftp工作目录
+     * 切换Ftp工作目录，记录包括逐级创建目录在内的耗时
      *
      * @param basePath Ftp根路径
      * @param filePath Ftp文件路径
      * @return 是否切换成功
      */
     private boolean changeWorkingDirectory(String basePath, String filePath) {
+        long start = System.nanoTime();
+        boolean isSuccess = walkWorkingDirectory(basePath, filePath);
+        ftpMetrics.record(ftpHost, "cwd", start, isSuccess);
+        return isSuccess;
+    }
+
+    /**
+     * 切换Ftp工作目录，目录不存在时逐级创建
+     *
+     * @param basePath Ftp根路径
+     * @param filePath Ftp文件路径
+     * @return 是否切换成功
+     */
+    private boolean walkWorkingDirectory(String basePath, String filePath) {
         boolean isSuccess = false;
 
         // 切换到上传目录
@@ -132,6 +242,7 @@ public class FtpUtil {
             isSuccess = true;
         } catch (Exception exception) {
             log.error("changeWorkingDirectory failed: {}", exception.getMessage());
+            reusable = false;
         }
 
         return isSuccess;
@@ -162,7 +273,11 @@ public class FtpUtil {
                 // 设置上传文件的类型为二进制类型
                 ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
                 // 上传文件
-                if (!ftpClient.storeFile(fileName, input)) {
+                FtpMetrics.TransferStream counted = ftpMetrics.monitor(throttle(input, TransferJob.Lane.INTERACTIVE),
+                        ftpHost, "upload", basePath + File.separator + filePath + File.separator + fileName);
+                boolean stored = ftpMetrics.time(ftpHost, "store", () -> ftpClient.storeFile(fileName, counted));
+                counted.finish(stored);
+                if (!stored) {
                     log.error("upload " + fileName + " failed");
                     return false;
                 }
@@ -172,6 +287,7 @@ public class FtpUtil {
             }
         } catch (Exception exception) {
             log.error("uploadFile failed: {}", exception.getMessage());
+            reusable = false;
         } finally {
             disConnectFtpClient();
         }
@@ -185,7 +301,9 @@ public class FtpUtil {
      * @param filePath   FTP服务器文件存放路径。例如分日期存放：/2015/01/01。文件的路径为basePath+filePath
      * @param folderName 上传到FTP服务器上的文件夹名
      * @return 成功返回true，否则返回false
+     * @deprecated 只上传第一层文件且遇到失败即停止，使用 {@link #uploadDirectory(String, String, File, int)}
      */
+    @Deprecated
     public boolean uploadDictionary(String basePath, String filePath, File folderName) {
         boolean isUpload = false;
 
@@ -209,7 +327,12 @@ public class FtpUtil {
                     // 设置上传文件的类型为二进制类型
                     ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
                     // 上传文件
-                    if (!ftpClient.storeFile(files[i].getName(), fileInputStream)) {
+                    FtpMetrics.TransferStream counted = ftpMetrics.monitor(throttle(fileInputStream, TransferJob.Lane.BULK),
+                            ftpHost, "upload", files[i].getPath());
+                    String name = files[i].getName();
+                    boolean stored = ftpMetrics.time(ftpHost, "store", () -> ftpClient.storeFile(name, counted));
+                    counted.finish(stored);
+                    if (!stored) {
                         log.error("upload " + files[i].getName() + " failed");
                         break;
                     }
@@ -222,6 +345,7 @@ public class FtpUtil {
             }
         } catch (Exception exception) {
             log.error("uploadFile failed: {}", exception.getMessage());
+            reusable = false;
         } finally {
             disConnectFtpClient();
         }
@@ -229,16 +353,124 @@ public class FtpUtil {
         return isUpload;
     }
 
+    /**
+     * Description: 向FTP服务器递归上传文件夹，多个会话并行上传，每个文件单独重试
+     *
+     * @param basePath    FTP服务器基础目录
+     * @param filePath    FTP服务器文件存放路径，文件夹的内容上传到basePath+filePath下
+     * @param folder      本地文件夹
+     * @param concurrency 并行会话数
+     * @return 上传结果，读取本地文件夹或创建FTP目录失败时返回null
+     */
+    public UploadReport uploadDirectory(String basePath, String filePath, File folder, int concurrency) {
+        FtpClientPool pool = ftpClientPool != null ? ftpClientPool : temporaryPool(concurrency);
+        try {
+            String remoteDir = FtpDirectoryUploader.join(basePath, filePath);
+            return new FtpDirectoryUploader(pool, concurrency, 3, bandwidthLimiter).upload(ftpServer, folder, remoteDir);
+        } catch (IOException exception) {
+            log.error("uploadDirectory failed: {}", exception.getMessage());
+            return null;
+        } finally {
+            if (pool != ftpClientPool) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * Description: 可断点续传地上传文件，中断后再次调用时从FTP服务器上已有的部分继续
+     *
+     * @param basePath  FTP服务器基础目录
+     * @param filePath  FTP服务器文件存放路径，文件的路径为basePath+filePath
+     * @param fileName  上传到FTP服务器上的文件名
+     * @param localFile 本地文件
+     * @param stateDir  上传进度文件目录
+     * @return 成功返回true，否则返回false
+     */
+    public boolean uploadFileResumable(String basePath, String filePath, String fileName, File localFile, File stateDir) {
+        FtpClientPool pool = ftpClientPool != null ? ftpClientPool : temporaryPool(1);
+        try {
+            String ftpFilePath = FtpDirectoryUploader.join(FtpDirectoryUploader.join(basePath, filePath), fileName);
+            new FtpResumableTransfer(pool, stateDir, 3, bandwidthLimiter, TransferJob.Lane.INTERACTIVE).upload(ftpServer, localFile, ftpFilePath);
+            return true;
+        } catch (IOException exception) {
+            log.error("uploadFileResumable failed: {}", exception.getMessage());
+            return false;
+        } finally {
+            if (pool != ftpClientPool) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * 可断点续传地下载文件，中断后再次调用时从本地已有的部分继续
+     *
+     * @param remotePath 文件路径
+     * @param fileName   文件名
+     * @param localFile  本地文件，进度保存在同目录的 .resume 文件中
+     * @return 成功返回true，否则返回false
+     */
+    public boolean downloadFileResumable(String remotePath, String fileName, File localFile) {
+        FtpClientPool pool = ftpClientPool != null ? ftpClientPool : temporaryPool(1);
+        try {
+            String ftpFilePath = FtpDirectoryUploader.join(remotePath, fileName);
+            new FtpResumableTransfer(pool, null, 3, bandwidthLimiter, TransferJob.Lane.INTERACTIVE).download(ftpServer, ftpFilePath, localFile);
+            return true;
+        } catch (IOException exception) {
+            log.error("downloadFileResumable failed: {}", exception.getMessage());
+            return false;
+        } finally {
+            if (pool != ftpClientPool) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * 分段下载大文件，每段使用一个会话并行下载；中断后再次调用时每段从已下载的位置继续
+     *
+     * @param remotePath 文件路径
+     * @param fileName   文件名
+     * @param localFile  本地文件，进度保存在同目录的 .segments 文件中
+     * @param segments   最大段数
+     * @return 成功返回true，否则返回false
+     */
+    public boolean downloadFileSegmented(String remotePath, String fileName, File localFile, int segments) {
+        FtpClientPool pool = ftpClientPool != null ? ftpClientPool : temporaryPool(segments);
+        try {
+            String ftpFilePath = FtpDirectoryUploader.join(remotePath, fileName);
+            new FtpSegmentedDownloader(pool, segments, 16L * 1024 * 1024, 3, bandwidthLimiter).download(ftpServer, ftpFilePath, localFile);
+            return true;
+        } catch (IOException exception) {
+            log.error("downloadFileSegmented failed: {}", exception.getMessage());
+            return false;
+        } finally {
+            if (pool != ftpClientPool) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * 没有会话池时临时创建一个，用完后关闭全部会话
+     */
+    private static FtpClientPool temporaryPool(int maxPerHost) {
+        GenericKeyedObjectPoolConfig<FTPClient> config = new GenericKeyedObjectPoolConfig<>();
+        config.setMaxTotalPerKey(maxPerHost);
+        config.setJmxEnabled(false);
+        return new FtpClientPool(new FtpClientFactory(5000, 60000, Long.MAX_VALUE), config);
+    }
+
     /**
      * 下载文件
+     * 返回的流持有FTP会话，关闭流时才确认传输完成并归还(或断开)会话，用完必须关闭
      *
      * @param remotePath 文件路径
      * @param fileName   文件名
-     * @return 输入流
+     * @return 输入流，文件不存在或下载失败时返回null
      */
     public InputStream downloadFile(String remotePath, String fileName) {
-        InputStream inputStream = null;
-
         if (!initFtpClient()) {
             return null;
         }
@@ -253,23 +485,74 @@ public class FtpUtil {
             // 切换目录
             ftpClient.changeWorkingDirectory(remotePath);
 
-            FTPFile[] ftpFiles = ftpClient.listFiles(ftpFilePath);
+            FTPFile[] ftpFiles = ftpMetrics.time(ftpHost, "list", () -> ftpClient.listFiles(ftpFilePath));
 
             if (ftpFiles.length == 0) {
                 log.error("Ftp is empty");
             } else {
                 // 下载文件
                 log.info("start download " + fileName);
-                // 下载文件
-                inputStream = ftpClient.retrieveFileStream(ftpFilePath);
+                ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
+                InputStream inputStream = ftpMetrics.time(ftpHost, "retrieve", () -> ftpClient.retrieveFileStream(ftpFilePath));
+                if (inputStream != null) {
+                    // 会话随流交给调用方，本对象可以继续用于其他操作；调用方关闭流时记录本次传输
+                    FTPClient streamClient = ftpClient;
+                    ftpClient = ftpClientPool != null ? null : new FTPClient();
+                    return ftpMetrics.monitor(throttle(new FtpRetrieveStream(inputStream, streamClient, -1,
+                            streamReusable -> disConnectFtpClient(streamClient, streamReusable)), TransferJob.Lane.INTERACTIVE),
+                            ftpHost, "download", ftpFilePath);
+                }
+                ftpMetrics.failure(ftpHost, "retrieve", "rejected");
+                log.error("download " + ftpFilePath + " failed: " + ftpClient.getReplyString());
             }
         } catch (Exception exception) {
             log.error("downloadFile failed: {}", exception.getMessage());
+            reusable = false;
+        }
+        disConnectFtpClient();
+        return null;
+    }
+
+    /**
+     * 下载文件到本地，数据传输在同一会话内完成
+     *
+     * @param remotePath 文件路径
+     * @param fileName   文件名
+     * @param localFile  本地文件，父目录不存在时创建
+     * @return 成功返回true，否则返回false
+     */
+    public boolean downloadFile(String remotePath, String fileName, File localFile) {
+        if (!initFtpClient()) {
+            return false;
+        }
+
+        boolean isDownload = false;
+        try {
+            String ftpFilePath = remotePath + File.separator + fileName;
+            log.info("start download " + ftpFilePath);
+            File parent = localFile.getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                log.error("mkdirs " + parent + " failed");
+                return false;
+            }
+            ftpClient.enterLocalPassiveMode();
+            ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
+            long start = System.nanoTime();
+            try (OutputStream outputStream = BandwidthLimiter.throttle(bandwidthLimiter,
+                    new BufferedOutputStream(new FileOutputStream(localFile), 64 * 1024), ftpHost, TransferJob.Lane.INTERACTIVE)) {
+                isDownload = ftpMetrics.time(ftpHost, "retrieve", () -> ftpClient.retrieveFile(ftpFilePath, outputStream));
+            }
+            ftpMetrics.transfer(ftpHost, "download", ftpFilePath, localFile.length(), start, isDownload);
+            if (!isDownload) {
+                log.error("download " + ftpFilePath + " failed: " + ftpClient.getReplyString());
+            }
+        } catch (Exception exception) {
+            log.error("downloadFile failed: {}", exception.getMessage());
+            reusable = false;
         } finally {
             disConnectFtpClient();
         }
-
-        return inputStream;
+        return isDownload;
     }
 
     /**
@@ -283,13 +566,15 @@ public class FtpUtil {
         if (!initFtpClient()) {
             return false;
         }
+        // 数据流读完后没有确认传输完成(completePendingCommand)，会话不归还复用
+        reusable = false;
 
         try {
             // 转移到FTP服务器目录
             String ftpFilePath = remotePath + File.separator + fileName;
             log.info("Ftp文件路径: " + ftpFilePath);
 
-            FTPFile[] ftpFiles = ftpClient.listFiles();
+            FTPFile[] ftpFiles = ftpMetrics.time(ftpHost, "list", () -> ftpClient.listFiles());
 
             if (ftpFiles.length == 0) {
                 log.error("Ftp文件不存在");
@@ -319,22 +604,27 @@ public class FtpUtil {
                 log.info("正在下载文件：{}，总大小：{}", ftpFiles[0].getName(), size);
                 long start = System.currentTimeMillis();
                 try {
-                    InputStream inputStream = ftpClient.retrieveFileStream(file.getName());
+                    long localSize = localFile.length();
+                    if (localSize > size) {
+                        log.error("本地文件大于服务器文件,终止下载");
+                        checkFile(localFile);
+                        return false;
+                    }
+                    // 断点续传的偏移量必须在发起RETR之前设置
+                    if (localSize > 0) {
+                        ftpClient.setRestartOffset(localSize);
+                    }
+                    // 按批量传输限速，不挤占交互式传输的带宽
+                    InputStream stream = ftpMetrics.time(ftpHost, "retrieve", () -> ftpClient.retrieveFileStream(file.getName()));
+                    FtpMetrics.TransferStream inputStream = stream == null ? null
+                            : ftpMetrics.monitor(throttle(stream, TransferJob.Lane.BULK), ftpHost, "download", ftpFilePath);
                     try {
                         byte[] bytes = new byte[1024 * 32];
-                        long step = size / 100;
+                        long step = Math.max(1, size / 100);
                         long process = 0L;
-                        long localSize = localFile.length();
-                        if (localSize > size) {
-                            log.error("本地文件大于服务器文件,终止下载");
-                            checkFile(localFile);
-                            return false;
-                        }
-                        if (localSize > 0) {
-                            ftpClient.setRestartOffset(localSize);
-                        }
                         int c;
                         if (inputStream == null) {
+                            ftpMetrics.failure(ftpHost, "retrieve", "rejected");
                             disConnectFtpClient();
                             return false;
                         }
@@ -348,6 +638,7 @@ public class FtpUtil {
                                 log.info("{}%", process);
                                 if (System.currentTimeMillis() - start > TEN_MINUTE) { // 大于指定时间
                                     log.info("时间已到，未下载部分将在下次任务中下载");
+                                    inputStream.finish(false);
                                     disConnectFtpClient();
                                     return false;
                                 }
@@ -356,9 +647,13 @@ public class FtpUtil {
                         log.info("文件下载完成到：{}", localPath + "/" + file.getName());
                     } catch (SocketTimeoutException e) {
                         log.info("下载出错：", e);
+                        inputStream.finish(false);
                         return false;
                     } catch (Exception e) {
                         log.error("下载出错：", e);
+                        if (inputStream != null) {
+                            inputStream.finish(false);
+                        }
                         return false;
                     } finally {
                         try {
@@ -382,10 +677,16 @@ public class FtpUtil {
         } catch (Exception exception) {
             log.error("下载文件错误：" + exception.getMessage());
             return false;
+        } finally {
+            disConnectFtpClient();
         }
         return flag;
     }
 
+    private InputStream throttle(InputStream input, TransferJob.Lane lane) {
+        return input == null ? null : BandwidthLimiter.throttle(bandwidthLimiter, input, ftpHost, lane);
+    }
+
     private boolean checkFile(File localFile) {
         if (localFile.exists()) { // 已经存在则删除
             localFile.delete();
@@ -406,30 +707,42 @@ public class FtpUtil {
 
     /**
      * 输入文件流及文件名称返回给浏览器下载
+     * 长度未知，响应使用分块传输
      *
      * @param response    浏览器响应对象
      * @param inputStream 文件流
      * @param fileName    文件名称
      */
     public static void fileInputStreamToResponse(HttpServletResponse response, InputStream inputStream, String fileName) {
-        try {
+        fileInputStreamToResponse(response, inputStream, fileName, -1);
+    }
+
+    /**
+     * 输入文件流及文件名称返回给浏览器下载
+     *
+     * @param response      浏览器响应对象
+     * @param inputStream   文件流，写完后关闭
+     * @param fileName      文件名称
+     * @param contentLength 文件大小，小于0表示未知
+     */
+    public static void fileInputStreamToResponse(HttpServletResponse response, InputStream inputStream, String fileName, long contentLength) {
+        try (InputStream input = inputStream) {
             //  清空response
             response.reset();
             //Content-Disposition的作用：告知浏览器以何种方式显示响应返回的文件，用浏览器打开还是以附件的形式下载到本地保存表示以附件方式下载
             response.addHeader("Content-Disposition", "attachment;filename=" + URLEncoder.encode(fileName, StandardCharsets.UTF_8));
-            //告知浏览器文件的大小
-            response.addHeader("Content-Length", "" + inputStream.available());
+            //告知浏览器文件的大小；available()只是不阻塞可读的字节数，不是文件大小
+            if (contentLength >= 0) {
+                response.setContentLengthLong(contentLength);
+            }
             response.addHeader("Access-Control-Allow-Origin", "*");
-            OutputStream outputStream = new BufferedOutputStream(response.getOutputStream());
-            byte[] buffer = new byte[2048];
-            int bytesRead = -1;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
+            OutputStream outputStream = response.getOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            int bytesRead;
+            while ((bytesRead = input.read(buffer)) != -1) {
                 outputStream.write(buffer, 0, bytesRead);
             }
-            inputStream.close();
-            outputStream.write(buffer);
             outputStream.flush();
-            outputStream.close();
         } catch (IOException ioException) {
             log.error("fileInputStreamToResponse: " + ioException);
         }
@@ -0,0 +1,214 @@
+package com.example.springboot_simple_demo.utils;
+
+import com.example.springboot_simple_demo.utils.redis.EmbeddedTtlStore;
+import com.example.springboot_simple_demo.utils.redis.NearCache;
+import com.example.springboot_simple_demo.utils.redis.RedisRouter;
+import com.example.springboot_simple_demo.utils.redis.RedisScripts;
+import com.example.springboot_simple_demo.utils.redis.TokenBucket;
+import com.example.springboot_simple_demo.utils.redis.VerifyResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisElementReader;
+import org.springframework.data.redis.serializer.RedisElementWriter;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+  RedisUtil的非阻塞版本，基于ReactiveRedisTemplate
+  等待Redis响应期间不占用调用线程，脚本与编码均与RedisUtil相同
+  与RedisUtil共用RedisRouter(连接方式、分片、主从)、后端选择与降级、近端缓存和指标，两者可以混用
+ */
+@Component
+public class ReactiveRedisUtil {
+    private static final RedisElementWriter<byte[]> ARGS_WRITER = RedisElementWriter.from(RedisSerializer.byteArray());
+    private static final RedisElementReader<Long> LONG_READER =
+            RedisElementReader.from(new GenericToStringSerializer<>(Long.class));
+
+    // 只提供序列化方式，命令按router选择的节点执行
+    @Resource
+    private ReactiveRedisTemplate<String, String> reactiveRedisTemplate;
+
+    @Resource
+    private RedisRouter redisRouter;
+
+    @Resource
+    private RedisUtil redisUtil;
+
+    @Resource
+    private RedisSerializer<Object> redisValueCodec;
+
+    // 本地近端缓存，未启用时为null
+    @Autowired(required = false)
+    private NearCache nearCache;
+
+    // router中的RedisTemplate -> 同一连接工厂上的ReactiveRedisTemplate；分片节点移除后随之回收
+    private final Map<RedisTemplate<String, String>, ReactiveRedisTemplate<String, String>> reactiveTemplates =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * 原子地获取或创建key-value，见RedisUtil.getOrCreate
+     *
+     * @param key     键
+     * @param value   键不存在时写入的值
+     * @param timeout 生存时间
+     * @param unit    时间单位
+     * @return 键对应的值（已有值或新写入的值）
+     */
+    public Mono<String> getOrCreate(String key, String value, long timeout, TimeUnit unit) {
+        return call("getOrCreate", key, () -> {
+            redisUtil.beforeWrite(key);
+            ReactiveRedisTemplate<String, String> template = forKey(key);
+            return template.execute(RedisScripts.GET_OR_CREATE, Collections.singletonList(key),
+                    Arrays.asList(redisValueCodec.serialize(value), RedisScripts.number(unit.toMillis(timeout))),
+                    ARGS_WRITER, template.getSerializationContext().getValueSerializationPair().getReader()).next();
+        }, store -> store.getOrCreate(key, value, unit.toMillis(timeout)));
+    }
+
+    /**
+     * 原子地校验并消费key-value，见RedisUtil.verify
+     *
+     * @param key         键
+     * @param value       待校验的值
+     * @param maxAttempts 最大失败次数
+     * @return 校验结果
+     */
+    public Mono<VerifyResult> verify(String key, String value, int maxAttempts) {
+        return call("verify", key, () -> {
+            redisUtil.beforeWrite(key);
+            return forKey(key).execute(RedisScripts.VERIFY_AND_CONSUME, Arrays.asList(key, RedisScripts.attemptsKey(key)),
+                    Arrays.asList(redisValueCodec.serialize(value), RedisScripts.number(maxAttempts),
+                            RedisScripts.number(RedisScripts.ATTEMPTS_TTL_MILLIS)),
+                    ARGS_WRITER, LONG_READER).next()
+                    .map(VerifyResult::of)
+                    .defaultIfEmpty(VerifyResult.EXPIRED);
+        }, store -> store.verify(key, value, maxAttempts));
+    }
+
+    /**
+     * 根据key，获取值
+     *
+     * @param key 键
+     * @return 获取到的值，键不存在时为空
+     */
+    public Mono<String> get(String key) {
+        return call("get", key, () -> {
+            String cached = nearCache != null ? nearCache.get(key) : null;
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return forRead(key).opsForValue().get(key);
+        }, store -> store.get(key));
+    }
+
+    /**
+     * 判断key是否存在
+     *
+     * @param key 键
+     * @return 是否存在
+     */
+    public Mono<Boolean> exists(String key) {
+        return call("exists", key, () -> {
+            if (nearCache != null && nearCache.get(key) != null) {
+                return Mono.just(true);
+            }
+            return forRead(key).hasKey(key).defaultIfEmpty(false);
+        }, store -> store.exists(key));
+    }
+
+    /**
+     * 原子地从各令牌桶各取一个令牌，见RedisUtil.acquire
+     *
+     * @param limits 令牌桶规则
+     * @return 0 取得令牌，大于0 需要等待的毫秒数
+     */
+    public Mono<Long> acquire(List<TokenBucket> limits) {
+        return call("acquire", null, () -> {
+            Map<RedisTemplate<String, String>, List<TokenBucket>> groups = new LinkedHashMap<>();
+            for (TokenBucket limit : limits) {
+                groups.computeIfAbsent(redisRouter.forKey(limit.getKey()), template -> new ArrayList<>()).add(limit);
+            }
+            // 按节点依次执行，某个节点需要等待时不再执行后面的节点
+            return Flux.fromIterable(groups.entrySet())
+                    .concatMap(group -> {
+                        List<String> keys = new ArrayList<>(group.getValue().size());
+                        List<byte[]> args = new ArrayList<>(group.getValue().size() * 2);
+                        for (TokenBucket limit : group.getValue()) {
+                            keys.add(limit.getKey());
+                            args.add(RedisScripts.number(limit.getCapacity()));
+                            args.add(RedisScripts.number(limit.getRatePerSecond()));
+                        }
+                        return reactive(group.getKey()).execute(RedisScripts.TOKEN_BUCKET, keys, args, ARGS_WRITER, LONG_READER)
+                                .next()
+                                .defaultIfEmpty(0L);
+                    })
+                    .filter(wait -> wait > 0)
+                    .next()
+                    .defaultIfEmpty(0L);
+        }, store -> redisUtil.embeddedBuckets().acquire(limits));
+    }
+
+    /**
+     * 与RedisUtil相同地记录热点键、耗时和异常，并按后端选择与降级规则执行
+     */
+    private <T> Mono<T> call(String operation, String key, Supplier<Mono<T>> redisCall,
+                             Function<EmbeddedTtlStore, T> embeddedCall) {
+        return Mono.defer(() -> {
+            redisUtil.recordHotKey(key);
+            long start = System.nanoTime();
+            return route(operation, redisCall, embeddedCall)
+                    .doOnError(exception -> redisUtil.recordError(operation, exception))
+                    .doFinally(signal -> redisUtil.recordLatency(operation, start));
+        });
+    }
+
+    private <T> Mono<T> route(String operation, Supplier<Mono<T>> redisCall,
+                              Function<EmbeddedTtlStore, T> embeddedCall) {
+        EmbeddedTtlStore store = redisUtil.embeddedStore();
+        if (store == null) {
+            return redisCall.get();
+        }
+        // 进程内存储的操作不阻塞，直接在调用线程执行
+        if (redisUtil.embeddedOnly()) {
+            return Mono.fromSupplier(() -> embeddedCall.apply(store));
+        }
+        return Mono.defer(redisCall)
+                .onErrorResume(exception -> exception instanceof QueryTimeoutException
+                        || exception instanceof RedisConnectionFailureException, exception -> {
+                    redisUtil.recordFailover(operation, (Exception) exception);
+                    return Mono.fromSupplier(() -> embeddedCall.apply(store));
+                });
+    }
+
+    private ReactiveRedisTemplate<String, String> forKey(String key) {
+        return reactive(redisRouter.forKey(key));
+    }
+
+    private ReactiveRedisTemplate<String, String> forRead(String key) {
+        return reactive(redisRouter.forRead(key));
+    }
+
+    private ReactiveRedisTemplate<String, String> reactive(RedisTemplate<String, String> template) {
+        return reactiveTemplates.computeIfAbsent(template, node -> new ReactiveRedisTemplate<>(
+                (ReactiveRedisConnectionFactory) node.getRequiredConnectionFactory(),
+                reactiveRedisTemplate.getSerializationContext()));
+    }
+}
@@ -1,16 +1,103 @@
 package com.example.springboot_simple_demo.utils;
 
+import com.example.springboot_simple_demo.config.RedisUtilProperties;
+import com.example.springboot_simple_demo.entity.RedisEntry;
+import com.example.springboot_simple_demo.utils.redis.EmbeddedTtlStore;
+import com.example.springboot_simple_demo.utils.redis.HotKeyTracker;
+import com.example.springboot_simple_demo.utils.redis.LocalTokenBuckets;
+import com.example.springboot_simple_demo.utils.redis.NearCache;
+import com.example.springboot_simple_demo.utils.redis.RedisRouter;
+import com.example.springboot_simple_demo.utils.redis.RedisScripts;
+import com.example.springboot_simple_demo.utils.redis.TokenBucket;
+import com.example.springboot_simple_demo.utils.redis.VerifyResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.concurrent.TimeUnit;
 
 @Component
+@Slf4j
 public class RedisUtil {
+    /**
+     * 整数类型脚本返回值的序列化方式
+     */
+    private static final RedisSerializer<Long> LONG_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+
+    /**
+     * 进程内存储后端下令牌桶的最大数量
+     */
+    private static final int EMBEDDED_BUCKETS = 100_000;
+
+    // 按键选择RedisTemplate，取决于redis-util.connection.mode
+    @Resource
+    private RedisRouter redisRouter;
+
+    @Resource
+    private RedisUtilProperties properties;
+
+    // 批量操作涉及多个节点时并行执行
+    private final ExecutorService fanOutExecutor = Executors.newCachedThreadPool(new CustomizableThreadFactory("redis-fan-out-"));
 
+    // 值的编码，与redisTemplate一致
     @Resource
-    private RedisTemplate<String, String> redisTemplate;
+    private RedisSerializer<Object> redisValueCodec;
+
+    // 本地近端缓存，未启用时为null
+    @Autowired(required = false)
+    private NearCache nearCache;
+
+    // 进程内存储，redis-util.backend=embedded或开启降级时存在，否则为null
+    @Autowired(required = false)
+    private EmbeddedTtlStore embeddedStore;
+
+    // 进程内存储后端下的令牌桶
+    private final LocalTokenBuckets embeddedBuckets = new LocalTokenBuckets(EMBEDDED_BUCKETS);
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    // 各操作的耗时指标
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    // 热点键统计，未启用时为null
+    @Autowired(required = false)
+    private HotKeyTracker hotKeyTracker;
+
+    // 当前线程是否禁止降级，见withoutFailover
+    private final ThreadLocal<Boolean> failoverDisabled = new ThreadLocal<>();
 
     /**
      * 设置key-value
@@ -19,7 +106,14 @@ public class RedisUtil {
      * @param value 值
      */
     public void set(String key, String value) {
-        redisTemplate.opsForValue().set(key, value);
+        call("set", key, () -> {
+            beforeWrite(key);
+            redisRouter.forKey(key).opsForValue().set(key, value);
+            return null;
+        }, () -> {
+            embeddedStore.set(key, value, -1);
+            return null;
+        });
     }
 
     /**
@@ -31,7 +125,53 @@ public class RedisUtil {
      * @param unit    时间单位
      */
     public void set(String key, String value, long timeout, TimeUnit unit) {
-        redisTemplate.opsForValue().set(key, value, timeout, unit);
+        call("set", key, () -> {
+            beforeWrite(key);
+            redisRouter.forKey(key).opsForValue().set(key, value, timeout, unit);
+            return null;
+        }, () -> {
+            embeddedStore.set(key, value, unit.toMillis(timeout));
+            return null;
+        });
+    }
+
+    /**
+     * 原子地获取或创建key-value，只需一次网络往返
+     * 键存在则返回已有值，不存在则写入给定值并设置生存时间（SET NX + GET）
+     * 并发调用同一个键时，所有调用方得到的都是同一个值
+     *
+     * @param key     键
+     * @param value   键不存在时写入的值
+     * @param timeout 生存时间
+     * @param unit    时间单位
+     * @return 键对应的值（已有值或新写入的值）
+     */
+    public String getOrCreate(String key, String value, long timeout, TimeUnit unit) {
+        return call("getOrCreate", key, () -> {
+            beforeWrite(key);
+            return redisRouter.forKey(key).execute(RedisScripts.GET_OR_CREATE, RedisSerializer.byteArray(), valueSerializer(),
+                    Collections.singletonList(key), valueSerializer().serialize(value), RedisScripts.number(unit.toMillis(timeout)));
+        }, () -> embeddedStore.getOrCreate(key, value, unit.toMillis(timeout)));
+    }
+
+    /**
+     * 原子地校验并消费key-value，只需一次网络往返
+     * 值匹配则删除键；不匹配则失败次数加一，达到上限后同样删除键，阻止暴力穷举
+     * 失败次数记录在"键:attempts"中，与键同时过期
+     *
+     * @param key         键
+     * @param value       待校验的值
+     * @param maxAttempts 最大失败次数
+     * @return 校验结果
+     */
+    public VerifyResult verify(String key, String value, int maxAttempts) {
+        return call("verify", key, () -> {
+            beforeWrite(key);
+            Long code = redisRouter.forKey(key).execute(RedisScripts.VERIFY_AND_CONSUME, RedisSerializer.byteArray(), LONG_SERIALIZER,
+                    Arrays.asList(key, RedisScripts.attemptsKey(key)), valueSerializer().serialize(value),
+                    RedisScripts.number(maxAttempts), RedisScripts.number(RedisScripts.ATTEMPTS_TTL_MILLIS));
+            return VerifyResult.of(code);
+        }, () -> embeddedStore.verify(key, value, maxAttempts));
     }
 
     /**
@@ -41,17 +181,25 @@ public class RedisUtil {
      * @param time 生存时间（秒）
      */
     public void expire(String key, long time) {
-        redisTemplate.expire(key, time, TimeUnit.SECONDS);
+        call("expire", key, () -> {
+            beforeWrite(key);
+            return redisRouter.forKey(key).expire(key, time, TimeUnit.SECONDS);
+        }, () -> time > 0 ? embeddedStore.expire(key, TimeUnit.SECONDS.toMillis(time)) : embeddedStore.delete(key));
     }
 
     /**
      * 根据key，获取值
      *
      * @param key 键
-     * @return 获取到的值
+     * @return 获取到的值，键不存在时返回null
      */
     public String get(String key) {
-        return String.valueOf(redisTemplate.opsForValue().get(key));
+        return call("get", key, () -> {
+            if (nearCache != null) {
+                return getThroughNearCache(key);
+            }
+            return redisRouter.forRead(key).opsForValue().get(key);
+        }, () -> embeddedStore.get(key));
     }
 
 
@@ -61,7 +209,12 @@ public class RedisUtil {
      * @return 是否存在
      */
     public boolean exists(String key) {
-        return Boolean.TRUE.equals(redisTemplate.hasKey(key));
+        return call("exists", key, () -> {
+            if (nearCache != null) {
+                return getThroughNearCache(key) != null;
+            }
+            return Boolean.TRUE.equals(redisRouter.forRead(key).hasKey(key));
+        }, () -> embeddedStore.exists(key));
     }
 
 
@@ -72,6 +225,497 @@ public class RedisUtil {
      * @return 是否删除成功
      */
     public boolean delete(String key) {
-        return Boolean.TRUE.equals(redisTemplate.delete(key));
+        return call("delete", key, () -> {
+            beforeWrite(key);
+            return Boolean.TRUE.equals(redisRouter.forKey(key).delete(key));
+        }, () -> embeddedStore.delete(key));
+    }
+
+    /**
+     * 原子地从各令牌桶各取一个令牌，全部有令牌时才扣减，否则都不扣减
+     * 同一节点上的桶在一次脚本调用中完成；分片模式下桶分布在不同节点时按节点依次调用，
+     * 前面节点已扣减的令牌不会退回
+     *
+     * @param limits 令牌桶规则
+     * @return 0 取得令牌，大于0 需要等待的毫秒数
+     */
+    public long acquire(List<TokenBucket> limits) {
+        return call("acquire", null, () -> {
+            Map<RedisTemplate<String, String>, List<TokenBucket>> groups = new LinkedHashMap<>();
+            for (TokenBucket limit : limits) {
+                groups.computeIfAbsent(redisRouter.forKey(limit.getKey()), template -> new ArrayList<>()).add(limit);
+            }
+            for (Map.Entry<RedisTemplate<String, String>, List<TokenBucket>> group : groups.entrySet()) {
+                List<String> keys = new ArrayList<>(group.getValue().size());
+                Object[] args = new Object[group.getValue().size() * 2];
+                for (TokenBucket limit : group.getValue()) {
+                    args[keys.size() * 2] = RedisScripts.number(limit.getCapacity());
+                    args[keys.size() * 2 + 1] = RedisScripts.number(limit.getRatePerSecond());
+                    keys.add(limit.getKey());
+                }
+                Long wait = group.getKey().execute(RedisScripts.TOKEN_BUCKET, RedisSerializer.byteArray(), LONG_SERIALIZER,
+                        keys, args);
+                if (wait != null && wait > 0) {
+                    return wait;
+                }
+            }
+            return 0L;
+        }, () -> embeddedBuckets.acquire(limits));
+    }
+
+    /**
+     * 批量获取值，按批次管道执行GET
+     *
+     * @param keys 键列表
+     * @return 键到值的映射（保持键的顺序），不存在的键对应null
+     */
+    public Map<String, String> multiGet(List<String> keys) {
+        recordHotKeys(keys);
+        return call("multiGet", null, () -> redisMultiGet(keys), () -> {
+            Map<String, String> values = new LinkedHashMap<>(keys.size() * 2);
+            keys.forEach(key -> values.put(key, embeddedStore.get(key)));
+            return values;
+        });
+    }
+
+    private Map<String, String> redisMultiGet(List<String> keys) {
+        Map<String, String> values = new LinkedHashMap<>(keys.size() * 2);
+        List<String> missed = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            String value = nearCache != null ? nearCache.get(key) : null;
+            values.put(key, value);
+            if (value == null) {
+                missed.add(key);
+            }
+        }
+
+        long[] stamps = new long[missed.size()];
+        for (int i = 0; nearCache != null && i < missed.size(); i++) {
+            stamps[i] = nearCache.stamp(missed.get(i));
+        }
+        if (nearCache == null) {
+            List<Object> results = pipeline(missed, true, (ops, key) -> ops.opsForValue().get(key));
+            for (int i = 0; i < missed.size(); i++) {
+                values.put(missed.get(i), (String) results.get(i));
+            }
+            return values;
+        }
+
+        // 与GET同一管道读取剩余生存时间(PTTL)，近端缓存中的值不会比Redis中的键活得更久
+        // 放入近端缓存的值从主节点读取，见getThroughNearCache
+        List<Object> results = pipeline(missed, false, (ops, key) -> {
+            ops.opsForValue().get(key);
+            ops.getExpire(key, TimeUnit.MILLISECONDS);
+        });
+        for (int i = 0; i < missed.size(); i++) {
+            List<?> result = (List<?>) results.get(i);
+            String value = (String) result.get(0);
+            values.put(missed.get(i), value);
+            nearCache.put(missed.get(i), value, (Long) result.get(1), stamps[i]);
+        }
+        return values;
+    }
+
+    /**
+     * 批量设置key-value，每个键可单独指定生存时间，按批次管道执行SET
+     *
+     * @param entries 键值列表
+     */
+    public void multiSet(List<RedisEntry> entries) {
+        if (hotKeyTracker != null) {
+            entries.forEach(entry -> hotKeyTracker.record(entry.getKey()));
+        }
+        call("multiSet", null, () -> {
+            redisMultiSet(entries);
+            return null;
+        }, () -> {
+            entries.forEach(entry -> embeddedStore.set(entry.getKey(), entry.getValue(),
+                    TimeUnit.SECONDS.toMillis(entry.getTimeout())));
+            return null;
+        });
+    }
+
+    private void redisMultiSet(List<RedisEntry> entries) {
+        Map<String, RedisEntry> byKey = new LinkedHashMap<>(entries.size() * 2);
+        for (RedisEntry entry : entries) {
+            beforeWrite(entry.getKey());
+            byKey.put(entry.getKey(), entry);
+        }
+        pipeline(new ArrayList<>(byKey.keySet()), false, (ops, key) -> {
+            RedisEntry entry = byKey.get(key);
+            if (entry.getTimeout() > 0) {
+                ops.opsForValue().set(key, entry.getValue(), entry.getTimeout(), TimeUnit.SECONDS);
+            } else {
+                ops.opsForValue().set(key, entry.getValue());
+            }
+        });
+    }
+
+    /**
+     * 批量删除，按批次管道执行DEL
+     *
+     * @param keys 键列表
+     * @return 删除的键数量
+     */
+    public long multiDelete(List<String> keys) {
+        recordHotKeys(keys);
+        return call("multiDelete", null, () -> redisMultiDelete(keys),
+                () -> keys.stream().distinct().filter(embeddedStore::delete).count());
+    }
+
+    private long redisMultiDelete(List<String> keys) {
+        keys.forEach(this::beforeWrite);
+        return count(pipeline(keys, false, RedisOperations::delete));
+    }
+
+    /**
+     * 统计管道结果中成功(true或大于0)的数量
+     */
+    private static long count(List<Object> results) {
+        long count = 0;
+        for (Object result : results) {
+            if (Boolean.TRUE.equals(result) || (result instanceof Long && (Long) result > 0)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 批量判断key是否存在，按批次管道执行EXISTS
+     *
+     * @param keys 键列表
+     * @return 键到是否存在的映射（保持键的顺序）
+     */
+    public Map<String, Boolean> multiExists(List<String> keys) {
+        recordHotKeys(keys);
+        return call("multiExists", null, () -> redisMultiExists(keys), () -> {
+            Map<String, Boolean> exists = new LinkedHashMap<>(keys.size() * 2);
+            keys.forEach(key -> exists.put(key, embeddedStore.exists(key)));
+            return exists;
+        });
+    }
+
+    private Map<String, Boolean> redisMultiExists(List<String> keys) {
+        List<Object> results = pipeline(keys, true, RedisOperations::hasKey);
+        Map<String, Boolean> exists = new LinkedHashMap<>(keys.size() * 2);
+        for (int i = 0; i < keys.size(); i++) {
+            exists.put(keys.get(i), Boolean.TRUE.equals(results.get(i)));
+        }
+        return exists;
+    }
+
+    /**
+     * 用SCAN遍历各数据节点上匹配的键，每批交给consumer处理，不会阻塞Redis，内存占用与匹配的键数量无关
+     * 遍历期间写入或删除的键可能出现也可能不出现；同一个键可能重复出现
+     *
+     * @param match    键的匹配模式，如 captcha:*
+     * @param consumer 每批键的处理，批大小不超过redis-util.batch.size
+     */
+    public void scan(String match, Consumer<List<String>> consumer) {
+        int batchSize = Math.max(1, properties.getBatch().getSize());
+        call("scan", null, () -> {
+            ScanOptions options = ScanOptions.scanOptions().match(match).count(batchSize).build();
+            for (RedisTemplate<String, String> node : redisRouter.nodes()) {
+                node.execute((RedisCallback<Void>) connection -> {
+                    List<String> batch = new ArrayList<>(batchSize);
+                    try (Cursor<byte[]> cursor = connection.scan(options)) {
+                        while (cursor.hasNext()) {
+                            batch.add(new String(cursor.next(), StandardCharsets.UTF_8));
+                            if (batch.size() >= batchSize) {
+                                consumer.accept(batch);
+                                batch = new ArrayList<>(batchSize);
+                            }
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        consumer.accept(batch);
+                    }
+                    return null;
+                });
+            }
+            return null;
+        }, () -> {
+            embeddedStore.scan(match, batchSize, consumer);
+            return null;
+        });
+    }
+
+    /**
+     * 批量获取剩余生存时间，按批次管道执行PTTL
+     *
+     * @param keys 键列表
+     * @return 键到剩余毫秒数的映射（保持键的顺序），-1表示永久，-2表示键不存在
+     */
+    public Map<String, Long> multiTtl(List<String> keys) {
+        return call("multiTtl", null, () -> {
+            List<Object> results = pipeline(keys, true, (ops, key) -> ops.getExpire(key, TimeUnit.MILLISECONDS));
+            Map<String, Long> ttls = new LinkedHashMap<>(keys.size() * 2);
+            for (int i = 0; i < keys.size(); i++) {
+                ttls.put(keys.get(i), results.get(i) == null ? -2L : (Long) results.get(i));
+            }
+            return ttls;
+        }, () -> {
+            Map<String, Long> ttls = new LinkedHashMap<>(keys.size() * 2);
+            keys.forEach(key -> ttls.put(key, embeddedStore.ttl(key)));
+            return ttls;
+        });
+    }
+
+    /**
+     * 批量异步删除，按批次管道执行UNLINK，大value的内存在Redis后台线程释放
+     *
+     * @param keys 键列表
+     * @return 删除的键数量
+     */
+    public long multiUnlink(List<String> keys) {
+        return call("multiUnlink", null, () -> {
+            keys.forEach(this::beforeWrite);
+            return count(pipeline(keys, false, RedisOperations::unlink));
+        }, () -> keys.stream().distinct().filter(embeddedStore::delete).count());
+    }
+
+    /**
+     * 批量设置生存时间，按批次管道执行PEXPIRE
+     *
+     * @param keys      键列表
+     * @param ttlMillis 生存时间（毫秒）
+     * @return 设置成功(键存在)的数量
+     */
+    public long multiExpire(List<String> keys, long ttlMillis) {
+        return call("multiExpire", null, () -> {
+            keys.forEach(this::beforeWrite);
+            return count(pipeline(keys, false, (ops, key) -> ops.expire(key, ttlMillis, TimeUnit.MILLISECONDS)));
+        }, () -> keys.stream().distinct()
+                .filter(key -> ttlMillis > 0 ? embeddedStore.expire(key, ttlMillis) : embeddedStore.delete(key))
+                .count());
+    }
+
+    /**
+     * 在当前线程执行action，期间Redis连接失败或超时直接抛出，不降级到进程内存储
+     * 批量任务使用：遍历到一半降级会改为遍历进程内存储，任务却报告完成
+     * redis-util.backend=embedded时照常读写进程内存储
+     *
+     * @param action 要执行的操作
+     */
+    public void withoutFailover(Runnable action) {
+        Boolean previous = failoverDisabled.get();
+        failoverDisabled.set(Boolean.TRUE);
+        try {
+            action.run();
+        } finally {
+            if (previous == null) {
+                failoverDisabled.remove();
+            } else {
+                failoverDisabled.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 执行一个操作：记录热点键，统计耗时(redis.util.operation)与异常(redis.util.errors)
+     *
+     * @param operation 操作名，作为指标的operation标签
+     * @param key       单键操作的键，批量操作为null(由调用方逐个记录热点键)
+     */
+    private <T> T call(String operation, String key, Supplier<T> redisCall, Supplier<T> embeddedCall) {
+        recordHotKey(key);
+        long start = System.nanoTime();
+        try {
+            return route(operation, redisCall, embeddedCall);
+        } catch (RuntimeException exception) {
+            recordError(operation, exception);
+            throw exception;
+        } finally {
+            recordLatency(operation, start);
+        }
+    }
+
+    /**
+     * 按redis-util.backend选择后端执行：embedded直接读写进程内存储；
+     * redis后端开启降级时，Redis连接失败或超时则改为读写进程内存储
+     */
+    private <T> T route(String operation, Supplier<T> redisCall, Supplier<T> embeddedCall) {
+        if (embeddedStore == null) {
+            return redisCall.get();
+        }
+        if (embeddedOnly()) {
+            return embeddedCall.get();
+        }
+        try {
+            return redisCall.get();
+        } catch (QueryTimeoutException | RedisConnectionFailureException exception) {
+            if (Boolean.TRUE.equals(failoverDisabled.get())) {
+                throw exception;
+            }
+            recordFailover(operation, exception);
+            return embeddedCall.get();
+        }
+    }
+
+    /*
+      以下方法供ReactiveRedisUtil使用，两者共用后端选择、降级、近端缓存和指标
+     */
+
+    // 进程内存储，redis-util.backend=embedded或开启降级时存在，否则为null
+    EmbeddedTtlStore embeddedStore() {
+        return embeddedStore;
+    }
+
+    // 进程内存储的令牌桶
+    LocalTokenBuckets embeddedBuckets() {
+        return embeddedBuckets;
+    }
+
+    // 是否只使用进程内存储(redis-util.backend=embedded)
+    boolean embeddedOnly() {
+        return embeddedStore != null && properties.getBackend() == RedisUtilProperties.Backend.EMBEDDED;
+    }
+
+    void recordHotKey(String key) {
+        if (key != null && hotKeyTracker != null) {
+            hotKeyTracker.record(key);
+        }
+    }
+
+    void recordLatency(String operation, long startNanos) {
+        timers.computeIfAbsent(operation, this::timer).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordError(String operation, Throwable exception) {
+        Counter.builder("redis.util.errors")
+                .description("RedisUtil操作抛出的异常数")
+                .tag("operation", operation)
+                .tag("exception", exception.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    void recordFailover(String operation, Exception exception) {
+        log.warn("redis unavailable, falling back to embedded store: {}", exception.getMessage());
+        Counter.builder("redis.util.failovers")
+                .description("Redis不可用时降级到进程内存储的次数")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer timer(String operation) {
+        return Timer.builder("redis.util.operation")
+                .description("RedisUtil各操作的耗时")
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+    }
+
+    private void recordHotKeys(List<String> keys) {
+        if (hotKeyTracker != null) {
+            keys.forEach(hotKeyTracker::record);
+        }
+    }
+
+    /**
+     * 按RedisTemplate分组，再按批次大小分段，每段在一次管道中执行，返回与键一一对应的结果
+     * 每个键执行多条命令时，该键的结果为各命令结果组成的列表
+     *
+     * @param read 是否为只读命令，只读命令按forRead分组，可能走从节点
+     */
+    private List<Object> pipeline(List<String> keys, boolean read, BiConsumer<RedisOperations<String, String>, String> command) {
+        Map<RedisTemplate<String, String>, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            groups.computeIfAbsent(read ? redisRouter.forRead(key) : redisRouter.forKey(key), template -> new ArrayList<>()).add(i);
+        }
+
+        Object[] results = new Object[keys.size()];
+        if (groups.size() == 1) {
+            groups.forEach((template, indexes) -> pipeline(template, indexes, keys, command, results));
+        } else {
+            // 多个节点(分片)时并行执行各节点的管道
+            List<CompletableFuture<Void>> futures = new ArrayList<>(groups.size());
+            groups.forEach((template, indexes) -> futures.add(CompletableFuture.runAsync(
+                    () -> pipeline(template, indexes, keys, command, results), fanOutExecutor)));
+            try {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            } catch (CompletionException exception) {
+                throw exception.getCause() instanceof RuntimeException ? (RuntimeException) exception.getCause() : exception;
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 在一个RedisTemplate上按批次大小分段执行管道，结果写入对应下标
+     */
+    private void pipeline(RedisTemplate<String, String> template, List<Integer> indexes, List<String> keys,
+                          BiConsumer<RedisOperations<String, String>, String> command, Object[] results) {
+        int batchSize = Math.max(1, properties.getBatch().getSize());
+        for (int from = 0; from < indexes.size(); from += batchSize) {
+            List<Integer> batch = indexes.subList(from, Math.min(from + batchSize, indexes.size()));
+            List<Object> batchResults = template.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    for (Integer index : batch) {
+                        command.accept(ops, keys.get(index));
+                    }
+                    return null;
+                }
+            });
+            int perKey = batchResults.size() / batch.size();
+            for (int i = 0; i < batch.size(); i++) {
+                results[batch.get(i)] = perKey == 1 ? batchResults.get(i) : batchResults.subList(i * perKey, (i + 1) * perKey);
+            }
+        }
+    }
+
+    /**
+     * 先读本地近端缓存，未命中时在一次往返中读取值及其剩余生存时间(GET + PTTL)并放入缓存
+     * 未命中时从主节点读取：失效后立即从延迟的从节点读取可能拿到旧值，旧值会一直缓存到下一次失效
+     */
+    private String getThroughNearCache(String key) {
+        String value = nearCache.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        long stamp = nearCache.stamp(key);
+        List<Object> results = redisRouter.forKey(key).executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.opsForValue().get(key);
+                ops.getExpire(key, TimeUnit.MILLISECONDS);
+                return null;
+            }
+        });
+        value = (String) results.get(0);
+        nearCache.put(key, value, (Long) results.get(1), stamp);
+        return value;
+    }
+
+    /**
+     * 本地写入、删除前使近端缓存中的该键失效，并通知router该键将被写入(读己之写)
+     */
+    void beforeWrite(String key) {
+        if (nearCache != null) {
+            nearCache.invalidate(key);
+        }
+        redisRouter.written(key);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOutExecutor.shutdown();
+    }
+
+    /**
+     * 值的序列化方式，与redisTemplate保持一致，保证脚本读写的值与普通命令相同
+     */
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<String> valueSerializer() {
+        return (RedisSerializer<String>) (RedisSerializer<?>) redisValueCodec;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,256 @@
+package com.example.springboot_simple_demo.utils.download;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.util.MimeTypeUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+  本地文件的HTTP发送
+  整个文件或单个范围：容器支持sendfile(Tomcat NIO)时交给容器，由内核直接从页缓存发送到套接字，不经过堆内存
+  多个范围(multipart/byteranges)：逐段用FileChannel.transferTo写出
+  支持ETag/Last-Modified条件请求、If-Range，以及客户端接受gzip时返回 .gz 预压缩版本
+ */
+public final class FileDownloadSender {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private FileDownloadSender() {
+    }
+
+    /**
+     * 发送文件
+     *
+     * @param request  请求
+     * @param response 响应
+     * @param file     文件元数据
+     * @throws IOException 读取文件或写响应失败
+     */
+    public static void send(HttpServletRequest request, HttpServletResponse response, FileMetadata file) throws IOException {
+        FileMetadata representation = file;
+        if (file.getGzip() != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+                representation = file.getGzip();
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+        }
+        long size = representation.getSize();
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, representation.getEtag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, representation.getLastModified());
+        if (notModified(request, representation)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        List<long[]> ranges;
+        try {
+            ranges = ranges(request, representation);
+        } catch (IllegalArgumentException exception) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        boolean head = "HEAD".equals(request.getMethod());
+
+        if (ranges.size() <= 1) {
+            long start = ranges.isEmpty() ? 0 : ranges.get(0)[0];
+            long length = ranges.isEmpty() ? size : ranges.get(0)[1];
+            if (!ranges.isEmpty()) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(start, length, size));
+            }
+            response.setContentType(representation.getContentType());
+            response.setContentLengthLong(length);
+            if (!head && length > 0) {
+                transfer(request, response, representation.getPath(), start, length);
+            }
+            return;
+        }
+
+        // 多个范围：先算出各段的分隔头和总长度
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (long[] range : ranges) {
+            byte[] header = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + representation.getContentType() + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(range[0], range[1], size) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + range[1];
+        }
+        byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += end.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (head) {
+            return;
+        }
+        OutputStream output = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(output);
+        try (FileChannel channel = FileChannel.open(representation.getPath(), StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                output.write(partHeaders.get(i));
+                transferTo(channel, ranges.get(i)[0], ranges.get(i)[1], target);
+            }
+        }
+        output.write(end);
+        output.flush();
+    }
+
+    /**
+     * 整个文件或单个范围的发送，优先使用容器的sendfile
+     */
+    private static void transfer(HttpServletRequest request, HttpServletResponse response, Path path, long start,
+                                 long length) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 容器在请求处理结束后用sendfile发送，此处不写响应体
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            transferTo(channel, start, length, Channels.newChannel(response.getOutputStream()));
+        }
+        response.flushBuffer();
+    }
+
+    private static void transferTo(FileChannel channel, long start, long length, WritableByteChannel target) throws IOException {
+        long position = start;
+        long end = start + length;
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                throw new IOException("file truncated at " + position);
+            }
+            position += transferred;
+        }
+    }
+
+    /**
+     * 解析Range，返回各段的 [开始位置, 长度]；没有Range、If-Range不匹配或各段总长超过文件大小时返回空列表(发送整个文件)
+     *
+     * @throws IllegalArgumentException Range格式错误或不可满足
+     */
+    static List<long[]> ranges(HttpServletRequest request, FileMetadata file) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        List<long[]> result = new ArrayList<>();
+        if (header == null || !ifRangeMatches(request, file)) {
+            return result;
+        }
+        long size = file.getSize();
+        long total = 0;
+        for (HttpRange range : HttpRange.parseRanges(header)) {
+            long start = range.getRangeStart(size);
+            if (start >= size) {
+                throw new IllegalArgumentException("range starts beyond end of file");
+            }
+            long length = range.getRangeEnd(size) - start + 1;
+            result.add(new long[]{start, length});
+            total += length;
+        }
+        if (total > size) {
+            // 重叠的范围比整个文件还大，直接发送整个文件
+            result.clear();
+        }
+        return result;
+    }
+
+    private static boolean notModified(HttpServletRequest request, FileMetadata file) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String trimmed = tag.trim();
+                if ("*".equals(trimmed) || weak(trimmed).equals(file.getEtag())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            return ifModifiedSince >= 0 && file.getLastModified() / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+    }
+
+    private static boolean ifRangeMatches(HttpServletRequest request, FileMetadata file) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            // If-Range只能使用强比较
+            return ifRange.equals(file.getEtag());
+        }
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == file.getLastModified() / 1000;
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (!"gzip".equalsIgnoreCase(name) && !"*".equals(name)) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=") && quality(parameter.substring(2)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * q值，格式错误或超出0到1时按0处理(不可接受)
+     */
+    private static double quality(String value) {
+        try {
+            double quality = Double.parseDouble(value.trim());
+            return quality >= 0 && quality <= 1 ? quality : 0;
+        } catch (NumberFormatException exception) {
+            return 0;
+        }
+    }
+
+    private static String weak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static String contentRange(long start, long length, long size) {
+        return "bytes " + start + "-" + (start + length - 1) + "/" + size;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.springboot_simple_demo.utils.download;
+
+import java.nio.file.Path;
+
+/*
+  下载文件的元数据：大小、修改时间、ETag、内容类型，以及可用的 .gz 预压缩版本
+ */
+public final class FileMetadata {
+    private final Path path;
+    private final long size;
+    private final long lastModified;
+    private final String etag;
+    private final String contentType;
+    // 预压缩版本，不存在时为null
+    private final FileMetadata gzip;
+
+    public FileMetadata(Path path, long size, long lastModified, String etag, String contentType, FileMetadata gzip) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.etag = etag;
+        this.contentType = contentType;
+        this.gzip = gzip;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public FileMetadata getGzip() {
+        return gzip;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.springboot_simple_demo.utils.download;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/*
+  下载文件元数据的进程内缓存
+  容量有界(LRU淘汰)，条目在有效期内直接使用，过期后重新读取文件属性；热点文件的每次请求不再访问文件系统
+ */
+public class FileMetadataCache {
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final boolean gzipVariants;
+    private final LongSupplier clock;
+    private final LinkedHashMap<Path, Entry> entries;
+
+    /**
+     * @param maxSize      最大条目数
+     * @param ttlMillis    条目有效期（毫秒）
+     * @param gzipVariants 是否查找 .gz 预压缩版本
+     */
+    public FileMetadataCache(int maxSize, long ttlMillis, boolean gzipVariants) {
+        this(maxSize, ttlMillis, gzipVariants, System::currentTimeMillis);
+    }
+
+    FileMetadataCache(int maxSize, long ttlMillis, boolean gzipVariants, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.gzipVariants = gzipVariants;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<Path, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Entry> eldest) {
+                return size() > FileMetadataCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取文件元数据
+     *
+     * @param path 文件路径
+     * @return 元数据，文件不存在或不是普通文件时返回null
+     * @throws IOException 读取文件属性失败
+     */
+    public FileMetadata get(Path path) throws IOException {
+        long now = clock.getAsLong();
+        synchronized (this) {
+            Entry entry = entries.get(path);
+            if (entry != null && now - entry.loadedAt < ttlMillis) {
+                return entry.metadata;
+            }
+        }
+        // 读取文件属性不持有锁
+        FileMetadata metadata = load(path);
+        synchronized (this) {
+            if (metadata == null) {
+                entries.remove(path);
+            } else {
+                entries.put(path, new Entry(metadata, now));
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * 当前条目数
+     *
+     * @return 条目数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private FileMetadata load(Path path) throws IOException {
+        BasicFileAttributes attributes = attributes(path);
+        if (attributes == null || !attributes.isRegularFile()) {
+            return null;
+        }
+        String fileName = path.getFileName().toString();
+        String contentType = MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+        FileMetadata gzip = null;
+        if (gzipVariants && !fileName.endsWith(GZIP_SUFFIX)) {
+            Path gzipPath = path.resolveSibling(fileName + GZIP_SUFFIX);
+            // 不跟随符号链接，.gz 链接可能指向下载根目录之外
+            BasicFileAttributes gzipAttributes = attributes(gzipPath, LinkOption.NOFOLLOW_LINKS);
+            // 比原文件旧的 .gz 文件已经过时，不使用
+            if (gzipAttributes != null && gzipAttributes.isRegularFile()
+                    && gzipAttributes.lastModifiedTime().compareTo(attributes.lastModifiedTime()) >= 0) {
+                gzip = metadata(gzipPath, gzipAttributes, contentType, "-gz", null);
+            }
+        }
+        return metadata(path, attributes, contentType, "", gzip);
+    }
+
+    private static FileMetadata metadata(Path path, BasicFileAttributes attributes, String contentType, String etagSuffix,
+                                         FileMetadata gzip) {
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + etagSuffix + "\"";
+        return new FileMetadata(path, size, lastModified, etag, contentType, gzip);
+    }
+
+    private static BasicFileAttributes attributes(Path path, LinkOption... options) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class, options);
+        } catch (NoSuchFileException exception) {
+            return null;
+        }
+    }
+
+    private static final class Entry {
+        private final FileMetadata metadata;
+        private final long loadedAt;
+
+        private Entry(FileMetadata metadata, long loadedAt) {
+            this.metadata = metadata;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
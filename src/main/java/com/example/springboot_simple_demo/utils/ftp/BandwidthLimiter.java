@@ -0,0 +1,343 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.entity.TransferJob;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+  FTP传输带宽限制：全局一个令牌桶，每个FTP主机一个令牌桶，传输的每个缓冲区都要从两个桶中取得令牌
+  令牌不足时等待；允许透支一个缓冲区，长期速率不超过设定值
+  带宽紧张时按传输类别(交互式/批量)的权重公平分配(起始时间公平排队)：各类别按权重分得带宽，
+  某个类别没有传输时其余类别可以用满全部带宽
+  速率和权重可以在运行时调整，立即生效
+ */
+public class BandwidthLimiter {
+    // 每次最多申请的字节数，限制单次透支
+    static final int CHUNK = 64 * 1024;
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Bucket global = new Bucket();
+    private final Map<String, Bucket> hosts = new HashMap<>();
+    // 单独设置了速率的主机
+    private final Map<String, Long> hostRates = new HashMap<>();
+    private long defaultHostRate;
+    private final Map<TransferJob.Lane, Integer> weights = new EnumMap<>(TransferJob.Lane.class);
+    // 各类别最后一个请求的虚拟结束时间
+    private final Map<TransferJob.Lane, Double> lastFinish = new EnumMap<>(TransferJob.Lane.class);
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+    private double virtualTime;
+    private long sequence;
+    // 没有任何限制时不加锁
+    private volatile boolean unlimited = true;
+
+    /**
+     * @param globalRate      全局速率（字节/秒），0表示不限制
+     * @param defaultHostRate 每个主机的默认速率（字节/秒），0表示不限制
+     * @param hostRates       单独设置速率的主机
+     * @param weights         各传输类别的权重，未设置的类别权重为1
+     */
+    public BandwidthLimiter(long globalRate, long defaultHostRate, Map<String, Long> hostRates, Map<TransferJob.Lane, Integer> weights) {
+        for (TransferJob.Lane lane : TransferJob.Lane.values()) {
+            this.weights.put(lane, Math.max(1, weights.getOrDefault(lane, 1)));
+            lastFinish.put(lane, 0.0);
+        }
+        this.defaultHostRate = Math.max(0, defaultHostRate);
+        this.hostRates.putAll(hostRates);
+        global.setRate(globalRate, System.nanoTime());
+        updateUnlimited();
+    }
+
+    /**
+     * 取得传输bytes字节的令牌，不足时等待
+     *
+     * @param host  FTP主机
+     * @param lane  传输类别
+     * @param bytes 字节数
+     * @throws InterruptedIOException 等待时线程被中断
+     */
+    public void acquire(String host, TransferJob.Lane lane, int bytes) throws InterruptedIOException {
+        if (unlimited || bytes <= 0) {
+            return;
+        }
+        synchronized (this) {
+            Bucket hostBucket = hostBucket(host);
+            double start = Math.max(virtualTime, lastFinish.get(lane));
+            lastFinish.put(lane, start + (double) bytes / weights.get(lane));
+            Waiter waiter = new Waiter(hostBucket, start, sequence++);
+            waiters.add(waiter);
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    global.refill(now);
+                    hostBucket.refill(now);
+                    if (ready(hostBucket) && ready(global) && !hasEarlierReady(waiter)) {
+                        global.take(bytes);
+                        hostBucket.take(bytes);
+                        waiters.remove(waiter);
+                        virtualTime = Math.max(virtualTime, start);
+                        notifyAll();
+                        return;
+                    }
+                    long waitNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1),
+                            Math.min(MAX_WAIT_NANOS, Math.max(global.nanosUntilReady(), hostBucket.nanosUntilReady())));
+                    TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+                }
+            } catch (InterruptedException exception) {
+                waiters.remove(waiter);
+                notifyAll();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for bandwidth");
+            }
+        }
+    }
+
+    /**
+     * 限速的输入流，每读取一个缓冲区取得相应的令牌
+     *
+     * @param input 输入流
+     * @param host  FTP主机
+     * @param lane  传输类别
+     * @return 限速的输入流，limiter为null时返回原输入流
+     */
+    public static InputStream throttle(BandwidthLimiter limiter, InputStream input, String host, TransferJob.Lane lane) {
+        return limiter == null ? input : new ThrottledInputStream(input, limiter, host, lane);
+    }
+
+    /**
+     * 限速的输出流，每写出一个缓冲区前取得相应的令牌
+     *
+     * @param output 输出流
+     * @param host   FTP主机
+     * @param lane   传输类别
+     * @return 限速的输出流，limiter为null时返回原输出流
+     */
+    public static OutputStream throttle(BandwidthLimiter limiter, OutputStream output, String host, TransferJob.Lane lane) {
+        return limiter == null ? output : new ThrottledOutputStream(output, limiter, host, lane);
+    }
+
+    /**
+     * 设置全局速率
+     *
+     * @param rate 字节/秒，0表示不限制
+     */
+    public synchronized void setGlobalRate(long rate) {
+        global.setRate(rate, System.nanoTime());
+        updateUnlimited();
+        notifyAll();
+    }
+
+    /**
+     * 设置每个主机的默认速率，单独设置了速率的主机不受影响
+     *
+     * @param rate 字节/秒，0表示不限制
+     */
+    public synchronized void setDefaultHostRate(long rate) {
+        defaultHostRate = Math.max(0, rate);
+        long now = System.nanoTime();
+        hosts.forEach((host, bucket) -> {
+            if (!hostRates.containsKey(host)) {
+                bucket.setRate(defaultHostRate, now);
+            }
+        });
+        updateUnlimited();
+        notifyAll();
+    }
+
+    /**
+     * 单独设置主机的速率
+     *
+     * @param host FTP主机
+     * @param rate 字节/秒，0表示不限制，小于0表示恢复为默认速率
+     */
+    public synchronized void setHostRate(String host, long rate) {
+        if (rate < 0) {
+            hostRates.remove(host);
+        } else {
+            hostRates.put(host, rate);
+        }
+        Bucket bucket = hosts.get(host);
+        if (bucket != null) {
+            bucket.setRate(rate < 0 ? defaultHostRate : rate, System.nanoTime());
+        }
+        updateUnlimited();
+        notifyAll();
+    }
+
+    /**
+     * 设置传输类别的权重
+     *
+     * @param lane   传输类别
+     * @param weight 权重，至少为1
+     */
+    public synchronized void setWeight(TransferJob.Lane lane, int weight) {
+        weights.put(lane, Math.max(1, weight));
+    }
+
+    /**
+     * 当前设置
+     *
+     * @return 全局速率、主机默认速率、单独设置的主机速率、权重和等待中的请求数
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("globalRate", global.rate);
+        snapshot.put("defaultHostRate", defaultHostRate);
+        snapshot.put("hostRates", new HashMap<>(hostRates));
+        snapshot.put("weights", new EnumMap<>(weights));
+        snapshot.put("waiting", waiters.size());
+        return snapshot;
+    }
+
+    /**
+     * 排在前面且可以执行的请求优先，只比较共用限速桶的请求
+     */
+    private boolean hasEarlierReady(Waiter waiter) {
+        for (Waiter other : waiters) {
+            if (other != waiter && other.compareTo(waiter) < 0 && ready(other.host)
+                    && (global.rate > 0 || other.host == waiter.host)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean ready(Bucket bucket) {
+        return bucket.rate <= 0 || bucket.tokens >= 0;
+    }
+
+    private Bucket hostBucket(String host) {
+        return hosts.computeIfAbsent(host, key -> {
+            Bucket bucket = new Bucket();
+            bucket.setRate(hostRates.getOrDefault(key, defaultHostRate), System.nanoTime());
+            return bucket;
+        });
+    }
+
+    private void updateUnlimited() {
+        unlimited = global.rate <= 0 && defaultHostRate <= 0 && hostRates.values().stream().allMatch(rate -> rate <= 0);
+    }
+
+    /**
+     * 令牌桶，容量为0.1秒的流量且不小于一个缓冲区
+     */
+    private static final class Bucket {
+        private long rate;
+        private double capacity;
+        private double tokens;
+        private long refilledAt;
+
+        private void setRate(long rate, long now) {
+            this.rate = Math.max(0, rate);
+            this.capacity = Math.max(this.rate / 10.0, CHUNK);
+            this.tokens = Math.min(tokens, capacity);
+            this.refilledAt = now;
+        }
+
+        private void refill(long now) {
+            if (rate > 0) {
+                tokens = Math.min(capacity, tokens + (now - refilledAt) * (double) rate / TimeUnit.SECONDS.toNanos(1));
+            }
+            refilledAt = now;
+        }
+
+        private void take(int bytes) {
+            if (rate > 0) {
+                tokens -= bytes;
+            }
+        }
+
+        private long nanosUntilReady() {
+            return rate <= 0 || tokens >= 0 ? 0 : (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / rate);
+        }
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+        private final Bucket host;
+        private final double start;
+        private final long sequence;
+
+        private Waiter(Bucket host, double start, long sequence) {
+            this.host = host;
+            this.start = start;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int compare = Double.compare(start, other.start);
+            return compare != 0 ? compare : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class ThrottledInputStream extends FilterInputStream {
+        private final BandwidthLimiter limiter;
+        private final String host;
+        private final TransferJob.Lane lane;
+
+        private ThrottledInputStream(InputStream input, BandwidthLimiter limiter, String host, TransferJob.Lane lane) {
+            super(input);
+            this.limiter = limiter;
+            this.host = host;
+            this.lane = lane;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                limiter.acquire(host, lane, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, Math.min(len, CHUNK));
+            if (read > 0) {
+                limiter.acquire(host, lane, read);
+            }
+            return read;
+        }
+    }
+
+    private static final class ThrottledOutputStream extends FilterOutputStream {
+        private final BandwidthLimiter limiter;
+        private final String host;
+        private final TransferJob.Lane lane;
+
+        private ThrottledOutputStream(OutputStream output, BandwidthLimiter limiter, String host, TransferJob.Lane lane) {
+            super(output);
+            this.limiter = limiter;
+            this.host = host;
+            this.lane = lane;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            limiter.acquire(host, lane, 1);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int chunk = Math.min(len, CHUNK);
+                limiter.acquire(host, lane, chunk);
+                out.write(b, off, chunk);
+                off += chunk;
+                len -= chunk;
+            }
+        }
+    }
+}
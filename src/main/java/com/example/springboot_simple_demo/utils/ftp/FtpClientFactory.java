@@ -0,0 +1,151 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPReply;
+import org.apache.commons.pool2.BaseKeyedPooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+  创建、校验、销毁FTP会话(已连接并登录的FTPClient)
+  会话归还时切回登录时的目录，下一个借用者的相对路径总是相对登录目录解析
+  连接和登录的耗时记入FtpMetrics(connect、login)
+ */
+@Slf4j
+public class FtpClientFactory extends BaseKeyedPooledObjectFactory<FtpServer, FTPClient> {
+    private final int connectTimeoutMillis;
+    private final int soTimeoutMillis;
+    private final long validateAfterIdleMillis;
+    private final FtpMetrics metrics;
+    // 会话 -> 登录后的工作目录，服务器不支持PWD时没有记录
+    private final Map<FTPClient, String> loginDirectories = new ConcurrentHashMap<>();
+
+    /**
+     * @param connectTimeoutMillis    连接超时（毫秒）
+     * @param soTimeoutMillis         控制连接和数据连接的读超时（毫秒）
+     * @param validateAfterIdleMillis 空闲超过该时间的会话借出前发送NOOP校验（毫秒）
+     */
+    public FtpClientFactory(int connectTimeoutMillis, int soTimeoutMillis, long validateAfterIdleMillis) {
+        this(connectTimeoutMillis, soTimeoutMillis, validateAfterIdleMillis, FtpMetrics.global());
+    }
+
+    /**
+     * @param connectTimeoutMillis    连接超时（毫秒）
+     * @param soTimeoutMillis         控制连接和数据连接的读超时（毫秒）
+     * @param validateAfterIdleMillis 空闲超过该时间的会话借出前发送NOOP校验（毫秒）
+     * @param metrics                 FTP指标
+     */
+    public FtpClientFactory(int connectTimeoutMillis, int soTimeoutMillis, long validateAfterIdleMillis, FtpMetrics metrics) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.soTimeoutMillis = soTimeoutMillis;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 会话池和使用会话的传输共用的指标
+     *
+     * @return FtpMetrics
+     */
+    public FtpMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public FTPClient create(FtpServer server) throws Exception {
+        FTPClient ftpClient = new FTPClient();
+        ftpClient.setConnectTimeout(connectTimeoutMillis);
+        ftpClient.setDefaultTimeout(soTimeoutMillis);
+        ftpClient.setDataTimeout(soTimeoutMillis);
+        metrics.time(server.getHost(), "connect", () -> {
+            ftpClient.connect(server.getHost(), server.getPort());
+            return true;
+        });
+        try {
+            if (!FTPReply.isPositiveCompletion(ftpClient.getReplyCode())) {
+                metrics.failure(server.getHost(), "connect", "rejected");
+                throw new IOException("ftp server refused connection: " + ftpClient.getReplyString());
+            }
+            if (!metrics.time(server.getHost(), "login", () -> ftpClient.login(server.getUsername(), server.getPassword()))) {
+                throw new IOException("ftp login failed: " + server);
+            }
+            ftpClient.setSoTimeout(soTimeoutMillis);
+            ftpClient.enterLocalPassiveMode();
+            ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
+            String loginDirectory = ftpClient.printWorkingDirectory();
+            if (loginDirectory != null) {
+                loginDirectories.put(ftpClient, loginDirectory);
+            }
+        } catch (IOException exception) {
+            disconnect(ftpClient);
+            throw exception;
+        }
+        log.info("ftp session created: {}", server);
+        return ftpClient;
+    }
+
+    @Override
+    public PooledObject<FTPClient> wrap(FTPClient ftpClient) {
+        return new DefaultPooledObject<>(ftpClient);
+    }
+
+    /**
+     * 借用者可能切换了工作目录，归还时切回登录目录；切换失败时抛出异常，池会关闭该会话
+     */
+    @Override
+    public void passivateObject(FtpServer server, PooledObject<FTPClient> pooledObject) throws IOException {
+        FTPClient ftpClient = pooledObject.getObject();
+        String loginDirectory = loginDirectories.get(ftpClient);
+        if (loginDirectory != null && !ftpClient.changeWorkingDirectory(loginDirectory)) {
+            throw new IOException("restore working directory " + loginDirectory + " failed: " + ftpClient.getReplyString());
+        }
+    }
+
+    /**
+     * 刚归还的会话不发送NOOP，避免每次借出多一次往返；空闲较久的会话可能已被服务器关闭，发送NOOP确认
+     */
+    @Override
+    public boolean validateObject(FtpServer server, PooledObject<FTPClient> pooledObject) {
+        FTPClient ftpClient = pooledObject.getObject();
+        if (!ftpClient.isConnected()) {
+            return false;
+        }
+        if (System.currentTimeMillis() - pooledObject.getLastReturnTime() < validateAfterIdleMillis) {
+            return true;
+        }
+        try {
+            return ftpClient.sendNoOp();
+        } catch (IOException exception) {
+            log.info("stale ftp session {}: {}", server, exception.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void destroyObject(FtpServer server, PooledObject<FTPClient> pooledObject) {
+        FTPClient ftpClient = pooledObject.getObject();
+        loginDirectories.remove(ftpClient);
+        if (ftpClient.isConnected()) {
+            try {
+                ftpClient.logout();
+            } catch (IOException exception) {
+                log.debug("ftp logout failed: {}", exception.getMessage());
+            }
+        }
+        disconnect(ftpClient);
+    }
+
+    private static void disconnect(FTPClient ftpClient) {
+        try {
+            ftpClient.disconnect();
+        } catch (IOException exception) {
+            log.debug("ftp disconnect failed: {}", exception.getMessage());
+        }
+    }
+}
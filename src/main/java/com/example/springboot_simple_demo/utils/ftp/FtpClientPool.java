@@ -0,0 +1,143 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+
+import java.io.IOException;
+import java.net.SocketException;
+
+/*
+  按FTP服务器(主机+端口+用户)分组的会话池
+  会话复用后省去每次传输的TCP连接和USER/PASS往返；每个服务器的会话数有上限，空闲会话定期关闭
+  借出会话的等待时间(含新建会话)记入FtpMetrics(borrow)
+ */
+@Slf4j
+public class FtpClientPool implements AutoCloseable {
+    private final GenericKeyedObjectPool<FtpServer, FTPClient> pool;
+    private final FtpMetrics metrics;
+
+    /**
+     * 使用会话执行的操作
+     */
+    @FunctionalInterface
+    public interface FtpCallback<T> {
+        T doInFtp(FTPClient ftpClient) throws IOException;
+    }
+
+    /**
+     * @param factory 会话工厂
+     * @param config  池配置
+     */
+    public FtpClientPool(FtpClientFactory factory, GenericKeyedObjectPoolConfig<FTPClient> config) {
+        this.pool = new GenericKeyedObjectPool<>(factory, config);
+        this.metrics = factory.metrics();
+    }
+
+    /**
+     * 使用本池会话的传输记录store、retrieve、list等阶段的指标
+     *
+     * @return FtpMetrics
+     */
+    public FtpMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * 借出会话，用完必须调用release归还
+     *
+     * @param server FTP服务器
+     * @return 已登录的会话
+     * @throws IOException 连接或登录失败，或等待超时
+     */
+    public FTPClient borrow(FtpServer server) throws IOException {
+        return metrics.time(server.getHost(), "borrow", () -> {
+            try {
+                return pool.borrowObject(server);
+            } catch (IOException exception) {
+                throw exception;
+            } catch (Exception exception) {
+                throw new IOException("borrow ftp session failed: " + server + ", " + exception.getMessage(), exception);
+            }
+        });
+    }
+
+    /**
+     * 归还会话
+     *
+     * @param server    FTP服务器
+     * @param ftpClient 会话
+     * @param reusable  会话是否可复用；发生IO异常或有未完成的数据传输时传false，会话将被关闭
+     */
+    public void release(FtpServer server, FTPClient ftpClient, boolean reusable) {
+        if (ftpClient == null) {
+            return;
+        }
+        try {
+            if (reusable && ftpClient.isConnected()) {
+                pool.returnObject(server, ftpClient);
+            } else {
+                pool.invalidateObject(server, ftpClient);
+            }
+        } catch (Exception exception) {
+            log.warn("release ftp session failed: {}", exception.getMessage());
+        }
+    }
+
+    /**
+     * 借出会话执行操作后归还；会话在使用中被服务器关闭时换一个新会话重试一次
+     *
+     * @param server   FTP服务器
+     * @param callback 操作
+     * @return 操作结果
+     * @throws IOException 操作失败
+     */
+    public <T> T execute(FtpServer server, FtpCallback<T> callback) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            FTPClient ftpClient = borrow(server);
+            boolean reusable = false;
+            try {
+                T result = callback.doInFtp(ftpClient);
+                reusable = true;
+                return result;
+            } catch (FTPConnectionClosedException | SocketException exception) {
+                if (attempt >= 2) {
+                    throw exception;
+                }
+                log.info("ftp session {} closed by server, retrying: {}", server, exception.getMessage());
+            } finally {
+                release(server, ftpClient, reusable);
+            }
+        }
+    }
+
+    /**
+     * 该服务器正在使用的会话数
+     *
+     * @param server FTP服务器
+     * @return 会话数
+     */
+    public int numActive(FtpServer server) {
+        return pool.getNumActive(server);
+    }
+
+    /**
+     * 该服务器空闲的会话数
+     *
+     * @param server FTP服务器
+     * @return 会话数
+     */
+    public int numIdle(FtpServer server) {
+        return pool.getNumIdle(server);
+    }
+
+    /**
+     * 关闭所有会话
+     */
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
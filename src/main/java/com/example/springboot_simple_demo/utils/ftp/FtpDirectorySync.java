@@ -0,0 +1,344 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.entity.SyncReport;
+import com.example.springboot_simple_demo.entity.UploadReport;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPReply;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+  本地目录到FTP目录的增量同步
+  用MLSD列出远程目录树(大小+修改时间)，与上次同步的清单和本地文件的大小、修改时间比较，只上传新增或变化的文件
+  本地文件只取属性不读内容；远程修改时间与清单不符(被其他客户端改动或删除)的文件同样重新上传
+  可选删除本地已不存在的远程文件和目录
+  可选跳过未变化的远程目录：目录的修改时间只在其中增删、改名条目时变化，与清单记录一致时不再MLSD列出，
+  其中的文件取自清单，子目录用MLST(控制连接上一次往返，不建数据连接)取修改时间再逐个判断；
+  其他客户端原地覆盖已有文件不改变目录的修改时间，这类改动在开启后不会被发现，因此默认关闭；
+  删除远程文件时需要完整的远程列表，不跳过；本地目录总是完整遍历，本地原地修改文件同样不改变目录的修改时间
+ */
+@Slf4j
+public class FtpDirectorySync {
+    // 远程修改时间精度通常为秒，第一次同步(没有清单)时用于判断远程文件是否比本地文件新
+    private static final long MODIFIED_TOLERANCE_MILLIS = 1000;
+    // 修改时间距列出时不足该时长的目录不记入清单，同一秒内的后续改动不会改变秒级精度的修改时间
+    private static final long DIRECTORY_SETTLE_MILLIS = 2 * MODIFIED_TOLERANCE_MILLIS;
+
+    private final FtpClientPool ftpClientPool;
+    private final FtpDirectoryUploader uploader;
+    private final boolean skipUnchangedDirectories;
+
+    /**
+     * @param ftpClientPool 会话池
+     * @param uploader      上传变化文件的并行上传器
+     */
+    public FtpDirectorySync(FtpClientPool ftpClientPool, FtpDirectoryUploader uploader) {
+        this(ftpClientPool, uploader, false);
+    }
+
+    /**
+     * @param ftpClientPool            会话池
+     * @param uploader                 上传变化文件的并行上传器
+     * @param skipUnchangedDirectories 是否跳过修改时间与清单一致的远程目录
+     */
+    public FtpDirectorySync(FtpClientPool ftpClientPool, FtpDirectoryUploader uploader, boolean skipUnchangedDirectories) {
+        this.ftpClientPool = ftpClientPool;
+        this.uploader = uploader;
+        this.skipUnchangedDirectories = skipUnchangedDirectories;
+    }
+
+    /**
+     * 同步目录
+     *
+     * @param server       FTP服务器
+     * @param localDir     本地目录
+     * @param remoteDir    FTP目录，不存在时创建
+     * @param manifestPath 清单文件，同步结束后更新；上传失败的文件不记入清单，下次同步时重试
+     * @param delete       是否删除本地已不存在的远程文件和目录
+     * @return 同步结果
+     * @throws IOException 读取本地目录、列出FTP目录或写入清单失败
+     */
+    public SyncReport sync(FtpServer server, File localDir, String remoteDir, Path manifestPath, boolean delete) throws IOException {
+        long start = System.currentTimeMillis();
+        SyncReport report = new SyncReport();
+        report.setLocalPath(localDir.getAbsolutePath());
+        report.setRemotePath(remoteDir);
+
+        FtpSyncManifest manifest = FtpSyncManifest.load(manifestPath);
+        Map<String, long[]> localFiles = new LinkedHashMap<>();
+        List<String> localDirs = new ArrayList<>();
+        scanLocal(localDir.toPath(), localFiles, localDirs);
+        report.setLocalFiles(localFiles.size());
+
+        Map<String, FtpSyncManifest.Entry> remoteFiles = new HashMap<>();
+        Set<String> remoteDirs = new HashSet<>();
+        Map<String, Long> remoteDirTimes = new HashMap<>();
+        FtpSyncManifest recorded = skipUnchangedDirectories && !delete ? manifest : null;
+        long listStart = System.currentTimeMillis();
+        int listed = ftpClientPool.execute(server, ftpClient -> listRemote(ftpClientPool.metrics(), server.getHost(), ftpClient,
+                remoteDir, recorded, remoteFiles, remoteDirs, remoteDirTimes));
+        report.setListedDirectories(listed);
+        report.setSkippedDirectories(remoteDirs.size() + 1 - listed);
+        report.setRemoteFiles(remoteFiles.size());
+
+        FtpSyncManifest next = new FtpSyncManifest();
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, long[]> local : localFiles.entrySet()) {
+            String relative = local.getKey();
+            long size = local.getValue()[0];
+            long modified = local.getValue()[1];
+            FtpSyncManifest.Entry remote = remoteFiles.get(relative);
+            if (inSync(size, modified, manifest.get(relative), remote)) {
+                next.put(relative, new FtpSyncManifest.Entry(size, modified, remote.getRemoteSize(), remote.getRemoteModified()));
+                report.setUnchanged(report.getUnchanged() + 1);
+            } else {
+                changed.add(relative);
+            }
+        }
+
+        if (skipUnchangedDirectories) {
+            // 修改时间未知或太新的目录也要记入(记为UNKNOWN)，父目录被跳过时仍能从清单找到它
+            for (String dir : localDirs) {
+                Long modified = remoteDirTimes.get(dir);
+                if (modified != null) {
+                    boolean settled = modified != FtpSyncManifest.UNKNOWN && modified + DIRECTORY_SETTLE_MILLIS <= listStart;
+                    next.put(dir + "/", new FtpSyncManifest.Entry(0, 0, 0, settled ? modified : FtpSyncManifest.UNKNOWN));
+                }
+            }
+        }
+
+        List<String> missingDirs = localDirs.stream().filter(dir -> !remoteDirs.contains(dir)).collect(Collectors.toList());
+        if (!changed.isEmpty() || !missingDirs.isEmpty() || (remoteDirs.isEmpty() && remoteFiles.isEmpty())) {
+            UploadReport upload = uploader.upload(server, localDir, remoteDir, missingDirs, changed);
+            for (String relative : upload.getSucceeded()) {
+                long[] local = localFiles.get(relative);
+                // 上传后远程修改时间未知，下次同步时按远程列表补上
+                next.put(relative, new FtpSyncManifest.Entry(local[0], local[1], local[0], FtpSyncManifest.UNKNOWN));
+            }
+            report.getUploaded().addAll(upload.getSucceeded());
+            report.getFailed().putAll(upload.getFailed());
+            report.setUploadedBytes(upload.getUploadedBytes());
+        }
+
+        if (delete) {
+            deleteRemote(server, remoteDir, localFiles.keySet(), remoteFiles.keySet(), new HashSet<>(localDirs), remoteDirs, report);
+        }
+
+        next.save(manifestPath);
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("sync {} to {}{}: {} files, {} unchanged, {} uploaded, {} failed, {} deleted, {} ms", localDir, server, remoteDir,
+                report.getLocalFiles(), report.getUnchanged(), report.getUploaded().size(), report.getFailed().size(),
+                report.getDeleted().size(), report.getElapsedMillis());
+        return report;
+    }
+
+    /**
+     * 文件是否不需要上传
+     * 有清单记录时：本地大小和修改时间与清单一致，且远程大小和修改时间与清单一致(清单中未知的修改时间不比较)
+     * 没有清单记录时(第一次同步)：远程文件大小相同且不比本地文件旧，视为已同步
+     */
+    static boolean inSync(long size, long modified, FtpSyncManifest.Entry recorded, FtpSyncManifest.Entry remote) {
+        if (remote == null) {
+            return false;
+        }
+        if (recorded == null) {
+            return remote.getRemoteSize() == size && remote.getRemoteModified() != FtpSyncManifest.UNKNOWN
+                    && remote.getRemoteModified() + MODIFIED_TOLERANCE_MILLIS >= modified;
+        }
+        return recorded.getLocalSize() == size && recorded.getLocalModified() == modified
+                && recorded.getRemoteSize() == remote.getRemoteSize()
+                && (recorded.getRemoteModified() == FtpSyncManifest.UNKNOWN || recorded.getRemoteModified() == remote.getRemoteModified());
+    }
+
+    private static void scanLocal(Path root, Map<String, long[]> files, List<String> directories) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.collect(Collectors.toList())) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                String relative = root.relativize(path).toString().replace(File.separatorChar, '/');
+                if (attributes.isDirectory()) {
+                    if (!relative.isEmpty()) {
+                        directories.add(relative);
+                    }
+                } else if (attributes.isRegularFile()) {
+                    files.put(relative, new long[]{attributes.size(), attributes.lastModifiedTime().toMillis()});
+                }
+            }
+        }
+    }
+
+    /**
+     * 逐层列出远程目录树，远程根目录不存在时视为空；每次列目录记入metrics(list)
+     *
+     * @return 列出的目录数
+     */
+    static int listRemote(FtpMetrics metrics, String host, FTPClient ftpClient, String remoteDir, Map<String, FtpSyncManifest.Entry> files,
+                          Set<String> directories) throws IOException {
+        return listRemote(metrics, host, ftpClient, remoteDir, null, files, directories, new HashMap<>());
+    }
+
+    /**
+     * 逐层列出远程目录树，修改时间与清单记录一致的目录不再列出，其中的文件和子目录取自清单
+     *
+     * @param manifest       上次同步的清单，为null或服务器不支持MLST时列出所有目录
+     * @param directoryTimes 各远程目录的修改时间，未知为UNKNOWN
+     * @return 列出的目录数
+     */
+    static int listRemote(FtpMetrics metrics, String host, FTPClient ftpClient, String remoteDir, FtpSyncManifest manifest,
+                          Map<String, FtpSyncManifest.Entry> files, Set<String> directories,
+                          Map<String, Long> directoryTimes) throws IOException {
+        // LIST退回时的修改时间只精确到分钟，不能用来判断目录是否变化
+        Map<String, List<String>> recorded = manifest != null && ftpClient.hasFeature("MLST")
+                ? children(manifest) : Collections.emptyMap();
+        int listed = 0;
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add("");
+        while (!pending.isEmpty()) {
+            String relative = pending.poll();
+            if (!recorded.isEmpty() && unchanged(manifest, relative, directoryTimes.get(relative))) {
+                for (String child : recorded.getOrDefault(relative, Collections.emptyList())) {
+                    if (child.endsWith("/")) {
+                        String dir = child.substring(0, child.length() - 1);
+                        FTPFile stat = metrics.time(host, "list", () -> ftpClient.mlistFile(FtpDirectoryUploader.join(remoteDir, dir)));
+                        directories.add(dir);
+                        directoryTimes.put(dir, stat != null && stat.isDirectory() ? modified(stat) : FtpSyncManifest.UNKNOWN);
+                        pending.add(dir);
+                    } else {
+                        FtpSyncManifest.Entry entry = manifest.get(child);
+                        files.put(child, new FtpSyncManifest.Entry(0, 0, entry.getRemoteSize(), entry.getRemoteModified()));
+                    }
+                }
+                continue;
+            }
+            FTPFile[] entries = list(metrics, host, ftpClient, relative.isEmpty() ? remoteDir : FtpDirectoryUploader.join(remoteDir, relative),
+                    relative.isEmpty());
+            listed++;
+            for (FTPFile entry : entries) {
+                String name = entry.getName();
+                if (name == null || ".".equals(name) || "..".equals(name)) {
+                    continue;
+                }
+                String child = relative.isEmpty() ? name : relative + "/" + name;
+                if (entry.isDirectory()) {
+                    directories.add(child);
+                    directoryTimes.put(child, modified(entry));
+                    pending.add(child);
+                } else if (entry.isFile()) {
+                    files.put(child, new FtpSyncManifest.Entry(0, 0, entry.getSize(), modified(entry)));
+                }
+            }
+        }
+        return listed;
+    }
+
+    /**
+     * 目录的修改时间与清单记录一致；远程根目录总是列出
+     */
+    private static boolean unchanged(FtpSyncManifest manifest, String relative, Long modified) {
+        if (relative.isEmpty() || modified == null || modified == FtpSyncManifest.UNKNOWN) {
+            return false;
+        }
+        FtpSyncManifest.Entry entry = manifest.get(relative + "/");
+        return entry != null && entry.getRemoteModified() == modified;
+    }
+
+    /**
+     * 清单中每个目录的直接子项，子目录以/结尾
+     */
+    private static Map<String, List<String>> children(FtpSyncManifest manifest) {
+        Map<String, List<String>> children = new HashMap<>();
+        for (String path : manifest.paths()) {
+            String name = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+            int slash = name.lastIndexOf('/');
+            children.computeIfAbsent(slash < 0 ? "" : name.substring(0, slash), parent -> new ArrayList<>()).add(path);
+        }
+        return children;
+    }
+
+    private static long modified(FTPFile entry) {
+        return entry.getTimestamp() != null ? entry.getTimestamp().getTimeInMillis() : FtpSyncManifest.UNKNOWN;
+    }
+
+    /**
+     * MLSD列出目录，服务器不支持MLSD时退回LIST
+     * 其他失败(权限不足、连接中断等)抛出异常，不能当作空目录，否则同步会认为远程文件已被删除
+     *
+     * @param root 是否为远程根目录，根目录不存在时视为空
+     */
+    private static FTPFile[] list(FtpMetrics metrics, String host, FTPClient ftpClient, String path, boolean root) throws IOException {
+        FTPFile[] entries = metrics.time(host, "list", () -> ftpClient.mlistDir(path));
+        int reply = ftpClient.getReplyCode();
+        if (reply == FTPReply.UNRECOGNIZED_COMMAND || reply == FTPReply.COMMAND_NOT_IMPLEMENTED) {
+            entries = metrics.time(host, "list", () -> ftpClient.listFiles(path));
+            reply = ftpClient.getReplyCode();
+        }
+        if (FTPReply.isPositiveCompletion(reply)) {
+            return entries;
+        }
+        String replyString = ftpClient.getReplyString().trim();
+        if (root && reply == FTPReply.FILE_UNAVAILABLE && !exists(ftpClient, path)) {
+            return new FTPFile[0];
+        }
+        throw new IOException("list " + path + " failed: " + replyString);
+    }
+
+    /**
+     * 目录是否存在，切换后切回原工作目录
+     */
+    private static boolean exists(FTPClient ftpClient, String path) throws IOException {
+        String current = ftpClient.printWorkingDirectory();
+        if (!ftpClient.changeWorkingDirectory(path)) {
+            return false;
+        }
+        if (current != null && !ftpClient.changeWorkingDirectory(current)) {
+            throw new IOException("restore working directory " + current + " failed: " + ftpClient.getReplyString().trim());
+        }
+        return true;
+    }
+
+    private void deleteRemote(FtpServer server, String remoteDir, Set<String> localFiles, Set<String> remoteFiles,
+                              Set<String> localDirs, Set<String> remoteDirs, SyncReport report) throws IOException {
+        List<String> files = remoteFiles.stream().filter(file -> !localFiles.contains(file)).sorted().collect(Collectors.toList());
+        // 先删子目录再删父目录
+        List<String> dirs = remoteDirs.stream().filter(dir -> !localDirs.contains(dir))
+                .sorted(Comparator.comparingInt(String::length).reversed()).collect(Collectors.toList());
+        if (files.isEmpty() && dirs.isEmpty()) {
+            return;
+        }
+        ftpClientPool.execute(server, ftpClient -> {
+            for (String file : files) {
+                if (ftpClient.deleteFile(FtpDirectoryUploader.join(remoteDir, file))) {
+                    report.getDeleted().add(file);
+                } else {
+                    log.warn("delete {} failed: {}", file, ftpClient.getReplyString().trim());
+                }
+            }
+            for (String dir : dirs) {
+                if (ftpClient.removeDirectory(FtpDirectoryUploader.join(remoteDir, dir))) {
+                    report.getDeleted().add(dir + "/");
+                } else {
+                    log.warn("remove directory {} failed: {}", dir, ftpClient.getReplyString().trim());
+                }
+            }
+            return null;
+        });
+    }
+}
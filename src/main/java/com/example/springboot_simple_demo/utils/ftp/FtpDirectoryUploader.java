@@ -0,0 +1,299 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.entity.TransferJob;
+import com.example.springboot_simple_demo.entity.UploadReport;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+  递归上传目录：先在一个会话内按层级创建全部FTP目录，再由多个会话并行上传文件
+  文件按大小从大到小排队，每个会话取完一个文件再取下一个，大文件先开始，小文件填补空隙，各会话大致同时结束
+  会话在整个上传期间保持借出，连续的小文件之间没有重新连接和登录的往返
+  每个文件单独重试，失败不影响其他文件；IO异常后换新会话重试
+ */
+@Slf4j
+public class FtpDirectoryUploader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long RETRY_BACKOFF_MILLIS = 200;
+    private static final AtomicInteger THREAD_SEQUENCE = new AtomicInteger();
+
+    private final FtpClientPool ftpClientPool;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final BandwidthLimiter bandwidthLimiter;
+
+    /**
+     * @param ftpClientPool 会话池，每个服务器的会话上限同时是并行上传的上限
+     * @param concurrency   并行会话数
+     * @param maxAttempts   每个文件的最大尝试次数
+     */
+    public FtpDirectoryUploader(FtpClientPool ftpClientPool, int concurrency, int maxAttempts) {
+        this(ftpClientPool, concurrency, maxAttempts, null);
+    }
+
+    /**
+     * @param ftpClientPool    会话池，每个服务器的会话上限同时是并行上传的上限
+     * @param concurrency      并行会话数
+     * @param maxAttempts      每个文件的最大尝试次数
+     * @param bandwidthLimiter 带宽限制，目录上传按批量传输分配带宽，null表示不限制
+     */
+    public FtpDirectoryUploader(FtpClientPool ftpClientPool, int concurrency, int maxAttempts, BandwidthLimiter bandwidthLimiter) {
+        this.ftpClientPool = ftpClientPool;
+        this.concurrency = Math.max(1, concurrency);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+
+    /**
+     * 上传目录，目录结构在FTP目录下原样保留
+     *
+     * @param server     FTP服务器
+     * @param localDir   本地目录
+     * @param remoteDir  FTP目录，不存在时创建
+     * @return 上传结果
+     * @throws IOException 读取本地目录失败，或无法创建FTP目录remoteDir
+     */
+    public UploadReport upload(FtpServer server, File localDir, String remoteDir) throws IOException {
+        Path root = localDir.toPath();
+        List<String> directories = new ArrayList<>();
+        List<String> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.collect(Collectors.toList())) {
+                String relative = relative(root, path);
+                if (Files.isDirectory(path)) {
+                    if (!relative.isEmpty()) {
+                        directories.add(relative);
+                    }
+                } else if (Files.isRegularFile(path)) {
+                    files.add(relative);
+                }
+            }
+        }
+        // Files.walk先返回父目录再返回子目录
+        return upload(server, localDir, remoteDir, directories, files);
+    }
+
+    /**
+     * 上传目录中指定的文件
+     *
+     * @param server      FTP服务器
+     * @param localDir    本地目录
+     * @param remoteDir   FTP目录，不存在时创建
+     * @param directories 需要在FTP上创建的子目录(相对路径)，父目录在前
+     * @param files       需要上传的文件(相对路径，以/分隔)
+     * @return 上传结果
+     * @throws IOException 读取本地文件失败，或无法创建FTP目录remoteDir
+     */
+    public UploadReport upload(FtpServer server, File localDir, String remoteDir, List<String> directories,
+                               List<String> files) throws IOException {
+        long start = System.currentTimeMillis();
+        UploadReport report = new UploadReport();
+        report.setLocalPath(localDir.getAbsolutePath());
+        report.setRemotePath(remoteDir);
+
+        List<FileTask> tasks = new ArrayList<>(files.size());
+        for (String relative : files) {
+            File file = new File(localDir, relative);
+            tasks.add(new FileTask(file, relative, file.length()));
+        }
+        // 大文件先上传
+        tasks.sort(Comparator.comparingLong((FileTask task) -> task.size).reversed());
+        report.setTotalFiles(tasks.size());
+        report.setTotalBytes(tasks.stream().mapToLong(task -> task.size).sum());
+
+        // 父目录在前，逐个MKD即可
+        ftpClientPool.execute(server, ftpClient -> {
+            makeDirectories(ftpClient, remoteDir);
+            for (String directory : directories) {
+                try {
+                    makeDirectory(ftpClient, join(remoteDir, directory));
+                } catch (FTPConnectionClosedException exception) {
+                    throw exception;
+                } catch (IOException exception) {
+                    // 子目录创建失败只影响其中的文件，这些文件上传时失败并记入结果
+                    log.warn(exception.getMessage());
+                }
+            }
+            return null;
+        });
+        report.setDirectories(directories.size());
+
+        Queue<FileTask> queue = new ConcurrentLinkedQueue<>(tasks);
+        AtomicLong uploadedBytes = new AtomicLong();
+        AtomicInteger retries = new AtomicInteger();
+        int sessions = Math.min(concurrency, tasks.size());
+        report.setSessions(sessions);
+
+        List<Thread> workers = new ArrayList<>(sessions);
+        for (int i = 1; i < sessions; i++) {
+            Thread worker = new Thread(() -> work(server, remoteDir, queue, report, uploadedBytes, retries),
+                    "ftp-upload-" + THREAD_SEQUENCE.incrementAndGet());
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        // 当前线程也作为一个会话参与上传
+        if (sessions > 0) {
+            work(server, remoteDir, queue, report, uploadedBytes, retries);
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IOException("upload interrupted: " + localDir, exception);
+            }
+        }
+
+        report.setUploadedBytes(uploadedBytes.get());
+        report.setRetries(retries.get());
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("upload {} to {}{}: {}/{} files, {} bytes, {} sessions, {} ms", localDir, server, remoteDir,
+                report.getSucceeded().size(), report.getTotalFiles(), report.getUploadedBytes(), sessions, report.getElapsedMillis());
+        return report;
+    }
+
+    /**
+     * 一个会话：借出后依次上传队列中的文件，直到队列为空
+     */
+    private void work(FtpServer server, String remoteDir, Queue<FileTask> queue, UploadReport report,
+                      AtomicLong uploadedBytes, AtomicInteger retries) {
+        FTPClient ftpClient = null;
+        try {
+            FileTask task;
+            while ((task = queue.poll()) != null) {
+                String reason = null;
+                for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+                    if (attempt > 1) {
+                        retries.incrementAndGet();
+                        if (!backoff(attempt)) {
+                            reason = "interrupted";
+                            break;
+                        }
+                    }
+                    try {
+                        if (ftpClient == null) {
+                            ftpClient = ftpClientPool.borrow(server);
+                        }
+                        if (store(server, ftpClient, task, join(remoteDir, task.relative))) {
+                            reason = null;
+                            break;
+                        }
+                        // 服务器拒绝(权限、磁盘空间等)，会话仍然可用
+                        reason = ftpClient.getReplyString().trim();
+                    } catch (IOException exception) {
+                        reason = exception.getMessage();
+                        ftpClientPool.release(server, ftpClient, false);
+                        ftpClient = null;
+                    }
+                    log.info("upload {} attempt {} failed: {}", task.relative, attempt, reason);
+                }
+                if (reason == null) {
+                    report.getSucceeded().add(task.relative);
+                    uploadedBytes.addAndGet(task.size);
+                } else {
+                    report.getFailed().put(task.relative, reason);
+                }
+            }
+        } finally {
+            ftpClientPool.release(server, ftpClient, true);
+        }
+    }
+
+    private boolean store(FtpServer server, FTPClient ftpClient, FileTask task, String remotePath) throws IOException {
+        try (InputStream input = BandwidthLimiter.throttle(bandwidthLimiter,
+                new BufferedInputStream(Files.newInputStream(task.file.toPath()), BUFFER_SIZE), server.getHost(), TransferJob.Lane.BULK)) {
+            return ftpClientPool.metrics().time(server.getHost(), "store", () -> ftpClient.storeFile(remotePath, input));
+        }
+    }
+
+    private static boolean backoff(int attempt) {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MILLIS * (attempt - 1));
+            return true;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 逐级创建目录
+     */
+    static void makeDirectories(FTPClient ftpClient, String path) throws IOException {
+        StringBuilder current = new StringBuilder(path.startsWith("/") ? "" : ".");
+        for (String dir : path.split("/")) {
+            if (dir.isEmpty()) {
+                continue;
+            }
+            current.append('/').append(dir);
+            makeDirectory(ftpClient, current.toString());
+        }
+    }
+
+    /**
+     * 创建目录，目录已存在不算失败
+     */
+    private static void makeDirectory(FTPClient ftpClient, String path) throws IOException {
+        if (ftpClient.makeDirectory(path)) {
+            return;
+        }
+        String reply = ftpClient.getReplyString();
+        String cwd = ftpClient.printWorkingDirectory();
+        if (!ftpClient.changeWorkingDirectory(path)) {
+            throw new IOException("makeDirectory " + path + " failed: " + reply.trim());
+        }
+        ftpClient.changeWorkingDirectory(cwd);
+    }
+
+    private static String relative(Path root, Path path) {
+        return root.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * 拼接FTP路径
+     *
+     * @param base     基础目录
+     * @param relative 相对路径
+     * @return FTP路径
+     */
+    public static String join(String base, String relative) {
+        if (relative == null || relative.isEmpty()) {
+            return base;
+        }
+        if (base == null || base.isEmpty()) {
+            return relative;
+        }
+        String tail = relative.startsWith("/") ? relative.substring(1) : relative;
+        return base.endsWith("/") ? base + tail : base + "/" + tail;
+    }
+
+    private static final class FileTask {
+        private final File file;
+        private final String relative;
+        private final long size;
+
+        private FileTask(File file, String relative, long size) {
+            this.file = file;
+            this.relative = relative;
+            this.size = size;
+        }
+    }
+}
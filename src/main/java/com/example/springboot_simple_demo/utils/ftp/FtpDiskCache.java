@@ -0,0 +1,307 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.entity.FtpFileInfo;
+import com.example.springboot_simple_demo.entity.TransferJob;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.LongSupplier;
+
+/*
+  FTP文件的本地磁盘缓存
+  缓存文件名为 sha1(服务器+路径+大小+修改时间)，远程文件变化后自然对应新的缓存文件
+  条目在revalidateAfter内直接使用；过期后用MLST(或SIZE+MDTM)探测，大小和修改时间未变则继续使用，不重新下载
+  总大小不超过maxBytes，超出时按最近最少使用淘汰；并发请求同一文件时只发起一次FTP下载，其余请求等待其结果
+  索引只在内存中，启动时清空缓存目录
+ */
+@Slf4j
+public class FtpDiskCache {
+    private static final String DATA_SUFFIX = ".data";
+    private static final String PART_SUFFIX = ".part";
+
+    private final FtpClientPool ftpClientPool;
+    private final Path dir;
+    private final long maxBytes;
+    private final long revalidateAfterMillis;
+    private final LongSupplier clock;
+    private final BandwidthLimiter bandwidthLimiter;
+
+    // 服务器+路径 -> 条目，按访问顺序排列，最前面的最久未使用
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // 缓存键 -> 进行中的下载
+    private final ConcurrentHashMap<String, CompletableFuture<Entry>> downloads = new ConcurrentHashMap<>();
+    private long usedBytes;
+    private long hits;
+    private long revalidations;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param ftpClientPool         会话池
+     * @param dir                   缓存目录
+     * @param maxBytes              缓存文件总大小上限
+     * @param revalidateAfterMillis 条目在该时间内不探测远程文件直接使用（毫秒）
+     * @param bandwidthLimiter      带宽限制，缓存未命中时的下载按交互式传输分配带宽，null表示不限制
+     * @throws IOException 创建或清理缓存目录失败
+     */
+    public FtpDiskCache(FtpClientPool ftpClientPool, File dir, long maxBytes, long revalidateAfterMillis,
+                        BandwidthLimiter bandwidthLimiter) throws IOException {
+        this(ftpClientPool, dir, maxBytes, revalidateAfterMillis, bandwidthLimiter, System::currentTimeMillis);
+    }
+
+    FtpDiskCache(FtpClientPool ftpClientPool, File dir, long maxBytes, long revalidateAfterMillis,
+                 BandwidthLimiter bandwidthLimiter, LongSupplier clock) throws IOException {
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.ftpClientPool = ftpClientPool;
+        this.dir = dir.toPath();
+        this.maxBytes = maxBytes;
+        this.revalidateAfterMillis = revalidateAfterMillis;
+        this.clock = clock;
+        Files.createDirectories(this.dir);
+        // 上次运行留下的文件没有索引，无法判断是否过期
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.dir, "*{" + DATA_SUFFIX + "," + PART_SUFFIX + "}")) {
+            for (Path path : stream) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * 打开FTP文件的本地缓存，没有缓存或远程文件已变化时先下载
+     *
+     * @param server     FTP服务器
+     * @param remotePath FTP文件路径
+     * @return 缓存文件的输入流，用完必须关闭；淘汰不影响已打开的流
+     * @throws FileNotFoundException FTP文件不存在
+     * @throws IOException           连接FTP服务器或下载失败
+     */
+    public InputStream open(FtpServer server, String remotePath) throws IOException {
+        String name = server + "\n" + remotePath;
+        synchronized (this) {
+            Entry entry = entries.get(name);
+            if (entry != null && clock.getAsLong() - entry.validatedAt < revalidateAfterMillis) {
+                hits++;
+                return Files.newInputStream(entry.path);
+            }
+        }
+
+        // 探测远程文件只需一次控制连接往返
+        FtpFileInfo info = ftpClientPool.execute(server, ftpClient -> FtpFiles.stat(ftpClient, remotePath));
+        if (info == null) {
+            synchronized (this) {
+                remove(name);
+            }
+            throw new FileNotFoundException(server + remotePath);
+        }
+        String key = key(server, remotePath, info.getSize(), info.getLastModified());
+        synchronized (this) {
+            Entry entry = entries.get(name);
+            if (entry != null && entry.key.equals(key)) {
+                entry.validatedAt = clock.getAsLong();
+                revalidations++;
+                return Files.newInputStream(entry.path);
+            }
+        }
+
+        if (info.getSize() > maxBytes) {
+            // 超过整个缓存的文件不缓存，下载到临时文件，关闭流时删除
+            Path temporary = Files.createTempFile(dir, key, PART_SUFFIX);
+            try {
+                fetch(server, remotePath, info.getSize(), temporary);
+                return Files.newInputStream(temporary, StandardOpenOption.DELETE_ON_CLOSE);
+            } catch (IOException exception) {
+                Files.deleteIfExists(temporary);
+                throw exception;
+            }
+        }
+
+        return download(server, remotePath, name, key, info.getSize());
+    }
+
+    /**
+     * 缓存统计
+     *
+     * @return 条目数、已用字节数、命中、探测后命中、下载和淘汰次数
+     */
+    public synchronized Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("entries", (long) entries.size());
+        stats.put("usedBytes", usedBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits);
+        stats.put("revalidations", revalidations);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+
+    /**
+     * 同一缓存键只下载一次，其余请求等待同一个结果
+     * 下载完成后先放入索引再结束，之后到达的请求直接命中索引
+     * 淘汰在锁内删除文件，所以流总是在确认条目仍在索引中的同一个锁内打开；
+     * 等待期间条目已被其他下载淘汰时重新下载
+     */
+    private InputStream download(FtpServer server, String remotePath, String name, String key, long size) throws IOException {
+        while (true) {
+            CompletableFuture<Entry> download = new CompletableFuture<>();
+            CompletableFuture<Entry> running = downloads.putIfAbsent(key, download);
+            if (running == null) {
+                return fetchEntry(server, remotePath, name, key, size, download);
+            }
+            Entry entry;
+            try {
+                entry = running.get();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for " + remotePath);
+            } catch (ExecutionException exception) {
+                throw new IOException("download " + remotePath + " failed", exception.getCause());
+            }
+            synchronized (this) {
+                if (entries.get(name) == entry) {
+                    return Files.newInputStream(entry.path);
+                }
+            }
+        }
+    }
+
+    private InputStream fetchEntry(FtpServer server, String remotePath, String name, String key, long size,
+                                   CompletableFuture<Entry> download) throws IOException {
+        Path path = dir.resolve(key + DATA_SUFFIX);
+        Path part = dir.resolve(key + PART_SUFFIX);
+        try {
+            synchronized (this) {
+                // 探测之后、登记下载之前，其他请求可能已经完成了同一个下载
+                Entry entry = entries.get(name);
+                if (entry != null && entry.key.equals(key)) {
+                    download.complete(entry);
+                    return Files.newInputStream(entry.path);
+                }
+                misses++;
+            }
+            fetch(server, remotePath, size, part);
+            Files.move(part, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Entry entry = new Entry(key, path, size);
+            InputStream input;
+            synchronized (this) {
+                entry.validatedAt = clock.getAsLong();
+                Entry previous = entries.put(name, entry);
+                if (previous != null) {
+                    usedBytes -= previous.size;
+                    Files.deleteIfExists(previous.path);
+                }
+                usedBytes += size;
+                input = Files.newInputStream(entry.path);
+                evict(entry);
+            }
+            download.complete(entry);
+            return input;
+        } catch (IOException | RuntimeException exception) {
+            Files.deleteIfExists(part);
+            download.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            downloads.remove(key, download);
+        }
+    }
+
+    private void fetch(FtpServer server, String remotePath, long size, Path target) throws IOException {
+        long start = System.currentTimeMillis();
+        boolean retrieved;
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             OutputStream output = BandwidthLimiter.throttle(bandwidthLimiter, Channels.newOutputStream(channel),
+                     server.getHost(), TransferJob.Lane.INTERACTIVE)) {
+            retrieved = ftpClientPool.execute(server, ftpClient -> {
+                // 会话被服务器关闭后会换会话重试，丢弃上一次写入的部分内容
+                channel.truncate(0);
+                channel.position(0);
+                return ftpClientPool.metrics().time(server.getHost(), "retrieve", () -> ftpClient.retrieveFile(remotePath, output));
+            });
+        }
+        if (!retrieved) {
+            throw new IOException("retrieve " + remotePath + " failed");
+        }
+        long received = Files.size(target);
+        if (received != size) {
+            // 下载期间远程文件被修改
+            throw new IOException("retrieve " + remotePath + " expected " + size + " bytes but got " + received);
+        }
+        log.info("ftp cache fetched {}{} ({} bytes) in {} ms", server, remotePath, size, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 淘汰最久未使用的条目直到总大小不超过上限，需持有锁
+     * 刚放入的条目不淘汰；已打开的流在Linux下不受删除影响
+     */
+    private void evict(Entry keep) throws IOException {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (usedBytes > maxBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry == keep) {
+                continue;
+            }
+            iterator.remove();
+            usedBytes -= entry.size;
+            evictions++;
+            Files.deleteIfExists(entry.path);
+        }
+    }
+
+    private void remove(String name) throws IOException {
+        Entry entry = entries.remove(name);
+        if (entry != null) {
+            usedBytes -= entry.size;
+            Files.deleteIfExists(entry.path);
+        }
+    }
+
+    static String key(FtpServer server, String remotePath, long size, long lastModified) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest((server + "\n" + remotePath + "\n" + size + "\n" + lastModified)
+                    .getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final Path path;
+        private final long size;
+        private long validatedAt;
+
+        private Entry(String key, Path path, long size) {
+            this.key = key;
+            this.path = path;
+            this.size = size;
+        }
+    }
+}
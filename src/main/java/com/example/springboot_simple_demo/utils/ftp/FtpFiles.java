@@ -0,0 +1,47 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.entity.FtpFileInfo;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+
+import java.io.IOException;
+
+/*
+  单个FTP文件的属性查询
+ */
+public final class FtpFiles {
+
+    private FtpFiles() {
+    }
+
+    /**
+     * 查询文件大小和修改时间，MLST一次往返拿到，服务器不支持时退回SIZE和MDTM
+     *
+     * @param ftpClient 已登录的会话
+     * @param path      FTP文件路径
+     * @return 文件属性，文件不存在或不是普通文件时返回null
+     * @throws IOException 控制连接读写失败
+     */
+    public static FtpFileInfo stat(FTPClient ftpClient, String path) throws IOException {
+        FtpFileInfo info = new FtpFileInfo();
+        info.setPath(path);
+        FTPFile file = ftpClient.mlistFile(path);
+        if (file != null && file.isFile()) {
+            info.setSize(file.getSize());
+            if (file.getTimestamp() != null) {
+                info.setLastModified(file.getTimestamp().getTimeInMillis());
+            }
+            return info;
+        }
+        String size = ftpClient.getSize(path);
+        if (size == null) {
+            return null;
+        }
+        info.setSize(Long.parseLong(size.trim()));
+        FTPFile modified = ftpClient.mdtmFile(path);
+        if (modified != null && modified.getTimestamp() != null) {
+            info.setLastModified(modified.getTimestamp().getTimeInMillis());
+        }
+        return info;
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+  FTP操作的指标，按FTP主机和操作打标签，通过/actuator/metrics查看
+    ftp.util.phase       各阶段耗时：connect、login、borrow、cwd(含逐级创建目录)、list、store、retrieve
+    ftp.util.failures    各阶段失败次数，reason为异常类名，服务器拒绝(返回false)时为rejected
+    ftp.util.transfer    每次传输的数据阶段耗时，operation为upload或download
+    ftp.util.bytes       传输的字节数
+    ftp.util.throughput  最近一次完成的传输速率(字节/秒)
+  每次传输结束时输出一条 key=value 格式的汇总日志
+  FtpClientPool(borrow)、FtpClientFactory(connect、login)和使用会话池的各个传输类(store、retrieve、list)共用会话池的实例
+  FtpUtil不是Spring管理的对象，默认注册到Metrics.globalRegistry，Spring Boot的MeterRegistry会加入其中
+ */
+@Slf4j
+public final class FtpMetrics {
+    private static final Map<MeterRegistry, FtpMetrics> INSTANCES = new ConcurrentHashMap<>();
+
+    private final MeterRegistry registry;
+    // 速率仪表的取值，按 主机+操作 保存，仪表只弱引用取值对象
+    private final Map<List<String>, AtomicLong> throughput = new ConcurrentHashMap<>();
+
+    private FtpMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 注册到Metrics.globalRegistry的指标
+     *
+     * @return FtpMetrics
+     */
+    public static FtpMetrics global() {
+        return of(Metrics.globalRegistry);
+    }
+
+    /**
+     * 注册到指定MeterRegistry的指标，同一个MeterRegistry共用一个实例
+     *
+     * @param registry MeterRegistry
+     * @return FtpMetrics
+     */
+    public static FtpMetrics of(MeterRegistry registry) {
+        return INSTANCES.computeIfAbsent(registry, FtpMetrics::new);
+    }
+
+    /**
+     * 执行并计时一个阶段，抛出异常或返回false时记为失败
+     *
+     * @param host      FTP主机
+     * @param operation 阶段名
+     * @param phase     阶段的操作
+     * @return 操作的返回值
+     * @throws IOException 操作抛出的异常
+     */
+    public <T> T time(String host, String operation, Phase<T> phase) throws IOException {
+        long start = System.nanoTime();
+        try {
+            T result = phase.call();
+            if (Boolean.FALSE.equals(result)) {
+                failure(host, operation, "rejected");
+            }
+            return result;
+        } catch (IOException | RuntimeException exception) {
+            failure(host, operation, exception.getClass().getSimpleName());
+            throw exception;
+        } finally {
+            phaseTimer(host, operation).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 记录一个自行计时的阶段
+     *
+     * @param host       FTP主机
+     * @param operation  阶段名
+     * @param startNanos 开始时间（System.nanoTime）
+     * @param success    是否成功
+     */
+    public void record(String host, String operation, long startNanos, boolean success) {
+        phaseTimer(host, operation).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (!success) {
+            failure(host, operation, "rejected");
+        }
+    }
+
+    /**
+     * 记录一次失败
+     *
+     * @param host      FTP主机
+     * @param operation 阶段名
+     * @param reason    失败原因
+     */
+    public void failure(String host, String operation, String reason) {
+        Counter.builder("ftp.util.failures")
+                .description("FtpUtil各阶段的失败次数")
+                .tag("host", host)
+                .tag("operation", operation)
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 记录一次传输：耗时、字节数、速率，并输出汇总日志
+     *
+     * @param host       FTP主机
+     * @param operation  upload 或 download
+     * @param path       文件路径
+     * @param bytes      传输的字节数
+     * @param startNanos 数据阶段的开始时间（System.nanoTime）
+     * @param success    是否成功
+     */
+    public void transfer(String host, String operation, String path, long bytes, long startNanos, boolean success) {
+        long nanos = System.nanoTime() - startNanos;
+        long bytesPerSecond = nanos > 0 ? (long) (bytes * (double) TimeUnit.SECONDS.toNanos(1) / nanos) : 0;
+        String result = success ? "success" : "failure";
+        Timer.builder("ftp.util.transfer")
+                .description("FtpUtil每次传输的数据阶段耗时")
+                .tag("host", host)
+                .tag("operation", operation)
+                .tag("result", result)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        Counter.builder("ftp.util.bytes")
+                .description("FtpUtil传输的字节数")
+                .baseUnit("bytes")
+                .tag("host", host)
+                .tag("operation", operation)
+                .register(registry)
+                .increment(bytes);
+        if (success) {
+            throughput.computeIfAbsent(Arrays.asList(host, operation), key -> {
+                AtomicLong value = new AtomicLong();
+                Gauge.builder("ftp.util.throughput", value, AtomicLong::get)
+                        .description("FtpUtil最近一次完成的传输速率")
+                        .baseUnit("bytes/s")
+                        .tag("host", host)
+                        .tag("operation", operation)
+                        .register(registry);
+                return value;
+            }).set(bytesPerSecond);
+        }
+        log.info("ftp transfer host={} operation={} path={} bytes={} millis={} bytesPerSecond={} result={}",
+                host, operation, path, bytes, TimeUnit.NANOSECONDS.toMillis(nanos), bytesPerSecond, result);
+    }
+
+    /**
+     * 统计读取字节数的输入流，关闭或调用finish时记录一次传输
+     *
+     * @param input     输入流
+     * @param host      FTP主机
+     * @param operation upload 或 download
+     * @param path      文件路径
+     * @return 输入流
+     */
+    public TransferStream monitor(InputStream input, String host, String operation, String path) {
+        return new TransferStream(input, host, operation, path);
+    }
+
+    private Timer phaseTimer(String host, String operation) {
+        return Timer.builder("ftp.util.phase")
+                .description("FtpUtil各阶段的耗时")
+                .tag("host", host)
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    /**
+     * 可能抛出IOException的阶段操作
+     */
+    @FunctionalInterface
+    public interface Phase<T> {
+        T call() throws IOException;
+    }
+
+    public final class TransferStream extends FilterInputStream {
+        private final String host;
+        private final String operation;
+        private final String path;
+        private final long start = System.nanoTime();
+        private long bytes;
+        private boolean failed;
+        private boolean finished;
+
+        private TransferStream(InputStream input, String host, String operation, String path) {
+            super(input);
+            this.host = host;
+            this.operation = operation;
+            this.path = path;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int b = super.read();
+                if (b != -1) {
+                    bytes++;
+                }
+                return b;
+            } catch (IOException exception) {
+                failed = true;
+                throw exception;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                int read = super.read(b, off, len);
+                if (read > 0) {
+                    bytes += read;
+                }
+                return read;
+            } catch (IOException exception) {
+                failed = true;
+                throw exception;
+            }
+        }
+
+        /**
+         * 记录本次传输，只记录一次
+         *
+         * @param success 是否成功
+         */
+        public void finish(boolean success) {
+            if (!finished) {
+                finished = true;
+                transfer(host, operation, path, bytes, start, success && !failed);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } catch (IOException exception) {
+                failed = true;
+                throw exception;
+            } finally {
+                finish(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.entity.TransferJob;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.springframework.util.DigestUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Properties;
+
+/*
+  可断点续传的单文件上传和下载
+  上传：远程文件已有的部分以SIZE为准，从该位置起用APPE追加；进度文件记录本地文件的大小和修改时间，
+       只有进度文件能证明远程的部分文件来自同一个本地文件时才续传，否则用STOR从头覆盖
+  下载：本地已有的部分以文件长度为准，先设置REST偏移量再发起RETR；进度文件记录远程文件的大小和修改时间，
+       远程文件变化后从头下载
+  失败后换新会话从断点重试，进程重启后再次调用同样从断点继续
+ */
+@Slf4j
+public class FtpResumableTransfer {
+    // 下载进度文件后缀，与本地文件放在同一目录
+    public static final String DOWNLOAD_STATE_SUFFIX = ".resume";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long RETRY_BACKOFF_MILLIS = 500;
+
+    private final FtpClientPool ftpClientPool;
+    private final File uploadStateDir;
+    private final int maxAttempts;
+    private final BandwidthLimiter bandwidthLimiter;
+    private final TransferJob.Lane lane;
+
+    /**
+     * @param ftpClientPool  会话池
+     * @param uploadStateDir 上传进度文件目录，上传的源文件目录可能只读，进度文件统一放在这里
+     * @param maxAttempts    最大尝试次数
+     */
+    public FtpResumableTransfer(FtpClientPool ftpClientPool, File uploadStateDir, int maxAttempts) {
+        this(ftpClientPool, uploadStateDir, maxAttempts, null, TransferJob.Lane.INTERACTIVE);
+    }
+
+    /**
+     * @param ftpClientPool    会话池
+     * @param uploadStateDir   上传进度文件目录，上传的源文件目录可能只读，进度文件统一放在这里
+     * @param maxAttempts      最大尝试次数
+     * @param bandwidthLimiter 带宽限制，null表示不限制
+     * @param lane             传输类别，带宽紧张时按类别的权重分配
+     */
+    public FtpResumableTransfer(FtpClientPool ftpClientPool, File uploadStateDir, int maxAttempts,
+                                BandwidthLimiter bandwidthLimiter, TransferJob.Lane lane) {
+        this.ftpClientPool = ftpClientPool;
+        this.uploadStateDir = uploadStateDir;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.lane = lane;
+    }
+
+    /**
+     * 上传文件，远程目录不存在时创建
+     *
+     * @param server     FTP服务器
+     * @param localFile  本地文件
+     * @param remotePath FTP文件路径
+     * @return 本次上传的字节数
+     * @throws IOException 重试后仍失败，再次调用时从断点继续
+     */
+    public long upload(FtpServer server, File localFile, String remotePath) throws IOException {
+        return upload(server, localFile, remotePath, FtpTransferListener.NONE);
+    }
+
+    /**
+     * 上传文件，远程目录不存在时创建
+     *
+     * @param server     FTP服务器
+     * @param localFile  本地文件
+     * @param remotePath FTP文件路径
+     * @param listener   进度回调
+     * @return 本次上传的字节数
+     * @throws IOException 重试后仍失败，再次调用时从断点继续
+     */
+    public long upload(FtpServer server, File localFile, String remotePath, FtpTransferListener listener) throws IOException {
+        if (!localFile.isFile()) {
+            throw new IOException("local file not found: " + localFile);
+        }
+        long size = localFile.length();
+        Path statePath = uploadStatePath(server, localFile, remotePath);
+        Properties identity = new Properties();
+        identity.setProperty("local", localFile.getAbsolutePath());
+        identity.setProperty("remote", server + remotePath);
+        identity.setProperty("size", String.valueOf(size));
+        identity.setProperty("modified", String.valueOf(localFile.lastModified()));
+        boolean resumable = matches(loadState(statePath), identity);
+
+        long sent = 0;
+        for (int attempt = 1; ; attempt++) {
+            FTPClient ftpClient = ftpClientPool.borrow(server);
+            boolean reusable = false;
+            try {
+                long offset = 0;
+                if (resumable) {
+                    String remoteSize = ftpClient.getSize(remotePath);
+                    offset = remoteSize == null ? 0 : Long.parseLong(remoteSize.trim());
+                    if (offset > size) {
+                        log.warn("remote file {} larger than local file {}, upload from start", remotePath, localFile);
+                        offset = 0;
+                    }
+                } else {
+                    int slash = remotePath.lastIndexOf('/');
+                    if (slash > 0) {
+                        FtpDirectoryUploader.makeDirectories(ftpClient, remotePath.substring(0, slash));
+                    }
+                }
+                // 远程的部分文件从这里开始归属于本地文件，之后中断都可以续传
+                identity.setProperty("offset", String.valueOf(offset));
+                saveState(statePath, identity);
+                resumable = true;
+
+                if (offset < size || size == 0) {
+                    if (offset > 0) {
+                        log.info("resume upload {} to {}{} from {}/{}", localFile, server, remotePath, offset, size);
+                    }
+                    try (FileChannel channel = FileChannel.open(localFile.toPath(), StandardOpenOption.READ)) {
+                        channel.position(offset);
+                        InputStream input = new ProgressInputStream(BandwidthLimiter.throttle(bandwidthLimiter,
+                                new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE), server.getHost(), lane),
+                                offset, size, listener);
+                        boolean append = offset > 0;
+                        boolean stored = ftpClientPool.metrics().time(server.getHost(), "store", () -> append
+                                ? ftpClient.appendFile(remotePath, input) : ftpClient.storeFile(remotePath, input));
+                        if (!stored) {
+                            throw new IOException("store " + remotePath + " failed: " + ftpClient.getReplyString().trim());
+                        }
+                    }
+                    sent += size - offset;
+                }
+
+                String remoteSize = ftpClient.getSize(remotePath);
+                if (remoteSize == null || Long.parseLong(remoteSize.trim()) != size) {
+                    // 大小不符说明远程文件被其他客户端改动过，下次从头上传
+                    deleteState(statePath);
+                    throw new IOException("uploaded " + remotePath + " size " + remoteSize + " != " + size);
+                }
+                reusable = true;
+                deleteState(statePath);
+                return sent;
+            } catch (IOException exception) {
+                FtpTransferCancelledException cancelled = cancellation(exception);
+                if (cancelled != null) {
+                    throw cancelled;
+                }
+                if (attempt >= maxAttempts || !backoff(attempt)) {
+                    throw exception;
+                }
+                log.info("upload {} attempt {} failed, resuming: {}", remotePath, attempt, exception.getMessage());
+                resumable = matches(loadState(statePath), identity);
+            } finally {
+                ftpClientPool.release(server, ftpClient, reusable);
+            }
+        }
+    }
+
+    /**
+     * 下载文件，本地父目录不存在时创建
+     *
+     * @param server     FTP服务器
+     * @param remotePath FTP文件路径
+     * @param localFile  本地文件
+     * @return 本次下载的字节数
+     * @throws IOException 远程文件不存在，或重试后仍失败，再次调用时从断点继续
+     */
+    public long download(FtpServer server, String remotePath, File localFile) throws IOException {
+        return download(server, remotePath, localFile, FtpTransferListener.NONE);
+    }
+
+    /**
+     * 下载文件，本地父目录不存在时创建
+     *
+     * @param server     FTP服务器
+     * @param remotePath FTP文件路径
+     * @param localFile  本地文件
+     * @param listener   进度回调
+     * @return 本次下载的字节数
+     * @throws IOException 远程文件不存在，或重试后仍失败，再次调用时从断点继续
+     */
+    public long download(FtpServer server, String remotePath, File localFile, FtpTransferListener listener) throws IOException {
+        File parent = localFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("mkdirs " + parent + " failed");
+        }
+        Path statePath = new File(localFile.getPath() + DOWNLOAD_STATE_SUFFIX).toPath();
+
+        long received = 0;
+        for (int attempt = 1; ; attempt++) {
+            FTPClient ftpClient = ftpClientPool.borrow(server);
+            boolean reusable = false;
+            try {
+                String remoteSize = ftpClient.getSize(remotePath);
+                if (remoteSize == null) {
+                    // 文件不存在不必重试，会话正常可复用
+                    reusable = true;
+                    throw new IOException("ftp file not found: " + remotePath + " on " + server);
+                }
+                long size = Long.parseLong(remoteSize.trim());
+                Properties identity = new Properties();
+                identity.setProperty("remote", server + remotePath);
+                identity.setProperty("size", String.valueOf(size));
+                identity.setProperty("modified", String.valueOf(ftpClient.getModificationTime(remotePath)));
+
+                long offset = 0;
+                if (localFile.exists() && matches(loadState(statePath), identity)) {
+                    offset = localFile.length();
+                    if (offset > size) {
+                        offset = 0;
+                    }
+                }
+                saveState(statePath, identity);
+
+                if (offset < size) {
+                    if (offset > 0) {
+                        log.info("resume download {}{} to {} from {}/{}", server, remotePath, localFile, offset, size);
+                    }
+                    received += retrieve(server, ftpClient, remotePath, localFile, offset, size, listener);
+                } else if (!localFile.exists()) {
+                    Files.createFile(localFile.toPath());
+                }
+                if (localFile.length() != size) {
+                    throw new IOException("downloaded " + localFile + " size " + localFile.length() + " != " + size);
+                }
+                reusable = true;
+                deleteState(statePath);
+                return received;
+            } catch (IOException exception) {
+                FtpTransferCancelledException cancelled = cancellation(exception);
+                if (cancelled != null) {
+                    throw cancelled;
+                }
+                if (reusable || attempt >= maxAttempts || !backoff(attempt)) {
+                    throw exception;
+                }
+                log.info("download {} attempt {} failed, resuming: {}", remotePath, attempt, exception.getMessage());
+            } finally {
+                ftpClientPool.release(server, ftpClient, reusable);
+            }
+        }
+    }
+
+    /**
+     * REST必须在RETR之前发送，服务器才会从偏移量开始传输；读完后确认传输完成，会话才能复用
+     */
+    private long retrieve(FtpServer server, FTPClient ftpClient, String remotePath, File localFile, long offset, long size,
+                          FtpTransferListener listener) throws IOException {
+        listener.progress(offset, size);
+        ftpClient.setRestartOffset(offset);
+        long copied = 0;
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(localFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, offset > 0 ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING), BUFFER_SIZE)) {
+            InputStream stream = ftpClientPool.metrics().time(server.getHost(), "retrieve", () -> ftpClient.retrieveFileStream(remotePath));
+            if (stream == null) {
+                ftpClientPool.metrics().failure(server.getHost(), "retrieve", "rejected");
+                throw new IOException("retrieve " + remotePath + " from " + offset + " failed: " + ftpClient.getReplyString().trim());
+            }
+            InputStream input = BandwidthLimiter.throttle(bandwidthLimiter, stream, server.getHost(), lane);
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    output.write(buffer, 0, read);
+                    copied += read;
+                    listener.progress(offset + copied, size);
+                }
+            } finally {
+                input.close();
+            }
+        }
+        if (!ftpClient.completePendingCommand()) {
+            throw new IOException("retrieve " + remotePath + " not completed: " + ftpClient.getReplyString().trim());
+        }
+        return copied;
+    }
+
+    /**
+     * 上传进度文件路径，按服务器、远程路径和本地路径区分
+     */
+    Path uploadStatePath(FtpServer server, File localFile, String remotePath) {
+        String id = DigestUtils.md5DigestAsHex((server + remotePath + "\n" + localFile.getAbsolutePath()).getBytes(StandardCharsets.UTF_8));
+        return new File(uploadStateDir, id + ".upload").toPath();
+    }
+
+    private static boolean matches(Properties state, Properties identity) {
+        if (state == null) {
+            return false;
+        }
+        for (String name : identity.stringPropertyNames()) {
+            if (!"offset".equals(name) && !Objects.equals(state.getProperty(name), identity.getProperty(name))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Properties loadState(Path path) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            return properties;
+        } catch (IOException exception) {
+            log.warn("invalid transfer state {}: {}", path, exception.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换，中途崩溃不会留下半个进度文件
+     */
+    private static void saveState(Path path, Properties properties) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream output = Files.newOutputStream(temp)) {
+            properties.store(output, "ftp resumable transfer");
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void deleteState(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException exception) {
+            log.warn("delete transfer state {} failed: {}", path, exception.getMessage());
+        }
+    }
+
+    /**
+     * 上传数据流，读取时报告进度
+     */
+    private static final class ProgressInputStream extends FilterInputStream {
+        private final long size;
+        private final FtpTransferListener listener;
+        private long position;
+
+        private ProgressInputStream(InputStream input, long offset, long size, FtpTransferListener listener) throws IOException {
+            super(input);
+            this.position = offset;
+            this.size = size;
+            this.listener = listener;
+            listener.progress(offset, size);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                listener.progress(++position, size);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                position += read;
+                listener.progress(position, size);
+            }
+            return read;
+        }
+    }
+
+    /**
+     * 回调中止的传输不重试；storeFile把读取数据时的异常包装为CopyStreamException，需要沿cause查找
+     */
+    private static FtpTransferCancelledException cancellation(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FtpTransferCancelledException) {
+                return (FtpTransferCancelledException) cause;
+            }
+        }
+        return null;
+    }
+
+    private static boolean backoff(int attempt) {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MILLIS * attempt);
+            return true;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/*
+  RETR数据连接的输入流，流存活期间持有会话，关闭流时才归还会话
+  读到文件末尾后关闭：确认传输完成(completePendingCommand)，会话可以复用
+  未读完就关闭(只读取一个范围、客户端断开等)：控制连接上还有未读的应答，会话不复用
+  可以限制读取的字节数，用于只传输文件的一个范围
+ */
+@Slf4j
+public class FtpRetrieveStream extends FilterInputStream {
+    private final FTPClient ftpClient;
+    private final Consumer<Boolean> release;
+    // 剩余可读的字节数，小于0表示不限制
+    private long remaining;
+    private boolean eof;
+    private boolean closed;
+
+    /**
+     * @param input     retrieveFileStream返回的数据流
+     * @param ftpClient 会话
+     * @param limit     最多读取的字节数，小于0表示读到文件末尾
+     * @param release   关闭时归还会话，参数为会话是否可以复用
+     */
+    public FtpRetrieveStream(InputStream input, FTPClient ftpClient, long limit, Consumer<Boolean> release) {
+        super(input);
+        this.ftpClient = ftpClient;
+        this.remaining = limit;
+        this.release = release;
+    }
+
+    /**
+     * 借出会话并从指定位置开始读取文件，读取失败时归还会话
+     *
+     * @param ftpClientPool 会话池
+     * @param server        FTP服务器
+     * @param remotePath    FTP文件路径
+     * @param offset        开始位置(REST偏移量)
+     * @param limit         最多读取的字节数，小于0表示读到文件末尾
+     * @return 数据流，用完必须关闭
+     * @throws IOException 借出会话或发起RETR失败
+     */
+    public static FtpRetrieveStream open(FtpClientPool ftpClientPool, FtpServer server, String remotePath,
+                                         long offset, long limit) throws IOException {
+        FTPClient ftpClient = ftpClientPool.borrow(server);
+        InputStream input;
+        try {
+            ftpClient.setRestartOffset(offset);
+            input = ftpClientPool.metrics().time(server.getHost(), "retrieve", () -> ftpClient.retrieveFileStream(remotePath));
+        } catch (IOException exception) {
+            ftpClientPool.release(server, ftpClient, false);
+            throw exception;
+        }
+        if (input == null) {
+            // 服务器拒绝(文件不存在、不支持REST等)，会话仍然可用
+            ftpClientPool.metrics().failure(server.getHost(), "retrieve", "rejected");
+            String reply = ftpClient.getReplyString();
+            ftpClientPool.release(server, ftpClient, true);
+            throw new IOException("retrieve " + remotePath + " from " + offset + " failed: " + (reply == null ? "" : reply.trim()));
+        }
+        return new FtpRetrieveStream(input, ftpClient, limit, reusable -> ftpClientPool.release(server, ftpClient, reusable));
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining == 0) {
+            return -1;
+        }
+        int b = super.read();
+        if (b < 0) {
+            eof = true;
+        } else if (remaining > 0) {
+            remaining--;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (remaining == 0) {
+            return -1;
+        }
+        int read = super.read(bytes, offset, remaining > 0 ? (int) Math.min(length, remaining) : length);
+        if (read < 0) {
+            eof = true;
+        } else if (remaining > 0) {
+            remaining -= read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(remaining >= 0 ? Math.min(n, remaining) : n);
+        if (remaining > 0) {
+            remaining -= skipped;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        boolean reusable = false;
+        try {
+            if (!eof && remaining == 0) {
+                // 范围恰好读到文件末尾时，数据连接上只剩EOF
+                eof = in.read() < 0;
+            }
+            super.close();
+            reusable = eof && ftpClient.completePendingCommand();
+        } catch (IOException exception) {
+            log.debug("close ftp data stream failed: {}", exception.getMessage());
+        } finally {
+            release.accept(reusable);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.entity.TransferJob;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+  分段下载大文件：文件按字节范围分成若干段，每段用一个会话通过REST偏移量单独下载，多个数据连接并行
+  各段按位置写入预先设定好长度的本地文件(FileChannel定位写)，互不等待
+  每段的进度定期写入旁边的 .segments 状态文件，中断后再次下载时每段从各自的进度继续
+  远程文件的大小或修改时间变化时状态作废，从头下载
+ */
+@Slf4j
+public class FtpSegmentedDownloader {
+    // 状态文件后缀
+    public static final String STATE_SUFFIX = ".segments";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 每段下载这么多字节后保存一次进度
+    private static final long CHECKPOINT_BYTES = 8L * 1024 * 1024;
+    private static final long RETRY_BACKOFF_MILLIS = 200;
+    private static final AtomicInteger THREAD_SEQUENCE = new AtomicInteger();
+
+    private final FtpClientPool ftpClientPool;
+    private final int segments;
+    private final long minSegmentSize;
+    private final int maxAttempts;
+    private final BandwidthLimiter bandwidthLimiter;
+
+    /**
+     * @param ftpClientPool  会话池，每个服务器的会话上限同时是并行段数的上限
+     * @param segments       最大段数
+     * @param minSegmentSize 每段的最小字节数，小文件不分段
+     * @param maxAttempts    每段的最大尝试次数
+     */
+    public FtpSegmentedDownloader(FtpClientPool ftpClientPool, int segments, long minSegmentSize, int maxAttempts) {
+        this(ftpClientPool, segments, minSegmentSize, maxAttempts, null);
+    }
+
+    /**
+     * @param ftpClientPool    会话池，每个服务器的会话上限同时是并行段数的上限
+     * @param segments         最大段数
+     * @param minSegmentSize   每段的最小字节数，小文件不分段
+     * @param maxAttempts      每段的最大尝试次数
+     * @param bandwidthLimiter 带宽限制，分段下载按批量传输分配带宽，null表示不限制
+     */
+    public FtpSegmentedDownloader(FtpClientPool ftpClientPool, int segments, long minSegmentSize, int maxAttempts,
+                                  BandwidthLimiter bandwidthLimiter) {
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.ftpClientPool = ftpClientPool;
+        this.segments = Math.max(1, segments);
+        this.minSegmentSize = Math.max(1, minSegmentSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * 下载文件，本地存在未完成的状态文件时继续下载
+     *
+     * @param server     FTP服务器
+     * @param remotePath FTP文件路径
+     * @param localFile  本地文件，父目录不存在时创建
+     * @return 本次下载的字节数
+     * @throws IOException 远程文件不存在，或某一段重试后仍失败(进度已保存，可再次调用继续)
+     */
+    public long download(FtpServer server, String remotePath, File localFile) throws IOException {
+        long start = System.currentTimeMillis();
+        String[] remote = ftpClientPool.execute(server, ftpClient ->
+                new String[]{ftpClient.getSize(remotePath), ftpClient.getModificationTime(remotePath)});
+        if (remote[0] == null) {
+            throw new IOException("ftp file not found: " + remotePath + " on " + server);
+        }
+        long size = Long.parseLong(remote[0].trim());
+
+        File parent = localFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("mkdirs " + parent + " failed");
+        }
+        Path statePath = new File(localFile.getPath() + STATE_SUFFIX).toPath();
+        State state = State.load(statePath, remotePath, size, remote[1]);
+        if (state == null || !localFile.exists()) {
+            state = State.create(remotePath, size, remote[1], plan(size));
+        }
+
+        long downloaded;
+        try (FileChannel channel = FileChannel.open(localFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() != size) {
+                // 预先设定长度，各段直接写到各自的位置
+                channel.truncate(size);
+                if (channel.size() < size && size > 0) {
+                    channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+                }
+            }
+            state.save(statePath);
+            long before = state.doneBytes();
+            run(server, remotePath, channel, state, statePath);
+            downloaded = state.doneBytes() - before;
+            long[] positions = state.snapshot();
+            channel.force(false);
+            state.save(statePath, positions);
+        }
+
+        List<Integer> unfinished = state.unfinished();
+        if (!unfinished.isEmpty()) {
+            throw new IOException("download " + remotePath + " incomplete, segments " + unfinished
+                    + " failed, progress saved to " + statePath);
+        }
+        Files.deleteIfExists(statePath);
+        log.info("download {}{} to {}: {} bytes in {} segments, {} ms", server, remotePath, localFile, size,
+                state.segmentCount(), System.currentTimeMillis() - start);
+        return downloaded;
+    }
+
+    /**
+     * 按文件大小划分各段
+     *
+     * @param size 文件大小
+     * @return 各段的起止位置，[start, end)
+     */
+    long[][] plan(long size) {
+        int count = (int) Math.max(1, Math.min(segments, size / minSegmentSize));
+        long[][] ranges = new long[count][];
+        long length = size / count;
+        for (int i = 0; i < count; i++) {
+            long begin = i * length;
+            ranges[i] = new long[]{begin, i == count - 1 ? size : begin + length};
+        }
+        return ranges;
+    }
+
+    private void run(FtpServer server, String remotePath, FileChannel channel, State state, Path statePath) throws IOException {
+        List<Integer> pending = state.unfinished();
+        List<Thread> workers = new ArrayList<>(pending.size());
+        for (int i = 1; i < pending.size(); i++) {
+            int segment = pending.get(i);
+            Thread worker = new Thread(() -> fetch(server, remotePath, channel, state, statePath, segment),
+                    "ftp-download-" + THREAD_SEQUENCE.incrementAndGet());
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        if (!pending.isEmpty()) {
+            fetch(server, remotePath, channel, state, statePath, pending.get(0));
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IOException("download interrupted: " + remotePath, exception);
+            }
+        }
+    }
+
+    /**
+     * 下载一段，失败后从已下载的位置重试
+     */
+    private void fetch(FtpServer server, String remotePath, FileChannel channel, State state, Path statePath, int segment) {
+        for (int attempt = 1; attempt <= maxAttempts && !state.isDone(segment); attempt++) {
+            if (attempt > 1 && !backoff(attempt)) {
+                return;
+            }
+            FTPClient ftpClient = null;
+            boolean reusable = false;
+            try {
+                ftpClient = ftpClientPool.borrow(server);
+                reusable = transfer(server, ftpClient, remotePath, channel, state, statePath, segment);
+            } catch (IOException exception) {
+                log.info("download {} segment {} attempt {} failed at {}: {}", remotePath, segment, attempt,
+                        state.position(segment), exception.getMessage());
+            } finally {
+                ftpClientPool.release(server, ftpClient, reusable);
+            }
+            checkpoint(channel, state, statePath);
+        }
+    }
+
+    /**
+     * 从该段的当前位置开始读取数据连接，写到文件的对应位置，读满该段即停止
+     *
+     * @return 会话是否可以复用；提前停止读取的数据连接会让会话处于不确定状态，不复用
+     */
+    private boolean transfer(FtpServer server, FTPClient ftpClient, String remotePath, FileChannel channel, State state,
+                             Path statePath, int segment) throws IOException {
+        long position = state.position(segment);
+        long end = state.end(segment);
+        ftpClient.setRestartOffset(position);
+        InputStream stream = ftpClientPool.metrics().time(server.getHost(), "retrieve", () -> ftpClient.retrieveFileStream(remotePath));
+        if (stream == null) {
+            ftpClientPool.metrics().failure(server.getHost(), "retrieve", "rejected");
+            throw new IOException("retrieve " + remotePath + " from " + position + " failed: " + ftpClient.getReplyString().trim());
+        }
+        InputStream input = BandwidthLimiter.throttle(bandwidthLimiter, stream, server.getHost(), TransferJob.Lane.BULK);
+        boolean complete = false;
+        try {
+            byte[] bytes = new byte[BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long sinceCheckpoint = 0;
+            while (position < end) {
+                int read = input.read(bytes, 0, (int) Math.min(bytes.length, end - position));
+                if (read < 0) {
+                    throw new IOException("unexpected end of data at " + position + ", segment ends at " + end);
+                }
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                state.advance(segment, position);
+                sinceCheckpoint += read;
+                if (sinceCheckpoint >= CHECKPOINT_BYTES) {
+                    checkpoint(channel, state, statePath);
+                    sinceCheckpoint = 0;
+                }
+            }
+            // 最后一段读到了文件末尾，传输可以正常结束
+            complete = end == state.size && input.read() < 0;
+        } finally {
+            input.close();
+        }
+        return complete && ftpClient.completePendingCommand();
+    }
+
+    /**
+     * 先记下各段进度，再把数据刷到磁盘，最后保存记下的进度
+     * 其他段在刷盘期间继续写入，刷盘后才读进度可能包含尚未落盘的数据
+     */
+    private static void checkpoint(FileChannel channel, State state, Path statePath) {
+        try {
+            synchronized (state) {
+                long[] positions = state.snapshot();
+                channel.force(false);
+                state.save(statePath, positions);
+            }
+        } catch (IOException exception) {
+            log.warn("save download progress {} failed: {}", statePath, exception.getMessage());
+        }
+    }
+
+    private static boolean backoff(int attempt) {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MILLIS * (attempt - 1));
+            return true;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 分段状态：远程文件的标识(路径、大小、修改时间)和每段的起止位置、已下载到的位置
+     */
+    static final class State {
+        private final String remotePath;
+        private final long size;
+        private final String modified;
+        private final long[] starts;
+        private final long[] ends;
+        private final AtomicLongArray positions;
+
+        private State(String remotePath, long size, String modified, long[] starts, long[] ends, long[] positions) {
+            this.remotePath = remotePath;
+            this.size = size;
+            this.modified = modified;
+            this.starts = starts;
+            this.ends = ends;
+            this.positions = new AtomicLongArray(positions);
+        }
+
+        static State create(String remotePath, long size, String modified, long[][] ranges) {
+            long[] starts = new long[ranges.length];
+            long[] ends = new long[ranges.length];
+            for (int i = 0; i < ranges.length; i++) {
+                starts[i] = ranges[i][0];
+                ends[i] = ranges[i][1];
+            }
+            return new State(remotePath, size, modified, starts, ends, starts.clone());
+        }
+
+        /**
+         * 读取状态文件，文件不存在、损坏或与远程文件不符时返回null
+         */
+        static State load(Path path, String remotePath, long size, String modified) {
+            if (!Files.exists(path)) {
+                return null;
+            }
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+                if (!remotePath.equals(properties.getProperty("remote"))
+                        || size != Long.parseLong(properties.getProperty("size"))
+                        || !Objects.equals(modified, properties.getProperty("modified"))) {
+                    log.info("remote file {} changed, restart download", remotePath);
+                    return null;
+                }
+                int count = Integer.parseInt(properties.getProperty("segments"));
+                long[] starts = new long[count];
+                long[] ends = new long[count];
+                long[] positions = new long[count];
+                for (int i = 0; i < count; i++) {
+                    String[] values = properties.getProperty("segment." + i).split(",");
+                    starts[i] = Long.parseLong(values[0]);
+                    ends[i] = Long.parseLong(values[1]);
+                    positions[i] = Long.parseLong(values[2]);
+                }
+                return new State(remotePath, size, modified, starts, ends, positions);
+            } catch (IOException | RuntimeException exception) {
+                log.warn("invalid download state {}: {}", path, exception.getMessage());
+                return null;
+            }
+        }
+
+        synchronized void save(Path path) throws IOException {
+            save(path, snapshot());
+        }
+
+        /**
+         * 先写临时文件再原子替换，中途崩溃不会留下半个状态文件
+         *
+         * @param positions 要保存的各段进度，见snapshot
+         */
+        synchronized void save(Path path, long[] positions) throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty("remote", remotePath);
+            properties.setProperty("size", String.valueOf(size));
+            if (modified != null) {
+                properties.setProperty("modified", modified);
+            }
+            properties.setProperty("segments", String.valueOf(starts.length));
+            for (int i = 0; i < starts.length; i++) {
+                properties.setProperty("segment." + i, starts[i] + "," + ends[i] + "," + positions[i]);
+            }
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (OutputStream output = Files.newOutputStream(temp)) {
+                properties.store(output, "ftp segmented download: start,end,position");
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /**
+         * 各段当前的进度
+         */
+        long[] snapshot() {
+            long[] snapshot = new long[starts.length];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = positions.get(i);
+            }
+            return snapshot;
+        }
+
+        int segmentCount() {
+            return starts.length;
+        }
+
+        long position(int segment) {
+            return positions.get(segment);
+        }
+
+        long end(int segment) {
+            return ends[segment];
+        }
+
+        void advance(int segment, long position) {
+            positions.set(segment, position);
+        }
+
+        boolean isDone(int segment) {
+            return positions.get(segment) >= ends[segment];
+        }
+
+        List<Integer> unfinished() {
+            List<Integer> result = new ArrayList<>();
+            for (int i = 0; i < starts.length; i++) {
+                if (!isDone(i)) {
+                    result.add(i);
+                }
+            }
+            return result;
+        }
+
+        long doneBytes() {
+            long done = 0;
+            for (int i = 0; i < starts.length; i++) {
+                done += positions.get(i) - starts[i];
+            }
+            return done;
+        }
+    }
+}
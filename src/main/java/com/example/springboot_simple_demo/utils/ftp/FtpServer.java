@@ -0,0 +1,73 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.entity.FtpServiceInfo;
+
+import java.util.Objects;
+
+/*
+  FTP服务器及登录用户，作为会话池的键，不可变
+ */
+public final class FtpServer {
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+
+    public FtpServer(String host, int port, String username, String password) {
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * 由FTP服务器信息创建
+     *
+     * @param ftpServiceInfo FTP服务器信息
+     * @return FTP服务器
+     */
+    public static FtpServer of(FtpServiceInfo ftpServiceInfo) {
+        return new FtpServer(ftpServiceInfo.hostIp, ftpServiceInfo.port == null ? 21 : ftpServiceInfo.port,
+                ftpServiceInfo.username, ftpServiceInfo.password);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FtpServer)) {
+            return false;
+        }
+        FtpServer that = (FtpServer) o;
+        return port == that.port && host.equals(that.host)
+                && Objects.equals(username, that.username) && Objects.equals(password, that.password);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(host, port, username);
+    }
+
+    // 不输出密码
+    @Override
+    public String toString() {
+        return username + "@" + host + ":" + port;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+  目录同步清单：记录上次同步时每个文件的本地大小、本地修改时间、远程大小、远程修改时间
+  开启跳过未变化目录时还记录各远程目录的修改时间，路径以/结尾，只有远程修改时间有意义
+  磁盘格式为紧凑的二进制索引：路径按字典序排列，只保存与前一个路径不同的后缀，数字用变长编码
+  百万级文件的清单通常只有十几MB，读写都是一次顺序IO
+ */
+@Slf4j
+public class FtpSyncManifest {
+    private static final int MAGIC = 0x4654504D;
+    private static final int VERSION = 1;
+    // 远程修改时间未知
+    public static final long UNKNOWN = -1;
+
+    private final Map<String, Entry> entries;
+
+    public FtpSyncManifest() {
+        this(new HashMap<>());
+    }
+
+    private FtpSyncManifest(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * 读取清单，文件不存在或损坏时返回空清单(下次同步时逐个比较远程文件)
+     *
+     * @param path 清单文件
+     * @return 清单
+     */
+    public static FtpSyncManifest load(Path path) {
+        if (!Files.exists(path)) {
+            return new FtpSyncManifest();
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024))) {
+            if (input.readInt() != MAGIC || input.readUnsignedByte() != VERSION) {
+                throw new IOException("not a sync manifest");
+            }
+            int count = (int) readVarLong(input);
+            Map<String, Entry> entries = new HashMap<>(count * 4 / 3 + 1);
+            byte[] previous = new byte[0];
+            for (int i = 0; i < count; i++) {
+                int shared = (int) readVarLong(input);
+                int suffix = (int) readVarLong(input);
+                byte[] bytes = new byte[shared + suffix];
+                System.arraycopy(previous, 0, bytes, 0, shared);
+                input.readFully(bytes, shared, suffix);
+                previous = bytes;
+                entries.put(new String(bytes, StandardCharsets.UTF_8), new Entry(readVarLong(input), readVarLong(input),
+                        readVarLong(input), readVarLong(input) - 1));
+            }
+            return new FtpSyncManifest(entries);
+        } catch (IOException | RuntimeException exception) {
+            log.warn("invalid sync manifest {}, ignored: {}", path, exception.getMessage());
+            return new FtpSyncManifest();
+        }
+    }
+
+    /**
+     * 写入清单，先写临时文件再原子替换
+     *
+     * @param path 清单文件
+     * @throws IOException 写入失败
+     */
+    public void save(Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        List<String> paths = new ArrayList<>(entries.keySet());
+        Collections.sort(paths);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+            writeVarLong(output, paths.size());
+            byte[] previous = new byte[0];
+            for (String relative : paths) {
+                byte[] bytes = relative.getBytes(StandardCharsets.UTF_8);
+                int shared = 0;
+                int limit = Math.min(previous.length, bytes.length);
+                while (shared < limit && previous[shared] == bytes[shared]) {
+                    shared++;
+                }
+                writeVarLong(output, shared);
+                writeVarLong(output, bytes.length - shared);
+                output.write(bytes, shared, bytes.length - shared);
+                previous = bytes;
+
+                Entry entry = entries.get(relative);
+                writeVarLong(output, entry.localSize);
+                writeVarLong(output, entry.localModified);
+                writeVarLong(output, entry.remoteSize);
+                // UNKNOWN(-1)存为0
+                writeVarLong(output, entry.remoteModified + 1);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Entry get(String relative) {
+        return entries.get(relative);
+    }
+
+    public void put(String relative, Entry entry) {
+        entries.put(relative, entry);
+    }
+
+    public Set<String> paths() {
+        return entries.keySet();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new EOFException("malformed varint");
+    }
+
+    /**
+     * 一个文件上次同步时的状态
+     */
+    public static final class Entry {
+        private final long localSize;
+        private final long localModified;
+        private final long remoteSize;
+        private final long remoteModified;
+
+        /**
+         * @param localSize      本地大小
+         * @param localModified  本地修改时间（毫秒时间戳）
+         * @param remoteSize     远程大小
+         * @param remoteModified 远程修改时间（毫秒时间戳），刚上传的文件未知，记为UNKNOWN
+         */
+        public Entry(long localSize, long localModified, long remoteSize, long remoteModified) {
+            this.localSize = localSize;
+            this.localModified = localModified;
+            this.remoteSize = remoteSize;
+            this.remoteModified = remoteModified;
+        }
+
+        public long getLocalSize() {
+            return localSize;
+        }
+
+        public long getLocalModified() {
+            return localModified;
+        }
+
+        public long getRemoteSize() {
+            return remoteSize;
+        }
+
+        public long getRemoteModified() {
+            return remoteModified;
+        }
+    }
+}
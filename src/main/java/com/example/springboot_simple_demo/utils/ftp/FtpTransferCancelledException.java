@@ -0,0 +1,15 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import java.io.IOException;
+
+/*
+  在进度回调中抛出以中止传输
+  必须是IOException：commons-net只在IOException时关闭数据连接并结束传输，运行时异常会让数据连接泄漏
+  FtpResumableTransfer遇到该异常不重试，断点保留
+ */
+public class FtpTransferCancelledException extends IOException {
+
+    public FtpTransferCancelledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import java.io.IOException;
+
+/*
+  传输进度回调，每传输一个缓冲区调用一次
+  在回调中抛出FtpTransferCancelledException即中止传输，数据连接随之关闭，会话不再复用，断点保留
+  不要抛出运行时异常：commons-net只在IOException时关闭数据连接
+ */
+@FunctionalInterface
+public interface FtpTransferListener {
+    FtpTransferListener NONE = (position, size) -> {
+    };
+
+    /**
+     * @param position 已完成的字节数(含续传前已有的部分)
+     * @param size     文件总大小
+     * @throws IOException 中止传输，通常为FtpTransferCancelledException
+     */
+    void progress(long position, long size) throws IOException;
+}
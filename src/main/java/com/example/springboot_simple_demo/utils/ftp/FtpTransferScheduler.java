@@ -0,0 +1,205 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.entity.TransferJob;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/*
+  FTP传输任务调度
+  交互式和批量任务各有一个有界优先队列和各自的工作线程，交互式任务不会排在批量任务后面
+  每个FTP服务器同时执行的任务数不超过maxPerHost，其中批量任务不超过bulkMaxPerHost，为交互式任务留出余量
+  工作线程取队列中第一个所在服务器还有余量的任务，某个服务器满载时不阻塞其他服务器的任务
+ */
+@Slf4j
+public class FtpTransferScheduler {
+    private static final Comparator<TransferJob> ORDER = Comparator.comparingInt(TransferJob::getPriority).reversed()
+            .thenComparingLong(TransferJob::getSequence);
+    private static final int[] IDLE = new int[2];
+
+    private final int maxPerHost;
+    private final int bulkMaxPerHost;
+    private final int queueCapacity;
+    private final Consumer<TransferJob> runner;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<TransferJob.Lane, Condition> available = new EnumMap<>(TransferJob.Lane.class);
+    private final Map<TransferJob.Lane, TreeSet<TransferJob>> queues = new EnumMap<>(TransferJob.Lane.class);
+    // 服务器 -> 执行中的任务数 [全部, 批量]
+    private final Map<String, int[]> running = new HashMap<>();
+    private long sequence;
+    private int queued;
+    private boolean shutdown;
+
+    /**
+     * @param interactiveWorkers 交互式任务的工作线程数
+     * @param bulkWorkers        批量任务的工作线程数
+     * @param maxPerHost         每个FTP服务器同时执行的最大任务数
+     * @param bulkMaxPerHost     每个FTP服务器同时执行的最大批量任务数
+     * @param queueCapacity      两个队列中等待的最大任务总数
+     * @param runner             执行任务，在工作线程中调用
+     */
+    public FtpTransferScheduler(int interactiveWorkers, int bulkWorkers, int maxPerHost, int bulkMaxPerHost,
+                                int queueCapacity, Consumer<TransferJob> runner) {
+        this.maxPerHost = Math.max(1, maxPerHost);
+        this.bulkMaxPerHost = Math.max(1, Math.min(bulkMaxPerHost, this.maxPerHost));
+        this.queueCapacity = queueCapacity;
+        this.runner = runner;
+        for (TransferJob.Lane lane : TransferJob.Lane.values()) {
+            available.put(lane, lock.newCondition());
+            queues.put(lane, new TreeSet<>(ORDER));
+        }
+        startWorkers(TransferJob.Lane.INTERACTIVE, interactiveWorkers);
+        startWorkers(TransferJob.Lane.BULK, bulkWorkers);
+    }
+
+    /**
+     * 任务入队
+     *
+     * @param job 任务，lane和host必须已设置
+     * @throws RejectedExecutionException 队列已满或调度器已停止
+     */
+    public void submit(TransferJob job) {
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("transfer scheduler is shut down");
+            }
+            if (queued >= queueCapacity) {
+                throw new RejectedExecutionException("transfer queue is full (" + queueCapacity + ")");
+            }
+            job.setSequence(sequence++);
+            queues.get(job.getLane()).add(job);
+            queued++;
+            available.get(job.getLane()).signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 从队列中移除还未开始的任务
+     *
+     * @param job 任务
+     * @return 是否移除
+     */
+    public boolean remove(TransferJob job) {
+        lock.lock();
+        try {
+            if (queues.get(job.getLane()).remove(job)) {
+                queued--;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待中的任务数
+     *
+     * @return 任务数
+     */
+    public int queued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 停止工作线程，执行中的任务由runner自行结束
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            available.values().forEach(Condition::signalAll);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void startWorkers(TransferJob.Lane lane, int count) {
+        for (int i = 1; i <= count; i++) {
+            Thread worker = new Thread(() -> work(lane), "ftp-job-" + lane.name().toLowerCase() + "-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private void work(TransferJob.Lane lane) {
+        TransferJob job;
+        while ((job = take(lane)) != null) {
+            try {
+                runner.accept(job);
+            } catch (RuntimeException exception) {
+                log.error("transfer job {} failed: {}", job.getId(), exception.getMessage());
+            } finally {
+                finish(job);
+            }
+        }
+    }
+
+    /**
+     * 取出第一个所在服务器还有余量的任务，没有时等待
+     *
+     * @return 任务，调度器停止时返回null
+     */
+    private TransferJob take(TransferJob.Lane lane) {
+        lock.lock();
+        try {
+            while (!shutdown) {
+                Iterator<TransferJob> iterator = queues.get(lane).iterator();
+                while (iterator.hasNext()) {
+                    TransferJob job = iterator.next();
+                    int[] counts = running.getOrDefault(job.getHost(), IDLE);
+                    if (counts[0] < maxPerHost && (lane != TransferJob.Lane.BULK || counts[1] < bulkMaxPerHost)) {
+                        iterator.remove();
+                        queued--;
+                        counts = running.computeIfAbsent(job.getHost(), host -> new int[2]);
+                        counts[0]++;
+                        if (lane == TransferJob.Lane.BULK) {
+                            counts[1]++;
+                        }
+                        return job;
+                    }
+                }
+                available.get(lane).awaitUninterruptibly();
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void finish(TransferJob job) {
+        lock.lock();
+        try {
+            int[] counts = running.get(job.getHost());
+            counts[0]--;
+            if (job.getLane() == TransferJob.Lane.BULK) {
+                counts[1]--;
+            }
+            if (counts[0] == 0) {
+                running.remove(job.getHost());
+            }
+            // 服务器有了余量，两个队列中等待该服务器的任务都可能可以执行
+            available.values().forEach(Condition::signalAll);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.utils.zip.ZipSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/*
+  把FTP目录树列为ZIP条目来源
+  列目录只占用一个会话；每个文件在轮到压缩时才借出会话发起RETR，读完即归还
+ */
+public final class FtpZipSources {
+
+    private FtpZipSources() {
+    }
+
+    /**
+     * 列出FTP目录下的所有文件和目录，按路径排序，条目名相对于该目录
+     *
+     * @param ftpClientPool 会话池
+     * @param server        FTP服务器
+     * @param remoteDir     FTP目录
+     * @return 条目来源，FTP目录不存在时返回null
+     * @throws IOException 连接FTP服务器或列目录失败
+     */
+    public static List<ZipSource> list(FtpClientPool ftpClientPool, FtpServer server, String remoteDir) throws IOException {
+        Map<String, FtpSyncManifest.Entry> files = new HashMap<>();
+        Set<String> directories = new TreeSet<>();
+        boolean exists = ftpClientPool.execute(server, ftpClient -> {
+            // 借用CWD判断目录是否存在，之后恢复会话原来的工作目录
+            String workingDirectory = ftpClient.printWorkingDirectory();
+            if (!ftpClient.changeWorkingDirectory(remoteDir)) {
+                return false;
+            }
+            if (workingDirectory != null) {
+                ftpClient.changeWorkingDirectory(workingDirectory);
+            }
+            FtpDirectorySync.listRemote(ftpClientPool.metrics(), server.getHost(), ftpClient, remoteDir, files, directories);
+            return true;
+        });
+        if (!exists) {
+            return null;
+        }
+
+        TreeMap<String, ZipSource> sources = new TreeMap<>();
+        for (String directory : directories) {
+            sources.put(directory, ZipSource.directory(directory, -1));
+        }
+        for (Map.Entry<String, FtpSyncManifest.Entry> file : files.entrySet()) {
+            String remotePath = FtpDirectoryUploader.join(remoteDir, file.getKey());
+            sources.put(file.getKey(), new ZipSource(file.getKey(), file.getValue().getRemoteSize(),
+                    file.getValue().getRemoteModified(),
+                    () -> FtpRetrieveStream.open(ftpClientPool, server, remotePath, 0, -1)));
+        }
+        return new ArrayList<>(sources.values());
+    }
+}
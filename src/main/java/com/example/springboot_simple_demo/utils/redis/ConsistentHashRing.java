@@ -0,0 +1,113 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/*
+  带虚拟节点的一致性哈希环
+  增删节点时只有落在该节点区间内的键会迁移(约1/N)，其余键的归属不变
+  键中含有{...}时只对花括号内的部分取哈希，便于让相关的键落在同一节点
+  读多写少：增删节点时复制整个环，查找无锁
+ */
+public class ConsistentHashRing<T> {
+    private final int virtualNodes;
+    private volatile TreeMap<Long, T> ring = new TreeMap<>();
+    private volatile Set<T> nodes = Collections.emptySet();
+
+    /**
+     * @param virtualNodes 每个节点的虚拟节点数，越多分布越均匀
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * 添加节点
+     *
+     * @param node 节点，toString()作为其在环上位置的依据，需保持稳定
+     */
+    public synchronized void add(T node) {
+        TreeMap<Long, T> newRing = new TreeMap<>(ring);
+        for (int i = 0; i < virtualNodes; i++) {
+            newRing.putIfAbsent(hash(node + "#" + i), node);
+        }
+        Set<T> newNodes = new LinkedHashSet<>(nodes);
+        newNodes.add(node);
+        ring = newRing;
+        nodes = Collections.unmodifiableSet(newNodes);
+    }
+
+    /**
+     * 移除节点
+     *
+     * @param node 节点
+     */
+    public synchronized void remove(T node) {
+        TreeMap<Long, T> newRing = new TreeMap<>(ring);
+        newRing.values().removeIf(node::equals);
+        Set<T> newNodes = new LinkedHashSet<>(nodes);
+        newNodes.remove(node);
+        ring = newRing;
+        nodes = Collections.unmodifiableSet(newNodes);
+    }
+
+    /**
+     * 键所属的节点
+     *
+     * @param key 键
+     * @return 节点，环为空时返回null
+     */
+    public T get(String key) {
+        TreeMap<Long, T> current = ring;
+        if (current.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, T> entry = current.ceilingEntry(hash(hashTag(key)));
+        return entry != null ? entry.getValue() : current.firstEntry().getValue();
+    }
+
+    /**
+     * 全部节点
+     *
+     * @return 节点集合
+     */
+    public Collection<T> nodes() {
+        return nodes;
+    }
+
+    /**
+     * 取花括号内的部分作为哈希依据，与Redis Cluster的hash tag规则相同
+     */
+    static String hashTag(String key) {
+        int start = key.indexOf('{');
+        if (start >= 0) {
+            int end = key.indexOf('}', start + 1);
+            if (end > start + 1) {
+                return key.substring(start + 1, end);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * FNV-1a 64位哈希，再经MurmurHash3的fmix64打散
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
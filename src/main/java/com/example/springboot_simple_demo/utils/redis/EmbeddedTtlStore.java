@@ -0,0 +1,407 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.PatternMatchUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/*
+  进程内的带生存时间的键值存储，作为RedisUtil的替代后端或Redis不可用时的降级后端
+  过期由分层时间轮驱动，没有逐键的定时器：每个键只有一个条目对象，条目本身即时间轮槽位链表的节点
+  读取无锁(过期的键在读取时即视为不存在)，写入与时间轮共用一把锁
+  键数量有上限，达到上限时淘汰最早过期的键，堆占用可预估
+ */
+@Slf4j
+public class EmbeddedTtlStore {
+    // 每层64个槽位，5层时间轮在100ms刻度下可覆盖约3.4年
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 5;
+
+    private final ConcurrentHashMap<String, Entry> entries;
+    private final int maxKeys;
+    private final long tickMillis;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService ticker;
+
+    // 时间轮槽位链表头，下标为 层 * SLOTS + 槽
+    private final Entry[] wheel = new Entry[LEVELS * SLOTS];
+    // 时间轮当前刻度，以tickMillis为单位的绝对时间
+    private long currentTick;
+
+    /**
+     * @param maxKeys    最大键数量
+     * @param tickMillis 时间轮刻度（毫秒），即过期的时间精度
+     */
+    public EmbeddedTtlStore(int maxKeys, long tickMillis) {
+        this(maxKeys, tickMillis, System::currentTimeMillis, true);
+    }
+
+    EmbeddedTtlStore(int maxKeys, long tickMillis, LongSupplier clock, boolean startTicker) {
+        this.maxKeys = maxKeys;
+        this.tickMillis = tickMillis;
+        this.clock = clock;
+        this.entries = new ConcurrentHashMap<>(Math.min(maxKeys, 1 << 16));
+        this.currentTick = clock.getAsLong() / tickMillis;
+        if (startTicker) {
+            ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "embedded-ttl-store");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        } else {
+            ticker = null;
+        }
+    }
+
+    /**
+     * 设置key-value
+     *
+     * @param key       键
+     * @param value     值
+     * @param ttlMillis 生存时间（毫秒），小于等于0表示永久
+     */
+    public void set(String key, String value, long ttlMillis) {
+        synchronized (this) {
+            put(key, value, deadline(ttlMillis));
+        }
+    }
+
+    /**
+     * 根据key，获取值
+     *
+     * @param key 键
+     * @return 获取到的值，键不存在或已过期时返回null
+     */
+    public String get(String key) {
+        Entry entry = live(key);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * 判断key是否存在
+     *
+     * @param key 键
+     * @return 是否存在
+     */
+    public boolean exists(String key) {
+        return live(key) != null;
+    }
+
+    /**
+     * 设置指定数据的生存时间
+     *
+     * @param key       键
+     * @param ttlMillis 生存时间（毫秒），小于等于0表示永久
+     * @return 键是否存在
+     */
+    public synchronized boolean expire(String key, long ttlMillis) {
+        Entry entry = live(key);
+        if (entry == null) {
+            return false;
+        }
+        unlink(entry);
+        entry.deadline = deadline(ttlMillis);
+        link(entry);
+        return true;
+    }
+
+    /**
+     * 删除指定信息
+     *
+     * @param key 键
+     * @return 是否删除成功
+     */
+    public synchronized boolean delete(String key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        unlink(entry);
+        return !entry.isExpired(clock.getAsLong());
+    }
+
+    /**
+     * 原子地获取或创建key-value，语义同RedisUtil.getOrCreate
+     *
+     * @param key       键
+     * @param value     键不存在时写入的值
+     * @param ttlMillis 生存时间（毫秒）
+     * @return 键对应的值
+     */
+    public synchronized String getOrCreate(String key, String value, long ttlMillis) {
+        Entry entry = live(key);
+        if (entry != null) {
+            return entry.value;
+        }
+        put(key, value, deadline(ttlMillis));
+        return value;
+    }
+
+    /**
+     * 原子地校验并消费key-value，语义同RedisUtil.verify
+     *
+     * @param key         键
+     * @param value       待校验的值
+     * @param maxAttempts 最大失败次数
+     * @return 校验结果
+     */
+    public synchronized VerifyResult verify(String key, String value, int maxAttempts) {
+        Entry entry = live(key);
+        String attemptsKey = RedisScripts.attemptsKey(key);
+        if (entry == null) {
+            return VerifyResult.EXPIRED;
+        }
+        if (entry.value.equals(value)) {
+            delete(key);
+            delete(attemptsKey);
+            return VerifyResult.SUCCESS;
+        }
+
+        Entry attempts = live(attemptsKey);
+        int count = attempts == null ? 1 : Integer.parseInt(attempts.value) + 1;
+        if (count >= maxAttempts) {
+            delete(key);
+            delete(attemptsKey);
+            return VerifyResult.LOCKED;
+        }
+        // 计数与键同时过期；键为永久键时计数按ATTEMPTS_TTL_MILLIS过期
+        long deadline = entry.deadline == Long.MAX_VALUE ? deadline(RedisScripts.ATTEMPTS_TTL_MILLIS) : entry.deadline;
+        put(attemptsKey, String.valueOf(count), deadline);
+        return VerifyResult.MISMATCH;
+    }
+
+    /**
+     * 剩余生存时间
+     *
+     * @param key 键
+     * @return 剩余毫秒数，-1表示永久，-2表示键不存在
+     */
+    public long ttl(String key) {
+        Entry entry = live(key);
+        if (entry == null) {
+            return -2;
+        }
+        return entry.deadline == Long.MAX_VALUE ? -1 : Math.max(0, entry.deadline - clock.getAsLong());
+    }
+
+    /**
+     * 遍历匹配的键，分批交给consumer，不复制整个键集合
+     * 遍历期间写入或删除的键可能出现也可能不出现，与Redis SCAN一致
+     *
+     * @param match     键的匹配模式，只支持通配符*
+     * @param batchSize 每批的键数量
+     * @param consumer  每批键的处理
+     */
+    public void scan(String match, int batchSize, Consumer<List<String>> consumer) {
+        long now = clock.getAsLong();
+        List<String> batch = new ArrayList<>(batchSize);
+        for (Entry entry : entries.values()) {
+            if (entry.isExpired(now) || !PatternMatchUtils.simpleMatch(match, entry.key)) {
+                continue;
+            }
+            batch.add(entry.key);
+            if (batch.size() >= batchSize) {
+                consumer.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+    }
+
+    /**
+     * 当前键数量(含已过期但尚未清理的键)
+     *
+     * @return 键数量
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 停止时间轮
+     */
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    /**
+     * 推进时间轮到当前时间，清理到期的键
+     */
+    synchronized void advance() {
+        long now = clock.getAsLong();
+        long targetTick = now / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            // 低层转完一圈时，把高层对应槽位的键下放到低层
+            for (int level = 1; level < LEVELS; level++) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                    break;
+                }
+                cascade(level, (int) (currentTick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+            }
+            expireSlot((int) currentTick & (SLOTS - 1), now);
+        }
+    }
+
+    private Entry live(String key) {
+        Entry entry = entries.get(key);
+        return entry == null || entry.isExpired(clock.getAsLong()) ? null : entry;
+    }
+
+    // 溢出时取Long.MAX_VALUE，即按永久处理(约2.9亿年之后才过期)
+    private long deadline(long ttlMillis) {
+        if (ttlMillis <= 0) {
+            return Long.MAX_VALUE;
+        }
+        long now = clock.getAsLong();
+        return ttlMillis >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + ttlMillis;
+    }
+
+    /**
+     * 写入条目并挂入时间轮，需持有锁
+     */
+    private void put(String key, String value, long deadline) {
+        Entry entry = new Entry(key, value, deadline);
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            unlink(previous);
+        } else if (entries.size() > maxKeys) {
+            evictEarliest(entry);
+        }
+        link(entry);
+    }
+
+    private void link(Entry entry) {
+        if (entry.deadline == Long.MAX_VALUE) {
+            // 永久的键不进入时间轮
+            entry.slot = -1;
+            return;
+        }
+        // 向上取整，不用deadline + tickMillis - 1，接近Long.MAX_VALUE的deadline不会溢出
+        long expireTick = Math.max(entry.deadline / tickMillis + (entry.deadline % tickMillis != 0 ? 1 : 0), currentTick + 1);
+        long delta = expireTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        if (delta >= (1L << (SLOT_BITS * LEVELS))) {
+            // 超出时间轮范围的先放在最高层最远的槽位，届时再重新计算
+            expireTick = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+        }
+        int slot = level * SLOTS + ((int) (expireTick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+        entry.slot = slot;
+        entry.prev = null;
+        entry.next = wheel[slot];
+        if (wheel[slot] != null) {
+            wheel[slot].prev = entry;
+        }
+        wheel[slot] = entry;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.slot < 0) {
+            return;
+        }
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else {
+            wheel[entry.slot] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+        entry.slot = -1;
+    }
+
+    private void cascade(int level, int index) {
+        int slot = level * SLOTS + index;
+        Entry entry = wheel[slot];
+        wheel[slot] = null;
+        while (entry != null) {
+            Entry next = entry.next;
+            entry.prev = null;
+            entry.next = null;
+            link(entry);
+            entry = next;
+        }
+    }
+
+    private void expireSlot(int index, long now) {
+        Entry entry = wheel[index];
+        wheel[index] = null;
+        while (entry != null) {
+            Entry next = entry.next;
+            entry.prev = null;
+            entry.next = null;
+            entry.slot = -1;
+            if (entry.isExpired(now)) {
+                entries.remove(entry.key, entry);
+            } else {
+                link(entry);
+            }
+            entry = next;
+        }
+    }
+
+    /**
+     * 键数量超限时淘汰最早过期的键，没有可过期的键时淘汰刚写入之外的任意一个键
+     * 刚写入的条目此时尚未挂入时间轮，不会被淘汰
+     */
+    private void evictEarliest(Entry keep) {
+        for (int level = 0; level < LEVELS; level++) {
+            long base = currentTick >>> (SLOT_BITS * level);
+            for (int i = 1; i <= SLOTS; i++) {
+                Entry entry = wheel[level * SLOTS + ((int) (base + i) & (SLOTS - 1))];
+                if (entry != null) {
+                    unlink(entry);
+                    entries.remove(entry.key, entry);
+                    return;
+                }
+            }
+        }
+        for (Entry entry : entries.values()) {
+            if (entry != keep) {
+                entries.remove(entry.key, entry);
+                log.warn("embedded store is full of persistent keys, evicted: {}, maxKeys: {}", entry.key, maxKeys);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 键值条目，同时是时间轮槽位双向链表的节点
+     */
+    private static final class Entry {
+        private final String key;
+        private final String value;
+        private volatile long deadline;
+        private int slot = -1;
+        private Entry prev;
+        private Entry next;
+
+        private Entry(String key, String value, long deadline) {
+            this.key = key;
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        private boolean isExpired(long now) {
+            return deadline <= now;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/*
+  热点键统计，Space-Saving算法：固定数量的计数器，内存占用与访问的键数量无关
+  计数器满时新键替换计数最小的计数器并继承其计数，被继承的部分记为误差上界
+  计数器按最小堆组织，每次记录O(log capacity)
+  按固定窗口统计，窗口结束后重新计数，查询返回当前窗口的结果
+  记录时先在按线程分条的本地计数中合并，每条积累一定次数后再批量并入计数器，
+  热点键的重复访问在本地合并为一次更新，记录路径上不争用同一把锁；查询前先并入所有分条
+ */
+public class HotKeyTracker {
+    // 每个分条积累的访问次数达到该值时并入计数器
+    static final int FLUSH_THRESHOLD = 256;
+
+    private final int capacity;
+    private final double sampleRate;
+    private final long windowMillis;
+    private final LongSupplier clock;
+
+    private final Stripe[] stripes;
+    private final Map<String, Counter> counters;
+    private final Counter[] heap;
+    private int size;
+    private long windowStart;
+    private long total;
+
+    /**
+     * @param capacity     计数器数量，能可靠识别出现频率高于 1/capacity 的键
+     * @param sampleRate   采样率，0到1之间，1表示记录每次访问
+     * @param windowMillis 统计窗口（毫秒），小于等于0表示不分窗口
+     */
+    public HotKeyTracker(int capacity, double sampleRate, long windowMillis) {
+        this(capacity, sampleRate, windowMillis, System::currentTimeMillis);
+    }
+
+    HotKeyTracker(int capacity, double sampleRate, long windowMillis, LongSupplier clock) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        if (!(sampleRate > 0 && sampleRate <= 1)) {
+            throw new IllegalArgumentException("sampleRate must be in (0, 1]: " + sampleRate);
+        }
+        int stripeCount = 1;
+        while (stripeCount < Runtime.getRuntime().availableProcessors()) {
+            stripeCount <<= 1;
+        }
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.capacity = capacity;
+        this.sampleRate = sampleRate;
+        this.windowMillis = windowMillis;
+        this.clock = clock;
+        this.counters = new HashMap<>(capacity * 2);
+        this.heap = new Counter[capacity];
+        this.windowStart = clock.getAsLong();
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param key 键
+     */
+    public void record(String key) {
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        Stripe stripe = stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+        Map<String, long[]> full = null;
+        synchronized (stripe) {
+            stripe.pending.computeIfAbsent(key, k -> new long[1])[0]++;
+            if (++stripe.recorded >= FLUSH_THRESHOLD) {
+                full = stripe.drain();
+            }
+        }
+        if (full != null) {
+            synchronized (this) {
+                rollWindow();
+                merge(full);
+            }
+        }
+    }
+
+    /**
+     * 并入所有分条中尚未并入的计数，查询前调用
+     */
+    private void flush() {
+        for (Stripe stripe : stripes) {
+            Map<String, long[]> pending;
+            synchronized (stripe) {
+                pending = stripe.drain();
+            }
+            merge(pending);
+        }
+    }
+
+    private void merge(Map<String, long[]> pending) {
+        for (Map.Entry<String, long[]> entry : pending.entrySet()) {
+            add(entry.getKey(), entry.getValue()[0]);
+        }
+    }
+
+    private void add(String key, long n) {
+        total += n;
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            counter.count += n;
+            siftDown(counter.index);
+        } else if (size < capacity) {
+            counter = new Counter(key, n, 0);
+            counters.put(key, counter);
+            heap[size] = counter;
+            counter.index = size;
+            siftUp(size++);
+        } else {
+            // 替换计数最小的键
+            counter = heap[0];
+            counters.remove(counter.key);
+            counter.key = key;
+            counter.error = counter.count;
+            counter.count += n;
+            counters.put(key, counter);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * 当前窗口中访问最多的键
+     * 计数按采样率折算；实际次数在 count - error 与 count 之间
+     *
+     * @param limit 返回的键数量，小于0时按0处理
+     * @return 键统计，按计数从高到低排列
+     */
+    public synchronized List<Map<String, Object>> top(int limit) {
+        rollWindow();
+        flush();
+        limit = Math.max(0, limit);
+        List<Counter> sorted = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sorted.add(heap[i]);
+        }
+        sorted.sort((a, b) -> Long.compare(b.count, a.count));
+
+        List<Map<String, Object>> result = new ArrayList<>(Math.min(limit, sorted.size()));
+        for (Counter counter : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("key", counter.key);
+            item.put("count", Math.round(counter.count / sampleRate));
+            item.put("error", Math.round(counter.error / sampleRate));
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 当前窗口记录的访问总数（按采样率折算）
+     *
+     * @return 访问总数
+     */
+    public synchronized long total() {
+        rollWindow();
+        flush();
+        return Math.round(total / sampleRate);
+    }
+
+    /**
+     * 当前窗口的开始时间（毫秒时间戳）
+     *
+     * @return 开始时间
+     */
+    public synchronized long windowStart() {
+        rollWindow();
+        return windowStart;
+    }
+
+    /**
+     * 清空计数，开始新的窗口
+     */
+    public synchronized void reset() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.drain();
+            }
+        }
+        counters.clear();
+        for (int i = 0; i < size; i++) {
+            heap[i] = null;
+        }
+        size = 0;
+        total = 0;
+        windowStart = clock.getAsLong();
+    }
+
+    private void rollWindow() {
+        if (windowMillis > 0 && clock.getAsLong() - windowStart >= windowMillis) {
+            reset();
+        }
+    }
+
+    private void siftUp(int index) {
+        Counter counter = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].count <= counter.count) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(counter, index);
+    }
+
+    private void siftDown(int index) {
+        Counter counter = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (counter.count <= heap[child].count) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(counter, index);
+    }
+
+    private void place(Counter counter, int index) {
+        heap[index] = counter;
+        counter.index = index;
+    }
+
+    // 一个分条中尚未并入计数器的访问：键 -> 次数
+    private static final class Stripe {
+        private Map<String, long[]> pending = new HashMap<>();
+        private int recorded;
+
+        private Map<String, long[]> drain() {
+            Map<String, long[]> drained = pending;
+            pending = new HashMap<>();
+            recorded = 0;
+            return drained;
+        }
+    }
+
+    private static final class Counter {
+        private String key;
+        private long count;
+        private long error;
+        private int index;
+
+        private Counter(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
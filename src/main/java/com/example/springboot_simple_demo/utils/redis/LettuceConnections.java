@@ -0,0 +1,216 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import com.example.springboot_simple_demo.config.RedisUtilProperties;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.resource.ClientResources;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.data.redis.connection.RedisConfiguration;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.StringUtils;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/*
+  按连接策略创建Lettuce连接工厂和RedisTemplate
+  服务端地址、凭据、SSL、超时和连接池取自spring.redis(含spring.redis.url、spring.redis.lettuce.pool)，
+  条带、分片和主从的连接工厂与主连接工厂共用同一个ClientResources(事件循环和定时器线程)
+  只支持单节点服务端，配置了spring.redis.sentinel或spring.redis.cluster时启动失败
+ */
+public final class LettuceConnections {
+
+    private LettuceConnections() {
+    }
+
+    /**
+     * 检查spring.redis的服务端类型，各连接策略都按单节点连接，哨兵和集群配置会被忽略，因此直接拒绝
+     *
+     * @param redisProperties spring.redis配置
+     * @throws IllegalStateException 配置了哨兵或集群
+     */
+    public static void checkStandalone(RedisProperties redisProperties) {
+        if (redisProperties.getSentinel() != null || redisProperties.getCluster() != null) {
+            throw new IllegalStateException("spring.redis.sentinel and spring.redis.cluster are not supported by "
+                    + "redis-util.connection, use a standalone server (spring.redis.host/port or spring.redis.url)");
+        }
+    }
+
+    /**
+     * 创建连接工厂，未初始化，由调用方(或Spring)调用afterPropertiesSet
+     * 阻塞命令(BLPOP等)和事务始终使用从连接池借用的独占连接，不会阻塞共享连接
+     *
+     * @param configuration   服务端配置
+     * @param redisProperties spring.redis配置(超时、SSL、客户端名称、连接池)
+     * @param properties      redis-util配置
+     * @param clientResources 共用的ClientResources
+     * @return 连接工厂
+     */
+    public static LettuceConnectionFactory create(RedisConfiguration configuration, RedisProperties redisProperties,
+                                                  RedisUtilProperties properties, ClientResources clientResources) {
+        return create(configuration, clientConfiguration(redisProperties, properties, clientResources).build(), properties);
+    }
+
+    /**
+     * 使用指定客户端配置创建连接工厂
+     *
+     * @param configuration       服务端配置
+     * @param clientConfiguration 客户端配置
+     * @param properties          redis-util配置
+     * @return 连接工厂
+     */
+    public static LettuceConnectionFactory create(RedisConfiguration configuration,
+                                                  LettuceClientConfiguration clientConfiguration,
+                                                  RedisUtilProperties properties) {
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(configuration, clientConfiguration);
+        // pooled模式下不共享连接，每个命令借用独占连接
+        factory.setShareNativeConnection(properties.getConnection().getMode() != RedisUtilProperties.Connection.Mode.POOLED);
+        // 管道命令按批写出，减少批量操作的系统调用次数
+        int flushSize = properties.getBatch().getFlushSize();
+        factory.setPipeliningFlushPolicy(flushSize > 1
+                ? LettuceConnection.PipeliningFlushPolicy.buffered(flushSize)
+                : LettuceConnection.PipeliningFlushPolicy.flushEachCommand());
+        return factory;
+    }
+
+    /**
+     * 带连接池的客户端配置
+     * 配置了spring.redis.lettuce.pool时按其创建连接池，否则按redis-util.connection.pool
+     *
+     * @param redisProperties spring.redis配置
+     * @param properties      redis-util配置
+     * @param clientResources 共用的ClientResources，连接工厂关闭时不会关闭它
+     * @return 客户端配置构建器
+     */
+    public static LettucePoolingClientConfiguration.LettucePoolingClientConfigurationBuilder clientConfiguration(
+            RedisProperties redisProperties, RedisUtilProperties properties, ClientResources clientResources) {
+        GenericObjectPoolConfig<StatefulConnection<?, ?>> poolConfig = new GenericObjectPoolConfig<>();
+        RedisProperties.Pool springPool = redisProperties.getLettuce().getPool();
+        if (springPool != null) {
+            poolConfig.setMaxTotal(springPool.getMaxActive());
+            poolConfig.setMaxIdle(springPool.getMaxIdle());
+            poolConfig.setMinIdle(springPool.getMinIdle());
+            if (springPool.getMaxWait() != null) {
+                poolConfig.setMaxWaitMillis(springPool.getMaxWait().toMillis());
+            }
+            if (springPool.getTimeBetweenEvictionRuns() != null) {
+                poolConfig.setTimeBetweenEvictionRunsMillis(springPool.getTimeBetweenEvictionRuns().toMillis());
+            }
+        } else {
+            RedisUtilProperties.Pool pool = properties.getConnection().getPool();
+            poolConfig.setMaxTotal(pool.getMaxTotal());
+            poolConfig.setMaxIdle(pool.getMaxIdle());
+            poolConfig.setMinIdle(pool.getMinIdle());
+            poolConfig.setMaxWaitMillis(pool.getMaxWait().toMillis());
+        }
+
+        LettucePoolingClientConfiguration.LettucePoolingClientConfigurationBuilder builder =
+                LettucePoolingClientConfiguration.builder().poolConfig(poolConfig);
+        builder.clientResources(clientResources);
+        if (redisProperties.getTimeout() != null) {
+            builder.commandTimeout(redisProperties.getTimeout());
+        }
+        if (redisProperties.getLettuce().getShutdownTimeout() != null) {
+            builder.shutdownTimeout(redisProperties.getLettuce().getShutdownTimeout());
+        }
+        URI url = url(redisProperties);
+        if (redisProperties.isSsl() || (url != null && "rediss".equals(url.getScheme()))) {
+            builder.useSsl();
+        }
+        if (StringUtils.hasText(redisProperties.getClientName())) {
+            builder.clientName(redisProperties.getClientName());
+        }
+        return builder;
+    }
+
+    /**
+     * spring.redis的单节点服务端配置，配置了spring.redis.url时地址和凭据以url为准(与Spring Boot一致)
+     *
+     * @param redisProperties spring.redis配置
+     * @return 服务端配置
+     */
+    public static RedisStandaloneConfiguration standaloneConfiguration(RedisProperties redisProperties) {
+        URI url = url(redisProperties);
+        if (url != null) {
+            return standaloneConfiguration(redisProperties, url.getHost() + ":" + (url.getPort() > 0 ? url.getPort() : 6379));
+        }
+        return standaloneConfiguration(redisProperties, redisProperties.getHost() + ":" + redisProperties.getPort());
+    }
+
+    /**
+     * 指定地址的单节点服务端配置，数据库和凭据取自spring.redis(配置了url时取自url)
+     *
+     * @param redisProperties spring.redis配置
+     * @param node            节点地址 host:port，省略端口时为6379
+     * @return 服务端配置
+     */
+    public static RedisStandaloneConfiguration standaloneConfiguration(RedisProperties redisProperties, String node) {
+        int colon = node.lastIndexOf(':');
+        RedisStandaloneConfiguration configuration = colon < 0
+                ? new RedisStandaloneConfiguration(node)
+                : new RedisStandaloneConfiguration(node.substring(0, colon), Integer.parseInt(node.substring(colon + 1)));
+        configuration.setDatabase(redisProperties.getDatabase());
+        String username = redisProperties.getUsername();
+        String password = redisProperties.getPassword();
+        URI url = url(redisProperties);
+        if (url != null) {
+            username = null;
+            password = null;
+            String userInfo = url.getUserInfo();
+            if (userInfo != null) {
+                int index = userInfo.indexOf(':');
+                if (index >= 0) {
+                    username = index > 0 ? userInfo.substring(0, index) : null;
+                    password = userInfo.substring(index + 1);
+                } else {
+                    password = userInfo;
+                }
+            }
+        }
+        configuration.setUsername(username);
+        configuration.setPassword(RedisPassword.of(password));
+        return configuration;
+    }
+
+    /**
+     * 创建RedisTemplate，key为string，value为配置的编码
+     *
+     * @param connectionFactory 连接工厂
+     * @param valueSerializer   值的编码
+     * @return 已初始化的RedisTemplate
+     */
+    public static RedisTemplate<String, String> template(LettuceConnectionFactory connectionFactory,
+                                                         RedisSerializer<?> valueSerializer) {
+        RedisTemplate<String, String> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        // key采用string的序列化方式
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        // value采用可配置的编码 (redis-util.codec)
+        redisTemplate.setValueSerializer(valueSerializer);
+        redisTemplate.afterPropertiesSet();
+        return redisTemplate;
+    }
+
+    private static URI url(RedisProperties redisProperties) {
+        if (!StringUtils.hasText(redisProperties.getUrl())) {
+            return null;
+        }
+        try {
+            URI url = new URI(redisProperties.getUrl());
+            if (!"redis".equals(url.getScheme()) && !"rediss".equals(url.getScheme())) {
+                throw new IllegalArgumentException("unsupported spring.redis.url scheme: " + url.getScheme());
+            }
+            return url;
+        } catch (URISyntaxException exception) {
+            throw new IllegalArgumentException("malformed spring.redis.url: " + redisProperties.getUrl(), exception);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/*
+  进程内令牌桶，语义与scripts/token_bucket.lua相同
+  用作Redis限流前的本地预过滤，以及进程内存储后端下的限流
+  桶数量有硬上限，新建桶时淘汰最久未使用的桶；最久未使用的桶通常已补满(与不存在等价)，
+  大量不同的客户端键也不会让内存无限增长
+ */
+public class LocalTokenBuckets {
+    // 按访问顺序排列，最前面的最久未使用；查找和淘汰持有map的锁，取令牌时只锁各自的桶
+    private final LinkedHashMap<String, Bucket> buckets;
+    private final int maxBuckets;
+    private final LongSupplier clock;
+
+    /**
+     * @param maxBuckets 最大桶数量
+     */
+    public LocalTokenBuckets(int maxBuckets) {
+        this(maxBuckets, System::currentTimeMillis);
+    }
+
+    LocalTokenBuckets(int maxBuckets, LongSupplier clock) {
+        this.maxBuckets = Math.max(1, maxBuckets);
+        this.clock = clock;
+        this.buckets = new LinkedHashMap<String, Bucket>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                return size() > LocalTokenBuckets.this.maxBuckets;
+            }
+        };
+    }
+
+    /**
+     * 从各令牌桶各取一个令牌，全部有令牌时才扣减，否则都不扣减
+     *
+     * @param limits 令牌桶规则
+     * @return 0 取得令牌，大于0 需要等待的毫秒数
+     */
+    public long acquire(List<TokenBucket> limits) {
+        // 按键排序后依次加锁，避免多个桶之间死锁
+        List<TokenBucket> sorted = new ArrayList<>(limits);
+        sorted.sort(Comparator.comparing(TokenBucket::getKey));
+        Bucket[] locked = new Bucket[sorted.size()];
+        synchronized (buckets) {
+            for (int i = 0; i < locked.length; i++) {
+                locked[i] = buckets.computeIfAbsent(sorted.get(i).getKey(), key -> new Bucket());
+            }
+        }
+        return acquire(sorted, locked, 0, clock.getAsLong());
+    }
+
+    /**
+     * 当前桶数量
+     *
+     * @return 桶数量
+     */
+    public int size() {
+        synchronized (buckets) {
+            return buckets.size();
+        }
+    }
+
+    private long acquire(List<TokenBucket> limits, Bucket[] locked, int index, long now) {
+        if (index < locked.length) {
+            synchronized (locked[index]) {
+                return acquire(limits, locked, index + 1, now);
+            }
+        }
+
+        double[] tokens = new double[locked.length];
+        long wait = 0;
+        for (int i = 0; i < locked.length; i++) {
+            TokenBucket limit = limits.get(i);
+            tokens[i] = locked[i].filled(limit, now);
+            if (tokens[i] < 1) {
+                wait = Math.max(wait, (long) Math.ceil((1 - tokens[i]) * 1000 / limit.getRatePerSecond()));
+            }
+        }
+        if (wait > 0) {
+            return wait;
+        }
+        for (int i = 0; i < locked.length; i++) {
+            locked[i].tokens = tokens[i] - 1;
+            locked[i].updatedAt = now;
+        }
+        return 0;
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        // 新桶视为已补满
+        private long updatedAt = Long.MIN_VALUE;
+
+        private double filled(TokenBucket limit, long now) {
+            if (updatedAt == Long.MIN_VALUE) {
+                return limit.getCapacity();
+            }
+            return Math.min(limit.getCapacity(), tokens + Math.max(0, now - updatedAt) * limit.getRatePerSecond() / 1000);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+  RedisUtil的进程内近端缓存
+  容量有界(LRU淘汰)，每个条目的生存时间不超过其在Redis中的剩余生存时间
+  失效由Redis键空间通知驱动，其他节点写入或删除的键会被及时移除
+  订阅断开期间的通知会丢失，连接断开、重连或订阅失败时整体清空，见NearCacheConfig
+ */
+public class NearCache {
+    // 容量足够大时分段加锁，键空间通知的失效与读写不再争用同一把锁；各段各自按LRU淘汰
+    private static final int SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 64;
+
+    // 按键哈希分段的失效次数，读取Redis前后比较，避免把读取期间已失效的旧值放入缓存
+    // 分段后其他键的失效不会让本次读取的结果作废；每个分段只在其所属的段锁内读写
+    private static final int STAMP_STRIPES = 1024;
+    private final long[] invalidations = new long[STAMP_STRIPES];
+
+    private final long maxTtlMillis;
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxSize      最多缓存的键数量
+     * @param maxTtlMillis 本地缓存的最长生存时间（毫秒）
+     */
+    public NearCache(int maxSize, long maxTtlMillis) {
+        this.maxTtlMillis = maxTtlMillis;
+        int count = maxSize >= SEGMENTS * MIN_SEGMENT_SIZE ? SEGMENTS : 1;
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment((maxSize + count - 1) / count);
+        }
+    }
+
+    /**
+     * 读取本地缓存
+     *
+     * @param key 键
+     * @return 缓存的值，未命中或已过期时返回null
+     */
+    public String get(String key) {
+        Segment segment = segment(stripe(key));
+        synchronized (segment) {
+            Entry entry = segment.entries.get(key);
+            if (entry != null && entry.expireAt > System.currentTimeMillis()) {
+                hits.increment();
+                return entry.value;
+            }
+            if (entry != null) {
+                segment.entries.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 读取Redis之前获取该键当前的失效版本
+     *
+     * @param key 键
+     * @return 失效版本
+     */
+    public long stamp(String key) {
+        int stripe = stripe(key);
+        synchronized (segment(stripe)) {
+            return invalidations[stripe];
+        }
+    }
+
+    /**
+     * 放入本地缓存，读取期间发生过失效则放弃
+     *
+     * @param key       键
+     * @param value     值
+     * @param ttlMillis 键在Redis中的剩余生存时间（毫秒），负数表示永久
+     * @param stamp     读取Redis之前的失效版本
+     */
+    public void put(String key, String value, long ttlMillis, long stamp) {
+        long ttl = ttlMillis < 0 ? maxTtlMillis : Math.min(ttlMillis, maxTtlMillis);
+        if (value == null || ttl <= 0) {
+            return;
+        }
+        int stripe = stripe(key);
+        Segment segment = segment(stripe);
+        synchronized (segment) {
+            if (stamp == invalidations[stripe]) {
+                segment.entries.put(key, new Entry(value, System.currentTimeMillis() + ttl));
+            }
+        }
+    }
+
+    /**
+     * 使指定键失效
+     *
+     * @param key 键
+     */
+    public void invalidate(String key) {
+        int stripe = stripe(key);
+        Segment segment = segment(stripe);
+        synchronized (segment) {
+            invalidations[stripe]++;
+            segment.entries.remove(key);
+        }
+    }
+
+    /**
+     * 清空本地缓存，正在读取Redis的结果也不再放入
+     */
+    public void clear() {
+        for (int i = 0; i < segments.length; i++) {
+            synchronized (segments[i]) {
+                for (int stripe = i; stripe < STAMP_STRIPES; stripe += segments.length) {
+                    invalidations[stripe]++;
+                }
+                segments[i].entries.clear();
+            }
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    private static int stripe(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STAMP_STRIPES - 1);
+    }
+
+    // 失效分段按段数取模归属到段，同一分段总在同一把锁下
+    private Segment segment(int stripe) {
+        return segments[stripe & (segments.length - 1)];
+    }
+
+    private static final class Segment {
+        private final LinkedHashMap<String, Entry> entries;
+
+        private Segment(int maxSize) {
+            this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+    }
+
+    private static final class Entry {
+        private final String value;
+        private final long expireAt;
+
+        private Entry(String value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.List;
+
+/*
+  按键选择执行命令的RedisTemplate
+  不同的连接策略和部署方式(单连接、条带化连接、分片、主从读写分离)对RedisUtil透明
+ */
+public interface RedisRouter {
+
+    /**
+     * 执行该键命令的RedisTemplate
+     *
+     * @param key 键
+     * @return RedisTemplate
+     */
+    RedisTemplate<String, String> forKey(String key);
+
+    /**
+     * 执行该键只读命令的RedisTemplate，默认与写命令相同
+     *
+     * @param key 键
+     * @return RedisTemplate
+     */
+    default RedisTemplate<String, String> forRead(String key) {
+        return forKey(key);
+    }
+
+    /**
+     * 通知该键即将被写入，主从读写分离时用于读己之写
+     *
+     * @param key 键
+     */
+    default void written(String key) {
+    }
+
+    /**
+     * 每个数据节点各一个RedisTemplate，用于需要遍历全部数据的操作
+     *
+     * @return RedisTemplate列表
+     */
+    List<RedisTemplate<String, String>> nodes();
+}
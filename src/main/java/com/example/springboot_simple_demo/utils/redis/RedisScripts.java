@@ -0,0 +1,75 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+  Redis服务端Lua脚本
+  脚本的SHA1在加载时计算一次，执行时优先使用EVALSHA，服务端未缓存时才回退为EVAL
+ */
+public final class RedisScripts {
+
+    /**
+     * 原子地获取或创建key-value，返回键对应的值
+     */
+    public static final RedisScript<String> GET_OR_CREATE = load("scripts/get_or_create.lua", String.class);
+
+    /**
+     * 原子地校验并消费key-value，返回校验结果码
+     */
+    public static final RedisScript<Long> VERIFY_AND_CONSUME = load("scripts/verify_and_consume.lua", Long.class);
+
+    /**
+     * 原子地从一个或多个令牌桶各取一个令牌，返回需要等待的毫秒数(0表示取得令牌)
+     */
+    public static final RedisScript<Long> TOKEN_BUCKET = load("scripts/token_bucket.lua", Long.class);
+
+    /**
+     * 被校验的键没有生存时间时，失败次数计数键的生存时间(毫秒)
+     */
+    public static final long ATTEMPTS_TTL_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private RedisScripts() {
+    }
+
+    /**
+     * 校验失败次数计数键
+     *
+     * @param key 键
+     * @return 计数键
+     */
+    public static String attemptsKey(String key) {
+        return key + ":attempts";
+    }
+
+    /**
+     * 数值型脚本参数，按十进制字符串传入
+     *
+     * @param value 数值
+     * @return 脚本参数
+     */
+    public static byte[] number(long value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 小数型脚本参数，按十进制字符串传入
+     *
+     * @param value 数值
+     * @return 脚本参数
+     */
+    public static byte[] number(double value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static <T> RedisScript<T> load(String path, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource(path)));
+        script.setResultType(resultType);
+        return script;
+    }
+}
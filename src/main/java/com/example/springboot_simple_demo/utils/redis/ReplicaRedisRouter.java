@@ -0,0 +1,85 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/*
+  主从读写分离
+  写命令和脚本走主节点(由被包装的router决定连接)，读命令走主从连接，按ReadFrom策略选择从节点
+  读己之写：本实例最近写过的键在窗口期内仍从主节点读，避免读到从节点上尚未复制的旧值
+  写入时间按键哈希分段记录，内存固定；哈希冲突只会让其他键多读一次主节点，不会读到旧值
+ */
+public class ReplicaRedisRouter implements RedisRouter, DisposableBean {
+    private static final int WRITE_STRIPES = 4096;
+
+    private final RedisRouter primary;
+    private final RedisTemplate<String, String> replicaTemplate;
+    private final LettuceConnectionFactory replicaFactory;
+    private final long windowMillis;
+    private final LongSupplier clock;
+    private final AtomicLongArray lastWrites = new AtomicLongArray(WRITE_STRIPES);
+
+    /**
+     * @param primary         主节点的router
+     * @param replicaTemplate 主从连接的RedisTemplate
+     * @param replicaFactory  主从连接工厂，由本类在销毁时关闭
+     * @param windowMillis    读己之写的窗口（毫秒），应大于主从复制延迟
+     */
+    public ReplicaRedisRouter(RedisRouter primary, RedisTemplate<String, String> replicaTemplate,
+                              LettuceConnectionFactory replicaFactory, long windowMillis) {
+        this(primary, replicaTemplate, replicaFactory, windowMillis, System::currentTimeMillis);
+    }
+
+    ReplicaRedisRouter(RedisRouter primary, RedisTemplate<String, String> replicaTemplate,
+                       LettuceConnectionFactory replicaFactory, long windowMillis, LongSupplier clock) {
+        this.primary = primary;
+        this.replicaTemplate = replicaTemplate;
+        this.replicaFactory = replicaFactory;
+        this.windowMillis = windowMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public RedisTemplate<String, String> forKey(String key) {
+        return primary.forKey(key);
+    }
+
+    @Override
+    public RedisTemplate<String, String> forRead(String key) {
+        long lastWrite = lastWrites.get(stripe(key));
+        if (lastWrite != 0 && clock.getAsLong() - lastWrite < windowMillis) {
+            return primary.forKey(key);
+        }
+        return replicaTemplate;
+    }
+
+    @Override
+    public void written(String key) {
+        lastWrites.set(stripe(key), clock.getAsLong());
+    }
+
+    @Override
+    public List<RedisTemplate<String, String>> nodes() {
+        return primary.nodes();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (replicaFactory != null) {
+            replicaFactory.destroy();
+        }
+        if (primary instanceof DisposableBean) {
+            ((DisposableBean) primary).destroy();
+        }
+    }
+
+    private static int stripe(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (WRITE_STRIPES - 1);
+    }
+}
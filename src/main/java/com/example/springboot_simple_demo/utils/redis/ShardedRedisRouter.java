@@ -0,0 +1,160 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/*
+  客户端分片 (sharded模式)
+  多个独立的Redis节点按一致性哈希分担键，节点可在运行时增删
+  迁移区间内的键在新节点上视为不存在，验证码这类短生存时间的键会自然重建
+  哈希环上直接存放节点及其RedisTemplate，增删节点时整体替换，查找时不会拿到已移除节点的连接
+ */
+@Slf4j
+public class ShardedRedisRouter implements RedisRouter, DisposableBean {
+    private final ConsistentHashRing<Shard> ring;
+    // 节点地址 -> 节点，只在增删节点时使用
+    private final Map<String, Shard> shards = new ConcurrentHashMap<>();
+    private final Function<String, RedisTemplate<String, String>> templateFactory;
+    private final List<ShardListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 节点增删的监听，例如为每个节点订阅键空间通知
+     */
+    public interface ShardListener {
+        /**
+         * 节点加入哈希环之前调用
+         *
+         * @param template 节点的RedisTemplate
+         */
+        void shardAdded(RedisTemplate<String, String> template);
+
+        /**
+         * 节点移出哈希环之后、关闭连接之前调用
+         *
+         * @param template 节点的RedisTemplate
+         */
+        void shardRemoved(RedisTemplate<String, String> template);
+    }
+
+    /**
+     * @param virtualNodes    每个节点的虚拟节点数
+     * @param templateFactory 由节点地址(host:port)创建已初始化的RedisTemplate
+     */
+    public ShardedRedisRouter(int virtualNodes, Function<String, RedisTemplate<String, String>> templateFactory) {
+        this.ring = new ConsistentHashRing<>(virtualNodes);
+        this.templateFactory = templateFactory;
+    }
+
+    @Override
+    public RedisTemplate<String, String> forKey(String key) {
+        Shard shard = ring.get(key);
+        if (shard == null) {
+            throw new IllegalStateException("no redis shard available");
+        }
+        return shard.template;
+    }
+
+    @Override
+    public List<RedisTemplate<String, String>> nodes() {
+        List<RedisTemplate<String, String>> nodes = new ArrayList<>();
+        for (Shard shard : ring.nodes()) {
+            nodes.add(shard.template);
+        }
+        return nodes;
+    }
+
+    /**
+     * 当前的节点地址
+     *
+     * @return 节点地址列表
+     */
+    public List<String> shardNames() {
+        List<String> names = new ArrayList<>();
+        for (Shard shard : ring.nodes()) {
+            names.add(shard.name);
+        }
+        return names;
+    }
+
+    /**
+     * 注册节点增删的监听，已有的节点立即通知一次
+     *
+     * @param listener 监听
+     */
+    public synchronized void addShardListener(ShardListener listener) {
+        for (Shard shard : ring.nodes()) {
+            listener.shardAdded(shard.template);
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * 添加节点，约1/N的键迁移到新节点
+     *
+     * @param node 节点地址 host:port
+     */
+    public synchronized void addShard(String node) {
+        if (shards.containsKey(node)) {
+            return;
+        }
+        Shard shard = new Shard(node, templateFactory.apply(node));
+        listeners.forEach(listener -> listener.shardAdded(shard.template));
+        shards.put(node, shard);
+        ring.add(shard);
+        log.info("add redis shard: {}", node);
+    }
+
+    /**
+     * 移除节点，只有该节点上的键迁移到其余节点
+     * 先移出哈希环再关闭连接；移除前已取得该节点连接的命令会失败
+     *
+     * @param node 节点地址 host:port
+     */
+    public synchronized void removeShard(String node) {
+        Shard shard = shards.remove(node);
+        if (shard == null) {
+            return;
+        }
+        ring.remove(shard);
+        listeners.forEach(listener -> listener.shardRemoved(shard.template));
+        close(shard.template);
+        log.info("remove redis shard: {}", node);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        shards.values().forEach(shard -> close(shard.template));
+        shards.clear();
+    }
+
+    private static void close(RedisTemplate<String, String> template) {
+        if (template.getConnectionFactory() instanceof LettuceConnectionFactory) {
+            ((LettuceConnectionFactory) template.getConnectionFactory()).destroy();
+        }
+    }
+
+    private static final class Shard {
+        private final String name;
+        private final RedisTemplate<String, String> template;
+
+        private Shard(String name, RedisTemplate<String, String> template) {
+            this.name = name;
+            this.template = template;
+        }
+
+        // 哈希环按toString()确定节点位置，与节点地址一致
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+  所有键使用同一个RedisTemplate (shared、pooled模式)
+ */
+public class SingleRedisRouter implements RedisRouter {
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public SingleRedisRouter(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public RedisTemplate<String, String> forKey(String key) {
+        return redisTemplate;
+    }
+
+    @Override
+    public List<RedisTemplate<String, String>> nodes() {
+        return Collections.singletonList(redisTemplate);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+  条带化连接 (striped模式)
+  同一Redis节点的多个多路复用连接，按键哈希选择，同一个键的命令始终走同一个连接，保持顺序
+  多核下多个连接可以并行编解码和读写，单个大请求也只阻塞所在的一条连接
+ */
+public class StripedRedisRouter implements RedisRouter, DisposableBean {
+    private final List<RedisTemplate<String, String>> stripes;
+    private final List<LettuceConnectionFactory> ownedFactories;
+
+    /**
+     * @param stripes        各条连接的RedisTemplate
+     * @param ownedFactories 由本类创建、需要在销毁时关闭的连接工厂
+     */
+    public StripedRedisRouter(List<RedisTemplate<String, String>> stripes, List<LettuceConnectionFactory> ownedFactories) {
+        this.stripes = stripes;
+        this.ownedFactories = ownedFactories;
+    }
+
+    @Override
+    public RedisTemplate<String, String> forKey(String key) {
+        int hash = key.hashCode();
+        return stripes.get(Math.floorMod(hash ^ (hash >>> 16), stripes.size()));
+    }
+
+    @Override
+    public List<RedisTemplate<String, String>> nodes() {
+        // 所有连接指向同一个节点
+        return Collections.singletonList(stripes.get(0));
+    }
+
+    @Override
+    public void destroy() {
+        ownedFactories.forEach(LettuceConnectionFactory::destroy);
+    }
+}
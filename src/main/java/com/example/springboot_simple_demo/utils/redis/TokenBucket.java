@@ -0,0 +1,22 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import lombok.Getter;
+
+/*
+  令牌桶限流规则：键、容量(允许的突发请求数)、每秒补充的令牌数
+ */
+@Getter
+public final class TokenBucket {
+    private final String key;
+    private final int capacity;
+    private final double ratePerSecond;
+
+    public TokenBucket(String key, int capacity, double ratePerSecond) {
+        if (capacity < 1 || ratePerSecond <= 0) {
+            throw new IllegalArgumentException("capacity must be >= 1 and rate must be > 0: " + key);
+        }
+        this.key = key;
+        this.capacity = capacity;
+        this.ratePerSecond = ratePerSecond;
+    }
+}
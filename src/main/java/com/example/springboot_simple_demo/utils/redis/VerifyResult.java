@@ -0,0 +1,37 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+/*
+  校验并消费key-value的结果
+ */
+public enum VerifyResult {
+    // 校验成功，键已删除
+    SUCCESS,
+    // 值不匹配，失败次数加一
+    MISMATCH,
+    // 键不存在或已过期
+    EXPIRED,
+    // 失败次数超限，键已删除
+    LOCKED;
+
+    /**
+     * 由脚本返回码转换为校验结果
+     *
+     * @param code 脚本返回码
+     * @return 校验结果
+     */
+    public static VerifyResult of(Long code) {
+        if (code == null) {
+            return EXPIRED;
+        }
+        switch (code.intValue()) {
+            case 1:
+                return SUCCESS;
+            case 0:
+                return MISMATCH;
+            case -2:
+                return LOCKED;
+            default:
+                return EXPIRED;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.springboot_simple_demo.utils.redis.codec;
+
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+  紧凑二进制编码，首字节为类型标记
+  纯数字字符串按BCD打包(每字节两位，6位验证码只占4字节)，整数按变长编码
+  其他对象回退为带类型信息的JSON
+  类型标记均小于0x20，不会与旧的JSON值及压缩标记冲突
+ */
+public class CompactCodec implements RedisSerializer<Object> {
+    static final byte STRING = 0x01;
+    static final byte DIGITS = 0x02;
+    static final byte LONG = 0x03;
+    static final byte INTEGER = 0x04;
+    static final byte BYTES = 0x05;
+    static final byte JSON = 0x06;
+
+    // 超过该长度的数字字符串不再打包，按普通字符串编码
+    private static final int MAX_DIGITS = 64;
+
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+
+    @Override
+    public byte[] serialize(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String) {
+            String string = (String) value;
+            return isDigits(string) ? packDigits(string) : tagged(STRING, string.getBytes(StandardCharsets.UTF_8));
+        }
+        if (value instanceof Long) {
+            return varLong(LONG, (Long) value);
+        }
+        if (value instanceof Integer) {
+            return varLong(INTEGER, (Integer) value);
+        }
+        if (value instanceof byte[]) {
+            return tagged(BYTES, (byte[]) value);
+        }
+        return tagged(JSON, json.serialize(value));
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        switch (bytes[0]) {
+            case STRING:
+                return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+            case DIGITS:
+                return unpackDigits(bytes);
+            case LONG:
+                return readVarLong(bytes);
+            case INTEGER:
+                return (int) readVarLong(bytes);
+            case BYTES:
+                return Arrays.copyOfRange(bytes, 1, bytes.length);
+            case JSON:
+                return json.deserialize(Arrays.copyOfRange(bytes, 1, bytes.length));
+            default:
+                throw new SerializationException("unknown compact codec tag: " + bytes[0]);
+        }
+    }
+
+    private static boolean isDigits(String string) {
+        if (string.isEmpty() || string.length() > MAX_DIGITS) {
+            return false;
+        }
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 每字节存两位数字，奇数长度时末尾以0xF补齐
+     */
+    private static byte[] packDigits(String digits) {
+        byte[] bytes = new byte[1 + (digits.length() + 1) / 2];
+        bytes[0] = DIGITS;
+        for (int i = 0; i < digits.length(); i += 2) {
+            int high = digits.charAt(i) - '0';
+            int low = i + 1 < digits.length() ? digits.charAt(i + 1) - '0' : 0xF;
+            bytes[1 + i / 2] = (byte) (high << 4 | low);
+        }
+        return bytes;
+    }
+
+    private static String unpackDigits(byte[] bytes) {
+        StringBuilder digits = new StringBuilder((bytes.length - 1) * 2);
+        for (int i = 1; i < bytes.length; i++) {
+            digits.append((char) ('0' + (bytes[i] >> 4 & 0xF)));
+            int low = bytes[i] & 0xF;
+            if (low != 0xF) {
+                digits.append((char) ('0' + low));
+            }
+        }
+        return digits.toString();
+    }
+
+    /**
+     * ZigZag + 变长编码，小整数只占1到2字节
+     */
+    private static byte[] varLong(byte tag, long value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(11);
+        out.write(tag);
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.write((int) (zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.write((int) zigzag);
+        return out.toByteArray();
+    }
+
+    private static long readVarLong(byte[] bytes) {
+        long zigzag = 0;
+        for (int i = 1, shift = 0; i < bytes.length; i++, shift += 7) {
+            zigzag |= (long) (bytes[i] & 0x7F) << shift;
+            if ((bytes[i] & 0x80) == 0) {
+                break;
+            }
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static byte[] tagged(byte tag, byte[] payload) {
+        byte[] bytes = new byte[payload.length + 1];
+        bytes[0] = tag;
+        System.arraycopy(payload, 0, bytes, 1, payload.length);
+        return bytes;
+    }
+}
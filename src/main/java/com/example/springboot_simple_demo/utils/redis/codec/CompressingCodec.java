@@ -0,0 +1,85 @@
+package com.example.springboot_simple_demo.utils.redis.codec;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+  压缩编码包装，编码结果达到阈值且压缩后更小时才压缩
+  压缩值格式: 0xFF + 原始长度(4字节) + Deflate数据
+  0xFF不是合法的UTF-8首字节，也不是紧凑编码或JSON的首字节，可以无歧义地识别
+ */
+public class CompressingCodec implements RedisSerializer<Object> {
+    static final byte COMPRESSED = (byte) 0xFF;
+    // 原始长度的上限：Redis单个值最大512MB
+    static final int MAX_LENGTH = 512 * 1024 * 1024;
+    // Deflate的最大压缩比约为1032:1，声明的原始长度超过该比例的值不可能是本编码写入的
+    private static final int MAX_RATIO = 1032;
+
+    private final RedisSerializer<Object> delegate;
+    private final int threshold;
+
+    /**
+     * @param delegate  被包装的编码
+     * @param threshold 压缩阈值（字节）
+     */
+    public CompressingCodec(RedisSerializer<Object> delegate, int threshold) {
+        this.delegate = delegate;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        byte[] bytes = delegate.serialize(value);
+        if (bytes == null || bytes.length < threshold) {
+            return bytes;
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            // 压缩后不比原始数据小则放弃压缩
+            byte[] buffer = new byte[bytes.length];
+            int length = deflater.deflate(buffer);
+            if (!deflater.finished() || length + 5 >= bytes.length) {
+                return bytes;
+            }
+            return ByteBuffer.allocate(length + 5).put(COMPRESSED).putInt(bytes.length).put(buffer, 0, length).array();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length < 5 || bytes[0] != COMPRESSED) {
+            return delegate.deserialize(bytes);
+        }
+
+        // 先校验声明的原始长度再分配缓冲区，损坏或伪造的值不能触发超大分配
+        int length = ByteBuffer.wrap(bytes, 1, 4).getInt();
+        if (length <= 0 || length > MAX_LENGTH || length > (long) (bytes.length - 5) * MAX_RATIO) {
+            throw new SerializationException("invalid compressed length " + length);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, 5, bytes.length - 5);
+            byte[] raw = new byte[length];
+            // 解压结果必须恰好是声明的长度，且压缩数据完整结束，否则值已损坏
+            int inflated = inflater.inflate(raw);
+            if (inflated != length || !inflater.finished()) {
+                throw new SerializationException("truncated or corrupt compressed value");
+            }
+            return delegate.deserialize(raw);
+        } catch (DataFormatException exception) {
+            throw new SerializationException("inflate failed", exception);
+        } finally {
+            inflater.end();
+        }
+    }
+}
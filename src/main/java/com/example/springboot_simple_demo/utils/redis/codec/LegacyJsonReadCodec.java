@@ -0,0 +1,72 @@
+package com.example.springboot_simple_demo.utils.redis.codec;
+
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.Arrays;
+
+/*
+  双读编码，迁移期间使用
+  写入始终使用新编码；新编码的结果形如旧的JSON值("..."、{...}、[...])时在前面加标记字节0xFE，
+  读取时带标记的值按新编码解析，不带标记且形如JSON的值才是GenericJackson2JsonRedisSerializer写入的旧值
+  0xFE不是合法的UTF-8字节，也不是紧凑编码、JSON或压缩值的首字节
+  标记属于新编码的格式，与是否兼容读取旧值无关：关闭兼容读取(legacyJsonRead=false)后仍然加标记、去标记，
+  只是不再把不带标记的值当作旧的JSON值，开启期间写入的值在关闭后照常读出，再次开启也不会误读
+ */
+public class LegacyJsonReadCodec implements RedisSerializer<Object> {
+    static final byte TAGGED = (byte) 0xFE;
+
+    private final RedisSerializer<Object> delegate;
+    private final boolean legacyJsonRead;
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+
+    public LegacyJsonReadCodec(RedisSerializer<Object> delegate) {
+        this(delegate, true);
+    }
+
+    /**
+     * @param delegate       新编码
+     * @param legacyJsonRead 是否把不带标记且形如JSON的值按旧的JSON值读取
+     */
+    public LegacyJsonReadCodec(RedisSerializer<Object> delegate, boolean legacyJsonRead) {
+        this.delegate = delegate;
+        this.legacyJsonRead = legacyJsonRead;
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        byte[] bytes = delegate.serialize(value);
+        if (bytes == null || !(isLegacyJson(bytes) || (bytes.length > 0 && bytes[0] == TAGGED))) {
+            return bytes;
+        }
+        byte[] tagged = new byte[bytes.length + 1];
+        tagged[0] = TAGGED;
+        System.arraycopy(bytes, 0, tagged, 1, bytes.length);
+        return tagged;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+        if (bytes != null && bytes.length > 0 && bytes[0] == TAGGED) {
+            return delegate.deserialize(Arrays.copyOfRange(bytes, 1, bytes.length));
+        }
+        if (legacyJsonRead && isLegacyJson(bytes)) {
+            try {
+                return json.deserialize(bytes);
+            } catch (SerializationException exception) {
+                // 不是旧的JSON值，按新编码解析
+            }
+        }
+        return delegate.deserialize(bytes);
+    }
+
+    private static boolean isLegacyJson(byte[] bytes) {
+        if (bytes == null || bytes.length < 2) {
+            return false;
+        }
+        byte first = bytes[0];
+        byte last = bytes[bytes.length - 1];
+        return (first == '"' && last == '"') || (first == '{' && last == '}') || (first == '[' && last == ']');
+    }
+}
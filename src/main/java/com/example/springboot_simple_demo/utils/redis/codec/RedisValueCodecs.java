@@ -0,0 +1,54 @@
+package com.example.springboot_simple_demo.utils.redis.codec;
+
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/*
+  根据配置组装Redis值的编码
+ */
+public final class RedisValueCodecs {
+
+    /**
+     * 可选的基础编码
+     */
+    public enum Type {
+        // 原始UTF-8字符串
+        STRING,
+        // 紧凑二进制
+        COMPACT,
+        // 带类型信息的JSON (原有方式)
+        JSON
+    }
+
+    private RedisValueCodecs() {
+    }
+
+    /**
+     * 组装编码: 基础编码 -> 压缩(可选) -> 形如JSON的值加标记 -> 旧JSON值双读(可选)
+     * 标记层不随legacyJsonRead关闭而去掉，否则开启期间写入的带标记的值关闭后无法读取
+     *
+     * @param type                 基础编码
+     * @param compressionThreshold 压缩阈值（字节），小于等于0表示不压缩
+     * @param legacyJsonRead       是否兼容读取旧的JSON值
+     * @return 值的序列化方式
+     */
+    public static RedisSerializer<Object> create(Type type, int compressionThreshold, boolean legacyJsonRead) {
+        RedisSerializer<Object> codec;
+        switch (type) {
+            case STRING:
+                codec = new StringCodec();
+                break;
+            case COMPACT:
+                codec = new CompactCodec();
+                break;
+            default:
+                // 原有方式，写入的就是旧格式，不需要标记和双读
+                codec = new GenericJackson2JsonRedisSerializer();
+                return compressionThreshold > 0 ? new CompressingCodec(codec, compressionThreshold) : codec;
+        }
+        if (compressionThreshold > 0) {
+            codec = new CompressingCodec(codec, compressionThreshold);
+        }
+        return new LegacyJsonReadCodec(codec, legacyJsonRead);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.springboot_simple_demo.utils.redis.codec;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+  原始UTF-8字符串编码，值按toString()写入，读出为String
+  没有任何类型信息和额外字节，适合验证码等纯字符串值
+ */
+public class StringCodec implements RedisSerializer<Object> {
+
+    @Override
+    public byte[] serialize(Object value) {
+        return value == null ? null : value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+}
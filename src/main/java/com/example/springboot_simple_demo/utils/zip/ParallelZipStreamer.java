@@ -0,0 +1,435 @@
+package com.example.springboot_simple_demo.utils.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/*
+  边压缩边输出的ZIP流，不在磁盘上生成临时压缩文件
+  不超过maxBufferedSize的条目在有界线程池中并行压缩到内存，按顺序写出；同时在压缩中的条目不超过window个，内存占用约为 window * maxBufferedSize
+  更大的条目轮到时在写出线程中边读边压缩，使用数据描述符(大小和CRC写在数据之后)
+  已压缩的文件类型不再压缩：内存中的条目使用STORED，流式条目使用级别0的DEFLATE
+  条目数、大小或偏移量超出32位时写ZIP64扩展字段和ZIP64结束记录
+ */
+public class ParallelZipStreamer {
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_ENTRIES = 0xFFFF;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int DATA_DESCRIPTOR = 0x08074b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int ZIP64_END = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int END = 0x06054b50;
+
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final int FLAG_DESCRIPTOR = 0x08;
+    private static final int FLAG_UTF8 = 0x800;
+    private static final int VERSION_STORED = 10;
+    private static final int VERSION_DEFLATED = 20;
+    private static final int VERSION_ZIP64 = 45;
+
+    // 已压缩的文件类型，再压缩只浪费CPU
+    private static final Set<String> COMPRESSED_TYPES = Set.of(
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "zst", "lz4", "jar", "war",
+            "jpg", "jpeg", "png", "gif", "webp", "heic",
+            "mp3", "aac", "m4a", "ogg", "flac", "mp4", "m4v", "mov", "avi", "mkv", "webm",
+            "docx", "xlsx", "pptx", "pdf");
+
+    private static final Future<Compressed> INLINE = CompletableFuture.completedFuture(null);
+
+    private final ExecutorService executor;
+    private final int window;
+    private final long maxBufferedSize;
+    private final int level;
+
+    /**
+     * @param threads         压缩线程数
+     * @param window          同时在压缩中(含已压缩待写出)的最大条目数
+     * @param maxBufferedSize 在内存中并行压缩的最大条目大小
+     * @param level           压缩级别 0-9
+     */
+    public ParallelZipStreamer(int threads, int window, long maxBufferedSize, int level) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "zip-compress-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.window = Math.max(1, window);
+        this.maxBufferedSize = maxBufferedSize;
+        this.level = level;
+    }
+
+    /**
+     * 按顺序把条目写成ZIP流，不关闭output
+     *
+     * @param sources 条目来源
+     * @param output  输出流
+     * @return 写出的字节数
+     * @throws IOException 读取条目或写出失败，此时已写出的ZIP不完整
+     */
+    public long write(List<ZipSource> sources, OutputStream output) throws IOException {
+        CountingOutputStream out = new CountingOutputStream(output);
+        List<CentralRecord> records = new ArrayList<>(sources.size());
+        Deque<Future<Compressed>> ahead = new ArrayDeque<>(window);
+        int submitted = 0;
+        try {
+            for (int i = 0; i < sources.size(); i++) {
+                while (submitted < sources.size() && submitted - i < window) {
+                    ahead.add(submit(sources.get(submitted++)));
+                }
+                ZipSource source = sources.get(i);
+                Future<Compressed> future = ahead.poll();
+                if (i == 0 || !future.isDone()) {
+                    // 等待压缩前先把已有的数据发给客户端，第一个条目之前发出响应头
+                    out.flush();
+                }
+                if (source.isDirectory()) {
+                    records.add(writeDirectory(source, out));
+                } else if (future == INLINE) {
+                    records.add(writeStreamed(source, out));
+                } else {
+                    records.add(writeBuffered(source, await(source, future), out));
+                }
+            }
+        } finally {
+            for (Future<Compressed> future : ahead) {
+                future.cancel(true);
+            }
+        }
+        writeCentralDirectory(records, out);
+        out.flush();
+        return out.count;
+    }
+
+    /**
+     * 停止压缩线程
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    static boolean isCompressedType(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && COMPRESSED_TYPES.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private Future<Compressed> submit(ZipSource source) {
+        if (source.isDirectory() || source.getSize() > maxBufferedSize) {
+            return INLINE;
+        }
+        return executor.submit(() -> compress(source));
+    }
+
+    private Compressed await(ZipSource source, Future<Compressed> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while compressing " + source.getName());
+        } catch (ExecutionException exception) {
+            throw new IOException("compress " + source.getName() + " failed", exception.getCause());
+        }
+    }
+
+    /**
+     * 在压缩线程中把整个条目压缩到内存
+     */
+    private Compressed compress(ZipSource source) throws IOException {
+        boolean store = isCompressedType(source.getName());
+        Compressed compressed = new Compressed(store ? STORED : DEFLATED, (int) Math.min(source.getSize(), maxBufferedSize) + 64);
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(source.getSize(), 1))];
+        try (InputStream input = source.open()) {
+            if (store) {
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                    compressed.data.write(buffer, 0, read);
+                    compressed.size += read;
+                }
+            } else {
+                Deflater deflater = new Deflater(level, true);
+                try {
+                    DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(compressed.data, deflater, BUFFER_SIZE);
+                    int read;
+                    while ((read = input.read(buffer)) != -1) {
+                        crc.update(buffer, 0, read);
+                        deflaterOutput.write(buffer, 0, read);
+                        compressed.size += read;
+                    }
+                    deflaterOutput.finish();
+                } finally {
+                    deflater.end();
+                }
+            }
+        }
+        compressed.crc = crc.getValue();
+        return compressed;
+    }
+
+    private CentralRecord writeBuffered(ZipSource source, Compressed compressed, CountingOutputStream out) throws IOException {
+        CentralRecord record = new CentralRecord(source, compressed.method, FLAG_UTF8, out.count);
+        record.crc = compressed.crc;
+        record.size = compressed.size;
+        record.compressedSize = compressed.data.size();
+        writeLocalHeader(record, out);
+        compressed.data.writeTo(out);
+        return record;
+    }
+
+    private CentralRecord writeDirectory(ZipSource source, CountingOutputStream out) throws IOException {
+        CentralRecord record = new CentralRecord(source, STORED, FLAG_UTF8, out.count);
+        writeLocalHeader(record, out);
+        return record;
+    }
+
+    /**
+     * 在写出线程中边读边压缩，大小和CRC写在数据之后的数据描述符中
+     */
+    private CentralRecord writeStreamed(ZipSource source, CountingOutputStream out) throws IOException {
+        CentralRecord record = new CentralRecord(source, DEFLATED, FLAG_UTF8 | FLAG_DESCRIPTOR, out.count);
+        writeLocalHeader(record, out);
+        long dataStart = out.count;
+        CRC32 crc = new CRC32();
+        Deflater deflater = new Deflater(isCompressedType(source.getName()) ? Deflater.NO_COMPRESSION : level, true);
+        try (InputStream input = source.open()) {
+            // 不关闭deflaterOutput，否则会关闭响应流
+            DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+                deflaterOutput.write(buffer, 0, read);
+                record.size += read;
+            }
+            deflaterOutput.finish();
+        } finally {
+            deflater.end();
+        }
+        record.crc = crc.getValue();
+        record.compressedSize = out.count - dataStart;
+
+        // 与JDK ZipInputStream一致：实际大小超出32位时数据描述符使用8字节的大小
+        boolean zip64 = record.size >= ZIP64_MAGIC || record.compressedSize >= ZIP64_MAGIC;
+        ByteBuffer descriptor = header(zip64 ? 24 : 16);
+        descriptor.putInt(DATA_DESCRIPTOR).putInt((int) record.crc);
+        if (zip64) {
+            descriptor.putLong(record.compressedSize).putLong(record.size);
+        } else {
+            descriptor.putInt((int) record.compressedSize).putInt((int) record.size);
+        }
+        out.write(descriptor.array(), 0, descriptor.position());
+        return record;
+    }
+
+    private static void writeLocalHeader(CentralRecord record, CountingOutputStream out) throws IOException {
+        boolean descriptor = (record.flags & FLAG_DESCRIPTOR) != 0;
+        ByteBuffer header = header(30 + record.name.length);
+        header.putInt(LOCAL_HEADER)
+                .putShort((short) (record.method == STORED ? VERSION_STORED : VERSION_DEFLATED))
+                .putShort((short) record.flags)
+                .putShort((short) record.method)
+                .putInt(record.dosTime)
+                .putInt(descriptor ? 0 : (int) record.crc)
+                .putInt(descriptor ? 0 : (int) record.compressedSize)
+                .putInt(descriptor ? 0 : (int) record.size)
+                .putShort((short) record.name.length)
+                .putShort((short) 0)
+                .put(record.name);
+        out.write(header.array(), 0, header.position());
+    }
+
+    private static void writeCentralDirectory(List<CentralRecord> records, CountingOutputStream out) throws IOException {
+        long centralOffset = out.count;
+        for (CentralRecord record : records) {
+            boolean zip64Size = record.size >= ZIP64_MAGIC;
+            boolean zip64CompressedSize = record.compressedSize >= ZIP64_MAGIC;
+            boolean zip64Offset = record.offset >= ZIP64_MAGIC;
+            int zip64Fields = (zip64Size ? 1 : 0) + (zip64CompressedSize ? 1 : 0) + (zip64Offset ? 1 : 0);
+            int extraLength = zip64Fields > 0 ? 4 + zip64Fields * 8 : 0;
+            int version = zip64Fields > 0 ? VERSION_ZIP64 : record.method == STORED ? VERSION_STORED : VERSION_DEFLATED;
+
+            ByteBuffer header = header(46 + record.name.length + extraLength);
+            header.putInt(CENTRAL_HEADER)
+                    .putShort((short) VERSION_ZIP64)
+                    .putShort((short) version)
+                    .putShort((short) record.flags)
+                    .putShort((short) record.method)
+                    .putInt(record.dosTime)
+                    .putInt((int) record.crc)
+                    .putInt((int) (zip64CompressedSize ? ZIP64_MAGIC : record.compressedSize))
+                    .putInt((int) (zip64Size ? ZIP64_MAGIC : record.size))
+                    .putShort((short) record.name.length)
+                    .putShort((short) extraLength)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    // MS-DOS目录属性
+                    .putInt(record.directory ? 0x10 : 0)
+                    .putInt((int) (zip64Offset ? ZIP64_MAGIC : record.offset))
+                    .put(record.name);
+            if (zip64Fields > 0) {
+                // ZIP64扩展字段只包含超出32位的值，顺序固定
+                header.putShort((short) 0x0001).putShort((short) (zip64Fields * 8));
+                if (zip64Size) {
+                    header.putLong(record.size);
+                }
+                if (zip64CompressedSize) {
+                    header.putLong(record.compressedSize);
+                }
+                if (zip64Offset) {
+                    header.putLong(record.offset);
+                }
+            }
+            out.write(header.array(), 0, header.position());
+        }
+        long centralSize = out.count - centralOffset;
+        int count = records.size();
+
+        if (count >= ZIP64_ENTRIES || centralOffset >= ZIP64_MAGIC || centralSize >= ZIP64_MAGIC) {
+            long zip64EndOffset = out.count;
+            ByteBuffer zip64End = header(56 + 20);
+            zip64End.putInt(ZIP64_END)
+                    .putLong(44)
+                    .putShort((short) VERSION_ZIP64)
+                    .putShort((short) VERSION_ZIP64)
+                    .putInt(0)
+                    .putInt(0)
+                    .putLong(count)
+                    .putLong(count)
+                    .putLong(centralSize)
+                    .putLong(centralOffset);
+            zip64End.putInt(ZIP64_LOCATOR)
+                    .putInt(0)
+                    .putLong(zip64EndOffset)
+                    .putInt(1);
+            out.write(zip64End.array(), 0, zip64End.position());
+        }
+
+        ByteBuffer end = header(22);
+        end.putInt(END)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) Math.min(count, ZIP64_ENTRIES))
+                .putShort((short) Math.min(count, ZIP64_ENTRIES))
+                .putInt((int) Math.min(centralSize, ZIP64_MAGIC))
+                .putInt((int) Math.min(centralOffset, ZIP64_MAGIC))
+                .putShort((short) 0);
+        out.write(end.array(), 0, end.position());
+    }
+
+    private static ByteBuffer header(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 毫秒时间戳转为MS-DOS日期时间，早于1980年的按1980-01-01
+     */
+    static int dosTime(long millis) {
+        if (millis < 0) {
+            millis = System.currentTimeMillis();
+        }
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+                | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+    /**
+     * 内存中压缩好的条目
+     */
+    private static final class Compressed {
+        private final int method;
+        private final ByteArrayOutputStream data;
+        private long crc;
+        private long size;
+
+        private Compressed(int method, int initialCapacity) {
+            this.method = method;
+            this.data = new ByteArrayOutputStream(initialCapacity);
+        }
+    }
+
+    /**
+     * 中央目录记录，每个条目在写完数据后留下一条
+     */
+    private static final class CentralRecord {
+        private final byte[] name;
+        private final int method;
+        private final int flags;
+        private final int dosTime;
+        private final long offset;
+        private final boolean directory;
+        private long crc;
+        private long size;
+        private long compressedSize;
+
+        private CentralRecord(ZipSource source, int method, int flags, long offset) {
+            this.name = source.getName().getBytes(StandardCharsets.UTF_8);
+            this.method = method;
+            this.flags = flags;
+            this.dosTime = dosTime(source.getLastModified());
+            this.offset = offset;
+            this.directory = source.isDirectory();
+        }
+    }
+
+    /**
+     * 统计写出字节数，用于计算条目偏移量
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // 响应流由调用方关闭
+            flush();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.springboot_simple_demo.utils.zip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+  ZIP条目的来源：条目名、大小、修改时间和打开数据流的方式
+  数据在轮到压缩时才打开，列出目录时不读取文件内容
+ */
+public final class ZipSource {
+    private final String name;
+    private final long size;
+    private final long lastModified;
+    private final Opener opener;
+
+    /**
+     * 打开条目数据流
+     */
+    @FunctionalInterface
+    public interface Opener {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * @param name         条目名，以 / 分隔，目录以 / 结尾
+     * @param size         数据大小，用于决定是否在内存中并行压缩
+     * @param lastModified 修改时间（毫秒时间戳），小于0表示未知
+     * @param opener       打开数据流，目录为null
+     */
+    public ZipSource(String name, long size, long lastModified, Opener opener) {
+        this.name = name;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.opener = opener;
+    }
+
+    /**
+     * 目录条目
+     *
+     * @param name         目录名，不需要以 / 结尾
+     * @param lastModified 修改时间（毫秒时间戳）
+     * @return 条目来源
+     */
+    public static ZipSource directory(String name, long lastModified) {
+        return new ZipSource(name.endsWith("/") ? name : name + "/", 0, lastModified, null);
+    }
+
+    /**
+     * 列出本地目录下的所有文件和目录，按路径排序，条目名相对于该目录
+     *
+     * @param dir 本地目录
+     * @return 条目来源
+     * @throws IOException 遍历目录失败
+     */
+    public static List<ZipSource> walk(Path dir) throws IOException {
+        return walk(dir, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * 列出本地目录下的所有文件和目录，按路径排序，条目名相对于该目录
+     * 条目数或文件总大小超出限制时立即停止遍历
+     *
+     * @param dir        本地目录
+     * @param maxEntries 最大条目数
+     * @param maxBytes   文件总大小上限
+     * @return 条目来源，超出限制时返回null
+     * @throws IOException 遍历目录失败
+     */
+    public static List<ZipSource> walk(Path dir, int maxEntries, long maxBytes) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+        long[] bytes = {0};
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attrs) {
+                return path.equals(dir) ? FileVisitResult.CONTINUE : add(path, attrs);
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                return attrs.isRegularFile() ? add(path, attrs) : FileVisitResult.CONTINUE;
+            }
+
+            private FileVisitResult add(Path path, BasicFileAttributes attrs) {
+                paths.add(path);
+                attributes.put(path, attrs);
+                if (attrs.isRegularFile()) {
+                    bytes[0] += attrs.size();
+                }
+                return paths.size() > maxEntries || bytes[0] > maxBytes ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+            }
+        });
+        if (paths.size() > maxEntries || bytes[0] > maxBytes) {
+            return null;
+        }
+        Collections.sort(paths);
+        List<ZipSource> sources = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            BasicFileAttributes attrs = attributes.get(path);
+            String name = dir.relativize(path).toString().replace('\\', '/');
+            long modified = attrs.lastModifiedTime().toMillis();
+            if (attrs.isDirectory()) {
+                sources.add(directory(name, modified));
+            } else {
+                sources.add(new ZipSource(name, attrs.size(), modified, () -> Files.newInputStream(path)));
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * 条目数和文件总大小是否在限制内
+     *
+     * @param sources    条目来源
+     * @param maxEntries 最大条目数
+     * @param maxBytes   文件总大小上限
+     * @return 是否在限制内
+     */
+    public static boolean withinLimits(List<ZipSource> sources, int maxEntries, long maxBytes) {
+        if (sources.size() > maxEntries) {
+            return false;
+        }
+        long bytes = 0;
+        for (ZipSource source : sources) {
+            bytes += source.size;
+            if (bytes > maxBytes) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public boolean isDirectory() {
+        return opener == null;
+    }
+
+    public InputStream open() throws IOException {
+        return opener.open();
+    }
+}
@@ -0,0 +1,9 @@
+-- 原子地获取或创建key-value
+-- KEYS[1]: 键
+-- ARGV[1]: 键不存在时写入的值
+-- ARGV[2]: 生存时间（毫秒）
+-- 返回: 新写入的值或已存在的值
+if redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2], 'NX') then
+    return ARGV[1]
+end
+return redis.call('GET', KEYS[1])
@@ -0,0 +1,37 @@
+-- 原子地从一个或多个令牌桶各取一个令牌，全部有令牌时才扣减，否则都不扣减
+-- KEYS[i]: 令牌桶键，哈希结构 tokens 剩余令牌数, ts 上次更新时间(毫秒)
+-- ARGV[2i-1]: 第i个桶的容量
+-- ARGV[2i]: 第i个桶每秒补充的令牌数
+-- 返回: 0 取得令牌, 大于0 需要等待的毫秒数
+-- 使用服务端时间，各应用实例的时钟偏差不影响限流；写命令按效果复制
+redis.replicate_commands()
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local tokens = {}
+local wait = 0
+for i, key in ipairs(KEYS) do
+    local capacity = tonumber(ARGV[2 * i - 1])
+    local rate = tonumber(ARGV[2 * i])
+    local bucket = redis.call('HMGET', key, 'tokens', 'ts')
+    local filled = capacity
+    if bucket[1] then
+        filled = math.min(capacity, tonumber(bucket[1]) + math.max(0, now - tonumber(bucket[2])) * rate / 1000)
+    end
+    tokens[i] = filled
+    if filled < 1 then
+        wait = math.max(wait, math.ceil((1 - filled) * 1000 / rate))
+    end
+end
+if wait > 0 then
+    return wait
+end
+
+for i, key in ipairs(KEYS) do
+    local capacity = tonumber(ARGV[2 * i - 1])
+    local rate = tonumber(ARGV[2 * i])
+    redis.call('HSET', key, 'tokens', tostring(tokens[i] - 1), 'ts', now)
+    -- 桶补满后即与不存在等价，到时自动删除
+    redis.call('PEXPIRE', key, math.ceil(capacity * 1000 / rate))
+end
+return 0
@@ -0,0 +1,31 @@
+-- 原子地校验并消费key-value，同时统计失败次数
+-- KEYS[1]: 键
+-- KEYS[2]: 失败次数计数键
+-- ARGV[1]: 待校验的值
+-- ARGV[2]: 最大失败次数
+-- ARGV[3]: 键没有生存时间时，计数键的生存时间(毫秒)
+-- 返回: 1 校验成功(键已删除), 0 校验失败, -1 键不存在或已过期, -2 失败次数超限(键已删除)
+local value = redis.call('GET', KEYS[1])
+if not value then
+    return -1
+end
+if value == ARGV[1] then
+    redis.call('DEL', KEYS[1], KEYS[2])
+    return 1
+end
+local attempts = redis.call('INCR', KEYS[2])
+if attempts == 1 then
+    -- 计数与键同时过期，不会比键活得更久
+    local ttl = redis.call('PTTL', KEYS[1])
+    if ttl > 0 then
+        redis.call('PEXPIRE', KEYS[2], ttl)
+    else
+        -- 键为永久键时计数也不能永久保留，否则失败次数永远累计
+        redis.call('PEXPIRE', KEYS[2], ARGV[3])
+    end
+end
+if attempts >= tonumber(ARGV[2]) then
+    redis.call('DEL', KEYS[1], KEYS[2])
+    return -2
+end
+return 0
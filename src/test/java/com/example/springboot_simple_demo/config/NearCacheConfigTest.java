@@ -0,0 +1,52 @@
+package com.example.springboot_simple_demo.config;
+
+import com.example.springboot_simple_demo.utils.redis.NearCache;
+import io.lettuce.core.event.Event;
+import io.lettuce.core.event.connection.ConnectionActivatedEvent;
+import io.lettuce.core.event.connection.ConnectionDeactivatedEvent;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NearCacheConfigTest {
+    private static final SocketAddress LOCAL = InetSocketAddress.createUnresolved("localhost", 50000);
+    private static final SocketAddress REMOTE = InetSocketAddress.createUnresolved("redis", 6379);
+
+    @Test
+    void clearsNearCacheWhenConnectionDropsAndReconnects() {
+        NearCache nearCache = new NearCache(10, 60_000);
+        Sinks.Many<Event> events = Sinks.many().multicast().directBestEffort();
+        NearCacheConfig.NearCacheListeners listeners = new NearCacheConfig.NearCacheListeners(
+                connectionFactory -> null, events.asFlux(), nearCache);
+        listeners.start();
+        try {
+            // 新建连接不清空
+            nearCache.put("a", "1", -1, nearCache.stamp("a"));
+            events.tryEmitNext(new ConnectionActivatedEvent(LOCAL, REMOTE));
+            assertEquals("1", nearCache.get("a"));
+
+            events.tryEmitNext(new ConnectionDeactivatedEvent(LOCAL, REMOTE));
+            assertNull(nearCache.get("a"));
+
+            // 断开期间从其他连接读到的值可能错过了失效通知，重连后再清空一次
+            nearCache.put("b", "2", -1, nearCache.stamp("b"));
+            events.tryEmitNext(new ConnectionActivatedEvent(LOCAL, REMOTE));
+            assertNull(nearCache.get("b"));
+
+            nearCache.put("c", "3", -1, nearCache.stamp("c"));
+            events.tryEmitNext(new ConnectionActivatedEvent(LOCAL, REMOTE));
+            assertEquals("3", nearCache.get("c"));
+        } finally {
+            listeners.stop();
+        }
+
+        // 停止后不再处理连接事件
+        events.tryEmitNext(new ConnectionDeactivatedEvent(LOCAL, REMOTE));
+        assertEquals("3", nearCache.get("c"));
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.springboot_simple_demo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class RateLimitPropertiesTest {
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withUserConfiguration(Config.class);
+
+    @Test
+    void rejectsNonPositiveRates() {
+        runner.withPropertyValues("rate-limit.client.rate-per-second=0")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+        runner.withPropertyValues("rate-limit.local.rate-per-second=-1")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+        runner.withPropertyValues("rate-limit.redis-id.capacity=0")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+        runner.withPropertyValues("rate-limit.redis-id.rate-per-second=0.5")
+                .run(context -> assertEquals(0.5, context.getBean(RateLimitProperties.class).getRedisId().getRatePerSecond()));
+    }
+
+    @EnableConfigurationProperties(RateLimitProperties.class)
+    static class Config {
+    }
+}
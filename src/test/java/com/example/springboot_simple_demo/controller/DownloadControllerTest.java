@@ -0,0 +1,89 @@
+package com.example.springboot_simple_demo.controller;
+
+import com.example.springboot_simple_demo.config.DownloadProperties;
+import com.example.springboot_simple_demo.utils.download.FileMetadataCache;
+import com.example.springboot_simple_demo.utils.zip.ParallelZipStreamer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class DownloadControllerTest {
+    @TempDir
+    Path root;
+
+    private final DownloadProperties properties = new DownloadProperties();
+    private ParallelZipStreamer zipStreamer;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        DownloadProperties.Zip zip = properties.getZip();
+        zipStreamer = new ParallelZipStreamer(1, zip.getWindow(), zip.getMaxBufferedSize().toBytes(), zip.getLevel());
+        DownloadController controller = new DownloadController();
+        ReflectionTestUtils.setField(controller, "downloadProperties", properties);
+        ReflectionTestUtils.setField(controller, "fileMetadataCache", new FileMetadataCache(
+                properties.getMetadataCacheSize(), properties.getMetadataTtl().toMillis(), properties.isGzipVariants()));
+        ReflectionTestUtils.setField(controller, "parallelZipStreamer", zipStreamer);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        zipStreamer.shutdown();
+    }
+
+    @Test
+    void defaultRootDoesNotExposeSystemFiles() throws Exception {
+        mockMvc.perform(get("/downloads/etc/hosts")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/downloads/../../../../etc/hosts")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/downloads/etc").param("zip", "")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void symlinksCannotEscapeRoot() throws Exception {
+        Path outside = Files.createDirectories(root.resolve("outside"));
+        Files.write(outside.resolve("secret.txt"), new byte[]{1, 2, 3});
+        Path downloads = Files.createDirectories(root.resolve("downloads"));
+        Files.write(downloads.resolve("public.txt"), new byte[]{4, 5});
+        Files.createSymbolicLink(downloads.resolve("secret.txt"), outside.resolve("secret.txt"));
+        Files.createSymbolicLink(downloads.resolve("outside"), outside);
+        Files.createSymbolicLink(downloads.resolve("alias.txt"), downloads.resolve("public.txt"));
+        properties.setRoot(downloads.toString());
+
+        mockMvc.perform(get("/downloads/secret.txt")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/downloads/outside/secret.txt")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/downloads/outside").param("zip", "")).andExpect(status().isNotFound());
+        // 指向根目录之内的链接照常下载
+        mockMvc.perform(get("/downloads/alias.txt")).andExpect(status().isOk());
+    }
+
+    @Test
+    void rejectsZipBeyondEntryAndSizeLimits() throws Exception {
+        Path dir = Files.createDirectories(root.resolve("dir"));
+        for (int i = 0; i < 5; i++) {
+            Files.write(dir.resolve("file" + i + ".txt"), new byte[1000]);
+        }
+        properties.setRoot(root.toString());
+        properties.getZip().setMaxEntries(5);
+        properties.getZip().setMaxSize(DataSize.ofBytes(5000));
+        mockMvc.perform(get("/downloads/dir").param("zip", "")).andExpect(status().isOk());
+
+        properties.getZip().setMaxEntries(4);
+        mockMvc.perform(get("/downloads/dir").param("zip", "")).andExpect(status().isPayloadTooLarge());
+
+        properties.getZip().setMaxEntries(5);
+        properties.getZip().setMaxSize(DataSize.ofBytes(4999));
+        mockMvc.perform(get("/downloads/dir").param("zip", "")).andExpect(status().isPayloadTooLarge());
+    }
+}
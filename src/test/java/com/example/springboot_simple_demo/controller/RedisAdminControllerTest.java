@@ -0,0 +1,70 @@
+package com.example.springboot_simple_demo.controller;
+
+import com.example.springboot_simple_demo.config.RedisUtilProperties;
+import com.example.springboot_simple_demo.utils.redis.ShardedRedisRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class RedisAdminControllerTest {
+    private final List<String> connected = new ArrayList<>();
+    private ShardedRedisRouter router;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        RedisUtilProperties properties = new RedisUtilProperties();
+        properties.getConnection().setShards(Collections.singletonList("redis-a:6379"));
+        properties.getConnection().setAllowedShards(Collections.singletonList("redis-b:6380"));
+        router = new ShardedRedisRouter(160, node -> {
+            connected.add(node);
+            return new RedisTemplate<>();
+        });
+        router.addShard("redis-a:6379");
+        connected.clear();
+
+        RedisAdminController controller = new RedisAdminController();
+        ReflectionTestUtils.setField(controller, "redisRouter", router);
+        ReflectionTestUtils.setField(controller, "properties", properties);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void rejectsMalformedNodes() throws Exception {
+        for (String node : new String[]{"redis-b", "redis-b:", ":6380", "redis-b:abc", "redis-b:70000", "redis-b:0"}) {
+            mockMvc.perform(post("/redis/admin/shards").param("node", node)).andExpect(status().isBadRequest());
+            mockMvc.perform(delete("/redis/admin/shards").param("node", node)).andExpect(status().isBadRequest());
+        }
+        assertTrue(connected.isEmpty());
+    }
+
+    @Test
+    void connectsOnlyToAllowedNodes() throws Exception {
+        mockMvc.perform(post("/redis/admin/shards").param("node", "169.254.169.254:80"))
+                .andExpect(status().isForbidden());
+        assertTrue(connected.isEmpty());
+
+        mockMvc.perform(post("/redis/admin/shards").param("node", "redis-b:6380"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.shards.length()").value(2));
+        assertEquals(Collections.singletonList("redis-b:6380"), connected);
+
+        mockMvc.perform(delete("/redis/admin/shards").param("node", "redis-b:6380")).andExpect(status().isOk());
+        assertFalse(router.shardNames().contains("redis-b:6380"));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.springboot_simple_demo.controller;
+
+import com.example.springboot_simple_demo.config.RedisUtilProperties;
+import com.example.springboot_simple_demo.utils.RedisUtil;
+import com.example.springboot_simple_demo.utils.redis.EmbeddedTtlStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class RedisControllerTest {
+    private EmbeddedTtlStore store;
+    private RedisUtil redisUtil;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        RedisUtilProperties properties = new RedisUtilProperties();
+        properties.setBackend(RedisUtilProperties.Backend.EMBEDDED);
+        properties.getBatch().setMaxKeys(3);
+        store = new EmbeddedTtlStore(100, 100);
+        redisUtil = new RedisUtil();
+        ReflectionTestUtils.setField(redisUtil, "properties", properties);
+        ReflectionTestUtils.setField(redisUtil, "embeddedStore", store);
+        ReflectionTestUtils.setField(redisUtil, "meterRegistry", new SimpleMeterRegistry());
+
+        RedisController controller = new RedisController();
+        ReflectionTestUtils.setField(controller, "redisUtil", redisUtil);
+        ReflectionTestUtils.setField(controller, "properties", properties);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        redisUtil.shutdown();
+        store.shutdown();
+    }
+
+    @Test
+    void rejectsBatchesAboveMaxKeys() throws Exception {
+        String four = "[\"a\",\"b\",\"c\",\"d\"]";
+        for (String path : new String[]{"/redis/batchGet", "/redis/batchDelete", "/redis/batchExists"}) {
+            mockMvc.perform(post(path).contentType(MediaType.APPLICATION_JSON).content(four))
+                    .andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(post("/redis/batchSet").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"key\":\"a\",\"value\":\"1\"},{\"key\":\"b\",\"value\":\"2\"},"
+                                + "{\"key\":\"c\",\"value\":\"3\"},{\"key\":\"d\",\"value\":\"4\"}]"))
+                .andExpect(status().isBadRequest());
+        assertNull(store.get("a"));
+
+        mockMvc.perform(post("/redis/batchSet").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"key\":\"a\",\"value\":\"1\"},{\"key\":\"b\",\"value\":\"2\"},{\"key\":\"c\",\"value\":\"3\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.count").value(3));
+        mockMvc.perform(post("/redis/batchGet").contentType(MediaType.APPLICATION_JSON).content("[\"a\",\"b\",\"c\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.redisValues.b").value("2"));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.springboot_simple_demo.service.impl;
+
+import com.example.springboot_simple_demo.config.RedisUtilProperties;
+import com.example.springboot_simple_demo.entity.KeyspaceJob;
+import com.example.springboot_simple_demo.utils.RedisUtil;
+import com.example.springboot_simple_demo.utils.redis.EmbeddedTtlStore;
+import com.example.springboot_simple_demo.utils.redis.RedisRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyspaceServiceImplTest {
+    private RedisUtilProperties properties;
+    private EmbeddedTtlStore store;
+    private RedisUtil redisUtil;
+    private KeyspaceServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RedisUtilProperties();
+        properties.setBackend(RedisUtilProperties.Backend.EMBEDDED);
+        properties.getBatch().setSize(10);
+        properties.getBulk().setRate(0);
+        store = new EmbeddedTtlStore(10_000, 100);
+
+        redisUtil = new RedisUtil();
+        ReflectionTestUtils.setField(redisUtil, "properties", properties);
+        ReflectionTestUtils.setField(redisUtil, "embeddedStore", store);
+        ReflectionTestUtils.setField(redisUtil, "meterRegistry", new SimpleMeterRegistry());
+
+        service = new KeyspaceServiceImpl();
+        ReflectionTestUtils.setField(service, "redisUtil", redisUtil);
+        ReflectionTestUtils.setField(service, "properties", properties);
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+        redisUtil.shutdown();
+        store.shutdown();
+    }
+
+    @Test
+    void deleteReportsProgress() throws Exception {
+        fill("captcha:", 55);
+        store.set("session:1", "v", -1);
+
+        KeyspaceJob job = service.submit("captcha:*", KeyspaceJob.Action.DELETE, 0);
+        await(job::isFinished);
+
+        assertEquals(KeyspaceJob.Status.DONE, job.getStatus());
+        assertEquals(55, job.getScanned());
+        assertEquals(55, job.getAffected());
+        assertTrue(job.getFinishedAt() > 0);
+        assertEquals(-2, store.ttl("captcha:0"));
+        assertEquals(-1, store.ttl("session:1"));
+    }
+
+    @Test
+    void expireHonoursRate() throws Exception {
+        fill("captcha:", 40);
+        properties.getBulk().setRate(100);
+
+        long start = System.nanoTime();
+        KeyspaceJob job = service.submit("captcha:*", KeyspaceJob.Action.EXPIRE, 60);
+        await(job::isFinished);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(KeyspaceJob.Status.DONE, job.getStatus());
+        assertEquals(40, job.getAffected());
+        // 40个键、每秒100个，至少需要400毫秒
+        assertTrue(elapsedMillis >= 380, "elapsed " + elapsedMillis);
+        assertTrue(store.ttl("captcha:0") > 0);
+    }
+
+    @Test
+    void cancelledJobStaysCancelled() throws Exception {
+        fill("captcha:", 1000);
+        // 约10秒才能遍历完
+        properties.getBulk().setRate(100);
+
+        KeyspaceJob job = service.submit("captcha:*", KeyspaceJob.Action.DELETE, 0);
+        await(() -> job.getScanned() > 0);
+        assertTrue(service.cancel(job.getId()));
+        await(() -> job.getFinishedAt() > 0);
+
+        assertEquals(KeyspaceJob.Status.CANCELLED, job.getStatus());
+        assertTrue(job.getScanned() < 1000, "scanned " + job.getScanned());
+        assertFalse(service.cancel(job.getId()));
+    }
+
+    @Test
+    void redisFailureFailsJobInsteadOfFailingOver() throws Exception {
+        fill("captcha:", 20);
+        properties.setBackend(RedisUtilProperties.Backend.REDIS);
+        ReflectionTestUtils.setField(redisUtil, "redisRouter", new RedisRouter() {
+            @Override
+            public RedisTemplate<String, String> forKey(String key) {
+                throw new RedisConnectionFailureException("redis down");
+            }
+
+            @Override
+            public List<RedisTemplate<String, String>> nodes() {
+                throw new RedisConnectionFailureException("redis down");
+            }
+        });
+
+        KeyspaceJob job = service.submit("captcha:*", KeyspaceJob.Action.DELETE, 0);
+        await(job::isFinished);
+
+        assertEquals(KeyspaceJob.Status.FAILED, job.getStatus());
+        assertEquals(0, job.getScanned());
+        // 没有改为处理进程内存储中的键
+        assertEquals(-1, store.ttl("captcha:0"));
+    }
+
+    private void fill(String prefix, int count) {
+        for (int i = 0; i < count; i++) {
+            store.set(prefix + i, "v", -1);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.springboot_simple_demo.service.impl;
+
+import com.example.springboot_simple_demo.config.FtpProperties;
+import com.example.springboot_simple_demo.entity.FtpServiceInfo;
+import com.example.springboot_simple_demo.entity.TransferJob;
+import com.example.springboot_simple_demo.utils.ftp.BandwidthLimiter;
+import com.example.springboot_simple_demo.utils.ftp.FtpClientPool;
+import com.example.springboot_simple_demo.utils.ftp.FtpTestServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransferJobServiceImplTest {
+    private static final int SIZE = 2 * 1024 * 1024;
+
+    @TempDir
+    File tempDir;
+
+    private File home;
+    private FtpTestServer ftpServer;
+    private FtpClientPool pool;
+    private BandwidthLimiter bandwidthLimiter;
+    private TransferJobServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ftpServer = FtpTestServer.start(tempDir);
+        home = ftpServer.home();
+        pool = ftpServer.pool();
+        // 限速让上传持续数秒，取消时一定在传输中
+        bandwidthLimiter = new BandwidthLimiter(512 * 1024, 0, Collections.emptyMap(), Collections.emptyMap());
+        FtpProperties properties = new FtpProperties();
+        properties.getResume().setStateDir(new File(tempDir, "state").getPath());
+
+        service = new TransferJobServiceImpl();
+        ReflectionTestUtils.setField(service, "ftpClientPool", pool);
+        ReflectionTestUtils.setField(service, "ftpProperties", properties);
+        ReflectionTestUtils.setField(service, "bandwidthLimiter", bandwidthLimiter);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+        ftpServer.close();
+    }
+
+    @Test
+    void cancelsRunningUploadAndResumesOnResubmit() throws Exception {
+        byte[] content = new byte[SIZE];
+        new Random(23).nextBytes(content);
+        File local = new File(tempDir, "upload.bin");
+        Files.write(local.toPath(), content);
+        FtpServiceInfo info = new FtpServiceInfo("127.0.0.1", ftpServer.getPort(), FtpTestServer.USERNAME, FtpTestServer.PASSWORD);
+
+        TransferJob job = service.submit(info, TransferJob.Direction.UPLOAD, local.getPath(), "/in/upload.bin",
+                TransferJob.Lane.BULK, -1, 0);
+        assertEquals("127.0.0.1:" + ftpServer.getPort(), job.getHost());
+        await(() -> job.getTransferredBytes() > 256 * 1024);
+        assertTrue(service.cancel(job.getId()));
+        await(() -> job.getFinishedAt() > 0);
+        assertEquals(TransferJob.Status.CANCELLED, job.getStatus());
+        // 数据连接已关闭，会话没有泄漏
+        await(() -> pool.numActive(ftpServer.server()) == 0);
+        File remote = new File(home, "in/upload.bin");
+        await(() -> remote.length() > 0);
+        assertTrue(remote.length() < SIZE);
+
+        bandwidthLimiter.setGlobalRate(0);
+        TransferJob resumed = service.submit(info, TransferJob.Direction.UPLOAD, local.getPath(), "/in/upload.bin",
+                TransferJob.Lane.BULK, -1, 0);
+        await(resumed::isFinished);
+        assertEquals(TransferJob.Status.DONE, resumed.getStatus());
+        assertTrue(resumed.getStartBytes() > 0);
+        assertArrayEquals(content, Files.readAllBytes(remote.toPath()));
+    }
+
+    @Test
+    void choosesLaneWithoutContactingServer() throws Exception {
+        File local = new File(tempDir, "small.bin");
+        Files.write(local.toPath(), new byte[1024]);
+        // 错误的端口，提交时访问FTP服务器会失败
+        FtpServiceInfo info = new FtpServiceInfo("127.0.0.1", 1, FtpTestServer.USERNAME, FtpTestServer.PASSWORD);
+
+        assertEquals(TransferJob.Lane.INTERACTIVE, service.submit(info, TransferJob.Direction.UPLOAD, local.getPath(),
+                "/small.bin", null, -1, 0).getLane());
+        // 下载的大小只能由请求给出，未给出时按批量任务处理
+        assertEquals(TransferJob.Lane.BULK, service.submit(info, TransferJob.Direction.DOWNLOAD, local.getPath(),
+                "/remote.bin", null, -1, 0).getLane());
+        assertEquals(TransferJob.Lane.INTERACTIVE, service.submit(info, TransferJob.Direction.DOWNLOAD, local.getPath(),
+                "/remote.bin", null, 1024, 0).getLane());
+        assertEquals(TransferJob.Lane.BULK, service.submit(info, TransferJob.Direction.DOWNLOAD, local.getPath(),
+                "/remote.bin", null, Long.MAX_VALUE, 0).getLane());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(20);
+        }
+    }
+}
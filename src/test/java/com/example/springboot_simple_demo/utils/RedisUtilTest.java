@@ -0,0 +1,141 @@
+package com.example.springboot_simple_demo.utils;
+
+import com.example.springboot_simple_demo.config.RedisUtilProperties;
+import com.example.springboot_simple_demo.utils.redis.NearCache;
+import com.example.springboot_simple_demo.utils.redis.RedisRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RedisUtilTest {
+    private final PipelineTemplate template = new PipelineTemplate();
+    private RedisUtilProperties properties;
+    private RedisUtil redisUtil;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RedisUtilProperties();
+        properties.getBatch().setSize(500);
+        redisUtil = new RedisUtil();
+        ReflectionTestUtils.setField(redisUtil, "properties", properties);
+        ReflectionTestUtils.setField(redisUtil, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(redisUtil, "redisRouter", new RedisRouter() {
+            @Override
+            public RedisTemplate<String, String> forKey(String key) {
+                return template;
+            }
+
+            @Override
+            public List<RedisTemplate<String, String>> nodes() {
+                return Collections.singletonList(template);
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        redisUtil.shutdown();
+    }
+
+    @Test
+    void multiGetPipelinesInBatchesOfBatchSize() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            keys.add("key:" + i);
+            template.values.put("key:" + i, "value" + i);
+        }
+
+        Map<String, String> values = redisUtil.multiGet(keys);
+        assertEquals(Arrays.asList(500, 500, 200), template.pipelines);
+        assertEquals(1200, values.size());
+        assertEquals("value0", values.get("key:0"));
+        assertEquals("value1199", values.get("key:1199"));
+
+        template.pipelines.clear();
+        properties.getBatch().setSize(1000);
+        redisUtil.multiGet(keys);
+        assertEquals(Arrays.asList(1000, 200), template.pipelines);
+    }
+
+    @Test
+    void multiGetBoundsNearCacheEntriesByRemainingTtl() throws Exception {
+        NearCache nearCache = new NearCache(100, 60_000);
+        ReflectionTestUtils.setField(redisUtil, "nearCache", nearCache);
+        template.values.put("short", "a");
+        template.ttls.put("short", 100L);
+        template.values.put("persistent", "b");
+
+        List<String> keys = Arrays.asList("short", "persistent", "absent");
+        assertEquals("a", redisUtil.multiGet(keys).get("short"));
+        // GET与PTTL在同一管道中，每个键两条命令
+        assertEquals(Collections.singletonList(6), template.pipelines);
+        assertEquals(2, nearCache.size());
+
+        // 剩余生存时间内直接读近端缓存，只有不存在的键再次读取Redis
+        template.pipelines.clear();
+        Map<String, String> cached = redisUtil.multiGet(keys);
+        assertEquals("a", cached.get("short"));
+        assertEquals("b", cached.get("persistent"));
+        assertNull(cached.get("absent"));
+        assertEquals(Collections.singletonList(2), template.pipelines);
+
+        // Redis中的键过期后，近端缓存不再返回旧值
+        Thread.sleep(150);
+        template.values.remove("short");
+        template.pipelines.clear();
+        assertNull(redisUtil.multiGet(keys).get("short"));
+        assertEquals(Collections.singletonList(4), template.pipelines);
+    }
+
+    /**
+     * 记录每次管道中的命令数，值和剩余生存时间取自内存
+     */
+    private static final class PipelineTemplate extends RedisTemplate<String, String> {
+        private final Map<String, String> values = new HashMap<>();
+        private final Map<String, Long> ttls = new HashMap<>();
+        private final List<Integer> pipelines = new ArrayList<>();
+        private List<Object> results;
+
+        @Override
+        public List<Object> executePipelined(SessionCallback<?> session) {
+            results = new ArrayList<>();
+            session.execute(this);
+            pipelines.add(results.size());
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ValueOperations<String, String> opsForValue() {
+            return (ValueOperations<String, String>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{ValueOperations.class}, (proxy, method, args) -> {
+                        assertEquals("get", method.getName());
+                        results.add(values.get((String) args[0]));
+                        return null;
+                    });
+        }
+
+        @Override
+        public Long getExpire(String key, TimeUnit unit) {
+            results.add(values.containsKey(key) ? ttls.getOrDefault(key, -1L) : -2L);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.springboot_simple_demo.utils.download;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileDownloadSenderTest {
+    @TempDir
+    Path dir;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private Path file;
+    private FileMetadataCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = dir.resolve("data.txt");
+        Files.write(file, "0123456789".getBytes(StandardCharsets.US_ASCII));
+        cache = new FileMetadataCache(2, 1000, true, now::get);
+    }
+
+    @Test
+    void sendsWholeFileAndHonoursValidators() throws Exception {
+        FileMetadata metadata = cache.get(file);
+        MockHttpServletResponse response = send(new MockHttpServletRequest("GET", "/downloads/data.txt"), metadata);
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+
+        MockHttpServletRequest conditional = new MockHttpServletRequest("GET", "/downloads/data.txt");
+        conditional.addHeader("If-None-Match", "\"other\", " + metadata.getEtag());
+        response = send(conditional, metadata);
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+
+        conditional = new MockHttpServletRequest("GET", "/downloads/data.txt");
+        conditional.addHeader("If-Modified-Since", metadata.getLastModified());
+        assertEquals(304, send(conditional, metadata).getStatus());
+    }
+
+    @Test
+    void usesSendfileWhenContainerSupportsIt() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/downloads/data.txt");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=2-5");
+        MockHttpServletResponse response = send(request, cache.get(file));
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader("Content-Range"));
+        assertEquals(4, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(file.toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(2L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(6L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    @Test
+    void servesRangesAndMultipartByteranges() throws Exception {
+        FileMetadata metadata = cache.get(file);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/downloads/data.txt");
+        request.addHeader("Range", "bytes=-3");
+        MockHttpServletResponse response = send(request, metadata);
+        assertEquals(206, response.getStatus());
+        assertEquals("789", response.getContentAsString());
+
+        request = new MockHttpServletRequest("GET", "/downloads/data.txt");
+        request.addHeader("Range", "bytes=0-1,5-6");
+        response = send(request, metadata);
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+        String body = response.getContentAsString();
+        assertEquals(body.length(), response.getContentLengthLong());
+        assertTrue(body.contains("Content-Range: bytes 0-1/10\r\n\r\n01\r\n--"));
+        assertTrue(body.contains("Content-Range: bytes 5-6/10\r\n\r\n56\r\n--"));
+
+        request = new MockHttpServletRequest("GET", "/downloads/data.txt");
+        request.addHeader("Range", "bytes=20-");
+        response = send(request, metadata);
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+
+        // If-Range不匹配时发送整个文件
+        request = new MockHttpServletRequest("GET", "/downloads/data.txt");
+        request.addHeader("Range", "bytes=0-1");
+        request.addHeader("If-Range", "\"stale\"");
+        response = send(request, metadata);
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    void prefersFreshGzipVariant() throws Exception {
+        Path gzip = dir.resolve("data.txt.gz");
+        Files.write(gzip, new byte[]{1, 2, 3});
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        FileMetadata metadata = cache.get(file);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/downloads/data.txt");
+        request.addHeader("Accept-Encoding", "deflate, gzip;q=0.8");
+        MockHttpServletResponse response = send(request, metadata);
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals(3, response.getContentAsByteArray().length);
+        assertEquals("text/plain", response.getContentType());
+
+        request = new MockHttpServletRequest("GET", "/downloads/data.txt");
+        request.addHeader("Accept-Encoding", "gzip;q=0");
+        response = send(request, metadata);
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    void malformedQualityIsNotAcceptable() {
+        assertFalse(FileDownloadSender.acceptsGzip("gzip;q=abc"));
+        assertFalse(FileDownloadSender.acceptsGzip("gzip;q=2"));
+        assertFalse(FileDownloadSender.acceptsGzip("gzip;q="));
+        assertTrue(FileDownloadSender.acceptsGzip("gzip;q=0.5"));
+        assertTrue(FileDownloadSender.acceptsGzip("deflate;q=abc, gzip"));
+    }
+
+    @Test
+    void cacheRevalidatesAfterTtl() throws Exception {
+        FileMetadata first = cache.get(file);
+        Files.write(file, "changed".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(10, cache.get(file).getSize());
+        now.addAndGet(1000);
+        FileMetadata second = cache.get(file);
+        assertEquals(7, second.getSize());
+        assertFalse(first.getEtag().equals(second.getEtag()));
+
+        Files.delete(file);
+        now.addAndGet(1000);
+        assertNull(cache.get(file));
+        assertNull(cache.get(dir));
+        assertEquals(0, cache.size());
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request, FileMetadata metadata) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FileDownloadSender.send(request, response, metadata);
+        return response;
+    }
+}
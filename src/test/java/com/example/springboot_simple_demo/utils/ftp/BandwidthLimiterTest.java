@@ -0,0 +1,97 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.entity.TransferJob;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BandwidthLimiterTest {
+    private static final int MB = 1024 * 1024;
+
+    @Test
+    void limitsGlobalRate() throws IOException {
+        BandwidthLimiter limiter = new BandwidthLimiter(MB, 0, Collections.emptyMap(), Collections.emptyMap());
+        long start = System.nanoTime();
+        assertEquals(700 * 1024, drain(limiter, "a", TransferJob.Lane.BULK, 700 * 1024));
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // 扣除初始容量和一个缓冲区的透支，至少约0.5秒
+        assertTrue(millis >= 400, "took " + millis + " ms");
+    }
+
+    @Test
+    void sharesBandwidthByWeightAndLendsSpareCapacity() throws Exception {
+        Map<TransferJob.Lane, Integer> weights = new EnumMap<>(TransferJob.Lane.class);
+        weights.put(TransferJob.Lane.INTERACTIVE, 3);
+        weights.put(TransferJob.Lane.BULK, 1);
+        BandwidthLimiter limiter = new BandwidthLimiter(2 * MB, 0, Collections.emptyMap(), weights);
+
+        // 只有批量传输时可以用满全部带宽
+        long bulkAlone = pump(limiter, "a", TransferJob.Lane.BULK, 500);
+        assertTrue(bulkAlone >= MB * 0.7, "bulk alone " + bulkAlone);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> interactive = executor.submit(() -> pump(limiter, "a", TransferJob.Lane.INTERACTIVE, 1500));
+            Future<Long> bulk = executor.submit(() -> pump(limiter, "b", TransferJob.Lane.BULK, 1500));
+            double ratio = (double) interactive.get() / bulk.get();
+            assertTrue(ratio > 2 && ratio < 4.5, "interactive/bulk " + ratio);
+            assertTrue(interactive.get() + bulk.get() <= 2 * MB * 1.5 + 512 * 1024);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void adjustsHostRateAtRuntime() throws IOException {
+        BandwidthLimiter limiter = new BandwidthLimiter(0, 0,
+                Collections.singletonMap("slow", 128L * 1024), Collections.emptyMap());
+        long start = System.nanoTime();
+        drain(limiter, "fast", TransferJob.Lane.INTERACTIVE, 4 * MB);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(300));
+
+        start = System.nanoTime();
+        drain(limiter, "slow", TransferJob.Lane.INTERACTIVE, 192 * 1024);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(400));
+
+        limiter.setHostRate("slow", -1);
+        start = System.nanoTime();
+        drain(limiter, "slow", TransferJob.Lane.INTERACTIVE, 4 * MB);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(300));
+        assertEquals(0L, limiter.snapshot().get("globalRate"));
+    }
+
+    private static long drain(BandwidthLimiter limiter, String host, TransferJob.Lane lane, int size) throws IOException {
+        long total = 0;
+        try (InputStream input = BandwidthLimiter.throttle(limiter, new ByteArrayInputStream(new byte[size]), host, lane)) {
+            byte[] buffer = new byte[32 * 1024];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    private static long pump(BandwidthLimiter limiter, String host, TransferJob.Lane lane, long millis) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long total = 0;
+        byte[] chunk = new byte[16 * 1024];
+        while (System.nanoTime() < deadline) {
+            limiter.acquire(host, lane, chunk.length);
+            total += chunk.length;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.utils.FtpUtil;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FtpClientPoolTest {
+    @TempDir
+    File tempDir;
+
+    private FtpTestServer ftpServer;
+    private FtpClientPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ftpServer = FtpTestServer.start(tempDir);
+        GenericKeyedObjectPoolConfig<FTPClient> config = new GenericKeyedObjectPoolConfig<>();
+        config.setMaxTotalPerKey(2);
+        config.setTestOnBorrow(true);
+        pool = ftpServer.pool(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ftpServer.close();
+    }
+
+    @Test
+    void reusesReturnedSessions() throws Exception {
+        FtpServer server = ftpServer.server();
+        FTPClient first = pool.borrow(server);
+        pool.release(server, first, true);
+        FTPClient second = pool.borrow(server);
+        assertSame(first, second);
+
+        // 不可复用的会话被关闭，下次借出新会话
+        pool.release(server, second, false);
+        FTPClient third = pool.borrow(server);
+        assertNotSame(second, third);
+        pool.release(server, third, true);
+        assertEquals(1, pool.numIdle(server));
+    }
+
+    @Test
+    void restoresLoginDirectoryOnReturn() throws Exception {
+        FtpServer server = ftpServer.server();
+        FTPClient first = pool.borrow(server);
+        assertTrue(first.makeDirectory("/elsewhere"));
+        assertTrue(first.changeWorkingDirectory("/elsewhere"));
+        pool.release(server, first, true);
+
+        // 复用的会话回到登录目录，相对路径不会落到上一个借用者的目录下
+        FTPClient second = pool.borrow(server);
+        assertSame(first, second);
+        assertEquals("/", second.printWorkingDirectory());
+        FtpDirectoryUploader.makeDirectories(second, "rel/dir");
+        pool.release(server, second, true);
+        assertTrue(new File(ftpServer.home(), "rel/dir").isDirectory());
+        assertFalse(new File(ftpServer.home(), "elsewhere/rel").exists());
+    }
+
+    @Test
+    void replacesSessionsClosedByServer() throws Exception {
+        FtpServer server = ftpServer.server();
+        FTPClient client = pool.borrow(server);
+        pool.release(server, client, true);
+        // 服务器断开空闲会话后，借出前的NOOP校验发现并换新会话
+        client.quit();
+        assertTrue(pool.execute(server, FTPClient::sendNoOp));
+    }
+
+    @Test
+    void ftpUtilTransfersThroughPool() throws Exception {
+        FtpServer server = ftpServer.server();
+        FtpUtil ftpUtil = new FtpUtil(pool, "127.0.0.1", ftpServer.getPort(), FtpTestServer.USERNAME, FtpTestServer.PASSWORD);
+        byte[] content = "hello ftp".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ftpUtil.uploadFile("/", "dir/sub", "file" + i + ".txt", new ByteArrayInputStream(content)));
+        }
+        File local = new File(tempDir, "local/file3.txt");
+        assertTrue(ftpUtil.downloadFile("/dir/sub", "file3.txt", local));
+        assertEquals("hello ftp", new String(Files.readAllBytes(local.toPath()), StandardCharsets.UTF_8));
+        // 所有传输复用同一个会话
+        assertEquals(1, pool.numIdle(server));
+        assertEquals(0, pool.numActive(server));
+    }
+}
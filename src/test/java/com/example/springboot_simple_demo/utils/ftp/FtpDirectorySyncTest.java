@@ -0,0 +1,241 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.entity.SyncReport;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FtpDirectorySyncTest {
+    @TempDir
+    File tempDir;
+
+    private File home;
+    private File local;
+    private Path manifest;
+    private FtpTestServer ftpServer;
+    private FtpClientPool pool;
+    private FtpDirectorySync sync;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ftpServer = FtpTestServer.start(tempDir);
+        home = ftpServer.home();
+        local = new File(tempDir, "local");
+        manifest = new File(tempDir, "sync.manifest").toPath();
+        pool = ftpServer.pool(2);
+        sync = new FtpDirectorySync(pool, new FtpDirectoryUploader(pool, 2, 2));
+
+        for (int i = 0; i < 10; i++) {
+            write("dir" + (i % 2) + "/file" + i + ".txt", "content " + i);
+        }
+        write("root.txt", "root");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ftpServer.close();
+    }
+
+    @Test
+    void uploadsOnlyChangedFiles() throws Exception {
+        SyncReport first = sync.sync(ftpServer.server(), local, "/mirror", manifest, false);
+        assertEquals(11, first.getUploaded().size());
+        assertTrue(first.isSuccess());
+
+        SyncReport second = sync.sync(ftpServer.server(), local, "/mirror", manifest, false);
+        assertEquals(0, second.getUploaded().size());
+        assertEquals(11, second.getUnchanged());
+
+        // 本地修改一个文件，远程被其他客户端改动一个文件
+        write("dir1/file3.txt", "changed content");
+        Files.write(new File(home, "mirror/dir0/file4.txt").toPath(), "tampered!!".getBytes(StandardCharsets.UTF_8));
+        write("dir2/new.txt", "new");
+        SyncReport third = sync.sync(ftpServer.server(), local, "/mirror", manifest, false);
+        Collections.sort(third.getUploaded());
+        assertEquals(Arrays.asList("dir0/file4.txt", "dir1/file3.txt", "dir2/new.txt"), third.getUploaded());
+        assertEquals("changed content", read("mirror/dir1/file3.txt"));
+        assertEquals("content 4", read("mirror/dir0/file4.txt"));
+        assertEquals("new", read("mirror/dir2/new.txt"));
+    }
+
+    @Test
+    void skipsUnchangedRemoteDirectories() throws Exception {
+        write("dir0/sub/deep.txt", "deep");
+        FtpDirectorySync skipping = new FtpDirectorySync(pool, new FtpDirectoryUploader(pool, 2, 2), true);
+        skipping.sync(ftpServer.server(), local, "/mirror", manifest, false);
+        // 刚修改过的目录不记入清单
+        ageDirectories(new File(home, "mirror"));
+        assertEquals(4, skipping.sync(ftpServer.server(), local, "/mirror", manifest, false).getListedDirectories());
+
+        SyncReport skipped = skipping.sync(ftpServer.server(), local, "/mirror", manifest, false);
+        assertEquals(1, skipped.getListedDirectories());
+        assertEquals(3, skipped.getSkippedDirectories());
+        assertEquals(12, skipped.getUnchanged());
+        assertTrue(skipped.getUploaded().isEmpty());
+
+        // 其他客户端删除文件改变了dir0的修改时间，重新列出；dir1未列出，但本地改动照常上传
+        Files.delete(new File(home, "mirror/dir0/file4.txt").toPath());
+        write("dir1/file3.txt", "changed content");
+        SyncReport changed = skipping.sync(ftpServer.server(), local, "/mirror", manifest, false);
+        Collections.sort(changed.getUploaded());
+        assertEquals(Arrays.asList("dir0/file4.txt", "dir1/file3.txt"), changed.getUploaded());
+        assertEquals(2, changed.getListedDirectories());
+        assertEquals("content 4", read("mirror/dir0/file4.txt"));
+        assertEquals("changed content", read("mirror/dir1/file3.txt"));
+    }
+
+    @Test
+    void deletesRemovedFilesWhenEnabled() throws Exception {
+        sync.sync(ftpServer.server(), local, "/mirror", manifest, false);
+        assertTrue(new File(local, "dir0/file0.txt").delete());
+        for (File file : new File(local, "dir1").listFiles()) {
+            assertTrue(file.delete());
+        }
+        assertTrue(new File(local, "dir1").delete());
+
+        SyncReport keep = sync.sync(ftpServer.server(), local, "/mirror", manifest, false);
+        assertTrue(keep.getDeleted().isEmpty());
+        assertTrue(new File(home, "mirror/dir0/file0.txt").exists());
+
+        SyncReport report = sync.sync(ftpServer.server(), local, "/mirror", manifest, true);
+        assertEquals(7, report.getDeleted().size());
+        assertFalse(new File(home, "mirror/dir0/file0.txt").exists());
+        assertFalse(new File(home, "mirror/dir1").exists());
+        assertTrue(new File(home, "mirror/dir0/file2.txt").exists());
+    }
+
+    @Test
+    void adoptsExistingRemoteCopyWithoutManifest() throws Exception {
+        sync.sync(ftpServer.server(), local, "/mirror", manifest, false);
+        Files.delete(manifest);
+
+        SyncReport report = sync.sync(ftpServer.server(), local, "/mirror", manifest, false);
+        assertEquals(0, report.getUploaded().size());
+        assertEquals(11, report.getUnchanged());
+    }
+
+    @Test
+    void listingFailureIsNotAnEmptyDirectory() throws Exception {
+        Map<String, FtpSyncManifest.Entry> files = new HashMap<>();
+        Set<String> directories = new HashSet<>();
+        // 远程根目录不存在时视为空
+        assertEquals(1, (int) pool.execute(ftpServer.server(),
+                ftpClient -> FtpDirectorySync.listRemote(pool.metrics(), ftpServer.server().getHost(), ftpClient, "/absent", files, directories)));
+        assertTrue(files.isEmpty());
+
+        // 目录存在但无法列出(权限不足)，或连接出错，都不能当作空目录
+        assertThrows(IOException.class, () -> FtpDirectorySync.listRemote(pool.metrics(), ftpServer.server().getHost(), failingList(550), "/mirror", files, directories));
+        assertThrows(IOException.class, () -> FtpDirectorySync.listRemote(pool.metrics(), ftpServer.server().getHost(), failingList(425), "/mirror", files, directories));
+
+        sync.sync(ftpServer.server(), local, "/mirror", manifest, false);
+        byte[] saved = Files.readAllBytes(manifest);
+        FtpClientPool failingPool = new FtpClientPool(new FtpClientFactory(5000, 10000, 0), new GenericKeyedObjectPoolConfig<>()) {
+            @Override
+            public <T> T execute(FtpServer server, FtpCallback<T> callback) throws IOException {
+                return callback.doInFtp(failingList(550));
+            }
+        };
+        try {
+            FtpDirectorySync failing = new FtpDirectorySync(failingPool, new FtpDirectoryUploader(pool, 2, 2));
+            assertThrows(IOException.class, () -> failing.sync(ftpServer.server(), local, "/mirror", manifest, true));
+        } finally {
+            failingPool.close();
+        }
+        // 清单保持不变，远程文件没有被删除
+        assertArrayEquals(saved, Files.readAllBytes(manifest));
+        assertTrue(new File(home, "mirror/root.txt").exists());
+    }
+
+    @Test
+    void manifestRoundTrip() throws Exception {
+        FtpSyncManifest written = new FtpSyncManifest();
+        written.put("a/b/c.txt", new FtpSyncManifest.Entry(10, 1_700_000_000_123L, 10, FtpSyncManifest.UNKNOWN));
+        written.put("a/b/d.txt", new FtpSyncManifest.Entry(0, 1, 0, 1_700_000_000_000L));
+        written.put("中文/文件.txt", new FtpSyncManifest.Entry(1L << 40, 2, 3, 4));
+        written.save(manifest);
+
+        FtpSyncManifest read = FtpSyncManifest.load(manifest);
+        assertEquals(3, read.size());
+        assertEquals(FtpSyncManifest.UNKNOWN, read.get("a/b/c.txt").getRemoteModified());
+        assertEquals(1_700_000_000_123L, read.get("a/b/c.txt").getLocalModified());
+        assertEquals(1_700_000_000_000L, read.get("a/b/d.txt").getRemoteModified());
+        assertEquals(1L << 40, read.get("中文/文件.txt").getLocalSize());
+
+        Files.write(manifest, new byte[]{1, 2, 3});
+        assertEquals(0, FtpSyncManifest.load(manifest).size());
+    }
+
+    /**
+     * 列目录总是以指定应答失败、目录本身存在的会话
+     */
+    private static FTPClient failingList(int reply) {
+        return new FTPClient() {
+            @Override
+            public FTPFile[] mlistDir(String pathname) {
+                return new FTPFile[0];
+            }
+
+            @Override
+            public int getReplyCode() {
+                return reply;
+            }
+
+            @Override
+            public String getReplyString() {
+                return reply + " failed\r\n";
+            }
+
+            @Override
+            public String printWorkingDirectory() {
+                return "/";
+            }
+
+            @Override
+            public boolean changeWorkingDirectory(String pathname) {
+                return true;
+            }
+        };
+    }
+
+    private void write(String relative, String content) throws Exception {
+        File file = new File(local, relative);
+        assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+        long previous = file.lastModified();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        // 修改时间一定变化
+        assertTrue(file.setLastModified(Math.max(System.currentTimeMillis() - 60_000, previous + 1000)));
+    }
+
+    private static void ageDirectories(File dir) {
+        assertTrue(dir.setLastModified(System.currentTimeMillis() - 60_000));
+        for (File child : dir.listFiles(File::isDirectory)) {
+            ageDirectories(child);
+        }
+    }
+
+    private String read(String relative) throws Exception {
+        return new String(Files.readAllBytes(new File(home, relative).toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.entity.UploadReport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FtpDirectoryUploaderTest {
+    @TempDir
+    File tempDir;
+
+    private File home;
+    private FtpTestServer ftpServer;
+    private FtpClientPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ftpServer = FtpTestServer.start(tempDir);
+        home = ftpServer.home();
+        pool = ftpServer.pool(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ftpServer.close();
+    }
+
+    @Test
+    void uploadsTreeInParallel() throws Exception {
+        File local = new File(tempDir, "local");
+        for (int i = 0; i < 20; i++) {
+            write(new File(local, "d" + (i % 3) + "/nested/file" + i + ".bin"), 100 + i * 5000);
+        }
+        write(new File(local, "top.txt"), 10);
+        assertTrue(new File(local, "empty").mkdirs());
+
+        UploadReport report = new FtpDirectoryUploader(pool, 3, 2).upload(ftpServer.server(), local, "/backup/today");
+
+        assertTrue(report.isSuccess(), report.getFailed().toString());
+        assertEquals(21, report.getSucceeded().size());
+        assertEquals(report.getTotalBytes(), report.getUploadedBytes());
+        assertEquals(3, report.getSessions());
+        File remote = new File(home, "backup/today");
+        assertTrue(new File(remote, "empty").isDirectory());
+        for (int i = 0; i < 20; i++) {
+            String path = "d" + (i % 3) + "/nested/file" + i + ".bin";
+            assertArrayEquals(Files.readAllBytes(new File(local, path).toPath()), Files.readAllBytes(new File(remote, path).toPath()));
+        }
+        // 会话全部归还
+        assertEquals(0, pool.numActive(ftpServer.server()));
+    }
+
+    @Test
+    void reportsFailedFilesAndContinues() throws Exception {
+        File local = new File(tempDir, "local");
+        write(new File(local, "ok/a.txt"), 10);
+        write(new File(local, "blocked/b.txt"), 10);
+        // FTP上同名的文件占住了目录名
+        File remote = new File(home, "dest");
+        assertTrue(remote.mkdirs());
+        write(new File(remote, "blocked"), 1);
+
+        UploadReport report = new FtpDirectoryUploader(pool, 2, 2).upload(ftpServer.server(), local, "/dest");
+        assertFalse(report.isSuccess());
+        assertEquals(Arrays.asList("ok/a.txt"), report.getSucceeded());
+        assertTrue(report.getFailed().containsKey("blocked/b.txt"));
+        assertEquals(1, report.getRetries());
+    }
+
+    @Test
+    void joinsRemotePaths() {
+        assertEquals("/a/b", FtpDirectoryUploader.join("/a", "b"));
+        assertEquals("/a/b", FtpDirectoryUploader.join("/a/", "/b"));
+        assertEquals("b", FtpDirectoryUploader.join("", "b"));
+        assertEquals("/a", FtpDirectoryUploader.join("/a", ""));
+    }
+
+    private static void write(File file, int size) throws Exception {
+        assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (i * 31 + size);
+        }
+        Files.write(file.toPath(), bytes);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FtpDiskCacheTest {
+    @TempDir
+    File tempDir;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private File home;
+    private FtpTestServer ftpServer;
+    private FtpClientPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ftpServer = FtpTestServer.start(tempDir);
+        home = ftpServer.home();
+        pool = ftpServer.pool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ftpServer.close();
+    }
+
+    @Test
+    void servesFromCacheAndRevalidatesWithProbe() throws Exception {
+        byte[] content = write("a.bin", 100_000, 1);
+        FtpDiskCache cache = cache(1_000_000);
+        assertArrayEquals(content, read(cache, "/a.bin"));
+        assertArrayEquals(content, read(cache, "/a.bin"));
+        assertEquals(1L, cache.stats().get("misses"));
+        assertEquals(1L, cache.stats().get("hits"));
+
+        // 过期后探测到文件未变化，不重新下载
+        now.addAndGet(60_000);
+        assertArrayEquals(content, read(cache, "/a.bin"));
+        assertEquals(1L, cache.stats().get("revalidations"));
+        assertEquals(1L, cache.stats().get("misses"));
+
+        // 远程文件变化后重新下载，旧文件被替换
+        byte[] changed = write("a.bin", 120_000, 2);
+        assertArrayEquals(content, read(cache, "/a.bin"));
+        now.addAndGet(60_000);
+        assertArrayEquals(changed, read(cache, "/a.bin"));
+        assertEquals(2L, cache.stats().get("misses"));
+        assertEquals(120_000L, cache.stats().get("usedBytes"));
+        assertEquals(1, dataFiles());
+    }
+
+    @Test
+    void concurrentRequestsShareOneDownload() throws Exception {
+        byte[] content = write("shared.bin", 2_000_000, 3);
+        FtpDiskCache cache = cache(10_000_000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> read(cache, "/shared.bin")));
+            }
+            for (Future<byte[]> result : results) {
+                assertArrayEquals(content, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1L, cache.stats().get("misses"));
+        assertEquals(1, dataFiles());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWithinBudget() throws Exception {
+        write("1.bin", 40_000, 1);
+        write("2.bin", 40_000, 2);
+        byte[] third = write("3.bin", 40_000, 3);
+        byte[] large = write("large.bin", 200_000, 4);
+        FtpDiskCache cache = cache(100_000);
+        read(cache, "/1.bin");
+        read(cache, "/2.bin");
+        read(cache, "/1.bin");
+        assertArrayEquals(third, read(cache, "/3.bin"));
+        assertEquals(1L, cache.stats().get("evictions"));
+        assertEquals(80_000L, cache.stats().get("usedBytes"));
+
+        // 2.bin 已被淘汰，1.bin 仍在缓存中
+        read(cache, "/1.bin");
+        assertEquals(3L, cache.stats().get("misses"));
+
+        // 超过整个缓存的文件不缓存
+        assertArrayEquals(large, read(cache, "/large.bin"));
+        assertEquals(80_000L, cache.stats().get("usedBytes"));
+        assertEquals(2, dataFiles());
+        assertThrows(FileNotFoundException.class, () -> cache.open(ftpServer.server(), "/missing.bin"));
+    }
+
+    @Test
+    void retryAfterDroppedSessionDiscardsPartialWrite() throws Exception {
+        byte[] content = write("retry.bin", 100_000, 5);
+        AtomicBoolean dropAfterRetrieve = new AtomicBoolean(true);
+        // 第一次下载写完数据后模拟会话被服务器关闭，触发换会话重试
+        FtpClientPool flaky = new FtpClientPool(new FtpClientFactory(5000, 10000, 0), new GenericKeyedObjectPoolConfig<FTPClient>()) {
+            @Override
+            public <T> T execute(FtpServer server, FtpCallback<T> callback) throws IOException {
+                return super.execute(server, ftpClient -> {
+                    T result = callback.doInFtp(ftpClient);
+                    if (result instanceof Boolean && dropAfterRetrieve.getAndSet(false)) {
+                        throw new SocketException("connection reset");
+                    }
+                    return result;
+                });
+            }
+        };
+        try {
+            FtpDiskCache cache = new FtpDiskCache(flaky, new File(tempDir, "cache"), 1_000_000, 30_000, null, now::get);
+            assertArrayEquals(content, read(cache, "/retry.bin"));
+            assertEquals(100_000L, cache.stats().get("usedBytes"));
+        } finally {
+            flaky.close();
+        }
+    }
+
+    private FtpDiskCache cache(long maxBytes) throws Exception {
+        return new FtpDiskCache(pool, new File(tempDir, "cache"), maxBytes, 30_000, null, now::get);
+    }
+
+    private byte[] write(String name, int size, int seed) throws Exception {
+        byte[] content = new byte[size];
+        new Random(seed).nextBytes(content);
+        Files.write(new File(home, name).toPath(), content);
+        return content;
+    }
+
+    private byte[] read(FtpDiskCache cache, String path) throws Exception {
+        try (InputStream input = cache.open(ftpServer.server(), path)) {
+            return input.readAllBytes();
+        }
+    }
+
+    private long dataFiles() {
+        File[] files = new File(tempDir, "cache").listFiles((dir, name) -> !name.startsWith("."));
+        return files == null ? 0 : files.length;
+    }
+}
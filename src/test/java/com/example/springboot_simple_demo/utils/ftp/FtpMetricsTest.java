@@ -0,0 +1,118 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.config.FtpProperties;
+import com.example.springboot_simple_demo.entity.FtpServiceInfo;
+import com.example.springboot_simple_demo.entity.SyncReport;
+import com.example.springboot_simple_demo.service.impl.FtpTransferServiceImpl;
+import com.example.springboot_simple_demo.utils.FtpUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FtpMetricsTest {
+    private static final String HOST = "127.0.0.1";
+    private static final int SIZE = 300_000;
+
+    @TempDir
+    File tempDir;
+
+    private FtpTestServer ftpServer;
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        File home = new File(tempDir, "home");
+        assertTrue(home.mkdirs());
+        ftpServer = new FtpTestServer(home);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ftpServer.close();
+    }
+
+    @Test
+    void recordsPhasesAndTransfers() throws Exception {
+        byte[] content = new byte[SIZE];
+        new Random(25).nextBytes(content);
+        assertTrue(ftpUtil(FtpTestServer.PASSWORD).uploadFile("/", "in/today", "file.bin", new ByteArrayInputStream(content)));
+
+        try (InputStream input = ftpUtil(FtpTestServer.PASSWORD).downloadFile("/in/today", "file.bin")) {
+            assertNotNull(input);
+            byte[] buffer = new byte[8192];
+            while (input.read(buffer) != -1) {
+                // 读完整个文件
+            }
+        }
+
+        for (String operation : new String[]{"connect", "login", "cwd", "store", "list", "retrieve"}) {
+            assertEquals(operation.equals("connect") || operation.equals("login") ? 2 : 1,
+                    registry.get("ftp.util.phase").tags("host", HOST, "operation", operation).timer().count(), operation);
+        }
+        assertEquals(SIZE, registry.get("ftp.util.bytes").tags("host", HOST, "operation", "upload").counter().count());
+        assertEquals(SIZE, registry.get("ftp.util.bytes").tags("host", HOST, "operation", "download").counter().count());
+        assertEquals(1, registry.get("ftp.util.transfer").tags("operation", "download", "result", "success").timer().count());
+        assertTrue(registry.get("ftp.util.throughput").tags("host", HOST, "operation", "upload").gauge().value() > 0);
+        assertTrue(registry.find("ftp.util.failures").counters().isEmpty());
+    }
+
+    @Test
+    void recordsPhasesOfPooledServiceTransfers() throws Exception {
+        FtpProperties properties = new FtpProperties();
+        properties.getCache().setEnabled(false);
+        properties.getResume().setStateDir(new File(tempDir, "state").getPath());
+        properties.getSync().setManifestDir(new File(tempDir, "manifest").getPath());
+        FtpServiceInfo info = new FtpServiceInfo(HOST, ftpServer.getPort(), FtpTestServer.USERNAME, FtpTestServer.PASSWORD);
+        File local = new File(tempDir, "local");
+        assertTrue(new File(local, "sub").mkdirs());
+        byte[] content = new byte[SIZE];
+        new Random(25).nextBytes(content);
+        Files.write(new File(local, "file.bin").toPath(), content);
+        Files.write(new File(local, "sub/other.bin").toPath(), content);
+
+        try (FtpClientPool pool = new FtpClientPool(new FtpClientFactory(5000, 10000, 0, FtpMetrics.of(registry)),
+                new GenericKeyedObjectPoolConfig<>())) {
+            FtpTransferServiceImpl service = new FtpTransferServiceImpl();
+            ReflectionTestUtils.setField(service, "ftpClientPool", pool);
+            ReflectionTestUtils.setField(service, "ftpProperties", properties);
+            service.uploadFile(info, local.getPath(), "file.bin", "/", "in");
+            service.downloadFile(info, tempDir.getPath(), "copy.bin", "/in", "file.bin");
+            SyncReport report = service.sync(info, local.getPath(), "/mirror", false);
+            assertNotNull(report);
+            assertTrue(report.isSuccess());
+        }
+
+        for (String operation : new String[]{"connect", "login", "borrow", "store", "retrieve", "list"}) {
+            assertTrue(registry.get("ftp.util.phase").tags("host", HOST, "operation", operation).timer().count() > 0, operation);
+        }
+        assertTrue(registry.find("ftp.util.failures").counters().isEmpty());
+    }
+
+    @Test
+    void countsRejectedLogin() {
+        assertFalse(ftpUtil("wrong").uploadFile("/", "in", "file.bin", new ByteArrayInputStream(new byte[1])));
+        assertEquals(1, registry.get("ftp.util.failures").tags("host", HOST, "operation", "login", "reason", "rejected")
+                .counter().count());
+        assertTrue(registry.find("ftp.util.phase").tags("operation", "store").timers().isEmpty());
+    }
+
+    private FtpUtil ftpUtil(String password) {
+        return new FtpUtil(HOST, ftpServer.getPort(), FtpTestServer.USERNAME, password).setMeterRegistry(registry);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FtpResumableTransferTest {
+    private static final int SIZE = 300_000;
+    private static final int PARTIAL = 120_000;
+
+    @TempDir
+    File tempDir;
+
+    private File home;
+    private FtpTestServer ftpServer;
+    private FtpClientPool pool;
+    private FtpResumableTransfer transfer;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ftpServer = FtpTestServer.start(tempDir);
+        home = ftpServer.home();
+        pool = ftpServer.pool();
+        transfer = new FtpResumableTransfer(pool, new File(tempDir, "state"), 2);
+        content = new byte[SIZE];
+        new Random(17).nextBytes(content);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ftpServer.close();
+    }
+
+    @Test
+    void uploadAppendsToRemotePartial() throws Exception {
+        File local = new File(tempDir, "upload.bin");
+        Files.write(local.toPath(), content);
+        assertTrue(new File(home, "in").mkdirs());
+        Files.write(new File(home, "in/upload.bin").toPath(), Arrays.copyOf(content, PARTIAL));
+        // 上次上传中断时留下的进度文件
+        Properties state = new Properties();
+        state.setProperty("local", local.getAbsolutePath());
+        state.setProperty("remote", ftpServer.server() + "/in/upload.bin");
+        state.setProperty("size", String.valueOf(SIZE));
+        state.setProperty("modified", String.valueOf(local.lastModified()));
+        Path statePath = transfer.uploadStatePath(ftpServer.server(), local, "/in/upload.bin");
+        Files.createDirectories(statePath.getParent());
+        try (OutputStream output = Files.newOutputStream(statePath)) {
+            state.store(output, null);
+        }
+
+        assertEquals(SIZE - PARTIAL, transfer.upload(ftpServer.server(), local, "/in/upload.bin"));
+        assertArrayEquals(content, Files.readAllBytes(new File(home, "in/upload.bin").toPath()));
+        assertFalse(statePath.toFile().exists());
+    }
+
+    @Test
+    void uploadOverwritesRemoteFileWithoutProgress() throws Exception {
+        File local = new File(tempDir, "upload.bin");
+        Files.write(local.toPath(), content);
+        // 远程同名文件不是本地文件上传了一半的结果，不能在其后追加
+        assertTrue(new File(home, "a/b").mkdirs());
+        Files.write(new File(home, "a/b/upload.bin").toPath(), new byte[PARTIAL]);
+
+        assertEquals(SIZE, transfer.upload(ftpServer.server(), local, "/a/b/upload.bin"));
+        assertArrayEquals(content, Files.readAllBytes(new File(home, "a/b/upload.bin").toPath()));
+
+        // 远程目录不存在时创建
+        assertEquals(SIZE, transfer.upload(ftpServer.server(), local, "/new/dir/upload.bin"));
+        assertArrayEquals(content, Files.readAllBytes(new File(home, "new/dir/upload.bin").toPath()));
+    }
+
+    @Test
+    void downloadContinuesFromLocalPartial() throws Exception {
+        Files.write(new File(home, "download.bin").toPath(), content);
+        File local = new File(tempDir, "out/download.bin");
+        assertTrue(local.getParentFile().mkdirs());
+        Files.write(local.toPath(), Arrays.copyOf(content, PARTIAL));
+        String modified = pool.execute(ftpServer.server(), ftpClient -> ftpClient.getModificationTime("/download.bin"));
+        Properties state = new Properties();
+        state.setProperty("remote", ftpServer.server() + "/download.bin");
+        state.setProperty("size", String.valueOf(SIZE));
+        state.setProperty("modified", modified);
+        try (OutputStream output = Files.newOutputStream(new File(local.getPath() + FtpResumableTransfer.DOWNLOAD_STATE_SUFFIX).toPath())) {
+            state.store(output, null);
+        }
+
+        // REST在RETR之前发送，只传输剩余部分
+        assertEquals(SIZE - PARTIAL, transfer.download(ftpServer.server(), "/download.bin", local));
+        assertArrayEquals(content, Files.readAllBytes(local.toPath()));
+        assertFalse(new File(local.getPath() + FtpResumableTransfer.DOWNLOAD_STATE_SUFFIX).exists());
+        // 传输正常结束的会话归还复用
+        assertEquals(1, pool.numIdle(ftpServer.server()));
+    }
+
+    @Test
+    void downloadRestartsWithoutProgress() throws Exception {
+        Files.write(new File(home, "download.bin").toPath(), content);
+        File local = new File(tempDir, "download.bin");
+        Files.write(local.toPath(), new byte[PARTIAL]);
+
+        assertEquals(SIZE, transfer.download(ftpServer.server(), "/download.bin", local));
+        assertArrayEquals(content, Files.readAllBytes(local.toPath()));
+    }
+
+    @Test
+    void listenerCancelsAndNextCallResumes() throws Exception {
+        Files.write(new File(home, "download.bin").toPath(), content);
+        File local = new File(tempDir, "download.bin");
+        // 回调抛出异常即中止传输，不重试
+        assertThrows(FtpTransferCancelledException.class, () -> transfer.download(ftpServer.server(), "/download.bin", local,
+                (position, size) -> {
+                    if (position >= PARTIAL) {
+                        throw new FtpTransferCancelledException("cancelled");
+                    }
+                }));
+        assertTrue(local.length() >= PARTIAL && local.length() < SIZE);
+        assertEquals(0, pool.numActive(ftpServer.server()));
+
+        long[] first = {-1};
+        long received = transfer.download(ftpServer.server(), "/download.bin", local, (position, size) -> {
+            if (first[0] < 0) {
+                first[0] = position;
+            }
+            assertEquals(SIZE, size);
+        });
+        assertEquals(SIZE - first[0], received);
+        assertTrue(first[0] >= PARTIAL);
+        assertArrayEquals(content, Files.readAllBytes(local.toPath()));
+    }
+}
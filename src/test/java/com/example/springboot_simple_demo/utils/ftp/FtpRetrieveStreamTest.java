@@ -0,0 +1,100 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.utils.FtpUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FtpRetrieveStreamTest {
+    private static final int SIZE = 500_000;
+
+    @TempDir
+    File tempDir;
+
+    private FtpTestServer ftpServer;
+    private FtpClientPool pool;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ftpServer = FtpTestServer.start(tempDir);
+        pool = ftpServer.pool();
+        content = new byte[SIZE];
+        new Random(19).nextBytes(content);
+        Files.write(new File(ftpServer.home(), "file.bin").toPath(), content);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ftpServer.close();
+    }
+
+    @Test
+    void holdsSessionUntilClosedAndReusesAfterEof() throws Exception {
+        FtpServer server = ftpServer.server();
+        try (InputStream input = FtpRetrieveStream.open(pool, server, "/file.bin", 0, -1)) {
+            assertEquals(1, pool.numActive(server));
+            assertArrayEquals(content, readAll(input));
+        }
+        assertEquals(0, pool.numActive(server));
+        assertEquals(1, pool.numIdle(server));
+    }
+
+    @Test
+    void readsRangeFromRestOffset() throws Exception {
+        FtpServer server = ftpServer.server();
+        try (InputStream input = FtpRetrieveStream.open(pool, server, "/file.bin", 1000, 5000)) {
+            assertArrayEquals(Arrays.copyOfRange(content, 1000, 6000), readAll(input));
+        }
+        // 范围没有读到文件末尾，会话不复用
+        assertEquals(0, pool.numActive(server));
+        assertEquals(0, pool.numIdle(server));
+
+        // 范围恰好到文件末尾时会话可以复用
+        try (InputStream input = FtpRetrieveStream.open(pool, server, "/file.bin", SIZE - 100, 100)) {
+            assertArrayEquals(Arrays.copyOfRange(content, SIZE - 100, SIZE), readAll(input));
+        }
+        assertEquals(1, pool.numIdle(server));
+    }
+
+    @Test
+    void releasesSessionWhenFileMissing() {
+        FtpServer server = ftpServer.server();
+        assertThrows(IOException.class, () -> FtpRetrieveStream.open(pool, server, "/missing.bin", 0, -1));
+        assertEquals(0, pool.numActive(server));
+    }
+
+    @Test
+    void ftpUtilStreamStaysReadableAfterReturn() throws Exception {
+        FtpUtil ftpUtil = new FtpUtil(pool, "127.0.0.1", ftpServer.getPort(), FtpTestServer.USERNAME, FtpTestServer.PASSWORD);
+        InputStream input = ftpUtil.downloadFile("/", "file.bin");
+        assertNotNull(input);
+        assertArrayEquals(content, readAll(input));
+        input.close();
+        assertEquals(1, pool.numIdle(ftpServer.server()));
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class FtpSegmentedDownloaderTest {
+    private static final int SIZE = 5 * 1024 * 1024 + 123;
+
+    @TempDir
+    File tempDir;
+
+    private FtpTestServer ftpServer;
+    private FtpClientPool pool;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ftpServer = FtpTestServer.start(tempDir);
+        pool = ftpServer.pool(4);
+        content = new byte[SIZE];
+        new Random(16).nextBytes(content);
+        Files.write(new File(ftpServer.home(), "big.bin").toPath(), content);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ftpServer.close();
+    }
+
+    @Test
+    void downloadsSegmentsInParallel() throws Exception {
+        File local = new File(tempDir, "local/big.bin");
+        long downloaded = downloader().download(ftpServer.server(), "/big.bin", local);
+
+        assertEquals(SIZE, downloaded);
+        assertArrayEquals(content, Files.readAllBytes(local.toPath()));
+        assertFalse(statePath(local).toFile().exists());
+        assertEquals(0, pool.numActive(ftpServer.server()));
+    }
+
+    @Test
+    void resumesEachSegmentFromSavedProgress() throws Exception {
+        FtpSegmentedDownloader downloader = downloader();
+        File local = new File(tempDir, "big.bin");
+        String modified = pool.execute(ftpServer.server(), ftpClient -> ftpClient.getModificationTime("/big.bin"));
+
+        // 模拟中断：每段只下载了一部分，其余位置是零
+        FtpSegmentedDownloader.State state = FtpSegmentedDownloader.State.create("/big.bin", SIZE, modified, downloader.plan(SIZE));
+        long done = 0;
+        try (RandomAccessFile file = new RandomAccessFile(local, "rw")) {
+            file.setLength(SIZE);
+            for (int i = 0; i < state.segmentCount(); i++) {
+                long start = state.position(i);
+                long partial = (state.end(i) - start) / (i + 2);
+                file.seek(start);
+                file.write(content, (int) start, (int) partial);
+                state.advance(i, start + partial);
+                done += partial;
+            }
+        }
+        state.save(statePath(local));
+
+        long downloaded = downloader.download(ftpServer.server(), "/big.bin", local);
+        assertEquals(SIZE - done, downloaded);
+        assertArrayEquals(content, Files.readAllBytes(local.toPath()));
+        assertFalse(statePath(local).toFile().exists());
+    }
+
+    @Test
+    void restartsWhenRemoteFileChanged() throws Exception {
+        FtpSegmentedDownloader downloader = downloader();
+        File local = new File(tempDir, "big.bin");
+        Files.write(local.toPath(), new byte[SIZE]);
+        FtpSegmentedDownloader.State state = FtpSegmentedDownloader.State.create("/big.bin", SIZE, "19700101000000", downloader.plan(SIZE));
+        state.advance(0, state.end(0));
+        state.save(statePath(local));
+
+        assertEquals(SIZE, downloader.download(ftpServer.server(), "/big.bin", local));
+        assertArrayEquals(content, Files.readAllBytes(local.toPath()));
+    }
+
+    @Test
+    void savesProgressSnapshotTakenBeforeFlush() throws Exception {
+        File local = new File(tempDir, "big.bin");
+        FtpSegmentedDownloader.State state = FtpSegmentedDownloader.State.create("/big.bin", SIZE, "20240101000000", downloader().plan(SIZE));
+        state.advance(1, state.position(1) + 100);
+        long[] positions = state.snapshot();
+        // 刷盘期间其他段继续写入，这部分进度不能保存
+        state.advance(1, state.position(1) + 100);
+        state.advance(2, state.end(2));
+        state.save(statePath(local), positions);
+
+        FtpSegmentedDownloader.State saved = FtpSegmentedDownloader.State.load(statePath(local), "/big.bin", SIZE, "20240101000000");
+        assertEquals(positions[1], saved.position(1));
+        assertEquals(positions[2], saved.position(2));
+    }
+
+    @Test
+    void plansSegmentsByMinimumSize() {
+        FtpSegmentedDownloader downloader = downloader();
+        assertEquals(1, downloader.plan(100).length);
+        assertEquals(4, downloader.plan(SIZE).length);
+        long[][] ranges = downloader.plan(3 * 1024 * 1024 + 1);
+        assertEquals(3, ranges.length);
+        assertEquals(0, ranges[0][0]);
+        assertEquals(ranges[0][1], ranges[1][0]);
+        assertEquals(3 * 1024 * 1024 + 1, ranges[2][1]);
+    }
+
+    private FtpSegmentedDownloader downloader() {
+        return new FtpSegmentedDownloader(pool, 4, 1024 * 1024, 2);
+    }
+
+    private static Path statePath(File local) {
+        return new File(local.getPath() + FtpSegmentedDownloader.STATE_SUFFIX).toPath();
+    }
+}
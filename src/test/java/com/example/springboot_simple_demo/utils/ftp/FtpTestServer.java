@@ -0,0 +1,103 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.UserManager;
+import org.apache.ftpserver.listener.ListenerFactory;
+import org.apache.ftpserver.usermanager.PropertiesUserManagerFactory;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.ConcurrentLoginPermission;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+  测试用的进程内FTP服务器，根目录为临时目录，用户 test/test
+  通过pool()创建的会话池在close时一并关闭
+ */
+public class FtpTestServer implements AutoCloseable {
+    public static final String USERNAME = "test";
+    public static final String PASSWORD = "test";
+
+    private final org.apache.ftpserver.FtpServer server;
+    private final int port;
+    private final File home;
+    private final List<FtpClientPool> pools = new ArrayList<>();
+
+    /**
+     * 以 tempDir/home 为根目录启动服务器
+     *
+     * @param tempDir 测试的临时目录
+     * @return 服务器
+     * @throws FtpException 启动失败
+     */
+    public static FtpTestServer start(File tempDir) throws FtpException {
+        File home = new File(tempDir, "home");
+        if (!home.isDirectory() && !home.mkdirs()) {
+            throw new IllegalStateException("mkdirs " + home + " failed");
+        }
+        return new FtpTestServer(home);
+    }
+
+    public FtpTestServer(File homeDirectory) throws FtpException {
+        home = homeDirectory;
+        FtpServerFactory serverFactory = new FtpServerFactory();
+        ListenerFactory listenerFactory = new ListenerFactory();
+        listenerFactory.setPort(0);
+        serverFactory.addListener("default", listenerFactory.createListener());
+
+        UserManager userManager = new PropertiesUserManagerFactory().createUserManager();
+        BaseUser user = new BaseUser();
+        user.setName(USERNAME);
+        user.setPassword(PASSWORD);
+        user.setHomeDirectory(homeDirectory.getAbsolutePath());
+        List<Authority> authorities = Arrays.asList(new WritePermission(), new ConcurrentLoginPermission(50, 50));
+        user.setAuthorities(authorities);
+        userManager.save(user);
+        serverFactory.setUserManager(userManager);
+
+        server = serverFactory.createServer();
+        server.start();
+        port = serverFactory.getListener("default").getPort();
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public File home() {
+        return home;
+    }
+
+    public FtpServer server() {
+        return new FtpServer("127.0.0.1", port, USERNAME, PASSWORD);
+    }
+
+    public FtpClientPool pool() {
+        return pool(new GenericKeyedObjectPoolConfig<>());
+    }
+
+    public FtpClientPool pool(int maxTotalPerKey) {
+        GenericKeyedObjectPoolConfig<FTPClient> config = new GenericKeyedObjectPoolConfig<>();
+        config.setMaxTotalPerKey(maxTotalPerKey);
+        return pool(config);
+    }
+
+    public FtpClientPool pool(GenericKeyedObjectPoolConfig<FTPClient> config) {
+        FtpClientPool pool = new FtpClientPool(new FtpClientFactory(5000, 10000, 0), config);
+        pools.add(pool);
+        return pool;
+    }
+
+    @Override
+    public void close() {
+        pools.forEach(FtpClientPool::close);
+        server.stop();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.entity.TransferJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FtpTransferSchedulerTest {
+    private FtpTransferScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void interactiveJobsDoNotWaitBehindBulkJobs() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch interactiveDone = new CountDownLatch(1);
+        scheduler = new FtpTransferScheduler(1, 1, 4, 2, 100, job -> {
+            if (job.getLane() == TransferJob.Lane.BULK) {
+                await(release);
+            } else {
+                interactiveDone.countDown();
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            scheduler.submit(job("bulk-" + i, "a", TransferJob.Lane.BULK, 0));
+        }
+        scheduler.submit(job("small", "a", TransferJob.Lane.INTERACTIVE, 0));
+        assertTrue(interactiveDone.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    void capsConcurrentJobsPerHost() throws Exception {
+        Map<String, AtomicInteger> active = new ConcurrentHashMap<>();
+        Map<String, Integer> peak = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(20);
+        Consumer<TransferJob> runner = job -> {
+            String key = job.getHost() + "/" + job.getLane();
+            int current = active.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+            peak.merge(key, current, Math::max);
+            sleep(30);
+            active.get(key).decrementAndGet();
+            done.countDown();
+        };
+        // 批量任务每个服务器最多1个，交互式任务使用剩余的1个
+        scheduler = new FtpTransferScheduler(4, 4, 2, 1, 100, runner);
+        for (int i = 0; i < 5; i++) {
+            scheduler.submit(job("a-bulk-" + i, "a", TransferJob.Lane.BULK, 0));
+            scheduler.submit(job("b-bulk-" + i, "b", TransferJob.Lane.BULK, 0));
+            scheduler.submit(job("a-small-" + i, "a", TransferJob.Lane.INTERACTIVE, 0));
+            scheduler.submit(job("b-small-" + i, "b", TransferJob.Lane.INTERACTIVE, 0));
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, peak.get("a/BULK"));
+        assertEquals(1, peak.get("b/BULK"));
+        assertTrue(peak.get("a/INTERACTIVE") <= 2);
+        assertTrue(peak.get("b/INTERACTIVE") <= 2);
+    }
+
+    @Test
+    void runsHigherPriorityFirstAndRejectsWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(4);
+        List<String> order = new CopyOnWriteArrayList<>();
+        scheduler = new FtpTransferScheduler(1, 1, 4, 2, 3, job -> {
+            if (job.getId().equals("first")) {
+                await(release);
+            }
+            order.add(job.getId());
+            done.countDown();
+        });
+        scheduler.submit(job("first", "a", TransferJob.Lane.INTERACTIVE, 0));
+        // 等第一个任务开始执行，其余任务都在排队
+        while (scheduler.queued() > 0) {
+            Thread.sleep(5);
+        }
+        TransferJob low = job("low", "a", TransferJob.Lane.INTERACTIVE, 0);
+        scheduler.submit(low);
+        scheduler.submit(job("high", "a", TransferJob.Lane.INTERACTIVE, 5));
+        scheduler.submit(job("normal", "a", TransferJob.Lane.INTERACTIVE, 1));
+        assertThrows(RejectedExecutionException.class,
+                () -> scheduler.submit(job("overflow", "a", TransferJob.Lane.INTERACTIVE, 0)));
+
+        TransferJob later = job("later", "a", TransferJob.Lane.INTERACTIVE, 0);
+        assertTrue(scheduler.remove(low));
+        scheduler.submit(later);
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("first", "high", "normal", "later"), order);
+    }
+
+    private static TransferJob job(String id, String host, TransferJob.Lane lane, int priority) {
+        TransferJob job = new TransferJob();
+        job.setId(id);
+        job.setHost(host);
+        job.setLane(lane);
+        job.setPriority(priority);
+        return job;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.springboot_simple_demo.utils.ftp;
+
+import com.example.springboot_simple_demo.utils.zip.ParallelZipStreamer;
+import com.example.springboot_simple_demo.utils.zip.ZipSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FtpZipSourcesTest {
+    @TempDir
+    File tempDir;
+
+    private FtpTestServer ftpServer;
+    private FtpClientPool pool;
+    private final List<byte[]> contents = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ftpServer = FtpTestServer.start(tempDir);
+        pool = ftpServer.pool(3);
+        File data = new File(ftpServer.home(), "data/sub");
+        assertTrue(data.mkdirs());
+        Random random = new Random(21);
+        for (int i = 0; i < 6; i++) {
+            byte[] content = new byte[i * 40_000];
+            random.nextBytes(content);
+            contents.add(content);
+            Files.write(new File(i % 2 == 0 ? data : data.getParentFile(), i + ".bin").toPath(), content);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        ftpServer.close();
+    }
+
+    @Test
+    void zipsRemoteDirectoryThroughPooledSessions() throws Exception {
+        List<ZipSource> sources = FtpZipSources.list(pool, ftpServer.server(), "/data");
+        assertEquals(List.of("1.bin", "3.bin", "5.bin", "sub/", "sub/0.bin", "sub/2.bin", "sub/4.bin"),
+                sources.stream().map(ZipSource::getName).collect(Collectors.toList()));
+
+        ParallelZipStreamer streamer = new ParallelZipStreamer(4, 8, 100_000, 6);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            streamer.write(sources, output);
+        } finally {
+            streamer.shutdown();
+        }
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            ZipEntry entry;
+            int files = 0;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    int index = entry.getName().charAt(entry.getName().length() - 5) - '0';
+                    assertArrayEquals(contents.get(index), zip.readAllBytes(), entry.getName());
+                    files++;
+                }
+            }
+            assertEquals(6, files);
+        }
+        // 所有会话都已归还
+        assertEquals(0, pool.numActive(ftpServer.server()));
+    }
+
+    @Test
+    void returnsNullForMissingDirectory() throws Exception {
+        assertNull(FtpZipSources.list(pool, ftpServer.server(), "/missing"));
+    }
+}
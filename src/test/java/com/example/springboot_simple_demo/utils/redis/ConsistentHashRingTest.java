@@ -0,0 +1,80 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+    private static final int KEYS = 100_000;
+
+    @Test
+    void distributesKeysEvenly() {
+        ConsistentHashRing<String> ring = ring("a:6379", "b:6379", "c:6379", "d:6379");
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.get("captcha:" + i), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        // 160个虚拟节点时各节点偏差在平均值的25%以内
+        counts.values().forEach(count -> assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 / 4, counts.toString()));
+    }
+
+    @Test
+    void addingNodeOnlyMovesKeysToIt() {
+        ConsistentHashRing<String> ring = ring("a:6379", "b:6379", "c:6379");
+        Map<String, String> before = assign(ring);
+        ring.add("d:6379");
+
+        int moved = 0;
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            String now = ring.get(entry.getKey());
+            if (!now.equals(entry.getValue())) {
+                assertEquals("d:6379", now);
+                moved++;
+            }
+        }
+        // 约1/4的键迁移
+        assertTrue(moved > KEYS / 5 && moved < KEYS / 3, "moved " + moved);
+    }
+
+    @Test
+    void removingNodeOnlyMovesItsKeys() {
+        ConsistentHashRing<String> ring = ring("a:6379", "b:6379", "c:6379");
+        Map<String, String> before = assign(ring);
+        ring.remove("b:6379");
+
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            if (!entry.getValue().equals("b:6379")) {
+                assertEquals(entry.getValue(), ring.get(entry.getKey()));
+            }
+        }
+    }
+
+    @Test
+    void hashTagKeepsRelatedKeysTogether() {
+        ConsistentHashRing<String> ring = ring("a:6379", "b:6379", "c:6379");
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ring.get("{user" + i + "}"), ring.get("{user" + i + "}:attempts"));
+        }
+    }
+
+    private static ConsistentHashRing<String> ring(String... nodes) {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(160);
+        for (String node : nodes) {
+            ring.add(node);
+        }
+        return ring;
+    }
+
+    private static Map<String, String> assign(ConsistentHashRing<String> ring) {
+        Map<String, String> assignment = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            assignment.put("captcha:" + i, ring.get("captcha:" + i));
+        }
+        return assignment;
+    }
+}
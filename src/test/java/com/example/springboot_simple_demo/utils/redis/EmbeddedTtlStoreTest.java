@@ -0,0 +1,132 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddedTtlStoreTest {
+    private static final long TICK = 100;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void expiresKeysThroughTimingWheel() {
+        EmbeddedTtlStore store = store(100);
+        store.set("short", "1", 250);
+        store.set("long", "2", 3_600_000);
+        store.set("forever", "3", -1);
+
+        tick(store, 200);
+        assertEquals("1", store.get("short"));
+        tick(store, 100);
+        assertNull(store.get("short"));
+        assertEquals(2, store.size());
+
+        // 跨越多层时间轮后仍按时过期
+        tick(store, 3_600_000 - 400);
+        assertTrue(store.exists("long"));
+        tick(store, 200);
+        assertFalse(store.exists("long"));
+        assertEquals(1, store.size());
+        assertEquals("3", store.get("forever"));
+    }
+
+    @Test
+    void expireResetsDeadline() {
+        EmbeddedTtlStore store = store(100);
+        store.set("key", "1", 200);
+        assertTrue(store.expire("key", 1000));
+        tick(store, 500);
+        assertEquals("1", store.get("key"));
+        tick(store, 600);
+        assertNull(store.get("key"));
+        assertFalse(store.expire("key", 1000));
+        assertFalse(store.delete("key"));
+    }
+
+    @Test
+    void getOrCreateKeepsFirstValue() {
+        EmbeddedTtlStore store = store(100);
+        assertEquals("1111", store.getOrCreate("captcha", "1111", 1000));
+        assertEquals("1111", store.getOrCreate("captcha", "2222", 1000));
+        tick(store, 1100);
+        assertEquals("2222", store.getOrCreate("captcha", "2222", 1000));
+    }
+
+    @Test
+    void verifyLocksAfterMaxAttempts() {
+        EmbeddedTtlStore store = store(100);
+        store.set("captcha", "1234", 60_000);
+        assertEquals(VerifyResult.MISMATCH, store.verify("captcha", "0000", 3));
+        assertEquals(VerifyResult.MISMATCH, store.verify("captcha", "0000", 3));
+        assertEquals(VerifyResult.LOCKED, store.verify("captcha", "0000", 3));
+        assertEquals(VerifyResult.EXPIRED, store.verify("captcha", "1234", 3));
+
+        store.set("captcha", "1234", 60_000);
+        assertEquals(VerifyResult.MISMATCH, store.verify("captcha", "0000", 3));
+        assertEquals(VerifyResult.SUCCESS, store.verify("captcha", "1234", 3));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void verifyAttemptsOnPersistentKeyExpire() {
+        EmbeddedTtlStore store = store(100);
+        store.set("captcha", "1234", 0);
+        assertEquals(VerifyResult.MISMATCH, store.verify("captcha", "0000", 3));
+        assertEquals(-1, store.ttl("captcha"));
+        long ttl = store.ttl(RedisScripts.attemptsKey("captcha"));
+        assertTrue(ttl > 0 && ttl <= RedisScripts.ATTEMPTS_TTL_MILLIS, "ttl " + ttl);
+    }
+
+    @Test
+    void evictsEarliestDeadlineWhenFull() {
+        EmbeddedTtlStore store = store(3);
+        store.set("a", "1", 5000);
+        store.set("b", "2", 1000);
+        store.set("c", "3", 9000);
+        store.set("d", "4", 9000);
+        assertEquals(3, store.size());
+        assertNull(store.get("b"));
+        assertEquals("1", store.get("a"));
+    }
+
+    @Test
+    void staysBoundedWithOnlyPersistentKeys() {
+        EmbeddedTtlStore store = store(3);
+        for (int i = 0; i < 10; i++) {
+            store.set("persistent" + i, String.valueOf(i), 0);
+            assertTrue(store.size() <= 3);
+            // 刚写入的键不会被淘汰
+            assertEquals(String.valueOf(i), store.get("persistent" + i));
+        }
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    void hugeTtlSaturatesInsteadOfOverflowing() {
+        EmbeddedTtlStore store = store(100);
+        store.set("huge", "1", Long.MAX_VALUE);
+        store.set("almost", "2", Long.MAX_VALUE - now.get() - 1);
+        tick(store, 1000);
+        assertEquals("1", store.get("huge"));
+        assertEquals(-1, store.ttl("huge"));
+        assertEquals("2", store.get("almost"));
+        assertTrue(store.ttl("almost") > 0);
+        assertTrue(store.expire("huge", Long.MAX_VALUE - 1));
+        assertEquals("1", store.get("huge"));
+    }
+
+    private EmbeddedTtlStore store(int maxKeys) {
+        return new EmbeddedTtlStore(maxKeys, TICK, now::get, false);
+    }
+
+    private void tick(EmbeddedTtlStore store, long millis) {
+        now.addAndGet(millis);
+        store.advance();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotKeyTrackerTest {
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void findsHotKeysAmongManyColdKeys() {
+        HotKeyTracker tracker = new HotKeyTracker(50, 1, 0, now::get);
+        for (int i = 0; i < 100_000; i++) {
+            // 每10次访问中 hot:0 占3次，hot:1 占1次，其余为只出现一次的冷键
+            int slot = i % 10;
+            tracker.record(slot < 3 ? "hot:0" : slot == 3 ? "hot:1" : "cold:" + i);
+        }
+        List<Map<String, Object>> top = tracker.top(2);
+        assertEquals("hot:0", top.get(0).get("key"));
+        assertEquals("hot:1", top.get(1).get("key"));
+        long count = (Long) top.get(0).get("count");
+        long error = (Long) top.get(0).get("error");
+        // 实际次数在 count - error 与 count 之间
+        assertTrue(count - error <= 30_000 && 30_000 <= count, top.toString());
+        assertEquals(100_000, tracker.total());
+    }
+
+    @Test
+    void resetsAfterWindow() {
+        HotKeyTracker tracker = new HotKeyTracker(10, 1, 60_000, now::get);
+        tracker.record("a");
+        tracker.record("a");
+        assertEquals(1, tracker.top(10).size());
+        now.addAndGet(60_000);
+        assertTrue(tracker.top(10).isEmpty());
+        assertEquals(0, tracker.total());
+    }
+
+    @Test
+    void mergesConcurrentRecords() throws InterruptedException {
+        HotKeyTracker tracker = new HotKeyTracker(10, 1, 0, now::get);
+        int threads = 8;
+        // 每个线程的次数不是分条阈值的整数倍，查询时仍有未并入的计数
+        int perThread = HotKeyTracker.FLUSH_THRESHOLD * 10 + 7;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    tracker.record(i % 2 == 0 ? "hot" : "warm");
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        assertEquals((long) threads * perThread, tracker.total());
+        List<Map<String, Object>> top = tracker.top(1);
+        assertEquals("hot", top.get(0).get("key"));
+        assertEquals((long) threads * (perThread / 2 + 1), top.get(0).get("count"));
+    }
+
+    @Test
+    void validatesArguments() {
+        HotKeyTracker tracker = new HotKeyTracker(1, 1, 0, now::get);
+        tracker.record("a");
+        assertTrue(tracker.top(-1).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new HotKeyTracker(0, 1, 0, now::get));
+        assertThrows(IllegalArgumentException.class, () -> new HotKeyTracker(10, 0, 0, now::get));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalTokenBucketsTest {
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void allowsBurstThenRefills() {
+        LocalTokenBuckets buckets = new LocalTokenBuckets(100, now::get);
+        List<TokenBucket> limit = Collections.singletonList(new TokenBucket("client", 3, 2));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, buckets.acquire(limit));
+        }
+        assertEquals(500, buckets.acquire(limit));
+        now.addAndGet(500);
+        assertEquals(0, buckets.acquire(limit));
+        assertTrue(buckets.acquire(limit) > 0);
+    }
+
+    @Test
+    void consumesAllBucketsOrNone() {
+        LocalTokenBuckets buckets = new LocalTokenBuckets(100, now::get);
+        TokenBucket client = new TokenBucket("client", 5, 1);
+        TokenBucket id = new TokenBucket("id", 1, 0.2);
+        assertEquals(0, buckets.acquire(Arrays.asList(client, id)));
+        // 序号的桶已空，客户端的桶不扣减
+        assertEquals(5000, buckets.acquire(Arrays.asList(client, id)));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0, buckets.acquire(Collections.singletonList(client)));
+        }
+        assertTrue(buckets.acquire(Collections.singletonList(client)) > 0);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBucketsBeyondLimit() {
+        LocalTokenBuckets buckets = new LocalTokenBuckets(2, now::get);
+        TokenBucket active = new TokenBucket("active", 1, 0.1);
+        assertEquals(0, buckets.acquire(Collections.singletonList(active)));
+        // 大量不同的客户端键不会让桶数量超过上限
+        for (int i = 0; i < 1000; i++) {
+            buckets.acquire(Collections.singletonList(new TokenBucket("client" + i, 2, 1)));
+            assertTrue(buckets.acquire(Collections.singletonList(active)) > 0);
+            assertTrue(buckets.size() <= 2);
+        }
+        assertEquals(2, buckets.size());
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NearCacheTest {
+
+    @Test
+    void entriesLiveNoLongerThanRedisTtl() throws Exception {
+        NearCache cache = new NearCache(10, 60_000);
+        cache.put("short", "a", 50, cache.stamp("short"));
+        cache.put("persistent", "b", -1, cache.stamp("persistent"));
+        cache.put("expired", "c", 0, cache.stamp("expired"));
+        assertEquals("a", cache.get("short"));
+        assertNull(cache.get("expired"));
+
+        Thread.sleep(80);
+        assertNull(cache.get("short"));
+        assertEquals("b", cache.get("persistent"));
+
+        NearCache bounded = new NearCache(10, 50);
+        bounded.put("persistent", "b", -1, bounded.stamp("persistent"));
+        Thread.sleep(80);
+        assertNull(bounded.get("persistent"));
+    }
+
+    @Test
+    void discardsValuesReadBeforeInvalidation() {
+        NearCache cache = new NearCache(10, 60_000);
+        long stamp = cache.stamp("key");
+        cache.invalidate("key");
+        cache.put("key", "stale", -1, stamp);
+        assertNull(cache.get("key"));
+
+        // 清空同样使正在读取的结果作废
+        stamp = cache.stamp("key");
+        cache.clear();
+        cache.put("key", "stale", -1, stamp);
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+
+        cache.put("key", "fresh", -1, cache.stamp("key"));
+        assertEquals("fresh", cache.get("key"));
+    }
+
+    @Test
+    void boundsSizeAcrossSegments() {
+        NearCache small = new NearCache(2, 60_000);
+        small.put("a", "1", -1, small.stamp("a"));
+        small.put("b", "2", -1, small.stamp("b"));
+        small.get("a");
+        small.put("c", "3", -1, small.stamp("c"));
+        // 容量小时只有一段，严格按LRU淘汰
+        assertEquals("1", small.get("a"));
+        assertNull(small.get("b"));
+
+        NearCache large = new NearCache(4096, 60_000);
+        for (int i = 0; i < 20_000; i++) {
+            large.put("key:" + i, "v", -1, large.stamp("key:" + i));
+        }
+        assertTrue(large.size() <= 4096, "size " + large.size());
+        assertTrue(large.size() > 3500, "size " + large.size());
+        large.clear();
+        assertEquals(0, large.size());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import com.example.springboot_simple_demo.config.RedisUtilProperties;
+import com.example.springboot_simple_demo.utils.redis.codec.StringCodec;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.DefaultClientResources;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+  比较shared、pooled、striped三种连接策略在多线程下的吞吐
+  需要本地运行的Redis，直接运行main方法，不参与单元测试
+  参数: [host] [port] [线程数列表，逗号分隔] [每轮秒数]
+ */
+public class RedisConnectionStrategyBenchmark {
+    // sharded模式需要多个独立节点，不在比较范围内
+    private static final RedisUtilProperties.Connection.Mode[] MODES = {
+            RedisUtilProperties.Connection.Mode.SHARED,
+            RedisUtilProperties.Connection.Mode.POOLED,
+            RedisUtilProperties.Connection.Mode.STRIPED
+    };
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 6379;
+        String[] threadCounts = (args.length > 2 ? args[2] : "1,8,64,256").split(",");
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        System.out.printf("%-8s %8s %14s %12s%n", "mode", "threads", "ops/s", "avg us");
+        ClientResources clientResources = DefaultClientResources.create();
+        try {
+            for (RedisUtilProperties.Connection.Mode mode : MODES) {
+                for (String threads : threadCounts) {
+                    run(host, port, mode, Integer.parseInt(threads.trim()), seconds, clientResources);
+                }
+            }
+        } finally {
+            clientResources.shutdown();
+        }
+    }
+
+    private static void run(String host, int port, RedisUtilProperties.Connection.Mode mode, int threads, int seconds,
+                            ClientResources clientResources) throws InterruptedException {
+        RedisProperties redisProperties = new RedisProperties();
+        RedisUtilProperties properties = new RedisUtilProperties();
+        properties.getConnection().setMode(mode);
+        properties.getConnection().getPool().setMaxTotal(Math.max(8, threads));
+        properties.getConnection().getPool().setMaxIdle(Math.max(8, threads));
+        int stripes = mode == RedisUtilProperties.Connection.Mode.STRIPED ? Runtime.getRuntime().availableProcessors() : 1;
+
+        List<LettuceConnectionFactory> factories = new ArrayList<>();
+        List<RedisTemplate<String, String>> templates = new ArrayList<>();
+        for (int i = 0; i < stripes; i++) {
+            LettuceConnectionFactory factory = LettuceConnections.create(new RedisStandaloneConfiguration(host, port),
+                    redisProperties, properties, clientResources);
+            factory.afterPropertiesSet();
+            factories.add(factory);
+            templates.add(LettuceConnections.template(factory, new StringCodec()));
+        }
+        RedisRouter router = stripes > 1 ? new StripedRedisRouter(templates, factories) : new SingleRedisRouter(templates.get(0));
+
+        LongAdder ops = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    String key = "bench:" + random.nextInt(100000);
+                    // 读写比 4:1，接近验证码的访问模式
+                    if (random.nextInt(5) == 0) {
+                        router.forKey(key).opsForValue().set(key, "012345", 60, TimeUnit.SECONDS);
+                    } else {
+                        router.forKey(key).opsForValue().get(key);
+                    }
+                    ops.increment();
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        double opsPerSecond = ops.sum() / (double) seconds;
+        System.out.printf("%-8s %8d %14.0f %12.1f%n", mode, threads, opsPerSecond, threads * 1_000_000 / opsPerSecond);
+        if (router instanceof StripedRedisRouter) {
+            ((StripedRedisRouter) router).destroy();
+        } else {
+            factories.forEach(LettuceConnectionFactory::destroy);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ReplicaRedisRouterTest {
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final RedisTemplate<String, String> primary = new RedisTemplate<>();
+    private final RedisTemplate<String, String> replica = new RedisTemplate<>();
+
+    @Test
+    void readsGoToReplicaAndWritesToPrimary() {
+        ReplicaRedisRouter router = router();
+        assertSame(replica, router.forRead("captcha:1"));
+        assertSame(primary, router.forKey("captcha:1"));
+        assertSame(primary, router.nodes().get(0));
+    }
+
+    @Test
+    void readsRecentlyWrittenKeyFromPrimary() {
+        ReplicaRedisRouter router = router();
+        router.written("captcha:1");
+        assertSame(primary, router.forRead("captcha:1"));
+        assertSame(replica, router.forRead("captcha:2"));
+
+        now.addAndGet(1999);
+        assertSame(primary, router.forRead("captcha:1"));
+        now.addAndGet(1);
+        assertSame(replica, router.forRead("captcha:1"));
+    }
+
+    private ReplicaRedisRouter router() {
+        return new ReplicaRedisRouter(new SingleRedisRouter(primary), replica, null, 2000, now::get);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.springboot_simple_demo.utils.redis;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedRedisRouterTest {
+
+    @Test
+    void notifiesListenersOfRuntimeShardChanges() {
+        ShardedRedisRouter router = new ShardedRedisRouter(160, node -> new RedisTemplate<>());
+        router.addShard("a:6379");
+        List<RedisTemplate<String, String>> subscribed = new ArrayList<>();
+        router.addShardListener(new ShardedRedisRouter.ShardListener() {
+            @Override
+            public void shardAdded(RedisTemplate<String, String> template) {
+                subscribed.add(template);
+            }
+
+            @Override
+            public void shardRemoved(RedisTemplate<String, String> template) {
+                // 退订时节点已移出哈希环，不会再被选中
+                for (int i = 0; i < 1000; i++) {
+                    assertNotSame(template, router.forKey("key:" + i));
+                }
+                assertTrue(subscribed.remove(template));
+            }
+        });
+        // 注册时已有的节点立即通知
+        assertEquals(router.nodes(), subscribed);
+
+        router.addShard("b:6379");
+        assertEquals(2, subscribed.size());
+        assertTrue(subscribed.containsAll(router.nodes()));
+
+        router.removeShard("a:6379");
+        assertEquals(router.nodes(), subscribed);
+        assertEquals(List.of("b:6379"), router.shardNames());
+    }
+
+    @Test
+    void lookupsNeverSeeHalfRemovedShard() throws Exception {
+        ShardedRedisRouter router = new ShardedRedisRouter(160, node -> new RedisTemplate<>());
+        router.addShard("a:6379");
+        router.addShard("b:6379");
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            int i = 0;
+            while (!stop.get()) {
+                try {
+                    assertNotNull(router.forKey("key:" + i++));
+                } catch (Throwable throwable) {
+                    failure.set(throwable);
+                    return;
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 2000; i++) {
+            router.addShard("c:6379");
+            router.removeShard("c:6379");
+        }
+        stop.set(true);
+        reader.join();
+        assertNull(failure.get());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.springboot_simple_demo.utils.redis.codec;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+  各编码的每值字节数及每次编解码耗时
+  直接运行main方法，不参与单元测试
+ */
+public class RedisValueCodecBenchmark {
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    public static void main(String[] args) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("captcha", "012345");
+        values.put("uuid", UUID.randomUUID().toString());
+        values.put("long", 1700000000000L);
+        values.put("text-2k", String.join(" ", Collections.nCopies(256, "captcha")));
+
+        Map<String, RedisSerializer<Object>> codecs = new LinkedHashMap<>();
+        codecs.put("json", RedisValueCodecs.create(RedisValueCodecs.Type.JSON, 0, false));
+        codecs.put("string", RedisValueCodecs.create(RedisValueCodecs.Type.STRING, 0, false));
+        codecs.put("string+gzip", RedisValueCodecs.create(RedisValueCodecs.Type.STRING, 1024, false));
+        codecs.put("compact", RedisValueCodecs.create(RedisValueCodecs.Type.COMPACT, 0, false));
+        codecs.put("compact+gzip+dual", RedisValueCodecs.create(RedisValueCodecs.Type.COMPACT, 1024, true));
+
+        System.out.printf("%-20s %-10s %10s %14s %14s%n", "codec", "value", "bytes", "encode ns/op", "decode ns/op");
+        for (Map.Entry<String, RedisSerializer<Object>> codec : codecs.entrySet()) {
+            for (Map.Entry<String, Object> value : values.entrySet()) {
+                byte[] bytes = codec.getValue().serialize(value.getValue());
+                run(codec.getValue(), value.getValue(), bytes, WARMUP);
+                long[] nanos = run(codec.getValue(), value.getValue(), bytes, ITERATIONS);
+                System.out.printf("%-20s %-10s %10d %14.1f %14.1f%n", codec.getKey(), value.getKey(), bytes.length,
+                        (double) nanos[0] / ITERATIONS, (double) nanos[1] / ITERATIONS);
+            }
+        }
+    }
+
+    private static long[] run(RedisSerializer<Object> codec, Object value, byte[] bytes, int iterations) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += codec.serialize(value).length;
+        }
+        long encode = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += codec.deserialize(bytes).hashCode();
+        }
+        long decode = System.nanoTime() - start;
+
+        if (sink == 42) {
+            System.out.println();
+        }
+        return new long[]{encode, decode};
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.springboot_simple_demo.utils.redis.codec;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisValueCodecTest {
+
+    @Test
+    void compactRoundTrip() {
+        RedisSerializer<Object> codec = new CompactCodec();
+        for (Object value : new Object[]{"012345", "1234567", "验证码abc", "", 42L, -7L, Long.MIN_VALUE, 123456789}) {
+            assertEquals(value, codec.deserialize(codec.serialize(value)));
+        }
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) codec.deserialize(codec.serialize(new byte[]{1, 2, 3})));
+        assertEquals(Collections.singletonMap("a", "b"), codec.deserialize(codec.serialize(Collections.singletonMap("a", "b"))));
+        // 6位验证码: 1字节标记 + 3字节BCD
+        assertEquals(4, codec.serialize("012345").length);
+    }
+
+    @Test
+    void compressesOnlyAboveThreshold() {
+        RedisSerializer<Object> codec = new CompressingCodec(new StringCodec(), 64);
+        String small = "123456";
+        String large = String.join("", Collections.nCopies(100, "captcha"));
+
+        assertEquals(small.length(), codec.serialize(small).length);
+        byte[] compressed = codec.serialize(large);
+        assertEquals(CompressingCodec.COMPRESSED, compressed[0]);
+        assertTrue(compressed.length < large.length());
+        assertEquals(large, codec.deserialize(compressed));
+    }
+
+    @Test
+    void readsLegacyJsonValues() {
+        RedisSerializer<Object> legacy = new GenericJackson2JsonRedisSerializer();
+        RedisSerializer<Object> codec = RedisValueCodecs.create(RedisValueCodecs.Type.STRING, 1024, true);
+
+        assertEquals("012345", codec.deserialize(legacy.serialize("012345")));
+        assertEquals("012345", codec.deserialize(codec.serialize("012345")));
+        assertEquals(6, codec.serialize("012345").length);
+        assertEquals("{not json}", codec.deserialize(codec.serialize("{not json}")));
+    }
+
+    @Test
+    void roundTripsJsonShapedStringsWithLegacyRead() {
+        RedisSerializer<Object> legacy = new GenericJackson2JsonRedisSerializer();
+        for (RedisValueCodecs.Type type : new RedisValueCodecs.Type[]{RedisValueCodecs.Type.STRING, RedisValueCodecs.Type.COMPACT}) {
+            RedisSerializer<Object> codec = RedisValueCodecs.create(type, 1024, true);
+            for (String value : new String[]{"\"abc\"", "{\"a\":1}", "[1,2]", "{}", "[]", "\"\"", "plain"}) {
+                assertEquals(value, codec.deserialize(codec.serialize(value)), type + " " + value);
+                // 旧编码写入的同一个值仍按JSON读出
+                assertEquals(value, codec.deserialize(legacy.serialize(value)), type + " legacy " + value);
+            }
+        }
+        // 不像JSON的新值不加标记
+        assertEquals(6, RedisValueCodecs.create(RedisValueCodecs.Type.STRING, 0, true).serialize("012345").length);
+        assertEquals(LegacyJsonReadCodec.TAGGED,
+                RedisValueCodecs.create(RedisValueCodecs.Type.STRING, 0, true).serialize("{\"a\":1}")[0]);
+    }
+
+    @Test
+    void readsTaggedValuesAfterLegacyReadIsTurnedOff() {
+        for (RedisValueCodecs.Type type : new RedisValueCodecs.Type[]{RedisValueCodecs.Type.STRING, RedisValueCodecs.Type.COMPACT}) {
+            RedisSerializer<Object> on = RedisValueCodecs.create(type, 1024, true);
+            RedisSerializer<Object> off = RedisValueCodecs.create(type, 1024, false);
+            for (String value : new String[]{"\"abc\"", "{\"a\":1}", "[1,2]", "plain"}) {
+                // 开启期间写入的值关闭后照常读出，关闭期间写入的值再次开启后也不会被当作旧值
+                assertEquals(value, off.deserialize(on.serialize(value)), type + " " + value);
+                assertEquals(value, on.deserialize(off.serialize(value)), type + " " + value);
+            }
+        }
+    }
+
+    @Test
+    void rejectsCorruptCompressedValues() {
+        RedisSerializer<Object> codec = new CompressingCodec(new StringCodec(), 64);
+        byte[] compressed = codec.serialize(String.join("", Collections.nCopies(100, "captcha")));
+
+        // 声明的原始长度超出上限或压缩比，不分配缓冲区
+        byte[] huge = compressed.clone();
+        ByteBuffer.wrap(huge, 1, 4).putInt(Integer.MAX_VALUE);
+        assertThrows(SerializationException.class, () -> codec.deserialize(huge));
+        byte[] negative = compressed.clone();
+        ByteBuffer.wrap(negative, 1, 4).putInt(-1);
+        assertThrows(SerializationException.class, () -> codec.deserialize(negative));
+        // 声明的长度大于实际内容，或压缩数据被截断
+        byte[] longer = compressed.clone();
+        ByteBuffer.wrap(longer, 1, 4).putInt(701);
+        assertThrows(SerializationException.class, () -> codec.deserialize(longer));
+        byte[] shorter = compressed.clone();
+        ByteBuffer.wrap(shorter, 1, 4).putInt(699);
+        assertThrows(SerializationException.class, () -> codec.deserialize(shorter));
+        assertThrows(SerializationException.class, () -> codec.deserialize(Arrays.copyOf(compressed, compressed.length - 3)));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.springboot_simple_demo.utils.zip;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelZipStreamerTest {
+    @TempDir
+    Path dir;
+
+    // 超过64KB的条目边读边压缩
+    private final ParallelZipStreamer streamer = new ParallelZipStreamer(4, 4, 64 * 1024, 6);
+
+    @AfterEach
+    void tearDown() {
+        streamer.shutdown();
+    }
+
+    @Test
+    void zipsDirectoryInOrder() throws Exception {
+        Map<String, byte[]> expected = new HashMap<>();
+        Random random = new Random(21);
+        for (int i = 0; i < 30; i++) {
+            byte[] content = ("file " + i + "\n").repeat(100 * i).getBytes(StandardCharsets.UTF_8);
+            expected.put("text/" + i + ".txt", write("text/" + i + ".txt", content));
+        }
+        byte[] image = new byte[10_000];
+        random.nextBytes(image);
+        expected.put("image.png", write("image.png", image));
+        byte[] large = new byte[300_000];
+        random.nextBytes(large);
+        expected.put("large.bin", write("large.bin", large));
+        expected.put("large.jpg", write("large.jpg", large));
+        Files.createDirectories(dir.resolve("empty"));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long written = streamer.write(ZipSource.walk(dir), output);
+        assertEquals(output.size(), written);
+
+        // 顺序读取：校验本地文件头和数据描述符
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                if (!entry.isDirectory()) {
+                    assertArrayEquals(expected.get(entry.getName()), zip.readAllBytes(), entry.getName());
+                }
+            }
+        }
+        List<String> sorted = new ArrayList<>(names);
+        sorted.sort(null);
+        assertEquals(sorted, names);
+        assertTrue(names.contains("empty/"));
+        assertTrue(names.contains("text/"));
+
+        // 随机读取：校验中央目录
+        File file = dir.resolveSibling(dir.getFileName() + ".zip").toFile();
+        Files.write(file.toPath(), output.toByteArray());
+        try (ZipFile zip = new ZipFile(file)) {
+            assertEquals(names.size(), zip.size());
+            assertEquals(ZipEntry.STORED, zip.getEntry("image.png").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("text/29.txt").getMethod());
+            assertTrue(zip.getEntry("text/29.txt").getCompressedSize() < expected.get("text/29.txt").length / 10);
+            // 流式条目的已压缩类型使用级别0，基本不膨胀
+            assertTrue(zip.getEntry("large.jpg").getCompressedSize() < large.length + 100);
+            for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+                try (InputStream input = zip.getInputStream(zip.getEntry(entry.getKey()))) {
+                    assertArrayEquals(entry.getValue(), input.readAllBytes(), entry.getKey());
+                }
+            }
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    @Test
+    void writesZip64EndRecordForManyEntries() throws Exception {
+        int count = 70_000;
+        List<ZipSource> sources = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] content = String.valueOf(i).getBytes(StandardCharsets.US_ASCII);
+            sources.add(new ZipSource("entry-" + i, content.length, 0, () -> new ByteArrayInputStream(content)));
+        }
+        Path file = dir.resolve("many.zip");
+        try (var output = Files.newOutputStream(file)) {
+            streamer.write(sources, output);
+        }
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            assertEquals(count, zip.size());
+            ZipEntry last = zip.getEntry("entry-" + (count - 1));
+            assertNotNull(last);
+            try (InputStream input = zip.getInputStream(last)) {
+                assertEquals(String.valueOf(count - 1), new String(input.readAllBytes(), StandardCharsets.US_ASCII));
+            }
+        }
+    }
+
+    @Test
+    void failsWhenSourceCannotBeRead() {
+        List<ZipSource> sources = List.of(
+                new ZipSource("ok.txt", 2, 0, () -> new ByteArrayInputStream(new byte[]{1, 2})),
+                new ZipSource("broken.txt", 2, 0, () -> {
+                    throw new IOException("gone");
+                }));
+        IOException exception = assertThrows(IOException.class, () -> streamer.write(sources, new ByteArrayOutputStream()));
+        assertEquals("gone", exception.getCause().getMessage());
+    }
+
+    private byte[] write(String name, byte[] content) throws IOException {
+        Path path = dir.resolve(name);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content);
+        return content;
+    }
+}